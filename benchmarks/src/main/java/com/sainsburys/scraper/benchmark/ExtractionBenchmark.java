@@ -0,0 +1,195 @@
+package com.sainsburys.scraper.benchmark;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.select.Collector;
+import org.jsoup.select.Elements;
+import org.jsoup.select.Evaluator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sainsburys.scraper.exception.ParsingFailureException;
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+import com.sainsburys.scraper.service.extract.DomProductExtractor;
+import com.sainsburys.scraper.service.extract.StreamingProductExtractor;
+import com.sainsburys.scraper.service.fetch.FetchedPage;
+import com.sainsburys.scraper.service.fetch.PageSize;
+import com.sainsburys.scraper.service.util.CompiledSelector;
+import com.sainsburys.scraper.service.util.ElementSelectorUtil;
+
+/**
+ * Benchmarks selecting each product field from a product page, and the full
+ * extraction of a fetched page by both extractors.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExtractionBenchmark {
+
+    /** The compiled title selector. */
+    private static final Evaluator TITLE_EVALUATOR = CompiledSelector.compile(ElementSelectorUtil.TITLE_SELECTOR);
+
+    /** The compiled price selector. */
+    private static final Evaluator PRICE_EVALUATOR = CompiledSelector.compile(ElementSelectorUtil.PRICE_SELECTOR);
+
+    /** The compiled description selector. */
+    private static final Evaluator DESCRIPTION_EVALUATOR = CompiledSelector
+            .compile(ElementSelectorUtil.DESCRIPTION_SELECTOR);
+
+    /** The product page fixture. */
+    @Param({ "product-small.html", "product-large.html" })
+    private String fixture;
+
+    /** The fixture URI. */
+    private String uri;
+
+    /** The fetched fixture. */
+    private FetchedPage page;
+
+    /** The parsed fixture. */
+    private Document document;
+
+    /** The text of the price element. */
+    private String priceText;
+
+    /** The DOM extractor. */
+    private final DomProductExtractor domExtractor = new DomProductExtractor(PageSize.WIRE);
+
+    /** The streaming extractor. */
+    private final StreamingProductExtractor streamingExtractor = new StreamingProductExtractor(PageSize.WIRE);
+
+    /**
+     * Load and parse the fixture, checking both extractors agree on it.
+     *
+     * @throws IOException if the fixture cannot be read
+     * @throws ParsingFailureException if the fixture is not a product page
+     */
+    @Setup
+    public void setUp() throws IOException, ParsingFailureException {
+        uri = Fixtures.uri(fixture);
+        page = Fixtures.page(fixture);
+        document = page.parse();
+        priceText = Collector.collect(PRICE_EVALUATOR, document).text();
+        final ScraperResultModel dom = domExtractor.extract(uri, page);
+        final ScraperResultModel streamed = streamingExtractor.extract(uri, page);
+        if (!Objects.equals(dom.getTitle(), streamed.getTitle())
+                || !Objects.equals(dom.getUnitPrice(), streamed.getUnitPrice())
+                || !Objects.equals(dom.getDescription(), streamed.getDescription())) {
+            throw new IllegalStateException("The extractors disagree on " + fixture);
+        }
+    }
+
+    /**
+     * @return the parsed page
+     * @throws IOException if the page cannot be decoded
+     */
+    @Benchmark
+    public Document parse() throws IOException {
+        return page.parse();
+    }
+
+    /**
+     * @return the title elements
+     */
+    @Benchmark
+    public Elements selectTitle() {
+        return Collector.collect(TITLE_EVALUATOR, document);
+    }
+
+    /**
+     * @return the price elements
+     */
+    @Benchmark
+    public Elements selectPrice() {
+        return Collector.collect(PRICE_EVALUATOR, document);
+    }
+
+    /**
+     * @return the description header elements
+     */
+    @Benchmark
+    public Elements selectDescription() {
+        return Collector.collect(DESCRIPTION_EVALUATOR, document);
+    }
+
+    /**
+     * @return the model builder with the price set
+     * @throws ParsingFailureException if the price text holds two prices
+     */
+    @Benchmark
+    public ScraperResultModel.Builder setPriceFromText() throws ParsingFailureException {
+        final ScraperResultModel.Builder model = ScraperResultModel.builder();
+        ElementSelectorUtil.setPriceFromText(uri, priceText, model);
+        return model;
+    }
+
+    /**
+     * @return the model builder with the wire size set
+     * @throws IOException if the page cannot be measured
+     */
+    @Benchmark
+    public ScraperResultModel.Builder setSizeFromWire() throws IOException {
+        final ScraperResultModel.Builder model = ScraperResultModel.builder();
+        ElementSelectorUtil.setSizeFromPage(page, PageSize.WIRE, model);
+        return model;
+    }
+
+    /**
+     * @return the model builder with the decoded size set
+     * @throws IOException if the page cannot be decoded
+     */
+    @Benchmark
+    public ScraperResultModel.Builder setSizeFromDecoded() throws IOException {
+        final ScraperResultModel.Builder model = ScraperResultModel.builder();
+        ElementSelectorUtil.setSizeFromPage(page, PageSize.DECODED, model);
+        return model;
+    }
+
+    /**
+     * @return the model builder with the title, price and description set
+     * @throws ParsingFailureException if a field is missing from the page
+     */
+    @Benchmark
+    public ScraperResultModel.Builder setFieldsFromDocument() throws ParsingFailureException {
+        final ScraperResultModel.Builder model = ScraperResultModel.builder();
+        ElementSelectorUtil.setFieldsFromDocument(uri, document, model);
+        return model;
+    }
+
+    /**
+     * @return the model extracted from the fetched page by the DOM extractor
+     * @throws IOException if the page cannot be decoded
+     * @throws ParsingFailureException if a field is missing from the page
+     */
+    @Benchmark
+    public ScraperResultModel extractDom() throws IOException, ParsingFailureException {
+        return domExtractor.extract(uri, page);
+    }
+
+    /**
+     * @return the model extracted from the fetched page by the streaming
+     * extractor
+     * @throws IOException if the page cannot be decoded
+     * @throws ParsingFailureException if a field is missing from the page
+     */
+    @Benchmark
+    public ScraperResultModel extractStreaming() throws IOException, ParsingFailureException {
+        return streamingExtractor.extract(uri, page);
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.sainsburys.scraper.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sainsburys.scraper.json.model.ScraperModel;
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+import com.sainsburys.scraper.service.fetch.FetchedPage;
+
+/**
+ * Loads the local product page fixtures and builds models for the
+ * benchmarks.
+ */
+final class Fixtures {
+
+    /** The classpath folder holding the product pages. */
+    private static final String FIXTURE_FOLDER = "/fixtures/";
+
+    /** The URI the fixtures are served from. */
+    private static final String FIXTURE_URI = "http://localhost/fixtures/{0}";
+
+    /** The OK status. */
+    private static final int SC_OK = 200;
+
+    /** The read buffer size. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** The description of a generated product. */
+    private static final String DESCRIPTION = "by Sainsbury's ripe & ready to eat, grown with care and picked at "
+            + "their best";
+
+    /**
+     * Private constructor.
+     */
+    private Fixtures() {
+    }
+
+    /**
+     * @param name the fixture name
+     * @return the URI the fixture is served from
+     */
+    static String uri(final String name) {
+        return MessageFormat.format(FIXTURE_URI, name);
+    }
+
+    /**
+     * Load a fixture as the page fetcher would return it.
+     *
+     * @param name the fixture name
+     * @return the fetched page
+     * @throws IOException if the fixture cannot be read
+     */
+    static FetchedPage page(final String name) throws IOException {
+        try (final InputStream in = Fixtures.class.getResourceAsStream(FIXTURE_FOLDER + name)) {
+            if (in == null) {
+                throw new IOException(MessageFormat.format("No fixture named {0}", name));
+            }
+            final ByteArrayOutputStream body = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+            }
+            return new FetchedPage(uri(name), SC_OK, body.toByteArray(), null);
+        }
+    }
+
+    /**
+     * Build a model of generated products.
+     *
+     * @param products the number of products
+     * @return the model
+     */
+    static ScraperModel model(final int products) {
+        final List<ScraperResultModel> results = new ArrayList<>(products);
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < products; i++) {
+            final ScraperResultModel result = ScraperResultModel.builder()
+                    .title("Sainsbury's Product " + i + " Ripe & Ready x4")
+                    .size(BigDecimal.valueOf(i % 100, 2).add(BigDecimal.TEN) + "kb")
+                    .unitPrice(BigDecimal.valueOf(100 + i % 900, 2))
+                    .description(DESCRIPTION)
+                    .build();
+            results.add(result);
+            total = total.add(result.getUnitPrice());
+        }
+        return ScraperModel.builder().results(results).total(total).build();
+    }
+
+}
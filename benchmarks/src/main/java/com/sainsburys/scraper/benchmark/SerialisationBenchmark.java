@@ -0,0 +1,121 @@
+package com.sainsburys.scraper.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sainsburys.scraper.json.model.ScraperModel;
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+import com.sainsburys.scraper.json.stream.ScraperModelStreamWriter;
+
+/**
+ * Benchmarks serialising a {@link ScraperModel} to JSON in one go and
+ * streamed one product at a time, with and without
+ * {@link SerializationFeature#INDENT_OUTPUT}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerialisationBenchmark {
+
+    /** Whether the output is indented. */
+    @Param({ "true", "false" })
+    private boolean indent;
+
+    /** The number of products in the model. */
+    @Param({ "10", "1000" })
+    private int products;
+
+    /** The mapper. */
+    private ObjectMapper mapper;
+
+    /** The model. */
+    private ScraperModel model;
+
+    /**
+     * Build the mapper and model.
+     */
+    @Setup
+    public void setUp() {
+        mapper = new ObjectMapper();
+        mapper.configure(SerializationFeature.INDENT_OUTPUT, indent);
+        model = Fixtures.model(products);
+    }
+
+    /**
+     * @return the serialised model
+     * @throws JsonProcessingException if the model cannot be serialised
+     */
+    @Benchmark
+    public String writeValueAsString() throws JsonProcessingException {
+        return mapper.writeValueAsString(model);
+    }
+
+    /**
+     * Stream the model a product at a time, as the streaming output does.
+     *
+     * @param blackhole consumes the written bytes
+     * @throws IOException if the model cannot be written
+     */
+    @Benchmark
+    public void streamWriter(final Blackhole blackhole) throws IOException {
+        try (final ScraperModelStreamWriter writer = new ScraperModelStreamWriter(mapper,
+                new BlackholeOutputStream(blackhole))) {
+            for (final ScraperResultModel result : model.getResults()) {
+                writer.writeResult(result);
+            }
+            writer.writeTotal(model.getTotal());
+        }
+    }
+
+    /**
+     * Output stream that hands every byte to a {@link Blackhole}, so
+     * collecting the output does not count towards the allocations.
+     */
+    private static final class BlackholeOutputStream extends OutputStream {
+
+        /** The blackhole. */
+        private final Blackhole blackhole;
+
+        /**
+         * Constructor.
+         *
+         * @param blackhole the blackhole
+         */
+        BlackholeOutputStream(final Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(final int b) {
+            blackhole.consume(b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+            blackhole.consume(b);
+            blackhole.consume(len);
+        }
+
+    }
+
+}
@@ -0,0 +1,221 @@
+package com.sainsburys.scraper.benchmark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An embedded stand-in for the grocery site, serving a listing page of a
+ * given number of products and a page for each product. Product pages are
+ * served after a fixed latency, padded to a given size, and fail with a
+ * server error at a given rate.
+ */
+public final class StubProductSite implements Closeable {
+
+    /** The listing page path. */
+    private static final String LISTING_PATH = "/list.html";
+
+    /** The product page path prefix. */
+    private static final String PRODUCT_PATH = "/products/";
+
+    /** The product page path suffix. */
+    private static final String PRODUCT_SUFFIX = ".html";
+
+    /** The name prefix for the server threads. */
+    private static final String SERVER_THREAD_PREFIX = "stub-site-";
+
+    /** The OK status. */
+    private static final int SC_OK = 200;
+
+    /** The not found status. */
+    private static final int SC_NOT_FOUND = 404;
+
+    /** The server error status. */
+    private static final int SC_SERVER_ERROR = 500;
+
+    /** The listing entry for a product. */
+    private static final String LISTING_ENTRY = "<li><div class=\"productInfo\"><h3>"
+            + "<a href=\"{0}{1}{2}{3}\">Product {2}</a></h3></div></li>\n";
+
+    /** The product page, before any padding. */
+    private static final String PRODUCT_PAGE = "<html><head><title>Product {0}</title></head><body>\n"
+            + "<div class=\"productSummary\"><div class=\"productTitleDescriptionContainer\">"
+            + "<h1>Sainsbury''s Product {0} Ripe &amp; Ready x4</h1></div>\n"
+            + "<div class=\"addToTrolleytabBox\"><div class=\"priceTabContainer\"><div class=\"pricing\">\n"
+            + "<p class=\"pricePerUnit\">&pound;{1}<abbr title=\"per\">/</abbr><abbr title=\"unit\">"
+            + "<span class=\"pricePerUnitUnit\">unit</span></abbr></p>\n"
+            + "</div></div></div></div>\n"
+            + "<div class=\"section productDescription\"><htmlcontent><h3 class=\"productDataItemHeader\">"
+            + "Description</h3>\n<div class=\"productText\"><p>Product {0}, ripe &amp; ready to eat</p></div>"
+            + "</htmlcontent>\n<h3 class=\"productDataItemHeader\">Nutrition</h3><div class=\"productText\">\n"
+            + "{2}</div></div>\n</body></html>\n";
+
+    /** A line of padding, inside the nutrition section. */
+    private static final String PADDING = "<p>Typical values per 100g: energy 200kJ, fat 0.1g, sugars 11.0g</p>\n";
+
+    /** The number of products on the listing. */
+    private final int products;
+
+    /** The latency before each product page is served, in milliseconds. */
+    private final long latencyMillis;
+
+    /** The size product pages are padded to, in bytes. */
+    private final int pageBytes;
+
+    /** The rate product pages fail at, from 0 to 1. */
+    private final double errorRate;
+
+    /** The server. */
+    private final HttpServer server;
+
+    /** The threads serving requests. */
+    private final ExecutorService executor;
+
+    /** The base URI of the site. */
+    private final String baseUri;
+
+    /**
+     * Start the site on a free local port.
+     *
+     * @param products the number of products on the listing
+     * @param latencyMillis the latency before each product page is served,
+     * in milliseconds
+     * @param pageBytes the size product pages are padded to, in bytes
+     * @param errorRate the rate product pages fail at, from 0 to 1
+     * @throws IOException if the server cannot be started
+     */
+    public StubProductSite(final int products, final long latencyMillis, final int pageBytes,
+            final double errorRate) throws IOException {
+        this.products = products;
+        this.latencyMillis = latencyMillis;
+        this.pageBytes = pageBytes;
+        this.errorRate = errorRate;
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(SERVER_THREAD_PREFIX);
+        threadFactory.setDaemon(true);
+        // Unbounded, so the latency of one page never holds up another
+        this.executor = Executors.newCachedThreadPool(threadFactory);
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(executor);
+        this.server.start();
+        this.baseUri = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * @return the URI of the listing page
+     */
+    public URI getListingUri() {
+        return URI.create(baseUri + LISTING_PATH);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Serve a request.
+     *
+     * @param exchange the exchange
+     * @throws IOException if the response cannot be written
+     */
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            final String path = exchange.getRequestURI().getPath();
+            if (LISTING_PATH.equals(path)) {
+                respond(exchange, SC_OK, listingPage());
+            } else if (path.startsWith(PRODUCT_PATH) && path.endsWith(PRODUCT_SUFFIX)) {
+                serveProduct(exchange, path.substring(PRODUCT_PATH.length(), path.length() - PRODUCT_SUFFIX.length()));
+            } else {
+                respond(exchange, SC_NOT_FOUND, new byte[0]);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Serve a product page after the latency, or fail it at the error rate.
+     *
+     * @param exchange the exchange
+     * @param id the product id
+     * @throws IOException if the response cannot be written
+     */
+    private void serveProduct(final HttpExchange exchange, final String id) throws IOException {
+        if (latencyMillis > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(latencyMillis);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+            respond(exchange, SC_SERVER_ERROR, new byte[0]);
+        } else {
+            respond(exchange, SC_OK, productPage(id));
+        }
+    }
+
+    /**
+     * @return the listing page, linking every product
+     */
+    private byte[] listingPage() {
+        final StringBuilder builder = new StringBuilder("<html><body><ul class=\"productLister\">\n");
+        for (int i = 1; i <= products; i++) {
+            builder.append(
+                    MessageFormat.format(LISTING_ENTRY, baseUri, PRODUCT_PATH, String.valueOf(i), PRODUCT_SUFFIX));
+        }
+        return builder.append("</ul></body></html>\n").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Build a product page, padded to the page size.
+     *
+     * @param id the product id
+     * @return the product page
+     */
+    private byte[] productPage(final String id) {
+        final String price = "1." + String.format("%02d", Math.abs(id.hashCode()) % 100);
+        final int unpadded = MessageFormat.format(PRODUCT_PAGE, id, price, "").length();
+        final StringBuilder padding = new StringBuilder();
+        while (unpadded + padding.length() + PADDING.length() <= pageBytes) {
+            padding.append(PADDING);
+        }
+        return MessageFormat.format(PRODUCT_PAGE, id, price, padding).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write a response.
+     *
+     * @param exchange the exchange
+     * @param status the status code
+     * @param body the body
+     * @throws IOException if the response cannot be written
+     */
+    private static void respond(final HttpExchange exchange, final int status, final byte[] body)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (final OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+
+}
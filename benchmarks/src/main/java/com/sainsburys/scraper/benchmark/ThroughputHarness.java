@@ -0,0 +1,268 @@
+package com.sainsburys.scraper.benchmark;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.CommandLinePropertySource;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.MutablePropertySources;
+
+import com.sainsburys.scraper.ScraperApplication;
+import com.sainsburys.scraper.exception.ParsingFailureException;
+import com.sainsburys.scraper.service.api.ScraperService;
+import com.sainsburys.scraper.service.fetch.PageFetcher;
+
+/**
+ * End to end throughput harness. Starts the scraper application and a
+ * {@link StubProductSite}, scrapes the stub listing for some rounds, then
+ * reports the pages fetched per second, the p50 and p99 latency of each page
+ * and the peak heap.
+ * <p>
+ * Takes the application's usual {@code --scraper.*} options, and
+ * {@code --harness.*} options for the stub site and rounds, for example
+ * {@code --harness.products=2000 --harness.latency-millis=50
+ * --scraper.workers=32}.
+ */
+public final class ThroughputHarness {
+
+    /** The default logging for the harness, so only the report is printed. */
+    private static final String DEFAULT_LOGGING = "logging.level.root=WARN";
+
+    /**
+     * The settings the harness puts over the application properties. Nothing
+     * is cached, so every round fetches every page. The command line still
+     * wins.
+     */
+    private static final Map<String, Object> HARNESS_PROPERTIES = new HashMap<>();
+
+    static {
+        HARNESS_PROPERTIES.put("scraper.cache.products.max-entries", 0);
+        HARNESS_PROPERTIES.put("scraper.cache.disk.enabled", false);
+    }
+
+    /** The name of the harness property source. */
+    private static final String HARNESS_PROPERTY_SOURCE = "harness";
+
+    /** The default number of products on the listing. */
+    private static final int DEFAULT_PRODUCTS = 500;
+
+    /** The default latency of a product page, in milliseconds. */
+    private static final long DEFAULT_LATENCY_MILLIS = 20;
+
+    /** The default size of a product page, in bytes. */
+    private static final int DEFAULT_PAGE_BYTES = 16384;
+
+    /** The default rate product pages fail at. */
+    private static final double DEFAULT_ERROR_RATE = 0;
+
+    /** The default number of rounds before measuring. */
+    private static final int DEFAULT_WARMUP_ROUNDS = 2;
+
+    /** The default number of measured rounds. */
+    private static final int DEFAULT_ROUNDS = 5;
+
+    /** The number of bytes in a megabyte. */
+    private static final double BYTES_IN_MB = 1024 * 1024;
+
+    /** The logger. */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ThroughputHarness.class);
+
+    /**
+     * Private constructor.
+     */
+    private ThroughputHarness() {
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args the application and harness options
+     * @throws IOException if the stub site cannot be started
+     */
+    public static void main(final String[] args) throws IOException {
+        final AtomicReference<TimingPageFetcher> fetcher = new AtomicReference<>();
+        final ConfigurableApplicationContext context = new SpringApplicationBuilder(ScraperApplication.class)
+                .web(false)
+                .bannerMode(Banner.Mode.OFF)
+                .properties(DEFAULT_LOGGING)
+                .initializers(initialising -> {
+                    addHarnessProperties(initialising.getEnvironment().getPropertySources());
+                    initialising.getBeanFactory().addBeanPostProcessor(new TimingPostProcessor(fetcher));
+                })
+                .run(args);
+        try {
+            final Environment environment = context.getEnvironment();
+            final int products = environment.getProperty("harness.products", Integer.class, DEFAULT_PRODUCTS);
+            final long latencyMillis = environment.getProperty("harness.latency-millis", Long.class,
+                    DEFAULT_LATENCY_MILLIS);
+            final int pageBytes = environment.getProperty("harness.page-bytes", Integer.class, DEFAULT_PAGE_BYTES);
+            final double errorRate = environment.getProperty("harness.error-rate", Double.class, DEFAULT_ERROR_RATE);
+            final int warmupRounds = environment.getProperty("harness.warmup-rounds", Integer.class,
+                    DEFAULT_WARMUP_ROUNDS);
+            final int rounds = environment.getProperty("harness.rounds", Integer.class, DEFAULT_ROUNDS);
+
+            try (final StubProductSite site = new StubProductSite(products, latencyMillis, pageBytes, errorRate)) {
+                final ScraperService service = context.getBean(ScraperService.class);
+                for (int i = 0; i < warmupRounds; i++) {
+                    scrape(service, site.getListingUri());
+                }
+
+                fetcher.get().reset();
+                resetPeakHeap();
+                final long start = System.nanoTime();
+                int failedRounds = 0;
+                int scrapedProducts = 0;
+                for (int i = 0; i < rounds; i++) {
+                    final int scraped = scrape(service, site.getListingUri());
+                    if (scraped < 0) {
+                        failedRounds++;
+                    } else {
+                        scrapedProducts += scraped;
+                    }
+                }
+                final double seconds = (System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+
+                final long[] latencies = fetcher.get().sortedLatencies();
+                System.out.printf("Stub site: %d products, %d ms latency, %d byte pages, %.3f error rate%n", products,
+                        latencyMillis, pageBytes, errorRate);
+                System.out.printf("Rounds: %d (%d failed), %d products scraped in %.2f s%n", rounds, failedRounds,
+                        scrapedProducts, seconds);
+                System.out.printf("Pages/sec: %.1f%n", latencies.length / seconds);
+                System.out.printf("Page latency p50: %.2f ms, p99: %.2f ms%n", percentileMillis(latencies, 50),
+                        percentileMillis(latencies, 99));
+                System.out.printf("Peak heap: %.1f MB%n", peakHeap() / BYTES_IN_MB);
+            }
+        } finally {
+            SpringApplication.exit(context);
+        }
+    }
+
+    /**
+     * Put the harness settings over the application properties, but under the
+     * command line.
+     *
+     * @param propertySources the environment property sources
+     */
+    private static void addHarnessProperties(final MutablePropertySources propertySources) {
+        final MapPropertySource harness = new MapPropertySource(HARNESS_PROPERTY_SOURCE, HARNESS_PROPERTIES);
+        if (propertySources.contains(CommandLinePropertySource.COMMAND_LINE_PROPERTY_SOURCE_NAME)) {
+            propertySources.addAfter(CommandLinePropertySource.COMMAND_LINE_PROPERTY_SOURCE_NAME, harness);
+        } else {
+            propertySources.addFirst(harness);
+        }
+    }
+
+    /**
+     * Scrape the listing once.
+     *
+     * @param service the scraper service
+     * @param listingUri the listing URI
+     * @return the number of products scraped, or -1 if the scrape failed
+     */
+    private static int scrape(final ScraperService service, final URI listingUri) {
+        final AtomicInteger scraped = new AtomicInteger();
+        try {
+            final BigDecimal total = service.scrapeProductsFromUri(listingUri,
+                    (index, productUri, result) -> scraped.incrementAndGet());
+            LOGGER.debug("Scraped {} products totalling {}", scraped, total);
+            return scraped.get();
+        } catch (final IOException | ParsingFailureException e) {
+            LOGGER.warn("Scraping {} failed: {}", listingUri, e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Get a percentile by the nearest rank.
+     *
+     * @param sorted the sorted latencies in nanoseconds
+     * @param percentile the percentile
+     * @return the latency at the percentile in milliseconds, or 0 if none
+     */
+    private static double percentileMillis(final long[] sorted, final int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        final int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.max(rank, 1) - 1] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Reset the peak usage of every heap pool.
+     */
+    private static void resetPeakHeap() {
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * @return the sum of the peak usage of every heap pool, in bytes
+     */
+    private static long peakHeap() {
+        long peak = 0;
+        for (final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    /**
+     * Wraps the application's {@link PageFetcher} so every fetch is timed.
+     */
+    private static final class TimingPostProcessor implements BeanPostProcessor {
+
+        /** Where the timing fetcher is handed back. */
+        private final AtomicReference<TimingPageFetcher> fetcher;
+
+        /**
+         * Constructor.
+         *
+         * @param fetcher where the timing fetcher is handed back
+         */
+        TimingPostProcessor(final AtomicReference<TimingPageFetcher> fetcher) {
+            this.fetcher = fetcher;
+        }
+
+        @Override
+        public Object postProcessBeforeInitialization(final Object bean, final String beanName)
+                throws BeansException {
+            return bean;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(final Object bean, final String beanName)
+                throws BeansException {
+            if (bean instanceof PageFetcher && !(bean instanceof TimingPageFetcher)) {
+                final TimingPageFetcher timed = new TimingPageFetcher((PageFetcher) bean);
+                fetcher.set(timed);
+                return timed;
+            }
+            return bean;
+        }
+
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.sainsburys.scraper.benchmark;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.sainsburys.scraper.service.fetch.FetchedPage;
+import com.sainsburys.scraper.service.fetch.PageFetcher;
+
+/**
+ * Page fetcher decorator recording how long each fetch takes, whether it
+ * succeeds or fails.
+ */
+final class TimingPageFetcher implements PageFetcher {
+
+    /** The initial number of latencies held. */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** The fetcher timed. */
+    private final PageFetcher delegate;
+
+    /** The recorded latencies in nanoseconds, guarded by this. */
+    private long[] latencies = new long[INITIAL_CAPACITY];
+
+    /** The number of recorded latencies, guarded by this. */
+    private int count;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the fetcher to time
+     */
+    TimingPageFetcher(final PageFetcher delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public FetchedPage fetch(final String uri) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            return delegate.fetch(uri);
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public FetchedPage fetch(final String uri, final String eTag, final String lastModified) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            return delegate.fetch(uri, eTag, lastModified);
+        } finally {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Forget every recorded latency.
+     */
+    synchronized void reset() {
+        count = 0;
+    }
+
+    /**
+     * @return the recorded latencies in nanoseconds, sorted
+     */
+    synchronized long[] sortedLatencies() {
+        final long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    private synchronized void record(final long nanos) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = nanos;
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.sainsburys.scraper.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import com.sainsburys.scraper.json.model.ScraperModel;
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+import com.sainsburys.scraper.validation.ScraperModelValidator;
+
+/**
+ * Benchmarks validating large models with the {@link ScraperModelValidator}
+ * the application configures, against reflective bean validation as the
+ * baseline it replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValidationBenchmark {
+
+    /** The bean validation baseline. */
+    private static final String BEAN_VALIDATION = "bean";
+
+    /** The number of products in the model. */
+    @Param({ "1000", "10000" })
+    private int products;
+
+    /** The validator, the bean validation baseline or the scraper validator. */
+    @Param({ BEAN_VALIDATION, "scraper" })
+    private String engine;
+
+    /** The validator. */
+    private Validator validator;
+
+    /** The model. */
+    private ScraperModel model;
+
+    /**
+     * Build the validator and model.
+     */
+    @Setup
+    public void setUp() {
+        if (BEAN_VALIDATION.equals(engine)) {
+            final LocalValidatorFactoryBean beanValidator = new LocalValidatorFactoryBean();
+            beanValidator.afterPropertiesSet();
+            validator = beanValidator;
+        } else {
+            validator = new ScraperModelValidator();
+        }
+        model = Fixtures.model(products);
+    }
+
+    /**
+     * Close the validator.
+     */
+    @TearDown
+    public void tearDown() {
+        if (validator instanceof LocalValidatorFactoryBean) {
+            ((LocalValidatorFactoryBean) validator).destroy();
+        }
+    }
+
+    /**
+     * Validate the whole model, as the controller does before printing it.
+     *
+     * @return the number of errors
+     */
+    @Benchmark
+    public int validateModel() {
+        return validate(model, "scraperModel");
+    }
+
+    /**
+     * Validate every product in the model, as the service does as each is
+     * extracted.
+     *
+     * @return the number of errors
+     */
+    @Benchmark
+    public int validateEachResult() {
+        int errorCount = 0;
+        for (final ScraperResultModel result : model.getResults()) {
+            errorCount += validate(result, "scraperResultModel");
+        }
+        return errorCount;
+    }
+
+    /**
+     * Validate a target.
+     *
+     * @param target the target
+     * @param name the target name
+     * @return the number of errors
+     */
+    private int validate(final Object target, final String name) {
+        final Errors errors = new BeanPropertyBindingResult(target, name);
+        validator.validate(target, errors);
+        return errors.getErrorCount();
+    }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * JMH benchmarks for the scraper hot paths.
+ */
+package com.sainsburys.scraper.benchmark;
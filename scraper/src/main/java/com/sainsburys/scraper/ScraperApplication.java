@@ -1,12 +1,21 @@
 package com.sainsburys.scraper;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
 import java.net.URI;
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,10 +25,14 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.web.EmbeddedServletContainerAutoConfiguration;
 import org.springframework.boot.autoconfigure.web.WebMvcAutoConfiguration;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.StringUtils;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sainsburys.scraper.config.ScraperProperties;
 import com.sainsburys.scraper.controller.ScraperController;
+import com.sainsburys.scraper.metrics.ScraperMetrics;
 
 /**
  * Main application.
@@ -38,42 +51,89 @@ public class ScraperApplication {
     private static final String TEST_LINK = "http://hiring-tests.s3-website-eu-west-1.amazonaws.com/"
             + "2015_Developer_Scrape/5_products.html";
 
+    /** The report of the products skipped as unchanged since the last run. */
+    private static final String FINGERPRINT_REPORT = "Skipped %d unchanged products, extracted %d new or changed";
+
+    /** The name prefix for the category threads. */
+    private static final String CATEGORY_THREAD_PREFIX = "scraper-category-";
+
     /** The logger. */
     private static Logger LOGGER = LoggerFactory.getLogger(ScraperApplication.class);
 
     /** The scraper controller. */
+    private final ScraperController scraperController;
+
+    /** The scraper properties. */
+    private final ScraperProperties properties;
+
+    /** The metrics registry. */
+    private final ScraperMetrics metrics;
+
+    /** The JSON mapper. */
+    private final ObjectMapper mapper;
+
+    /**
+     * Constructor.
+     *
+     * @param scraperController the scraper controller
+     * @param properties the scraper properties
+     * @param metrics the metrics registry
+     * @param mapper the JSON mapper
+     */
     @Autowired
-    private ScraperController scraperController;
+    public ScraperApplication(final ScraperController scraperController, final ScraperProperties properties,
+            final ScraperMetrics metrics, final ObjectMapper mapper) {
+        this.scraperController = scraperController;
+        this.properties = properties;
+        this.metrics = metrics;
+        this.mapper = mapper;
+    }
 
     /**
-     * Starts the application
+     * Starts the application. See {@link ScraperLauncher} to start without
+     * the Spring context, for one-shot runs.
      *
      * @param args command line args
      * @throws IOException if the input fails
      */
     public static void main(final String[] args) throws IOException {
+        final long start = System.nanoTime();
         final ConfigurableApplicationContext context = SpringApplication.run(ScraperApplication.class);
 
         final ScraperApplication scraperApplication = context.getBean(ScraperApplication.class);
+        scraperApplication.recordStartup(start);
         LOGGER.debug("Started application to scrape with {} arguments", args.length);
 
         scraperApplication.scrape(args);
+        scraperApplication.reportFingerprints();
+        scraperApplication.dumpMetrics();
         SpringApplication.exit(context);
     }
 
     /**
      * Begin scraping the provided URI's, or the test link if none other
-     * provided.
+     * provided. Several valid URI's are scraped in parallel, see
+     * {@link #scrapeInParallel(List)}.
      *
      * @param candidateUrls the potential URI's to parse
      * @throws IOException if the input fails
      */
     public void scrape(final String[] candidateUrls) throws IOException {
         if (candidateUrls.length > 0) {
-            // When there are program arguments run through them all
-            final Set<String> uriSet = new HashSet<String>(Arrays.asList(candidateUrls));
-            for (final String uriString : uriSet) {
-                callController(uriString);
+            // When there are program arguments run through them all, dropping
+            // duplicates and any that cannot be parsed
+            final Map<String, URI> uris = new LinkedHashMap<String, URI>();
+            for (final String uriString : candidateUrls) {
+                try {
+                    uris.putIfAbsent(uriString, getUriFromString(uriString));
+                } catch (final IllegalArgumentException | IllegalStateException e) {
+                    LOGGER.error("URI {} could not be parsed", uriString, e);
+                }
+            }
+            if (uris.size() == 1) {
+                callController(uris.keySet().iterator().next());
+            } else if (uris.size() > 1) {
+                scrapeInParallel(new ArrayList<URI>(uris.values()));
             }
         } else {
             // Potential to loop here
@@ -81,6 +141,96 @@ public class ScraperApplication {
         }
     }
 
+    /**
+     * Scrape several URI's at once, at most
+     * {@link ScraperProperties#getCategoryParallelism()} at a time. Product
+     * pages from every category share the one bounded worker pool, so that
+     * caps the total fetch concurrency. Each category is written to its own
+     * buffer, then copied to the console in a single write, in the order the
+     * URI's were given, so categories never interleave. The categories are
+     * recorded in the price history as a single run, so two such scrapes can
+     * be compared.
+     *
+     * @param uris the URI's to scrape
+     * @throws IOException if interrupted waiting for a category
+     */
+    private void scrapeInParallel(final List<URI> uris) throws IOException {
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(CATEGORY_THREAD_PREFIX);
+        threadFactory.setDaemon(true);
+        final ExecutorService categoryExecutor = Executors
+                .newFixedThreadPool(Math.min(uris.size(), Math.max(1, properties.getCategoryParallelism())),
+                        threadFactory);
+        try {
+            final long run = scraperController.newRun();
+            final List<Future<ByteArrayOutputStream>> outputs = new ArrayList<Future<ByteArrayOutputStream>>(
+                    uris.size());
+            for (final URI uri : uris) {
+                outputs.add(categoryExecutor.submit(() -> {
+                    final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                    scraperController.scrapeWithUri(uri, new PrintStream(buffer, true), run);
+                    return buffer;
+                }));
+            }
+            for (int i = 0; i < outputs.size(); i++) {
+                try {
+                    outputs.get(i).get().writeTo(System.out);
+                } catch (final ExecutionException e) {
+                    LOGGER.error("Scraping {} failed", uris.get(i), e.getCause());
+                }
+            }
+            System.out.flush();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a category to be scraped");
+        } finally {
+            categoryExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Record the time taken to start, from the given {@link System#nanoTime()}
+     * until now, as the {@link ScraperMetrics#STARTUP} timer.
+     *
+     * @param start the nano time the application started at
+     * @return the time taken to start in nanoseconds
+     */
+    public long recordStartup(final long start) {
+        final long elapsed = System.nanoTime() - start;
+        metrics.timer(ScraperMetrics.STARTUP).record(elapsed);
+        return elapsed;
+    }
+
+    /**
+     * Report how many products were unchanged since the last run and so not
+     * extracted again, when {@code scraper.cache.fingerprints.file} is set.
+     * Written to the error stream so the JSON on the console is untouched.
+     */
+    public void reportFingerprints() {
+        if (StringUtils.isEmpty(properties.getCache().getFingerprints().getFile())) {
+            return;
+        }
+        final Map<String, Long> counters = metrics.snapshot().getCounters();
+        System.err.println(String.format(FINGERPRINT_REPORT,
+                counters.getOrDefault(ScraperMetrics.FINGERPRINT_UNCHANGED, 0L),
+                counters.getOrDefault(ScraperMetrics.FINGERPRINT_CHANGED, 0L)));
+    }
+
+    /**
+     * Dump the metrics as JSON to {@code scraper.metrics.file}, when set.
+     */
+    public void dumpMetrics() {
+        final String file = properties.getMetrics().getFile();
+        if (StringUtils.isEmpty(file)) {
+            return;
+        }
+        try {
+            metrics.writeJson(mapper, Paths.get(file));
+            LOGGER.debug("Wrote metrics to {}", file);
+        } catch (final IOException e) {
+            LOGGER.error("Metrics could not be written to {}", file, e);
+        }
+    }
+
     /**
      * Gets the uri from a given string.
      *
@@ -0,0 +1,223 @@
+package com.sainsburys.scraper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.ApplicationPid;
+import org.springframework.boot.bind.PropertiesConfigurationFactory;
+import org.springframework.boot.bind.RelaxedPropertyResolver;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingInitializationContext;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.ResourcePropertySource;
+import org.springframework.validation.BindException;
+import org.springframework.validation.Validator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sainsburys.scraper.config.ScraperAppConfiguration;
+import com.sainsburys.scraper.config.ScraperProperties;
+import com.sainsburys.scraper.controller.ScraperController;
+import com.sainsburys.scraper.history.PriceHistoryWriter;
+import com.sainsburys.scraper.metrics.ScraperMetrics;
+import com.sainsburys.scraper.service.ScraperServiceProvider;
+import com.sainsburys.scraper.service.cache.FingerprintStore;
+import com.sainsburys.scraper.service.fetch.PageFetcher;
+
+/**
+ * Fast-start application.
+ * <p>
+ * Runs the same scrape as {@link ScraperApplication}, with the same settings
+ * and output, but wires the application by hand from
+ * {@link ScraperAppConfiguration} rather than starting a Spring context, so
+ * there is no classpath scanning or auto-configuration to wait for. Suited to
+ * one-shot runs of small pages, where starting the context takes longer than
+ * the scrape. The time to start is reported on the error stream, and
+ * recorded as the {@link ScraperMetrics#STARTUP} timer as it is by
+ * {@link ScraperApplication}, so the two can be compared.
+ * <p>
+ * The settings are read from the system properties, the environment and
+ * {@code application.properties}, in that order, as Spring Boot reads them.
+ */
+public class ScraperLauncher implements Closeable {
+
+    /** The prefix of the scraper settings. */
+    private static final String SCRAPER_PREFIX = "scraper";
+
+    /** The system property the process id is logged from. */
+    private static final String PID_KEY = "PID";
+
+    /** The name of the root logger in the logging levels. */
+    private static final String ROOT_LOGGER = "root";
+
+    /** The prefix of the logging levels. */
+    private static final String LOGGING_LEVEL_PREFIX = "logging.level.";
+
+    /** The report of the time taken to start. */
+    private static final String STARTUP_REPORT = "Started in %d ms";
+
+    /** The application properties, in the order Spring Boot overrides them. */
+    private static final String[] PROPERTIES_LOCATIONS = { "file:./config/application.properties",
+            "file:./application.properties", "classpath:/config/application.properties",
+            "classpath:/application.properties" };
+
+    /** The application wired. */
+    private final ScraperApplication application;
+
+    /** The resources closed when the launcher is, most recently opened first. */
+    private final Deque<Closeable> resources = new ArrayDeque<Closeable>();
+
+    /**
+     * Constructor, wiring the application as {@link ScraperAppConfiguration}
+     * configures it.
+     *
+     * @param properties the scraper settings
+     * @throws IOException if a cache, store or log cannot be opened
+     */
+    public ScraperLauncher(final ScraperProperties properties) throws IOException {
+        final ScraperAppConfiguration configuration = new ScraperAppConfiguration();
+        final ObjectMapper mapper = configuration.objectMapper();
+        final Validator validator = configuration.defaultValidator();
+        final ScraperMetrics metrics = configuration.scraperMetrics();
+        final ExecutorService scraperExecutor = configuration.scraperExecutor(properties);
+        resources.push(scraperExecutor::shutdownNow);
+        final PageFetcher pageFetcher = configuration.pageFetcher(properties, metrics);
+        if (pageFetcher instanceof Closeable) {
+            resources.push((Closeable) pageFetcher);
+        }
+        final FingerprintStore fingerprintStore = configuration.fingerprintStore(properties);
+        resources.push(fingerprintStore::save);
+        final PriceHistoryWriter priceHistory = configuration.priceHistoryWriter(properties);
+        resources.push(priceHistory);
+        final ScraperServiceProvider scraperService = new ScraperServiceProvider(scraperExecutor, pageFetcher,
+                configuration.productCache(properties), configuration.productExtractor(properties, metrics),
+                fingerprintStore, validator, metrics);
+        final ScraperController controller = new ScraperController(scraperService, mapper, validator, properties,
+                metrics, priceHistory);
+        application = new ScraperApplication(controller, properties, metrics, mapper);
+    }
+
+    /**
+     * Starts the application.
+     *
+     * @param args command line args
+     * @throws IOException if the settings or input cannot be read
+     */
+    public static void main(final String[] args) throws IOException {
+        final long start = System.nanoTime();
+        final LoggingSystem loggingSystem = LoggingSystem.get(ScraperLauncher.class.getClassLoader());
+        loggingSystem.beforeInitialize();
+        final StandardEnvironment environment = environment();
+        initializeLogging(loggingSystem, environment);
+        try (final ScraperLauncher launcher = new ScraperLauncher(bindProperties(environment))) {
+            final long startup = launcher.getApplication().recordStartup(start);
+            System.err.println(String.format(STARTUP_REPORT, TimeUnit.NANOSECONDS.toMillis(startup)));
+            launcher.getApplication().scrape(args);
+            launcher.getApplication().reportFingerprints();
+            launcher.getApplication().dumpMetrics();
+        }
+    }
+
+    /**
+     * @return the application wired
+     */
+    public ScraperApplication getApplication() {
+        return application;
+    }
+
+    /**
+     * Close the resources the application opened, as the Spring context
+     * would, saving the fingerprints and closing the price history.
+     *
+     * @throws IOException if a resource cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        while (!resources.isEmpty()) {
+            try {
+                resources.pop().close();
+            } catch (final IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Create the environment the settings are read from: the system
+     * properties, the environment, then each application properties file
+     * present.
+     *
+     * @return the environment
+     * @throws IOException if a properties file cannot be read
+     */
+    static StandardEnvironment environment() throws IOException {
+        final StandardEnvironment environment = new StandardEnvironment();
+        final ResourceLoader resourceLoader = new DefaultResourceLoader(ScraperLauncher.class.getClassLoader());
+        for (final String location : PROPERTIES_LOCATIONS) {
+            final Resource resource = resourceLoader.getResource(location);
+            if (resource.exists()) {
+                environment.getPropertySources().addLast(new ResourcePropertySource(location, resource));
+            }
+        }
+        return environment;
+    }
+
+    /**
+     * Bind the {@code scraper.*} settings from the environment, with the same
+     * relaxed names as {@code @ConfigurationProperties}.
+     *
+     * @param environment the environment
+     * @return the scraper settings
+     */
+    static ScraperProperties bindProperties(final StandardEnvironment environment) {
+        final ScraperProperties properties = new ScraperProperties();
+        final PropertiesConfigurationFactory<ScraperProperties> factory =
+                new PropertiesConfigurationFactory<ScraperProperties>(properties);
+        factory.setPropertySources(environment.getPropertySources());
+        factory.setTargetName(SCRAPER_PREFIX);
+        try {
+            factory.bindPropertiesToTarget();
+        } catch (final BindException e) {
+            throw new IllegalStateException("The scraper settings could not be bound", e);
+        }
+        return properties;
+    }
+
+    /**
+     * Start the logging system as Spring Boot does, at the
+     * {@code logging.level.*} levels, so the console is logged to just as by
+     * {@link ScraperApplication}.
+     *
+     * @param loggingSystem the logging system, before initialisation
+     * @param environment the environment
+     */
+    private static void initializeLogging(final LoggingSystem loggingSystem, final StandardEnvironment environment) {
+        if (System.getProperty(PID_KEY) == null) {
+            System.setProperty(PID_KEY, new ApplicationPid().toString());
+        }
+        loggingSystem.initialize(new LoggingInitializationContext(environment), null, null);
+        final Map<String, Object> levels = new RelaxedPropertyResolver(environment)
+                .getSubProperties(LOGGING_LEVEL_PREFIX);
+        for (final Map.Entry<String, Object> level : levels.entrySet()) {
+            final String name = ROOT_LOGGER.equalsIgnoreCase(level.getKey()) ? null : level.getKey();
+            loggingSystem.setLogLevel(name, LogLevel.valueOf(level.getValue().toString().trim().toUpperCase()));
+        }
+    }
+
+}
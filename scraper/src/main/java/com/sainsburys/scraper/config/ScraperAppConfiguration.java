@@ -1,19 +1,49 @@
 package com.sainsburys.scraper.config;
 
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.StringUtils;
 import org.springframework.validation.Validator;
-import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sainsburys.scraper.history.PriceHistoryWriter;
+import com.sainsburys.scraper.metrics.ScraperMetrics;
+import com.sainsburys.scraper.service.cache.DiskResponseCache;
+import com.sainsburys.scraper.service.cache.FingerprintStore;
+import com.sainsburys.scraper.service.cache.ProductCache;
+import com.sainsburys.scraper.service.extract.DomProductExtractor;
+import com.sainsburys.scraper.service.extract.ProductExtractor;
+import com.sainsburys.scraper.service.extract.StreamingProductExtractor;
+import com.sainsburys.scraper.service.fetch.AdaptivePageFetcher;
+import com.sainsburys.scraper.service.fetch.CachingPageFetcher;
+import com.sainsburys.scraper.service.fetch.HedgingPageFetcher;
+import com.sainsburys.scraper.service.fetch.JsoupPageFetcher;
+import com.sainsburys.scraper.service.fetch.PageFetcher;
+import com.sainsburys.scraper.service.fetch.PageSize;
+import com.sainsburys.scraper.service.fetch.PooledHttpPageFetcher;
+import com.sainsburys.scraper.service.fetch.RetryingPageFetcher;
+import com.sainsburys.scraper.validation.ScraperModelValidator;
 
 /**
  * The applications core configuration.
  */
 @Configuration
+@EnableConfigurationProperties(ScraperProperties.class)
 public class ScraperAppConfiguration {
 
+    /** The name prefix for the worker threads. */
+    private static final String WORKER_THREAD_PREFIX = "scraper-worker-";
+
     /**
      * Configures a {@link ObjectMapper} to the context.
      *
@@ -27,13 +57,186 @@ public class ScraperAppConfiguration {
     }
 
     /**
-     * Configures a {@link Validator} to the context.
+     * Configures a {@link Validator} to the context, checking the models
+     * without reflection. Primary, as server mode adds a validator of its own
+     * for Spring MVC.
      *
      * @return the default validator
      */
     @Bean
+    @Primary
     public Validator defaultValidator() {
-        return new LocalValidatorFactoryBean();
+        return new ScraperModelValidator();
+    }
+
+    /**
+     * Configures the bounded worker pool used to fetch and parse product
+     * pages. The threads are daemons so an unfinished scrape never holds the
+     * JVM open.
+     *
+     * @param properties the scraper properties
+     * @return the worker pool
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService scraperExecutor(final ScraperProperties properties) {
+        if (properties.getWorkers() < 1) {
+            throw new IllegalStateException("scraper.workers must be at least 1 but was " + properties.getWorkers());
+        }
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(WORKER_THREAD_PREFIX);
+        threadFactory.setDaemon(true);
+        return Executors.newFixedThreadPool(properties.getWorkers(), threadFactory);
+    }
+
+    /**
+     * Configures the {@link PageFetcher} selected by
+     * {@code scraper.fetch.client}, limited per host when
+     * {@code scraper.fetch.adaptive.enabled}, hedged when
+     * {@code scraper.fetch.hedge.enabled}, retried up to
+     * {@code scraper.fetch.retry.max-attempts} and behind the on-disk
+     * response cache when {@code scraper.cache.disk.enabled}.
+     *
+     * @param properties the scraper properties
+     * @param metrics the metrics registry
+     * @return the page fetcher
+     * @throws IOException if the cache directory cannot be created or read
+     */
+    @Bean
+    public PageFetcher pageFetcher(final ScraperProperties properties, final ScraperMetrics metrics)
+            throws IOException {
+        final ScraperProperties.Cache.Disk diskCache = properties.getCache().getDisk();
+        final ScraperProperties.Fetch.Adaptive adaptive = properties.getFetch().getAdaptive();
+        final ScraperProperties.Fetch.Hedge hedge = properties.getFetch().getHedge();
+        final ScraperProperties.Fetch.Retry retry = properties.getFetch().getRetry();
+        PageFetcher networkFetcher = networkFetcher(properties.getFetch());
+        if (adaptive.isEnabled()) {
+            networkFetcher = new AdaptivePageFetcher(networkFetcher, adaptive, maxFetchesPerHost(properties),
+                    metrics);
+        }
+        if (hedge.isEnabled()) {
+            networkFetcher = new HedgingPageFetcher(networkFetcher, hedge, metrics);
+        }
+        if (retry.getMaxAttempts() > 1) {
+            networkFetcher = new RetryingPageFetcher(networkFetcher, retry, metrics);
+        }
+        if (diskCache.isEnabled()) {
+            return new CachingPageFetcher(networkFetcher,
+                    new DiskResponseCache(Paths.get(diskCache.getDirectory()), diskCache.getMaxSize()));
+        }
+        return networkFetcher;
+    }
+
+    /**
+     * Configures the in-memory {@link ProductCache}.
+     *
+     * @param properties the scraper properties
+     * @return the product cache
+     */
+    @Bean
+    public ProductCache productCache(final ScraperProperties properties) {
+        final ScraperProperties.Cache.Products settings = properties.getCache().getProducts();
+        return new ProductCache(Duration.ofSeconds(settings.getTtlSeconds()), settings.getMaxEntries());
+    }
+
+    /**
+     * Configures the persistent {@link FingerprintStore}, kept in
+     * {@code scraper.cache.fingerprints.file} and disabled when that is
+     * empty. Saved as the context closes so a run's products are kept for
+     * the next. The products are tagged with {@code scraper.extract.page-size},
+     * as that changes the size extracted from the same page.
+     *
+     * @param properties the scraper properties
+     * @return the fingerprint store
+     * @throws IOException if the store cannot be read
+     */
+    @Bean(destroyMethod = "save")
+    public FingerprintStore fingerprintStore(final ScraperProperties properties) throws IOException {
+        final String file = properties.getCache().getFingerprints().getFile();
+        if (StringUtils.isEmpty(file)) {
+            return new FingerprintStore();
+        }
+        return new FingerprintStore(Paths.get(file), properties.getExtract().getPageSize().name());
+    }
+
+    /**
+     * Configures the {@link PriceHistoryWriter} appending to
+     * {@code scraper.history.file}, disabled when that is empty.
+     *
+     * @param properties the scraper properties
+     * @return the price history writer
+     * @throws IOException if the log cannot be opened
+     */
+    @Bean(destroyMethod = "close")
+    public PriceHistoryWriter priceHistoryWriter(final ScraperProperties properties) throws IOException {
+        final String file = properties.getHistory().getFile();
+        if (StringUtils.isEmpty(file)) {
+            return new PriceHistoryWriter();
+        }
+        return new PriceHistoryWriter(Paths.get(file));
+    }
+
+    /**
+     * Configures the {@link ScraperMetrics} every phase of a scrape is timed
+     * and counted in.
+     *
+     * @return the metrics registry
+     */
+    @Bean
+    public ScraperMetrics scraperMetrics() {
+        return new ScraperMetrics();
+    }
+
+    /**
+     * Configures the {@link ProductExtractor} selected by
+     * {@code scraper.extract.engine}, measuring pages as
+     * {@code scraper.extract.page-size} says.
+     *
+     * @param properties the scraper properties
+     * @param metrics the metrics registry
+     * @return the product extractor
+     */
+    @Bean
+    public ProductExtractor productExtractor(final ScraperProperties properties, final ScraperMetrics metrics) {
+        final PageSize pageSize = properties.getExtract().getPageSize();
+        switch (properties.getExtract().getEngine()) {
+        case STREAMING:
+            return new StreamingProductExtractor(pageSize, metrics);
+        case DOM:
+        default:
+            return new DomProductExtractor(pageSize, metrics);
+        }
+    }
+
+    /**
+     * Get the most pages that can be fetched at once from one host: one for
+     * each worker, or two when a slow page is hedged, and no more than the
+     * connections to a host when pooled.
+     *
+     * @param properties the scraper properties
+     * @return the most pages fetched at once from a host
+     */
+    private static int maxFetchesPerHost(final ScraperProperties properties) {
+        final ScraperProperties.Fetch fetch = properties.getFetch();
+        final int fetches = fetch.getHedge().isEnabled() ? 2 * properties.getWorkers() : properties.getWorkers();
+        if (fetch.getClient() == ScraperProperties.Fetch.Client.POOLED) {
+            return Math.min(fetches, fetch.getMaxConnectionsPerHost());
+        }
+        return fetches;
+    }
+
+    /**
+     * Create the fetcher that goes to the network.
+     *
+     * @param settings the fetch settings
+     * @return the page fetcher
+     */
+    private static PageFetcher networkFetcher(final ScraperProperties.Fetch settings) {
+        switch (settings.getClient()) {
+        case JSOUP:
+            return new JsoupPageFetcher(settings.getReadTimeout());
+        case POOLED:
+        default:
+            return new PooledHttpPageFetcher(settings);
+        }
     }
 
 }
@@ -0,0 +1,1068 @@
+package com.sainsburys.scraper.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import com.sainsburys.scraper.json.stream.OutputFormat;
+import com.sainsburys.scraper.service.fetch.PageSize;
+
+/**
+ * The externalised scraper settings, bound from the {@code scraper.*}
+ * properties.
+ */
+@ConfigurationProperties(prefix = "scraper")
+public class ScraperProperties {
+
+    /** The default number of product pages fetched and parsed at once. */
+    private static final int DEFAULT_WORKERS = 8;
+
+    /** The default number of categories scraped at once. */
+    private static final int DEFAULT_CATEGORY_PARALLELISM = 4;
+
+    /** The number of worker threads fetching and parsing product pages. */
+    private int workers = DEFAULT_WORKERS;
+
+    /** The number of categories scraped at once when given several URLs. */
+    private int categoryParallelism = DEFAULT_CATEGORY_PARALLELISM;
+
+    /** Whether the products scraped are kept when other product pages fail, the failures listed. */
+    private boolean partialResults;
+
+    /** The page fetching settings. */
+    private final Fetch fetch = new Fetch();
+
+    /** The cache settings. */
+    private final Cache cache = new Cache();
+
+    /** The output settings. */
+    private final Output output = new Output();
+
+    /** The extraction settings. */
+    private final Extract extract = new Extract();
+
+    /** The crawl settings. */
+    private final Crawl crawl = new Crawl();
+
+    /** The price history settings. */
+    private final History history = new History();
+
+    /** The metrics settings. */
+    private final Metrics metrics = new Metrics();
+
+    /** The server mode settings. */
+    private final Server server = new Server();
+
+    /**
+     * @return the workers
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * @param workers the workers to set
+     */
+    public void setWorkers(final int workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * @return the categoryParallelism
+     */
+    public int getCategoryParallelism() {
+        return categoryParallelism;
+    }
+
+    /**
+     * @param categoryParallelism the categoryParallelism to set
+     */
+    public void setCategoryParallelism(final int categoryParallelism) {
+        this.categoryParallelism = categoryParallelism;
+    }
+
+    /**
+     * @return the partialResults
+     */
+    public boolean isPartialResults() {
+        return partialResults;
+    }
+
+    /**
+     * @param partialResults the partialResults to set
+     */
+    public void setPartialResults(final boolean partialResults) {
+        this.partialResults = partialResults;
+    }
+
+    /**
+     * @return the fetch settings
+     */
+    public Fetch getFetch() {
+        return fetch;
+    }
+
+    /**
+     * @return the cache settings
+     */
+    public Cache getCache() {
+        return cache;
+    }
+
+    /**
+     * @return the output settings
+     */
+    public Output getOutput() {
+        return output;
+    }
+
+    /**
+     * @return the extraction settings
+     */
+    public Extract getExtract() {
+        return extract;
+    }
+
+    /**
+     * @return the crawl settings
+     */
+    public Crawl getCrawl() {
+        return crawl;
+    }
+
+    /**
+     * @return the price history settings
+     */
+    public History getHistory() {
+        return history;
+    }
+
+    /**
+     * @return the metrics settings
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the server mode settings
+     */
+    public Server getServer() {
+        return server;
+    }
+
+    /**
+     * The page fetching settings, bound from {@code scraper.fetch.*}.
+     */
+    public static class Fetch {
+
+        /** The default connect timeout in milliseconds. */
+        private static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+
+        /** The default read timeout in milliseconds, as Jsoup uses. */
+        private static final int DEFAULT_READ_TIMEOUT = 30000;
+
+        /** The default wait for a pooled connection in milliseconds. */
+        private static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT = 30000;
+
+        /** The default pooled connections across every host. */
+        private static final int DEFAULT_MAX_CONNECTIONS = 64;
+
+        /** The default pooled connections to a single host. */
+        private static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 16;
+
+        /** The default time an idle connection is kept alive in milliseconds. */
+        private static final int DEFAULT_IDLE_TIMEOUT = 30000;
+
+        /** The default socket buffer size in bytes. */
+        private static final int DEFAULT_SOCKET_BUFFER_SIZE = 16384;
+
+        /** The HTTP client to fetch pages with. */
+        private Client client = Client.POOLED;
+
+        /** The adaptive per-host concurrency settings. */
+        private final Adaptive adaptive = new Adaptive();
+
+        /** The retry settings. */
+        private final Retry retry = new Retry();
+
+        /** The hedged request settings. */
+        private final Hedge hedge = new Hedge();
+
+        /** The connect timeout in milliseconds. */
+        private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+
+        /** The read timeout in milliseconds. */
+        private int readTimeout = DEFAULT_READ_TIMEOUT;
+
+        /** The wait for a pooled connection in milliseconds. */
+        private int connectionRequestTimeout = DEFAULT_CONNECTION_REQUEST_TIMEOUT;
+
+        /** The pooled connections across every host. */
+        private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+        /** The pooled connections to a single host. */
+        private int maxConnectionsPerHost = DEFAULT_MAX_CONNECTIONS_PER_HOST;
+
+        /** The time an idle connection is kept alive in milliseconds. */
+        private int idleTimeout = DEFAULT_IDLE_TIMEOUT;
+
+        /** The socket send and receive buffer size in bytes. */
+        private int socketBufferSize = DEFAULT_SOCKET_BUFFER_SIZE;
+
+        /**
+         * @return the client
+         */
+        public Client getClient() {
+            return client;
+        }
+
+        /**
+         * @param client the client to set
+         */
+        public void setClient(final Client client) {
+            this.client = client;
+        }
+
+        /**
+         * @return the connectTimeout
+         */
+        public int getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        /**
+         * @param connectTimeout the connectTimeout to set
+         */
+        public void setConnectTimeout(final int connectTimeout) {
+            this.connectTimeout = connectTimeout;
+        }
+
+        /**
+         * @return the readTimeout
+         */
+        public int getReadTimeout() {
+            return readTimeout;
+        }
+
+        /**
+         * @param readTimeout the readTimeout to set
+         */
+        public void setReadTimeout(final int readTimeout) {
+            this.readTimeout = readTimeout;
+        }
+
+        /**
+         * @return the connectionRequestTimeout
+         */
+        public int getConnectionRequestTimeout() {
+            return connectionRequestTimeout;
+        }
+
+        /**
+         * @param connectionRequestTimeout the connectionRequestTimeout to set
+         */
+        public void setConnectionRequestTimeout(final int connectionRequestTimeout) {
+            this.connectionRequestTimeout = connectionRequestTimeout;
+        }
+
+        /**
+         * @return the maxConnections
+         */
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        /**
+         * @param maxConnections the maxConnections to set
+         */
+        public void setMaxConnections(final int maxConnections) {
+            this.maxConnections = maxConnections;
+        }
+
+        /**
+         * @return the maxConnectionsPerHost
+         */
+        public int getMaxConnectionsPerHost() {
+            return maxConnectionsPerHost;
+        }
+
+        /**
+         * @param maxConnectionsPerHost the maxConnectionsPerHost to set
+         */
+        public void setMaxConnectionsPerHost(final int maxConnectionsPerHost) {
+            this.maxConnectionsPerHost = maxConnectionsPerHost;
+        }
+
+        /**
+         * @return the idleTimeout
+         */
+        public int getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        /**
+         * @param idleTimeout the idleTimeout to set
+         */
+        public void setIdleTimeout(final int idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+
+        /**
+         * @return the socketBufferSize
+         */
+        public int getSocketBufferSize() {
+            return socketBufferSize;
+        }
+
+        /**
+         * @param socketBufferSize the socketBufferSize to set
+         */
+        public void setSocketBufferSize(final int socketBufferSize) {
+            this.socketBufferSize = socketBufferSize;
+        }
+
+        /**
+         * @return the adaptive per-host concurrency settings
+         */
+        public Adaptive getAdaptive() {
+            return adaptive;
+        }
+
+        /**
+         * @return the retry settings
+         */
+        public Retry getRetry() {
+            return retry;
+        }
+
+        /**
+         * @return the hedged request settings
+         */
+        public Hedge getHedge() {
+            return hedge;
+        }
+
+        /**
+         * The retry settings, bound from {@code scraper.fetch.retry.*}.
+         */
+        public static class Retry {
+
+            /** The default attempts at a page, the first included. */
+            private static final int DEFAULT_MAX_ATTEMPTS = 1;
+
+            /** The default backoff before the first retry in milliseconds, doubled for each retry after. */
+            private static final int DEFAULT_INITIAL_BACKOFF = 100;
+
+            /** The default longest backoff in milliseconds. */
+            private static final int DEFAULT_MAX_BACKOFF = 2000;
+
+            /** The attempts at a page, the first included; 1 turns retries off. */
+            private int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+            /** The backoff before the first retry in milliseconds, doubled for each retry after. */
+            private int initialBackoff = DEFAULT_INITIAL_BACKOFF;
+
+            /** The longest backoff in milliseconds. */
+            private int maxBackoff = DEFAULT_MAX_BACKOFF;
+
+            /**
+             * @return the maxAttempts
+             */
+            public int getMaxAttempts() {
+                return maxAttempts;
+            }
+
+            /**
+             * @param maxAttempts the maxAttempts to set
+             */
+            public void setMaxAttempts(final int maxAttempts) {
+                this.maxAttempts = maxAttempts;
+            }
+
+            /**
+             * @return the initialBackoff
+             */
+            public int getInitialBackoff() {
+                return initialBackoff;
+            }
+
+            /**
+             * @param initialBackoff the initialBackoff to set
+             */
+            public void setInitialBackoff(final int initialBackoff) {
+                this.initialBackoff = initialBackoff;
+            }
+
+            /**
+             * @return the maxBackoff
+             */
+            public int getMaxBackoff() {
+                return maxBackoff;
+            }
+
+            /**
+             * @param maxBackoff the maxBackoff to set
+             */
+            public void setMaxBackoff(final int maxBackoff) {
+                this.maxBackoff = maxBackoff;
+            }
+        }
+
+        /**
+         * The hedged request settings, bound from {@code scraper.fetch.hedge.*}.
+         */
+        public static class Hedge {
+
+            /** The default latency percentile past which a duplicate request is sent. */
+            private static final int DEFAULT_PERCENTILE = 95;
+
+            /** The default shortest wait before a duplicate request in milliseconds. */
+            private static final int DEFAULT_MIN_DELAY = 50;
+
+            /** The default pages timed before any request is hedged. */
+            private static final int DEFAULT_MIN_SAMPLES = 20;
+
+            /** Whether a duplicate request is sent for a slow page. */
+            private boolean enabled;
+
+            /** The latency percentile past which a duplicate request is sent. */
+            private int percentile = DEFAULT_PERCENTILE;
+
+            /** The shortest wait before a duplicate request in milliseconds. */
+            private int minDelay = DEFAULT_MIN_DELAY;
+
+            /** The pages timed before any request is hedged. */
+            private int minSamples = DEFAULT_MIN_SAMPLES;
+
+            /**
+             * @return the enabled
+             */
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            /**
+             * @param enabled the enabled to set
+             */
+            public void setEnabled(final boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            /**
+             * @return the percentile
+             */
+            public int getPercentile() {
+                return percentile;
+            }
+
+            /**
+             * @param percentile the percentile to set
+             */
+            public void setPercentile(final int percentile) {
+                this.percentile = percentile;
+            }
+
+            /**
+             * @return the minDelay
+             */
+            public int getMinDelay() {
+                return minDelay;
+            }
+
+            /**
+             * @param minDelay the minDelay to set
+             */
+            public void setMinDelay(final int minDelay) {
+                this.minDelay = minDelay;
+            }
+
+            /**
+             * @return the minSamples
+             */
+            public int getMinSamples() {
+                return minSamples;
+            }
+
+            /**
+             * @param minSamples the minSamples to set
+             */
+            public void setMinSamples(final int minSamples) {
+                this.minSamples = minSamples;
+            }
+        }
+
+        /**
+         * The adaptive per-host concurrency settings, bound from
+         * {@code scraper.fetch.adaptive.*}.
+         */
+        public static class Adaptive {
+
+            /** The default pages fetched at once from a host to start with. */
+            private static final int DEFAULT_INITIAL_LIMIT = 4;
+
+            /** The default fewest pages fetched at once from a host. */
+            private static final int DEFAULT_MIN_LIMIT = 1;
+
+            /** The default most pages fetched at once from a host. */
+            private static final int DEFAULT_MAX_LIMIT = 64;
+
+            /** The default ratio the limit is cut by on a sign of overload. */
+            private static final double DEFAULT_BACKOFF_RATIO = 0.5;
+
+            /** The default multiple of the baseline latency taken as a sign of overload. */
+            private static final double DEFAULT_LATENCY_TOLERANCE = 2.0;
+
+            /** Whether the pages fetched at once from each host are limited adaptively. */
+            private boolean enabled;
+
+            /** The pages fetched at once from a host to start with. */
+            private int initialLimit = DEFAULT_INITIAL_LIMIT;
+
+            /** The fewest pages fetched at once from a host. */
+            private int minLimit = DEFAULT_MIN_LIMIT;
+
+            /** The most pages fetched at once from a host. */
+            private int maxLimit = DEFAULT_MAX_LIMIT;
+
+            /** The ratio the limit is cut by on a sign of overload. */
+            private double backoffRatio = DEFAULT_BACKOFF_RATIO;
+
+            /** The multiple of the baseline latency taken as a sign of overload. */
+            private double latencyTolerance = DEFAULT_LATENCY_TOLERANCE;
+
+            /**
+             * @return the enabled
+             */
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            /**
+             * @param enabled the enabled to set
+             */
+            public void setEnabled(final boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            /**
+             * @return the initialLimit
+             */
+            public int getInitialLimit() {
+                return initialLimit;
+            }
+
+            /**
+             * @param initialLimit the initialLimit to set
+             */
+            public void setInitialLimit(final int initialLimit) {
+                this.initialLimit = initialLimit;
+            }
+
+            /**
+             * @return the minLimit
+             */
+            public int getMinLimit() {
+                return minLimit;
+            }
+
+            /**
+             * @param minLimit the minLimit to set
+             */
+            public void setMinLimit(final int minLimit) {
+                this.minLimit = minLimit;
+            }
+
+            /**
+             * @return the maxLimit
+             */
+            public int getMaxLimit() {
+                return maxLimit;
+            }
+
+            /**
+             * @param maxLimit the maxLimit to set
+             */
+            public void setMaxLimit(final int maxLimit) {
+                this.maxLimit = maxLimit;
+            }
+
+            /**
+             * @return the backoffRatio
+             */
+            public double getBackoffRatio() {
+                return backoffRatio;
+            }
+
+            /**
+             * @param backoffRatio the backoffRatio to set
+             */
+            public void setBackoffRatio(final double backoffRatio) {
+                this.backoffRatio = backoffRatio;
+            }
+
+            /**
+             * @return the latencyTolerance
+             */
+            public double getLatencyTolerance() {
+                return latencyTolerance;
+            }
+
+            /**
+             * @param latencyTolerance the latencyTolerance to set
+             */
+            public void setLatencyTolerance(final double latencyTolerance) {
+                this.latencyTolerance = latencyTolerance;
+            }
+        }
+
+        /**
+         * The HTTP clients pages can be fetched with.
+         */
+        public enum Client {
+
+            /** A pooled keep-alive Apache HttpClient, shared by every worker. */
+            POOLED,
+
+            /** A new Jsoup connection per page. */
+            JSOUP
+        }
+    }
+
+    /**
+     * The extraction settings, bound from {@code scraper.extract.*}.
+     */
+    public static class Extract {
+
+        /** The engine extracting products from their pages. */
+        private Engine engine = Engine.DOM;
+
+        /** How the page size is measured. */
+        private PageSize pageSize = PageSize.WIRE;
+
+        /**
+         * @return the engine
+         */
+        public Engine getEngine() {
+            return engine;
+        }
+
+        /**
+         * @param engine the engine to set
+         */
+        public void setEngine(final Engine engine) {
+            this.engine = engine;
+        }
+
+        /**
+         * @return the pageSize
+         */
+        public PageSize getPageSize() {
+            return pageSize;
+        }
+
+        /**
+         * @param pageSize the pageSize to set
+         */
+        public void setPageSize(final PageSize pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        /**
+         * The engines that can extract products from their pages.
+         */
+        public enum Engine {
+
+            /** Parse a full Jsoup document and select from it. */
+            DOM,
+
+            /** Tokenize the page, keeping only the fields wanted. */
+            STREAMING
+        }
+    }
+
+    /**
+     * The output settings, bound from {@code scraper.output.*}.
+     */
+    public static class Output {
+
+        /** Whether products are written as they are extracted. */
+        private boolean streaming;
+
+        /** The format the products are written in. */
+        private OutputFormat format = OutputFormat.JSON;
+
+        /**
+         * @return the streaming
+         */
+        public boolean isStreaming() {
+            return streaming;
+        }
+
+        /**
+         * @param streaming the streaming to set
+         */
+        public void setStreaming(final boolean streaming) {
+            this.streaming = streaming;
+        }
+
+        /**
+         * @return the format
+         */
+        public OutputFormat getFormat() {
+            return format;
+        }
+
+        /**
+         * @param format the format to set
+         */
+        public void setFormat(final OutputFormat format) {
+            this.format = format;
+        }
+    }
+
+    /**
+     * The cache settings, bound from {@code scraper.cache.*}.
+     */
+    public static class Cache {
+
+        /** The on-disk response cache settings. */
+        private final Disk disk = new Disk();
+
+        /** The in-memory extracted product cache settings. */
+        private final Products products = new Products();
+
+        /** The persistent product fingerprint settings. */
+        private final Fingerprints fingerprints = new Fingerprints();
+
+        /**
+         * @return the disk cache settings
+         */
+        public Disk getDisk() {
+            return disk;
+        }
+
+        /**
+         * @return the product cache settings
+         */
+        public Products getProducts() {
+            return products;
+        }
+
+        /**
+         * @return the fingerprint settings
+         */
+        public Fingerprints getFingerprints() {
+            return fingerprints;
+        }
+
+        /**
+         * The persistent product fingerprint settings, bound from
+         * {@code scraper.cache.fingerprints.*}.
+         */
+        public static class Fingerprints {
+
+            /** The file the fingerprints are kept in between runs, empty disables them. */
+            private String file = "";
+
+            /**
+             * @return the file
+             */
+            public String getFile() {
+                return file;
+            }
+
+            /**
+             * @param file the file to set
+             */
+            public void setFile(final String file) {
+                this.file = file;
+            }
+        }
+
+        /**
+         * The in-memory extracted product cache settings, bound from
+         * {@code scraper.cache.products.*}.
+         */
+        public static class Products {
+
+            /** The default time to live in seconds, disabled. */
+            private static final long DEFAULT_TTL_SECONDS = 0;
+
+            /** The default maximum number of entries. */
+            private static final int DEFAULT_MAX_ENTRIES = 10000;
+
+            /** The time a product is served from the cache in seconds, 0 disables it. */
+            private long ttlSeconds = DEFAULT_TTL_SECONDS;
+
+            /** The maximum number of entries. */
+            private int maxEntries = DEFAULT_MAX_ENTRIES;
+
+            /**
+             * @return the ttlSeconds
+             */
+            public long getTtlSeconds() {
+                return ttlSeconds;
+            }
+
+            /**
+             * @param ttlSeconds the ttlSeconds to set
+             */
+            public void setTtlSeconds(final long ttlSeconds) {
+                this.ttlSeconds = ttlSeconds;
+            }
+
+            /**
+             * @return the maxEntries
+             */
+            public int getMaxEntries() {
+                return maxEntries;
+            }
+
+            /**
+             * @param maxEntries the maxEntries to set
+             */
+            public void setMaxEntries(final int maxEntries) {
+                this.maxEntries = maxEntries;
+            }
+        }
+
+        /**
+         * The on-disk response cache settings, bound from
+         * {@code scraper.cache.disk.*}.
+         */
+        public static class Disk {
+
+            /** The default cache directory. */
+            private static final String DEFAULT_DIRECTORY = ".scraper-cache";
+
+            /** The default maximum size of the cached bodies, 256MB. */
+            private static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+            /** Whether page bodies are cached on disk and revalidated. */
+            private boolean enabled;
+
+            /** The cache directory. */
+            private String directory = DEFAULT_DIRECTORY;
+
+            /** The maximum total size of the cached bodies in bytes. */
+            private long maxSize = DEFAULT_MAX_SIZE;
+
+            /**
+             * @return the enabled
+             */
+            public boolean isEnabled() {
+                return enabled;
+            }
+
+            /**
+             * @param enabled the enabled to set
+             */
+            public void setEnabled(final boolean enabled) {
+                this.enabled = enabled;
+            }
+
+            /**
+             * @return the directory
+             */
+            public String getDirectory() {
+                return directory;
+            }
+
+            /**
+             * @param directory the directory to set
+             */
+            public void setDirectory(final String directory) {
+                this.directory = directory;
+            }
+
+            /**
+             * @return the maxSize
+             */
+            public long getMaxSize() {
+                return maxSize;
+            }
+
+            /**
+             * @param maxSize the maxSize to set
+             */
+            public void setMaxSize(final long maxSize) {
+                this.maxSize = maxSize;
+            }
+        }
+    }
+
+    /**
+     * The crawl settings, bound from {@code scraper.crawl.*}.
+     */
+    public static class Crawl {
+
+        /** The default selector of the links followed to more listing pages. */
+        private static final String DEFAULT_LISTING_LINK_SELECTOR = "ul.pages li.next a, ul.categories li a";
+
+        /** The default most links followed from the seed. */
+        private static final int DEFAULT_MAX_DEPTH = 5;
+
+        /** The default most listing pages fetched. */
+        private static final int DEFAULT_MAX_PAGES = 100;
+
+        /** Whether each URL is crawled as a seed rather than scraped as a single listing. */
+        private boolean enabled;
+
+        /** The CSS selector of the links followed to more listing pages. */
+        private String listingLinkSelector = DEFAULT_LISTING_LINK_SELECTOR;
+
+        /** The most links followed from the seed to reach a listing page. */
+        private int maxDepth = DEFAULT_MAX_DEPTH;
+
+        /** The most listing pages fetched for a seed, counting the seed. */
+        private int maxPages = DEFAULT_MAX_PAGES;
+
+        /**
+         * @return the enabled
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * @param enabled the enabled to set
+         */
+        public void setEnabled(final boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return the listingLinkSelector
+         */
+        public String getListingLinkSelector() {
+            return listingLinkSelector;
+        }
+
+        /**
+         * @param listingLinkSelector the listingLinkSelector to set
+         */
+        public void setListingLinkSelector(final String listingLinkSelector) {
+            this.listingLinkSelector = listingLinkSelector;
+        }
+
+        /**
+         * @return the maxDepth
+         */
+        public int getMaxDepth() {
+            return maxDepth;
+        }
+
+        /**
+         * @param maxDepth the maxDepth to set
+         */
+        public void setMaxDepth(final int maxDepth) {
+            this.maxDepth = maxDepth;
+        }
+
+        /**
+         * @return the maxPages
+         */
+        public int getMaxPages() {
+            return maxPages;
+        }
+
+        /**
+         * @param maxPages the maxPages to set
+         */
+        public void setMaxPages(final int maxPages) {
+            this.maxPages = maxPages;
+        }
+    }
+
+    /**
+     * The price history settings, bound from {@code scraper.history.*}.
+     */
+    public static class History {
+
+        /** The log the price and size of each product are appended to on every run, empty for none. */
+        private String file = "";
+
+        /**
+         * @return the file
+         */
+        public String getFile() {
+            return file;
+        }
+
+        /**
+         * @param file the file to set
+         */
+        public void setFile(final String file) {
+            this.file = file;
+        }
+    }
+
+    /**
+     * The metrics settings, bound from {@code scraper.metrics.*}.
+     */
+    public static class Metrics {
+
+        /** The file the metrics are dumped to as JSON at the end of a run, empty for none. */
+        private String file = "";
+
+        /**
+         * @return the file
+         */
+        public String getFile() {
+            return file;
+        }
+
+        /**
+         * @param file the file to set
+         */
+        public void setFile(final String file) {
+            this.file = file;
+        }
+    }
+
+    /**
+     * The server mode settings, bound from {@code scraper.server.*}.
+     */
+    public static class Server {
+
+        /** The default number of scrape requests served at once. */
+        private static final int DEFAULT_MAX_CONCURRENT = 4;
+
+        /** The default number of scrape requests waiting for a slot. */
+        private static final int DEFAULT_QUEUE_SIZE = 16;
+
+        /** The number of scrape requests served at once. */
+        private int maxConcurrent = DEFAULT_MAX_CONCURRENT;
+
+        /** The number of scrape requests waiting for a slot, any more are refused. */
+        private int queueSize = DEFAULT_QUEUE_SIZE;
+
+        /**
+         * @return the maxConcurrent
+         */
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        /**
+         * @param maxConcurrent the maxConcurrent to set
+         */
+        public void setMaxConcurrent(final int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        /**
+         * @return the queueSize
+         */
+        public int getQueueSize() {
+            return queueSize;
+        }
+
+        /**
+         * @param queueSize the queueSize to set
+         */
+        public void setQueueSize(final int queueSize) {
+            this.queueSize = queueSize;
+        }
+    }
+
+}
@@ -1,6 +1,9 @@
 package com.sainsburys.scraper.controller;
 
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
 import java.net.URI;
 
 import org.slf4j.Logger;
@@ -13,8 +16,16 @@ import org.springframework.validation.Validator;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sainsburys.scraper.config.ScraperProperties;
 import com.sainsburys.scraper.exception.ParsingFailureException;
+import com.sainsburys.scraper.history.PriceHistoryWriter;
 import com.sainsburys.scraper.json.model.ScraperModel;
+import com.sainsburys.scraper.json.stream.OrderedResultWriter;
+import com.sainsburys.scraper.json.stream.OutputFormat;
+import com.sainsburys.scraper.json.stream.ScraperOutputWriter;
+import com.sainsburys.scraper.metrics.ScraperMetrics;
+import com.sainsburys.scraper.metrics.Timer;
+import com.sainsburys.scraper.service.api.CrawlOptions;
 import com.sainsburys.scraper.service.api.ScraperService;
 
 /**
@@ -28,16 +39,44 @@ public class ScraperController {
     private static Logger LOGGER = LoggerFactory.getLogger(ScraperController.class);
 
     /** The scraper service. */
-    @Autowired
-    private ScraperService scraperService;
+    private final ScraperService scraperService;
 
     /** The JSON mapper. */
-    @Autowired
-    private ObjectMapper mapper;
+    private final ObjectMapper mapper;
 
     /** The bean validator. */
+    private final Validator validator;
+
+    /** The scraper settings. */
+    private final ScraperProperties properties;
+
+    /** The metrics validating and writing are timed in. */
+    private final ScraperMetrics metrics;
+
+    /** The price history the products are recorded in. */
+    private final PriceHistoryWriter priceHistory;
+
+    /**
+     * Constructor.
+     *
+     * @param scraperService the scraper service
+     * @param mapper the JSON mapper
+     * @param validator the bean validator
+     * @param properties the scraper settings
+     * @param metrics the metrics validating and writing are timed in
+     * @param priceHistory the price history the products are recorded in
+     */
     @Autowired
-    private Validator validator;
+    public ScraperController(final ScraperService scraperService, final ObjectMapper mapper,
+            final Validator validator, final ScraperProperties properties, final ScraperMetrics metrics,
+            final PriceHistoryWriter priceHistory) {
+        this.scraperService = scraperService;
+        this.mapper = mapper;
+        this.validator = validator;
+        this.properties = properties;
+        this.metrics = metrics;
+        this.priceHistory = priceHistory;
+    }
 
     /**
      * Scrape the given uri and print to the console.
@@ -45,21 +84,69 @@ public class ScraperController {
      * @param scrapableUri the scrapeable URI
      */
     public void scrapeWithUri(final URI scrapableUri) {
+        scrapeWithUri(scrapableUri, System.out);
+    }
+
+    /**
+     * Start a price history run, for the scrapes of several URI's to be
+     * recorded as one.
+     *
+     * @return the run timestamp
+     */
+    public long newRun() {
+        return priceHistory.newRun();
+    }
+
+    /**
+     * Scrape the given uri and print to the given stream, recorded in the
+     * price history as a run of its own.
+     *
+     * @param scrapableUri the scrapeable URI
+     * @param out the stream to print to
+     */
+    public void scrapeWithUri(final URI scrapableUri, final PrintStream out) {
+        scrapeWithUri(scrapableUri, out, newRun());
+    }
+
+    /**
+     * Scrape the given uri and print to the given stream in
+     * {@code scraper.output.format}, streaming each product as it is
+     * extracted when {@code scraper.output.streaming} is set.
+     * When {@code scraper.crawl.enabled} is set the uri is crawled instead,
+     * and the model printed once the crawl completes. When
+     * {@code scraper.partial-results} is set a failed product is listed in
+     * the model rather than losing the scrape, and the model is printed once
+     * the scrape completes. The products are recorded in the price history
+     * as part of the given run.
+     *
+     * @param scrapableUri the scrapeable URI
+     * @param out the stream to print to
+     * @param run the price history run, see {@link #newRun()}
+     */
+    public void scrapeWithUri(final URI scrapableUri, final PrintStream out, final long run) {
         LOGGER.debug("Entered scrapeWithUri with [scrapableUri = {}]", scrapableUri);
 
         try {
-            // Get complete JSON model
-            final ScraperModel scraperModel = scraperService.getScraperModelFromUri(scrapableUri);
+            if (properties.getOutput().isStreaming() && !properties.getCrawl().isEnabled()
+                    && !properties.isPartialResults()) {
+                streamWithUri(scrapableUri, out, run);
+                return;
+            }
+            // Get complete JSON model, crawling from the URI when set
+            final ScraperModel scraperModel = scrapeModel(scrapableUri);
             // Validate
-            final Errors errors = new BeanPropertyBindingResult(scraperModel, "scraperModel");
-            validator.validate(scraperModel, errors);
-            if (errors.hasErrors()) {
-                LOGGER.error("The model has validation errors {}, {}printed information may be incomplete or incorrect",
-                        errors, System.lineSeparator());
+            validate(scraperModel, "scraperModel");
+            // Record the prices
+            final PriceHistoryWriter.Batch batch = priceHistory.newBatch(run);
+            if (scraperModel.getResults() != null) {
+                scraperModel.getResults().forEach(batch::add);
             }
-            // Print to console
-            System.out.println(mapper.writeValueAsString(scraperModel));
-        } catch (final JsonProcessingException e) {
+            recordHistory(scrapableUri, batch);
+            // Print to the stream
+            try (final Timer.Context serialise = metrics.timer(ScraperMetrics.SERIALISE).time()) {
+                writeModel(scraperModel, out);
+            }
+        } catch (final JsonProcessingException | UncheckedIOException e) {
             LOGGER.error("Error writing JSON", e);
         } catch (final IOException e) {
             LOGGER.error("Error connecting to URI {}", scrapableUri, e);
@@ -69,4 +156,126 @@ public class ScraperController {
 
     }
 
+    /**
+     * Scrape the given uri, writing each product to the stream in listing
+     * order as soon as it and those before it are extracted, then the total.
+     * The title and price history record of each product are kept until the
+     * scrape ends, so memory grows with the listing, though by far less than
+     * the products themselves. A failure part way leaves the document
+     * incomplete.
+     *
+     * @param scrapableUri the scrapeable URI
+     * @param out the stream to print to
+     * @param run the price history run
+     * @throws IOException if there was an issue connecting or writing
+     * @throws ParsingFailureException if there was an issue parsing
+     */
+    private void streamWithUri(final URI scrapableUri, final PrintStream out, final long run)
+            throws IOException, ParsingFailureException {
+        try (final ScraperOutputWriter writer = properties.getOutput().getFormat().open(mapper, out)) {
+            final OrderedResultWriter resultWriter = new OrderedResultWriter(writer);
+            final PriceHistoryWriter.Batch batch = priceHistory.newBatch(run);
+            final BigDecimal total = scraperService.scrapeProductsFromUri(scrapableUri,
+                    (index, productUri, result) -> {
+                        batch.add(result);
+                        try (final Timer.Context serialise = metrics.timer(ScraperMetrics.SERIALISE).time()) {
+                            resultWriter.onProduct(index, productUri, result);
+                        }
+                    });
+            try (final Timer.Context serialise = metrics.timer(ScraperMetrics.SERIALISE).time()) {
+                writer.writeTotal(total);
+            }
+            recordHistory(scrapableUri, batch);
+        }
+    }
+
+    /**
+     * Write a whole model to the stream in {@code scraper.output.format}.
+     *
+     * @param scraperModel the model
+     * @param out the stream to print to
+     * @throws JsonProcessingException if the model could not be written as JSON
+     */
+    private void writeModel(final ScraperModel scraperModel, final PrintStream out) throws JsonProcessingException {
+        final OutputFormat format = properties.getOutput().getFormat();
+        if (format == OutputFormat.JSON) {
+            out.println(mapper.writeValueAsString(scraperModel));
+            return;
+        }
+        try (final ScraperOutputWriter writer = format.open(mapper, out)) {
+            writer.writeModel(scraperModel);
+        } catch (final JsonProcessingException e) {
+            throw e;
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Unable to write the model as " + format, e);
+        }
+    }
+
+    /**
+     * Record the prices of a scrape in the price history, logging any
+     * failure rather than losing the scrape.
+     *
+     * @param scrapableUri the scraped URI
+     * @param batch the products scraped
+     */
+    private void recordHistory(final URI scrapableUri, final PriceHistoryWriter.Batch batch) {
+        try {
+            priceHistory.append(batch);
+        } catch (final IOException e) {
+            LOGGER.error("Unable to record the prices from {} in the price history", scrapableUri, e);
+        }
+    }
+
+    /**
+     * Scrape the given uri into a model, crawling from it or keeping partial
+     * results as set.
+     *
+     * @param scrapableUri the scrapeable URI
+     * @return the scraper model
+     * @throws IOException if there was an issue connecting
+     * @throws ParsingFailureException if there was an issue parsing
+     */
+    private ScraperModel scrapeModel(final URI scrapableUri) throws IOException, ParsingFailureException {
+        final ScraperModel scraperModel;
+        if (properties.getCrawl().isEnabled()) {
+            scraperModel = scraperService.crawlFromUri(scrapableUri, crawlOptions());
+        } else if (properties.isPartialResults()) {
+            scraperModel = scraperService.getPartialScraperModelFromUri(scrapableUri);
+        } else {
+            scraperModel = scraperService.getScraperModelFromUri(scrapableUri);
+        }
+        if (scraperModel.getFailures() != null && !scraperModel.getFailures().isEmpty()) {
+            LOGGER.warn("{} products from {} failed and are listed in the failures", scraperModel.getFailures().size(),
+                    scrapableUri);
+        }
+        return scraperModel;
+    }
+
+    /**
+     * @return the crawl bounds from {@code scraper.crawl.*}
+     */
+    private CrawlOptions crawlOptions() {
+        final ScraperProperties.Crawl crawl = properties.getCrawl();
+        return new CrawlOptions(crawl.getListingLinkSelector(), crawl.getMaxDepth(), crawl.getMaxPages(),
+                properties.isPartialResults());
+    }
+
+    /**
+     * Validate a model, logging any errors. The products in it were validated
+     * as each was extracted.
+     *
+     * @param target the model to validate
+     * @param name the name of the model
+     */
+    private void validate(final Object target, final String name) {
+        final Errors errors = new BeanPropertyBindingResult(target, name);
+        try (final Timer.Context validate = metrics.timer(ScraperMetrics.VALIDATE).time()) {
+            validator.validate(target, errors);
+        }
+        if (errors.hasErrors()) {
+            LOGGER.error("The model has validation errors {}, {}printed information may be incomplete or incorrect",
+                    errors, System.lineSeparator());
+        }
+    }
+
 }
@@ -0,0 +1,57 @@
+package com.sainsburys.scraper.history;
+
+/**
+ * A product whose price or size changed between two runs, or which was only
+ * listed on one of them.
+ */
+public final class PriceChange {
+
+    /** The product name. */
+    private final String product;
+
+    /** The product on the earlier run, or null if it was not listed. */
+    private final PricePoint before;
+
+    /** The product on the later run, or null if it was not listed. */
+    private final PricePoint after;
+
+    /**
+     * Constructor.
+     *
+     * @param product the product name
+     * @param before the product on the earlier run, or null if it was not listed
+     * @param after the product on the later run, or null if it was not listed
+     */
+    public PriceChange(final String product, final PricePoint before, final PricePoint after) {
+        this.product = product;
+        this.before = before;
+        this.after = after;
+    }
+
+    /**
+     * @return the product name
+     */
+    public String getProduct() {
+        return product;
+    }
+
+    /**
+     * @return the product on the earlier run, or null if it was not listed
+     */
+    public PricePoint getBefore() {
+        return before;
+    }
+
+    /**
+     * @return the product on the later run, or null if it was not listed
+     */
+    public PricePoint getAfter() {
+        return after;
+    }
+
+    @Override
+    public String toString() {
+        return product + ": " + before + " -> " + after;
+    }
+
+}
@@ -0,0 +1,145 @@
+package com.sainsburys.scraper.history;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * The layout of the price history files, shared by the writer and reader.
+ * <p>
+ * The log starts with a header of the magic number and version, then holds
+ * fixed size big-endian records of the product key, run timestamp, unit
+ * price in pence and size in hundredths of a kilobyte. Fixed size records
+ * let the reader address any record directly in the mapped file. Product
+ * names are kept once each in a {@code .products} file next to the log, as
+ * lines of the hex key, a tab and the name.
+ */
+final class PriceHistoryFormat {
+
+    /** The magic number the log starts with, "SPH1". */
+    static final int MAGIC = 0x53504831;
+
+    /** The layout version. */
+    static final int VERSION = 1;
+
+    /** The bytes in the header. */
+    static final int HEADER_SIZE = 8;
+
+    /** The bytes in a record. */
+    static final int RECORD_SIZE = 28;
+
+    /** The offset of the run timestamp in a record. */
+    static final int RUN_OFFSET = 8;
+
+    /** The offset of the unit price in a record. */
+    static final int PRICE_OFFSET = 16;
+
+    /** The offset of the size in a record. */
+    static final int SIZE_OFFSET = 24;
+
+    /** The stored price when a product has none. */
+    static final long NO_PRICE = Long.MIN_VALUE;
+
+    /** The stored size when a product has none. */
+    static final int NO_SIZE = -1;
+
+    /** The decimal places of a stored price or size. */
+    static final int SCALE = 2;
+
+    /** The suffix of the product names file. */
+    static final String PRODUCTS_SUFFIX = ".products";
+
+    /** The separator between the key and name of a product. */
+    static final char PRODUCT_SEPARATOR = '\t';
+
+    /** The kilobyte suffix of a size. */
+    private static final String KB_SUFFIX = "kb";
+
+    /** The FNV-1a 64 bit offset basis. */
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    /** The FNV-1a 64 bit prime. */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Not instantiated.
+     */
+    private PriceHistoryFormat() {
+    }
+
+    /**
+     * Get the product names file for a log.
+     *
+     * @param file the log file
+     * @return the product names file
+     */
+    static Path productsFile(final Path file) {
+        return file.resolveSibling(file.getFileName() + PRODUCTS_SUFFIX);
+    }
+
+    /**
+     * Derive the key of a product from its name, an FNV-1a hash of its UTF-8
+     * bytes.
+     *
+     * @param product the product name
+     * @return the key
+     */
+    static long keyOf(final String product) {
+        long hash = FNV_OFFSET_BASIS;
+        for (final byte b : product.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Encode a price in pence.
+     *
+     * @param price the price, or null
+     * @return the price in pence
+     */
+    static long encodePrice(final BigDecimal price) {
+        return price == null ? NO_PRICE : price.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    /**
+     * Decode a price in pence.
+     *
+     * @param pence the price in pence
+     * @return the price, or null if there was none
+     */
+    static BigDecimal decodePrice(final long pence) {
+        return pence == NO_PRICE ? null : BigDecimal.valueOf(pence, SCALE);
+    }
+
+    /**
+     * Encode a size such as {@code 35.43kb} in hundredths of a kilobyte.
+     *
+     * @param size the size, or null
+     * @return the size in hundredths of a kilobyte
+     */
+    static int encodeSize(final String size) {
+        if (size == null || !size.endsWith(KB_SUFFIX)) {
+            return NO_SIZE;
+        }
+        try {
+            return new BigDecimal(size.substring(0, size.length() - KB_SUFFIX.length()))
+                    .setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().intValueExact();
+        } catch (final NumberFormatException | ArithmeticException e) {
+            return NO_SIZE;
+        }
+    }
+
+    /**
+     * Decode a size in hundredths of a kilobyte.
+     *
+     * @param hundredths the size in hundredths of a kilobyte
+     * @return the size such as {@code 35.43kb}, or null if there was none
+     */
+    static String decodeSize(final int hundredths) {
+        return hundredths == NO_SIZE ? null : BigDecimal.valueOf(hundredths, SCALE) + KB_SUFFIX;
+    }
+
+}
@@ -0,0 +1,301 @@
+package com.sainsburys.scraper.history;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Reads the price history log through memory mapped segments, see
+ * {@link PriceHistoryFormat}. Records are read in place rather than loaded
+ * onto the heap, so a log of millions of records costs only the page cache.
+ * Only the product names and the position of each run are held.
+ * <p>
+ * The reader sees the records in the log when it was opened.
+ */
+public class PriceHistoryReader implements Closeable {
+
+    /** The records in a mapped segment, keeping each segment under 1GB. */
+    private static final int SEGMENT_RECORDS = 1 << 25;
+
+    /** The log channel. */
+    private final FileChannel channel;
+
+    /** The records in each mapped segment. */
+    private final int segmentRecords;
+
+    /** The mapped segments of records, in order. */
+    private final MappedByteBuffer[] segments;
+
+    /** The number of records. */
+    private final long records;
+
+    /** The product names by key. */
+    private final Map<Long, String> products = new HashMap<Long, String>();
+
+    /** The record ranges of each run, as the first record and the count, by run timestamp. */
+    private final NavigableMap<Long, List<long[]>> runs = new TreeMap<Long, List<long[]>>();
+
+    /**
+     * Constructor, mapping the log.
+     *
+     * @param file the log file
+     * @throws IOException if the log cannot be read or is not a price history log
+     */
+    public PriceHistoryReader(final Path file) throws IOException {
+        this(file, SEGMENT_RECORDS);
+    }
+
+    /**
+     * Constructor with a segment size, for testing.
+     *
+     * @param file the log file
+     * @param segmentRecords the records in each mapped segment
+     * @throws IOException if the log cannot be read or is not a price history log
+     */
+    PriceHistoryReader(final Path file, final int segmentRecords) throws IOException {
+        this.segmentRecords = segmentRecords;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            final long size = channel.size();
+            final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    Math.min(size, PriceHistoryFormat.HEADER_SIZE));
+            if (size < PriceHistoryFormat.HEADER_SIZE || header.getInt() != PriceHistoryFormat.MAGIC
+                    || header.getInt() != PriceHistoryFormat.VERSION) {
+                throw new IOException(
+                        file + " is not a version " + PriceHistoryFormat.VERSION + " price history log");
+            }
+            // A part written record at the end is left out
+            this.records = (size - PriceHistoryFormat.HEADER_SIZE) / PriceHistoryFormat.RECORD_SIZE;
+            this.segments = new MappedByteBuffer[(int) ((records + segmentRecords - 1) / segmentRecords)];
+            for (int i = 0; i < segments.length; i++) {
+                final long first = (long) i * segmentRecords;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        PriceHistoryFormat.HEADER_SIZE + first * PriceHistoryFormat.RECORD_SIZE,
+                        Math.min(segmentRecords, records - first) * PriceHistoryFormat.RECORD_SIZE);
+            }
+            loadProducts(PriceHistoryFormat.productsFile(file));
+            indexRuns();
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of records
+     */
+    public long size() {
+        return records;
+    }
+
+    /**
+     * @return the run timestamps, oldest first
+     */
+    public List<Long> getRuns() {
+        return new ArrayList<Long>(runs.keySet());
+    }
+
+    /**
+     * @return the product names, sorted
+     */
+    public List<String> getProducts() {
+        return new ArrayList<String>(new TreeSet<String>(products.values()));
+    }
+
+    /**
+     * Get the price series of a product, one point for each run it was
+     * listed on, oldest first. Every record is visited, in log order.
+     *
+     * @param product the product name
+     * @return the price series, empty if the product was never recorded
+     */
+    public List<PricePoint> series(final String product) {
+        final long key = PriceHistoryFormat.keyOf(product);
+        final List<PricePoint> series = new ArrayList<PricePoint>();
+        for (long record = 0; record < records; record++) {
+            if (keyAt(record) == key) {
+                series.add(pointAt(record));
+            }
+        }
+        return series;
+    }
+
+    /**
+     * Get the products whose price or size changed between two runs, or
+     * which were only listed on one of them, sorted by name. Only the
+     * records of the two runs are visited.
+     *
+     * @param fromRun the earlier run timestamp
+     * @param toRun the later run timestamp
+     * @return the changes
+     * @throws IllegalArgumentException if either run is not in the log
+     */
+    public List<PriceChange> changes(final long fromRun, final long toRun) {
+        final Map<Long, PricePoint> before = pointsOf(fromRun);
+        final Map<Long, PricePoint> after = pointsOf(toRun);
+        final Map<String, PriceChange> changes = new TreeMap<String, PriceChange>();
+        for (final Map.Entry<Long, PricePoint> earlier : before.entrySet()) {
+            final PricePoint later = after.get(earlier.getKey());
+            if (later == null || !Objects.equals(earlier.getValue().getUnitPrice(), later.getUnitPrice())
+                    || !Objects.equals(earlier.getValue().getSize(), later.getSize())) {
+                final String product = nameOf(earlier.getKey());
+                changes.put(product, new PriceChange(product, earlier.getValue(), later));
+            }
+        }
+        for (final Map.Entry<Long, PricePoint> later : after.entrySet()) {
+            if (!before.containsKey(later.getKey())) {
+                final String product = nameOf(later.getKey());
+                changes.put(product, new PriceChange(product, null, later.getValue()));
+            }
+        }
+        return new ArrayList<PriceChange>(changes.values());
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Get the products listed on a run, by key.
+     *
+     * @param run the run timestamp
+     * @return the price points by product key
+     * @throws IllegalArgumentException if the run is not in the log
+     */
+    private Map<Long, PricePoint> pointsOf(final long run) {
+        final List<long[]> ranges = runs.get(run);
+        if (ranges == null) {
+            throw new IllegalArgumentException("No run " + run + " in the price history");
+        }
+        final Map<Long, PricePoint> points = new HashMap<Long, PricePoint>();
+        for (final long[] range : ranges) {
+            for (long record = range[0]; record < range[0] + range[1]; record++) {
+                points.put(keyAt(record), pointAt(record));
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Index the record ranges of each run, merging adjacent records of the
+     * same run.
+     */
+    private void indexRuns() {
+        long[] range = null;
+        long rangeRun = 0;
+        for (long record = 0; record < records; record++) {
+            final long run = runAt(record);
+            if (range != null && run == rangeRun) {
+                range[1]++;
+            } else {
+                range = new long[] { record, 1 };
+                rangeRun = run;
+                runs.computeIfAbsent(run, key -> new ArrayList<long[]>()).add(range);
+            }
+        }
+    }
+
+    /**
+     * Load the product names.
+     *
+     * @param productsFile the product names file
+     * @throws IOException if the product names cannot be read
+     */
+    private void loadProducts(final Path productsFile) throws IOException {
+        if (!Files.exists(productsFile)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(productsFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int separator = line.indexOf(PriceHistoryFormat.PRODUCT_SEPARATOR);
+                if (separator > 0) {
+                    products.put(Long.parseUnsignedLong(line.substring(0, separator), 16),
+                            line.substring(separator + 1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the name of a product.
+     *
+     * @param key the product key
+     * @return the name, or the hex key if it was never named
+     */
+    private String nameOf(final long key) {
+        final String name = products.get(key);
+        return name == null ? Long.toHexString(key) : name;
+    }
+
+    /**
+     * Get the price point of a record.
+     *
+     * @param record the record index
+     * @return the price point
+     */
+    private PricePoint pointAt(final long record) {
+        final ByteBuffer segment = segmentOf(record);
+        final int offset = offsetOf(record);
+        return new PricePoint(segment.getLong(offset + PriceHistoryFormat.RUN_OFFSET),
+                PriceHistoryFormat.decodePrice(segment.getLong(offset + PriceHistoryFormat.PRICE_OFFSET)),
+                PriceHistoryFormat.decodeSize(segment.getInt(offset + PriceHistoryFormat.SIZE_OFFSET)));
+    }
+
+    /**
+     * Get the product key of a record.
+     *
+     * @param record the record index
+     * @return the product key
+     */
+    private long keyAt(final long record) {
+        return segmentOf(record).getLong(offsetOf(record));
+    }
+
+    /**
+     * Get the run of a record.
+     *
+     * @param record the record index
+     * @return the run timestamp
+     */
+    private long runAt(final long record) {
+        return segmentOf(record).getLong(offsetOf(record) + PriceHistoryFormat.RUN_OFFSET);
+    }
+
+    /**
+     * Get the segment holding a record.
+     *
+     * @param record the record index
+     * @return the segment
+     */
+    private ByteBuffer segmentOf(final long record) {
+        return segments[(int) (record / segmentRecords)];
+    }
+
+    /**
+     * Get the offset of a record in its segment.
+     *
+     * @param record the record index
+     * @return the byte offset
+     */
+    private int offsetOf(final long record) {
+        return (int) (record % segmentRecords) * PriceHistoryFormat.RECORD_SIZE;
+    }
+
+}
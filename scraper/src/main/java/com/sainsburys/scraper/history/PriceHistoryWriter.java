@@ -0,0 +1,334 @@
+package com.sainsburys.scraper.history;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.sainsburys.scraper.json.model.ScraperModel;
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+
+/**
+ * Appends the price and size of each product scraped to the price history
+ * log, see {@link PriceHistoryFormat}. Each run is timestamped when it is
+ * started, always after every run already started or in the log, and may be
+ * appended in several batches, such as one for each category of a scrape.
+ * Each batch is written in a single append, so concurrent scrapes never
+ * interleave within a batch.
+ * <p>
+ * A record left part written by a run that stopped mid-append is cut off
+ * when the log is next opened.
+ */
+public class PriceHistoryWriter implements Closeable {
+
+    /** The log file, or null when disabled. */
+    private final Path file;
+
+    /** The log channel, or null when disabled. */
+    private final FileChannel channel;
+
+    /** The keys of the products already named. */
+    private final Set<Long> namedProducts = new HashSet<Long>();
+
+    /** The clock runs are timestamped with, or null when disabled. */
+    private final Clock clock;
+
+    /** The latest run timestamp started or in the log, in epoch milliseconds. */
+    private long latestRun;
+
+    /**
+     * Constructor for a disabled writer, which records nothing.
+     */
+    public PriceHistoryWriter() {
+        this.file = null;
+        this.channel = null;
+        this.clock = null;
+    }
+
+    /**
+     * Constructor, opening or creating the log.
+     *
+     * @param file the log file
+     * @throws IOException if the log cannot be opened or is not a price history log
+     */
+    public PriceHistoryWriter(final Path file) throws IOException {
+        this(file, Clock.systemUTC());
+    }
+
+    /**
+     * Constructor with a clock, for testing.
+     *
+     * @param file the log file
+     * @param clock the clock runs are timestamped with
+     * @throws IOException if the log cannot be opened or is not a price history log
+     */
+    public PriceHistoryWriter(final Path file, final Clock clock) throws IOException {
+        this.file = file;
+        this.clock = clock;
+        final Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            this.latestRun = openLog();
+            loadProducts();
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return true if products are recorded
+     */
+    public boolean isEnabled() {
+        return channel != null;
+    }
+
+    /**
+     * Start a run.
+     *
+     * @return the run timestamp in epoch milliseconds, or 0 when disabled
+     */
+    public synchronized long newRun() {
+        if (!isEnabled()) {
+            return 0;
+        }
+        latestRun = Math.max(clock.millis(), latestRun + 1);
+        return latestRun;
+    }
+
+    /**
+     * Start a batch of products to append together, as a new run.
+     *
+     * @return the empty batch
+     */
+    public Batch newBatch() {
+        return newBatch(newRun());
+    }
+
+    /**
+     * Start a batch of products to append together, as part of a run
+     * already started.
+     *
+     * @param run the run timestamp, see {@link #newRun()}
+     * @return the empty batch
+     */
+    public Batch newBatch(final long run) {
+        return new Batch(run);
+    }
+
+    /**
+     * Record every product in a model.
+     *
+     * @param model the scraped model
+     * @throws IOException if the log cannot be written
+     */
+    public void append(final ScraperModel model) throws IOException {
+        if (!isEnabled() || model.getResults() == null) {
+            return;
+        }
+        final Batch batch = newBatch();
+        for (final ScraperResultModel result : model.getResults()) {
+            batch.add(result);
+        }
+        append(batch);
+    }
+
+    /**
+     * Record a batch of products. New product names are written first, so
+     * a reader never sees a record it cannot name.
+     *
+     * @param batch the batch
+     * @throws IOException if the log cannot be written
+     */
+    public synchronized void append(final Batch batch) throws IOException {
+        if (!isEnabled() || batch.isEmpty()) {
+            return;
+        }
+        final List<String> newNames = new ArrayList<String>();
+        for (final Map.Entry<Long, String> name : batch.names().entrySet()) {
+            if (!namedProducts.contains(name.getKey())) {
+                newNames.add(Long.toHexString(name.getKey()) + PriceHistoryFormat.PRODUCT_SEPARATOR
+                        + name.getValue());
+            }
+        }
+        if (!newNames.isEmpty()) {
+            Files.write(PriceHistoryFormat.productsFile(file), newNames, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            namedProducts.addAll(batch.names().keySet());
+        }
+        final ByteBuffer records = batch.records();
+        long position = channel.size();
+        while (records.hasRemaining()) {
+            position += channel.write(records, position);
+        }
+        channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Write the header of a new log, or check the header of an existing one
+     * and cut off any part written record.
+     *
+     * @return the latest run already in the log, or 0 if none
+     * @throws IOException if the log cannot be read or is not a price history log
+     */
+    private long openLog() throws IOException {
+        final long size = channel.size();
+        if (size == 0) {
+            final ByteBuffer header = ByteBuffer.allocate(PriceHistoryFormat.HEADER_SIZE);
+            header.putInt(PriceHistoryFormat.MAGIC).putInt(PriceHistoryFormat.VERSION).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            return 0;
+        }
+        final ByteBuffer header = read(0, PriceHistoryFormat.HEADER_SIZE);
+        if (header.getInt() != PriceHistoryFormat.MAGIC || header.getInt() != PriceHistoryFormat.VERSION) {
+            throw new IOException(file + " is not a version " + PriceHistoryFormat.VERSION + " price history log");
+        }
+        final long records = (size - PriceHistoryFormat.HEADER_SIZE) / PriceHistoryFormat.RECORD_SIZE;
+        channel.truncate(PriceHistoryFormat.HEADER_SIZE + records * PriceHistoryFormat.RECORD_SIZE);
+        if (records == 0) {
+            return 0;
+        }
+        return read(PriceHistoryFormat.HEADER_SIZE + (records - 1) * PriceHistoryFormat.RECORD_SIZE
+                + PriceHistoryFormat.RUN_OFFSET, Long.BYTES).getLong();
+    }
+
+    /**
+     * Load the keys of the products already named.
+     *
+     * @throws IOException if the product names cannot be read
+     */
+    private void loadProducts() throws IOException {
+        final Path productsFile = PriceHistoryFormat.productsFile(file);
+        if (!Files.exists(productsFile)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(productsFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int separator = line.indexOf(PriceHistoryFormat.PRODUCT_SEPARATOR);
+                if (separator > 0) {
+                    namedProducts.add(Long.parseUnsignedLong(line.substring(0, separator), 16));
+                }
+            }
+        }
+    }
+
+    /**
+     * Read bytes from the log.
+     *
+     * @param position the position to read from
+     * @param length the bytes to read
+     * @return the bytes, ready to get
+     * @throws IOException if the log cannot be read
+     */
+    private ByteBuffer read(final long position, final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException(file + " ended early");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Products to append together, collected as encoded records. Products
+     * may be added from several threads.
+     */
+    public static final class Batch {
+
+        /** The records collected, in a buffer grown as needed. */
+        private ByteBuffer records = ByteBuffer.allocate(PriceHistoryFormat.RECORD_SIZE * 16);
+
+        /** The names of the products collected, by key. */
+        private final Map<Long, String> names = new LinkedHashMap<Long, String>();
+
+        /** The run timestamp in epoch milliseconds. */
+        private final long run;
+
+        /**
+         * Constructor.
+         *
+         * @param run the run timestamp in epoch milliseconds
+         */
+        private Batch(final long run) {
+            this.run = run;
+        }
+
+        /**
+         * @return the run timestamp in epoch milliseconds
+         */
+        public long getRun() {
+            return run;
+        }
+
+        /**
+         * Add a product. A product without a title cannot be named, so is
+         * not recorded.
+         *
+         * @param result the scraped product
+         */
+        public synchronized void add(final ScraperResultModel result) {
+            if (result == null || result.getTitle() == null) {
+                return;
+            }
+            if (records.remaining() < PriceHistoryFormat.RECORD_SIZE) {
+                final ByteBuffer grown = ByteBuffer.allocate(records.capacity() * 2);
+                records.flip();
+                records = grown.put(records);
+            }
+            final long key = PriceHistoryFormat.keyOf(result.getTitle());
+            names.putIfAbsent(key, result.getTitle());
+            records.putLong(key).putLong(run).putLong(PriceHistoryFormat.encodePrice(result.getUnitPrice()))
+                    .putInt(PriceHistoryFormat.encodeSize(result.getSize()));
+        }
+
+        /**
+         * @return true if no product was added
+         */
+        private synchronized boolean isEmpty() {
+            return records.position() == 0;
+        }
+
+        /**
+         * @return the names of the products added, by key
+         */
+        private synchronized Map<Long, String> names() {
+            return new LinkedHashMap<Long, String>(names);
+        }
+
+        /**
+         * @return the records added, ready to write
+         */
+        private synchronized ByteBuffer records() {
+            final ByteBuffer written = records.duplicate();
+            written.flip();
+            return written;
+        }
+    }
+
+}
@@ -0,0 +1,58 @@
+package com.sainsburys.scraper.history;
+
+import java.math.BigDecimal;
+
+/**
+ * The price and size of a product on one run.
+ */
+public final class PricePoint {
+
+    /** The run timestamp in epoch milliseconds. */
+    private final long run;
+
+    /** The unit price, or null if there was none. */
+    private final BigDecimal unitPrice;
+
+    /** The size, or null if there was none. */
+    private final String size;
+
+    /**
+     * Constructor.
+     *
+     * @param run the run timestamp in epoch milliseconds
+     * @param unitPrice the unit price, or null if there was none
+     * @param size the size, or null if there was none
+     */
+    public PricePoint(final long run, final BigDecimal unitPrice, final String size) {
+        this.run = run;
+        this.unitPrice = unitPrice;
+        this.size = size;
+    }
+
+    /**
+     * @return the run timestamp in epoch milliseconds
+     */
+    public long getRun() {
+        return run;
+    }
+
+    /**
+     * @return the unit price, or null if there was none
+     */
+    public BigDecimal getUnitPrice() {
+        return unitPrice;
+    }
+
+    /**
+     * @return the size, or null if there was none
+     */
+    public String getSize() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return run + " " + unitPrice + " " + size;
+    }
+
+}
@@ -0,0 +1,5 @@
+/**
+ * Price history package, an append-only log of the price and size of each
+ * product on every run.
+ */
+package com.sainsburys.scraper.history;
@@ -1,52 +1,86 @@
 package com.sainsburys.scraper.json.model;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 import javax.validation.constraints.NotNull;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.hibernate.validator.constraints.NotEmpty;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
 
 /**
  * The scraper wrapping model.
+ * <p>
+ * Immutable, with unmodifiable lists, and built with a {@link Builder}. Its
+ * hash code is computed once.
  */
-@JsonPropertyOrder(value = { ScraperModel.RESULTS, ScraperModel.TOTAL })
-public class ScraperModel {
+@JsonPropertyOrder(value = { ScraperModel.RESULTS, ScraperModel.TOTAL, ScraperModel.FAILURES })
+@JsonDeserialize(builder = ScraperModel.Builder.class)
+public final class ScraperModel {
 
     /** Result JSON name. */
-    protected static final String RESULTS = "results";
+    public static final String RESULTS = "results";
 
     /** Total JSON name. */
-    protected static final String TOTAL = "total";
+    public static final String TOTAL = "total";
+
+    /** Failures JSON name. */
+    public static final String FAILURES = "failures";
 
     /** The results. */
     @NotNull
     @NotEmpty
     @JsonProperty(RESULTS)
-    private List<ScraperResultModel> results;
+    private final List<ScraperResultModel> results;
 
     /** The total. */
     @NotNull
     @JsonProperty(TOTAL)
-    private BigDecimal total;
+    private final BigDecimal total;
+
+    /** The products that failed, only set for partial results. */
+    @JsonInclude(Include.NON_NULL)
+    @JsonProperty(FAILURES)
+    private final List<ScraperResultModel> failures;
+
+    /** The hash code, computed once. */
+    private final int hash;
 
     /**
-     * @return the results
+     * Constructor.
+     *
+     * @param builder the builder
      */
-    public List<ScraperResultModel> getResults() {
-        return results;
+    private ScraperModel(final Builder builder) {
+        this.results = unmodifiable(builder.results);
+        this.total = builder.total;
+        this.failures = unmodifiable(builder.failures);
+        int result = Objects.hashCode(results);
+        result = 31 * result + Objects.hashCode(total);
+        this.hash = 31 * result + Objects.hashCode(failures);
+    }
+
+    /**
+     * @return a builder for a new model
+     */
+    public static Builder builder() {
+        return new Builder();
     }
 
     /**
-     * @param results the results to set
+     * @return the results
      */
-    public void setResults(final List<ScraperResultModel> results) {
-        this.results = results;
+    public List<ScraperResultModel> getResults() {
+        return results;
     }
 
     /**
@@ -57,31 +91,97 @@ public class ScraperModel {
     }
 
     /**
-     * @param total the total to set
+     * @return the failures
      */
-    public void setTotal(final BigDecimal total) {
-        this.total = total;
+    public List<ScraperResultModel> getFailures() {
+        return failures;
     }
 
     @Override
     public int hashCode() {
-        return new HashCodeBuilder().append(results).append(total).toHashCode();
+        return hash;
     }
 
     @Override
     public boolean equals(final Object obj) {
-        if (obj == null) {
-            return false;
-        }
         if (obj == this) {
             return true;
         }
-        if (obj.getClass() != getClass()) {
+        if (!(obj instanceof ScraperModel)) {
             return false;
         }
         final ScraperModel rhs = (ScraperModel) obj;
-        return new EqualsBuilder().appendSuper(super.equals(obj)).append(results, rhs.results).append(total, rhs.total)
-                .isEquals();
+        return hash == rhs.hash && Objects.equals(results, rhs.results) && Objects.equals(total, rhs.total)
+                && Objects.equals(failures, rhs.failures);
+    }
+
+    /**
+     * Copy a list so it cannot be changed, keeping null as null.
+     *
+     * @param list the list
+     * @return the unmodifiable copy
+     */
+    private static List<ScraperResultModel> unmodifiable(final List<ScraperResultModel> list) {
+        return list == null ? null : Collections.unmodifiableList(new ArrayList<ScraperResultModel>(list));
+    }
+
+    /**
+     * Builder for a {@link ScraperModel}, also used to read one from JSON.
+     */
+    @JsonPOJOBuilder(withPrefix = "")
+    public static final class Builder {
+
+        /** The results. */
+        private List<ScraperResultModel> results;
+
+        /** The total. */
+        private BigDecimal total;
+
+        /** The products that failed. */
+        private List<ScraperResultModel> failures;
+
+        /**
+         * Constructor, see {@link ScraperModel#builder()}.
+         */
+        private Builder() {
+        }
+
+        /**
+         * @param results the results to set
+         * @return this builder
+         */
+        @JsonProperty(RESULTS)
+        public Builder results(final List<ScraperResultModel> results) {
+            this.results = results;
+            return this;
+        }
+
+        /**
+         * @param total the total to set
+         * @return this builder
+         */
+        @JsonProperty(TOTAL)
+        public Builder total(final BigDecimal total) {
+            this.total = total;
+            return this;
+        }
+
+        /**
+         * @param failures the failures to set
+         * @return this builder
+         */
+        @JsonProperty(FAILURES)
+        public Builder failures(final List<ScraperResultModel> failures) {
+            this.failures = failures;
+            return this;
+        }
+
+        /**
+         * @return the model
+         */
+        public ScraperModel build() {
+            return new ScraperModel(this);
+        }
     }
 
 }
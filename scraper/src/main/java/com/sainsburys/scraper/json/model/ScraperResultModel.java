@@ -1,21 +1,32 @@
 package com.sainsburys.scraper.json.model;
 
 import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.Objects;
 
 import javax.validation.constraints.NotNull;
 
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
-
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
 
 /**
- * The JSON model for the results to display.
+ * The JSON model for the results to display. The status, URL and error are
+ * only set in partial results, so are left out when null; the product fields
+ * are always written, null if not found.
+ * <p>
+ * Immutable, so a product can be shared between scrapes and caches without
+ * copying. Built with a {@link Builder}, and its hash code computed once, so
+ * it is cheap to use as a key in hash based caches and sets.
  */
 @JsonPropertyOrder(value = { ScraperResultModel.TITLE, ScraperResultModel.SIZE, ScraperResultModel.UNIT_PRICE,
-        ScraperResultModel.DESCRIPTION })
-public class ScraperResultModel {
+        ScraperResultModel.DESCRIPTION, ScraperResultModel.STATUS, ScraperResultModel.URL, ScraperResultModel.ERROR })
+@JsonDeserialize(builder = ScraperResultModel.Builder.class)
+public final class ScraperResultModel {
 
     /** Title JSON name. */
     protected static final String TITLE = "title";
@@ -29,66 +40,109 @@ public class ScraperResultModel {
     /** Description JSON name. */
     protected static final String DESCRIPTION = "description";
 
+    /** Status JSON name. */
+    protected static final String STATUS = "status";
+
+    /** URL JSON name. */
+    protected static final String URL = "url";
+
+    /** Error JSON name. */
+    protected static final String ERROR = "error";
+
     /** The title. */
     @NotNull
     @JsonProperty(TITLE)
-    private String title;
+    private final String title;
 
     /** The size. */
     @NotNull
     @JsonProperty(SIZE)
-    private String size;
+    private final String size;
 
     /** The unit price. */
     @NotNull
     @JsonProperty(UNIT_PRICE)
-    private BigDecimal unitPrice;
+    private final BigDecimal unitPrice;
 
     /** The description. */
     @NotNull
     @JsonProperty(DESCRIPTION)
-    private String description;
+    private final String description;
+
+    /** The status, only set for partial results. */
+    @JsonInclude(Include.NON_NULL)
+    @JsonProperty(STATUS)
+    private final Status status;
+
+    /** The product page URL, only set for a failed product. */
+    @JsonInclude(Include.NON_NULL)
+    @JsonProperty(URL)
+    private final String url;
+
+    /** The reason the product failed. */
+    @JsonInclude(Include.NON_NULL)
+    @JsonProperty(ERROR)
+    private final String error;
+
+    /** The hash code, computed once. */
+    private final int hash;
 
     /**
-     * @return the title
+     * Constructor.
+     *
+     * @param builder the builder
      */
-    public String getTitle() {
-        return title;
+    private ScraperResultModel(final Builder builder) {
+        this.title = builder.title;
+        this.size = builder.size;
+        this.unitPrice = builder.unitPrice;
+        this.description = builder.description;
+        this.status = builder.status;
+        this.url = builder.url;
+        this.error = builder.error;
+        int result = Objects.hashCode(title);
+        result = 31 * result + Objects.hashCode(size);
+        result = 31 * result + Objects.hashCode(unitPrice);
+        result = 31 * result + Objects.hashCode(description);
+        result = 31 * result + Objects.hashCode(status);
+        result = 31 * result + Objects.hashCode(url);
+        this.hash = 31 * result + Objects.hashCode(error);
     }
 
     /**
-     * @param title the title to set
+     * @return a builder for a new product
      */
-    public void setTitle(final String title) {
-        this.title = title;
+    public static Builder builder() {
+        return new Builder();
     }
 
     /**
-     * @return the size
+     * @return a builder starting from this product
      */
-    public String getSize() {
-        return size;
+    public Builder toBuilder() {
+        return new Builder().title(title).size(size).unitPrice(unitPrice).description(description).status(status)
+                .url(url).error(error);
     }
 
     /**
-     * @param size the size to set
+     * @return the title
      */
-    public void setSize(final String size) {
-        this.size = size;
+    public String getTitle() {
+        return title;
     }
 
     /**
-     * @return the unitPrice
+     * @return the size
      */
-    public BigDecimal getUnitPrice() {
-        return unitPrice;
+    public String getSize() {
+        return size;
     }
 
     /**
-     * @param unitPrice the unitPrice to set
+     * @return the unitPrice
      */
-    public void setUnitPrice(final BigDecimal unitPrice) {
-        this.unitPrice = unitPrice;
+    public BigDecimal getUnitPrice() {
+        return unitPrice;
     }
 
     /**
@@ -99,31 +153,178 @@ public class ScraperResultModel {
     }
 
     /**
-     * @param description the description to set
+     * @return the status
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return the url
      */
-    public void setDescription(final String description) {
-        this.description = description;
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * @return the error
+     */
+    public String getError() {
+        return error;
     }
 
     @Override
     public int hashCode() {
-        return new HashCodeBuilder().append(title).append(size).append(unitPrice).append(description).toHashCode();
+        return hash;
     }
 
     @Override
     public boolean equals(final Object obj) {
-        if (obj == null) {
-            return false;
-        }
         if (obj == this) {
             return true;
         }
-        if (obj.getClass() != getClass()) {
+        if (!(obj instanceof ScraperResultModel)) {
             return false;
         }
         final ScraperResultModel rhs = (ScraperResultModel) obj;
-        return new EqualsBuilder().appendSuper(super.equals(obj)).append(title, rhs.title).append(size, rhs.size)
-                .append(unitPrice, rhs.unitPrice).append(description, rhs.description).isEquals();
+        return hash == rhs.hash && Objects.equals(title, rhs.title) && Objects.equals(size, rhs.size)
+                && Objects.equals(unitPrice, rhs.unitPrice) && Objects.equals(description, rhs.description)
+                && status == rhs.status && Objects.equals(url, rhs.url) && Objects.equals(error, rhs.error);
+    }
+
+    /**
+     * Builder for a {@link ScraperResultModel}, also used to read one from
+     * JSON.
+     */
+    @JsonPOJOBuilder(withPrefix = "")
+    public static final class Builder {
+
+        /** The title. */
+        private String title;
+
+        /** The size. */
+        private String size;
+
+        /** The unit price. */
+        private BigDecimal unitPrice;
+
+        /** The description. */
+        private String description;
+
+        /** The status. */
+        private Status status;
+
+        /** The product page URL. */
+        private String url;
+
+        /** The reason the product failed. */
+        private String error;
+
+        /**
+         * Constructor, see {@link ScraperResultModel#builder()}.
+         */
+        private Builder() {
+        }
+
+        /**
+         * @param title the title to set
+         * @return this builder
+         */
+        @JsonProperty(TITLE)
+        public Builder title(final String title) {
+            this.title = title;
+            return this;
+        }
+
+        /**
+         * @param size the size to set
+         * @return this builder
+         */
+        @JsonProperty(SIZE)
+        public Builder size(final String size) {
+            this.size = size;
+            return this;
+        }
+
+        /**
+         * @param unitPrice the unitPrice to set
+         * @return this builder
+         */
+        @JsonProperty(UNIT_PRICE)
+        public Builder unitPrice(final BigDecimal unitPrice) {
+            this.unitPrice = unitPrice;
+            return this;
+        }
+
+        /**
+         * @param description the description to set
+         * @return this builder
+         */
+        @JsonProperty(DESCRIPTION)
+        public Builder description(final String description) {
+            this.description = description;
+            return this;
+        }
+
+        /**
+         * @param status the status to set
+         * @return this builder
+         */
+        @JsonInclude(Include.NON_NULL)
+    @JsonProperty(STATUS)
+        public Builder status(final Status status) {
+            this.status = status;
+            return this;
+        }
+
+        /**
+         * @param url the url to set
+         * @return this builder
+         */
+        @JsonInclude(Include.NON_NULL)
+    @JsonProperty(URL)
+        public Builder url(final String url) {
+            this.url = url;
+            return this;
+        }
+
+        /**
+         * @param error the error to set
+         * @return this builder
+         */
+        @JsonInclude(Include.NON_NULL)
+    @JsonProperty(ERROR)
+        public Builder error(final String error) {
+            this.error = error;
+            return this;
+        }
+
+        /**
+         * @return the product
+         */
+        public ScraperResultModel build() {
+            return new ScraperResultModel(this);
+        }
+    }
+
+    /**
+     * Whether a product in partial results was scraped or failed.
+     */
+    public enum Status {
+
+        /** The product was scraped. */
+        SUCCESS,
+
+        /** The product page could not be fetched or parsed. */
+        ERROR;
+
+        /**
+         * @return the JSON value, the lower case name
+         */
+        @JsonValue
+        public String toJson() {
+            return name().toLowerCase(Locale.ROOT);
+        }
     }
 
 }
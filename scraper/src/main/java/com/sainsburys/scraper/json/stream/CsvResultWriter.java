@@ -0,0 +1,56 @@
+package com.sainsburys.scraper.json.stream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+
+/**
+ * Writes CSV: a header row of the {@link ScraperResultModel} fields, then a
+ * row per result, flushed as it is written. A field a result leaves out, such
+ * as the error of a product scraped, is an empty column. CSV has no place for
+ * the total, which is the sum of the unit price column, so it is not written.
+ */
+public class CsvResultWriter implements ScraperOutputWriter {
+
+    /** The CSV mapper. */
+    private static final CsvMapper MAPPER = new CsvMapper();
+
+    /** The columns, in the order the model lists its fields, with a header row. */
+    private static final CsvSchema SCHEMA = MAPPER.schemaFor(ScraperResultModel.class).withHeader();
+
+    /** The row writer. */
+    private final SequenceWriter rows;
+
+    /**
+     * Constructor.
+     *
+     * @param out the stream to write to, left open on close
+     * @throws IOException if the writer could not be created
+     */
+    public CsvResultWriter(final OutputStream out) throws IOException {
+        this.rows = MAPPER.writer(SCHEMA).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValues(out);
+    }
+
+    @Override
+    public void writeResult(final ScraperResultModel result) throws IOException {
+        rows.write(result);
+        rows.flush();
+    }
+
+    @Override
+    public void writeTotal(final BigDecimal total) throws IOException {
+        rows.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        rows.close();
+    }
+
+}
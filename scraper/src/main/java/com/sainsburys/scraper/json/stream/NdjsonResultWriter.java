@@ -0,0 +1,72 @@
+package com.sainsburys.scraper.json.stream;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.Collections;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sainsburys.scraper.json.model.ScraperModel;
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+
+/**
+ * Writes newline delimited JSON: each result as a compact JSON object on a
+ * line of its own, then a last line holding only the total, such as
+ * <code>{"total":3.50}</code>. Each line is flushed as it is written.
+ */
+public class NdjsonResultWriter implements ScraperOutputWriter {
+
+    /** The buffer size in bytes. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** The line separator, always a line feed whatever the platform. */
+    private static final int NEW_LINE = '\n';
+
+    /** The compact JSON writer. */
+    private final ObjectWriter writer;
+
+    /** The buffered stream written to. */
+    private final OutputStream out;
+
+    /**
+     * Constructor.
+     *
+     * @param mapper the JSON mapper
+     * @param out the stream to write to, left open on close
+     */
+    public NdjsonResultWriter(final ObjectMapper mapper, final OutputStream out) {
+        this.writer = mapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+    }
+
+    @Override
+    public void writeResult(final ScraperResultModel result) throws IOException {
+        writeLine(result);
+    }
+
+    @Override
+    public void writeTotal(final BigDecimal total) throws IOException {
+        writeLine(Collections.singletonMap(ScraperModel.TOTAL, total));
+    }
+
+    /**
+     * Write a value as a line of compact JSON.
+     *
+     * @param value the value
+     * @throws IOException if the value could not be written
+     */
+    private void writeLine(final Object value) throws IOException {
+        out.write(writer.writeValueAsBytes(value));
+        out.write(NEW_LINE);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.flush();
+    }
+
+}
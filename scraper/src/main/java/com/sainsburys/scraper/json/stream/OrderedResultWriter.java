@@ -0,0 +1,51 @@
+package com.sainsburys.scraper.json.stream;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+import com.sainsburys.scraper.service.api.ProductListener;
+
+/**
+ * Product listener writing results in listing order as they complete. A
+ * result that completes ahead of an earlier one is held only until the gap is
+ * filled, so the held results are bounded by how far the workers run ahead
+ * rather than by the size of the listing.
+ */
+public class OrderedResultWriter implements ProductListener {
+
+    /** The writer to write to. */
+    private final ScraperOutputWriter writer;
+
+    /** The results completed ahead of their turn, by listing index. */
+    private final Map<Integer, ScraperResultModel> pending = new HashMap<Integer, ScraperResultModel>();
+
+    /** The listing index of the next result to write. */
+    private int next;
+
+    /**
+     * Constructor.
+     *
+     * @param writer the writer to write to
+     */
+    public OrderedResultWriter(final ScraperOutputWriter writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public synchronized void onProduct(final int index, final String productUri, final ScraperResultModel result) {
+        pending.put(index, result);
+        try {
+            ScraperResultModel ready;
+            while ((ready = pending.remove(next)) != null) {
+                writer.writeResult(ready);
+                next++;
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Unable to write " + productUri, e);
+        }
+    }
+
+}
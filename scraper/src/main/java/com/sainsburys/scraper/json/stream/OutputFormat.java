@@ -0,0 +1,96 @@
+package com.sainsburys.scraper.json.stream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * The formats a {@link com.sainsburys.scraper.json.model.ScraperModel} can be
+ * written in, selected by {@code scraper.output.format}.
+ */
+public enum OutputFormat {
+
+    /** One indented JSON document, as the application mapper writes it. */
+    JSON {
+        @Override
+        public ScraperOutputWriter open(final ObjectMapper mapper, final OutputStream out) throws IOException {
+            return new ScraperModelStreamWriter(mapper, out);
+        }
+    },
+
+    /** One JSON document without whitespace. */
+    COMPACT {
+        @Override
+        public ScraperOutputWriter open(final ObjectMapper mapper, final OutputStream out) throws IOException {
+            return new ScraperModelStreamWriter(Mappers.COMPACT, out);
+        }
+    },
+
+    /** Newline delimited JSON, one product per line, then the total. */
+    NDJSON {
+        @Override
+        public ScraperOutputWriter open(final ObjectMapper mapper, final OutputStream out) throws IOException {
+            return new NdjsonResultWriter(Mappers.COMPACT, out);
+        }
+    },
+
+    /** CSV with a header row, one product per row. */
+    CSV {
+        @Override
+        public ScraperOutputWriter open(final ObjectMapper mapper, final OutputStream out) throws IOException {
+            return new CsvResultWriter(out);
+        }
+    },
+
+    /** One binary Smile document, the JSON model in Jackson's binary JSON. */
+    SMILE {
+        @Override
+        public ScraperOutputWriter open(final ObjectMapper mapper, final OutputStream out) throws IOException {
+            return new ScraperModelStreamWriter(Mappers.SMILE, out);
+        }
+    },
+
+    /** One binary CBOR document. */
+    CBOR {
+        @Override
+        public ScraperOutputWriter open(final ObjectMapper mapper, final OutputStream out) throws IOException {
+            return new ScraperModelStreamWriter(Mappers.CBOR, out);
+        }
+    };
+
+    /**
+     * Open a writer of this format.
+     *
+     * @param mapper the application JSON mapper
+     * @param out the stream to write to, left open on close
+     * @return the writer
+     * @throws IOException if the writer could not be created
+     */
+    public abstract ScraperOutputWriter open(ObjectMapper mapper, OutputStream out) throws IOException;
+
+    /**
+     * The mappers of the formats other than {@link #JSON}, created once as
+     * each caches the serialisers it builds.
+     */
+    private static final class Mappers {
+
+        /** The compact JSON mapper. */
+        private static final ObjectMapper COMPACT = new ObjectMapper();
+
+        /** The Smile mapper. */
+        private static final ObjectMapper SMILE = new ObjectMapper(new SmileFactory());
+
+        /** The CBOR mapper. */
+        private static final ObjectMapper CBOR = new ObjectMapper(new CBORFactory());
+
+        /**
+         * Constructor.
+         */
+        private Mappers() {
+        }
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.sainsburys.scraper.json.stream;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sainsburys.scraper.json.model.ScraperModel;
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+
+/**
+ * Writes a {@link ScraperModel} one result at a time, producing the same JSON
+ * as {@link ObjectMapper#writeValueAsString(Object)} followed by a line
+ * separator, without holding every result in memory. Given a mapper of a
+ * binary format such as Smile or CBOR, writes that format with no separator.
+ * <p>
+ * Each result is flushed as it is written, so output starts as soon as the
+ * first product is extracted. Closing before the total is written leaves the
+ * document incomplete, so a failed scrape cannot be read as a complete one.
+ * Not thread safe.
+ */
+public class ScraperModelStreamWriter implements ScraperOutputWriter {
+
+    /** The buffer size in bytes. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** The JSON mapper. */
+    private final ObjectMapper mapper;
+
+    /** The buffered stream under the generator. */
+    private final OutputStream out;
+
+    /** The JSON generator. */
+    private final JsonGenerator generator;
+
+    /** Whether the results array has been opened. */
+    private boolean started;
+
+    /**
+     * Constructor.
+     *
+     * @param mapper the JSON mapper
+     * @param out the stream to write to, left open on close
+     * @throws IOException if the generator could not be created
+     */
+    public ScraperModelStreamWriter(final ObjectMapper mapper, final OutputStream out) throws IOException {
+        this.mapper = mapper;
+        this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+        this.generator = mapper.getFactory().createGenerator(this.out);
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+        if (mapper.isEnabled(SerializationFeature.INDENT_OUTPUT)) {
+            this.generator.useDefaultPrettyPrinter();
+        }
+    }
+
+    /**
+     * Write the next result.
+     *
+     * @param result the result
+     * @throws IOException if the result could not be written
+     */
+    @Override
+    public void writeResult(final ScraperResultModel result) throws IOException {
+        start();
+        mapper.writeValue(generator, result);
+        generator.flush();
+    }
+
+    /**
+     * Close the results array and write the total, completing the document.
+     *
+     * @param total the total
+     * @throws IOException if the total could not be written
+     */
+    @Override
+    public void writeTotal(final BigDecimal total) throws IOException {
+        start();
+        generator.writeEndArray();
+        generator.writeFieldName(ScraperModel.TOTAL);
+        mapper.writeValue(generator, total);
+        generator.writeEndObject();
+        finish();
+    }
+
+    /**
+     * Write a whole model as one document, its failures after the total.
+     *
+     * @param model the model
+     * @throws IOException if the model could not be written
+     */
+    @Override
+    public void writeModel(final ScraperModel model) throws IOException {
+        if (started) {
+            throw new IllegalStateException("The results have already been started");
+        }
+        started = true;
+        mapper.writeValue(generator, model);
+        finish();
+    }
+
+    /**
+     * Flush the document, ending a text document with a line separator.
+     *
+     * @throws IOException if the document could not be flushed
+     */
+    private void finish() throws IOException {
+        generator.flush();
+        if (!mapper.getFactory().canHandleBinaryNatively()) {
+            out.write(System.lineSeparator().getBytes(StandardCharsets.UTF_8));
+        }
+        out.flush();
+    }
+
+    /**
+     * Open the document and results array, if not already open.
+     *
+     * @throws IOException if the document could not be started
+     */
+    private void start() throws IOException {
+        if (!started) {
+            started = true;
+            generator.writeStartObject();
+            generator.writeFieldName(ScraperModel.RESULTS);
+            generator.writeStartArray();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+        out.flush();
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.sainsburys.scraper.json.stream;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import com.sainsburys.scraper.json.model.ScraperModel;
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+
+/**
+ * Writes a {@link ScraperModel} in one of the {@link OutputFormat}s, one
+ * result at a time, without holding every result in memory. Closing the
+ * writer leaves the stream under it open. Not thread safe.
+ */
+public interface ScraperOutputWriter extends Closeable {
+
+    /**
+     * Write the next result.
+     *
+     * @param result the result
+     * @throws IOException if the result could not be written
+     */
+    void writeResult(ScraperResultModel result) throws IOException;
+
+    /**
+     * Write the total, completing the output.
+     *
+     * @param total the total
+     * @throws IOException if the total could not be written
+     */
+    void writeTotal(BigDecimal total) throws IOException;
+
+    /**
+     * Write a whole model: the results, any failures of a partial results
+     * scrape, then the total.
+     *
+     * @param model the model
+     * @throws IOException if the model could not be written
+     */
+    default void writeModel(final ScraperModel model) throws IOException {
+        if (model.getResults() != null) {
+            for (final ScraperResultModel result : model.getResults()) {
+                writeResult(result);
+            }
+        }
+        if (model.getFailures() != null) {
+            for (final ScraperResultModel failure : model.getFailures()) {
+                writeResult(failure);
+            }
+        }
+        writeTotal(model.getTotal());
+    }
+
+}
@@ -0,0 +1,5 @@
+/**
+ * Streaming package for writing models as they are produced, as JSON, NDJSON,
+ * CSV, Smile or CBOR.
+ */
+package com.sainsburys.scraper.json.stream;
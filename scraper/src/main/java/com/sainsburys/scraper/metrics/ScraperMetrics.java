@@ -0,0 +1,237 @@
+package com.sainsburys.scraper.metrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Registry of the timers, counters and gauges for the phases of a scrape, shared by
+ * every worker thread. Metrics are created on first use, and the registry
+ * can be dumped as JSON at the end of a run to size the worker pool and spot
+ * slow hosts.
+ */
+public class ScraperMetrics {
+
+    /** Timer for starting the application, until it is ready to scrape. */
+    public static final String STARTUP = "startup";
+
+    /** Timer for fetching a listing page. */
+    public static final String FETCH_LISTING = "fetch.listing";
+
+    /** Timer for fetching a product page. */
+    public static final String FETCH_PRODUCT = "fetch.product";
+
+    /** Timer prefix for fetching any page from a host, followed by the host. */
+    public static final String FETCH_HOST = "fetch.host.";
+
+    /** Timer for parsing a listing page into a document. */
+    public static final String PARSE_LISTING = "parse.listing";
+
+    /** Timer for parsing a product page into a document. */
+    public static final String PARSE_PRODUCT = "parse.product";
+
+    /** Timer for selecting the title, price and description of a product. */
+    public static final String EXTRACT_FIELDS = "extract.fields";
+
+    /** Timer for measuring the size of a product page. */
+    public static final String EXTRACT_SIZE = "extract.size";
+
+    /** Timer for validating a model. */
+    public static final String VALIDATE = "validate";
+
+    /** Timer for writing a model as JSON. */
+    public static final String SERIALISE = "serialise";
+
+    /** Timer for serving a scrape request in server mode, from queueing to response. */
+    public static final String SERVER_REQUEST = "server.request";
+
+    /** Counter of the scrape requests refused in server mode as the queue was full. */
+    public static final String SERVER_REJECTED = "server.rejected";
+
+    /** Counter of the listing scrapes that waited on a scrape of the same listing already in flight. */
+    public static final String COALESCED_LISTING = "coalesced.listing";
+
+    /** Counter of the product scrapes that waited on a scrape of the same product already in flight. */
+    public static final String COALESCED_PRODUCT = "coalesced.product";
+
+    /** Counter of the product pages unchanged since the last run, so not extracted again. */
+    public static final String FINGERPRINT_UNCHANGED = "fingerprint.unchanged";
+
+    /** Counter of the product pages new or changed since the last run. */
+    public static final String FINGERPRINT_CHANGED = "fingerprint.changed";
+
+    /** Counter of the listing pages fetched by a crawl. */
+    public static final String CRAWL_LISTINGS = "crawl.listings";
+
+    /** Counter of the listing links a crawl did not follow, as it had fetched its most pages. */
+    public static final String CRAWL_LIMITED = "crawl.limited";
+
+    /** Gauge prefix for the pages fetched at once allowed from a host, followed by the host. */
+    public static final String FETCH_LIMIT = "fetch.limit.";
+
+    /** Gauge prefix for the pages per second fetched from a host, followed by the host. */
+    public static final String FETCH_THROUGHPUT = "fetch.throughput.";
+
+    /** Counter of the responses from a host asking the scraper to slow down, a 429 or 503. */
+    public static final String FETCH_THROTTLED = "fetch.throttled";
+
+    /** Timer of each successful attempt to fetch a page, that hedged requests are timed against. */
+    public static final String FETCH_ATTEMPT = "fetch.attempt";
+
+    /** Counter of the fetches retried after a transient failure. */
+    public static final String FETCH_RETRIES = "fetch.retries";
+
+    /** Counter of the duplicate requests sent for slow pages. */
+    public static final String FETCH_HEDGED = "fetch.hedged";
+
+    /** Counter of the duplicate requests answered before the original. */
+    public static final String FETCH_HEDGE_WON = "fetch.hedge.won";
+
+    /** Counter of the bytes fetched. */
+    public static final String BYTES_FETCHED = "bytes.fetched";
+
+    /** Counter of the pages that could not be fetched. */
+    public static final String FETCH_FAILURES = "failures.fetch";
+
+    /** Counter of the product pages that could not be parsed. */
+    public static final String PARSE_FAILURES = "failures.parse";
+
+    /** The timers by name. */
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<String, Timer>();
+
+    /** The counters by name. */
+    private final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<String, LongAdder>();
+
+    /** The gauges by name. */
+    private final ConcurrentMap<String, DoubleSupplier> gauges = new ConcurrentHashMap<String, DoubleSupplier>();
+
+    /**
+     * Get the named timer, creating it on first use.
+     *
+     * @param name the timer name
+     * @return the timer
+     */
+    public Timer timer(final String name) {
+        return timers.computeIfAbsent(name, key -> new Timer());
+    }
+
+    /**
+     * Add to the named counter, creating it on first use.
+     *
+     * @param name the counter name
+     * @param amount the amount to add
+     */
+    public void increment(final String name, final long amount) {
+        counters.computeIfAbsent(name, key -> new LongAdder()).add(amount);
+    }
+
+    /**
+     * Add one to the named counter, creating it on first use.
+     *
+     * @param name the counter name
+     */
+    public void increment(final String name) {
+        increment(name, 1);
+    }
+
+    /**
+     * Register a gauge, read each time a snapshot is taken. A gauge already
+     * registered under the name is replaced.
+     *
+     * @param name the gauge name
+     * @param gauge the current value
+     */
+    public void gauge(final String name, final DoubleSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * @return a snapshot of every metric, by name
+     */
+    public Snapshot snapshot() {
+        final SortedMap<String, Timer.Snapshot> timerSnapshots = new TreeMap<String, Timer.Snapshot>();
+        timers.forEach((name, timer) -> timerSnapshots.put(name, timer.snapshot()));
+        final SortedMap<String, Long> counterSnapshots = new TreeMap<String, Long>();
+        counters.forEach((name, counter) -> counterSnapshots.put(name, counter.sum()));
+        final SortedMap<String, Double> gaugeSnapshots = new TreeMap<String, Double>();
+        gauges.forEach((name, gauge) -> gaugeSnapshots.put(name, gauge.getAsDouble()));
+        return new Snapshot(timerSnapshots, counterSnapshots, gaugeSnapshots);
+    }
+
+    /**
+     * Write a snapshot of every metric as JSON, replacing the file.
+     *
+     * @param mapper the JSON mapper
+     * @param file the file to write to
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void writeJson(final ObjectMapper mapper, final Path file) throws IOException {
+        mapper.writeValue(file.toFile(), snapshot());
+    }
+
+    /**
+     * A snapshot of every metric, by name.
+     */
+    @JsonPropertyOrder(value = { "timers", "counters", "gauges" })
+    public static final class Snapshot {
+
+        /** The timers. */
+        @JsonProperty("timers")
+        private final Map<String, Timer.Snapshot> timers;
+
+        /** The counters. */
+        @JsonProperty("counters")
+        private final Map<String, Long> counters;
+
+        /** The gauges. */
+        @JsonProperty("gauges")
+        private final Map<String, Double> gauges;
+
+        /**
+         * Constructor.
+         *
+         * @param timers the timers
+         * @param counters the counters
+         * @param gauges the gauges
+         */
+        private Snapshot(final Map<String, Timer.Snapshot> timers, final Map<String, Long> counters,
+                final Map<String, Double> gauges) {
+            this.timers = Collections.unmodifiableMap(timers);
+            this.counters = Collections.unmodifiableMap(counters);
+            this.gauges = Collections.unmodifiableMap(gauges);
+        }
+
+        /**
+         * @return the timers
+         */
+        public Map<String, Timer.Snapshot> getTimers() {
+            return timers;
+        }
+
+        /**
+         * @return the counters
+         */
+        public Map<String, Long> getCounters() {
+            return counters;
+        }
+
+        /**
+         * @return the gauges
+         */
+        public Map<String, Double> getGauges() {
+            return gauges;
+        }
+    }
+
+}
@@ -0,0 +1,290 @@
+package com.sainsburys.scraper.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Times a phase of a scrape, keeping the count, total and maximum, and a
+ * histogram of the durations for the percentiles. The histogram buckets
+ * split each power of two microseconds in four, so a percentile is within a
+ * quarter of the true duration. Thread safe and lock free.
+ */
+public final class Timer {
+
+    /** The exactly counted microseconds, below which buckets are not split. */
+    private static final int EXACT_MICROS = 4;
+
+    /** The sub-buckets per power of two. */
+    private static final int SUB_BUCKETS = 4;
+
+    /** The number of buckets, enough for any duration. */
+    private static final int BUCKETS = SUB_BUCKETS * (Long.SIZE - 2);
+
+    /** The number of nanoseconds in a millisecond. */
+    private static final double NANOS_IN_MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /** The number of microseconds in a millisecond. */
+    private static final double MICROS_IN_MS = TimeUnit.MILLISECONDS.toMicros(1);
+
+    /** The number of durations recorded. */
+    private final LongAdder count = new LongAdder();
+
+    /** The total of the durations in nanoseconds. */
+    private final LongAdder totalNanos = new LongAdder();
+
+    /** The longest duration in nanoseconds. */
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /** The number of durations in each bucket. */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Start timing, recording the duration when the returned context closes.
+     *
+     * @return the timing context
+     */
+    public Context time() {
+        return new Context(System.nanoTime());
+    }
+
+    /**
+     * Record a duration.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(final long nanos) {
+        final long duration = Math.max(nanos, 0);
+        count.increment();
+        totalNanos.add(duration);
+        maxNanos.accumulate(duration);
+        buckets.incrementAndGet(bucketOf(TimeUnit.NANOSECONDS.toMicros(duration)));
+    }
+
+    /**
+     * @return a snapshot of the durations recorded so far
+     */
+    public Snapshot snapshot() {
+        final long[] counts = new long[BUCKETS];
+        long recorded = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            recorded += counts[i];
+        }
+        final long max = maxNanos.get();
+        return new Snapshot(count.sum(), totalNanos.sum(), max, percentile(counts, recorded, 50, max),
+                percentile(counts, recorded, 90, max), percentile(counts, recorded, 99, max));
+    }
+
+    /**
+     * @return the number of durations recorded so far
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Estimate a percentile of the durations recorded so far.
+     *
+     * @param percentile the percentile, from 1 to 100
+     * @return the percentile in milliseconds, or 0 if nothing was recorded
+     */
+    public double percentile(final int percentile) {
+        final long[] counts = new long[BUCKETS];
+        long recorded = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            recorded += counts[i];
+        }
+        return percentile(counts, recorded, percentile, maxNanos.get());
+    }
+
+    /**
+     * Find the bucket a duration falls in.
+     *
+     * @param micros the duration in microseconds
+     * @return the bucket index
+     */
+    static int bucketOf(final long micros) {
+        if (micros < EXACT_MICROS) {
+            return (int) micros;
+        }
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(micros);
+        final int subBucket = (int) (micros >>> (exponent - 2)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS * (exponent - 1) + subBucket;
+    }
+
+    /**
+     * Find the largest duration a bucket holds.
+     *
+     * @param bucket the bucket index
+     * @return the upper bound in microseconds
+     */
+    static long upperBoundOf(final int bucket) {
+        if (bucket < EXACT_MICROS) {
+            return bucket;
+        }
+        final int exponent = bucket / SUB_BUCKETS + 1;
+        final int subBucket = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - 2)) - 1;
+    }
+
+    /**
+     * Estimate a percentile by the upper bound of the bucket holding its
+     * rank, never more than the longest duration.
+     *
+     * @param counts the bucket counts
+     * @param recorded the total of the bucket counts
+     * @param percentile the percentile
+     * @param maxNanos the longest duration in nanoseconds
+     * @return the percentile in milliseconds, or 0 if nothing was recorded
+     */
+    private static double percentile(final long[] counts, final long recorded, final int percentile,
+            final long maxNanos) {
+        if (recorded == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * recorded));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i) / MICROS_IN_MS, maxNanos / NANOS_IN_MS);
+            }
+        }
+        return maxNanos / NANOS_IN_MS;
+    }
+
+    /**
+     * A running timing, recorded when closed.
+     */
+    public final class Context implements AutoCloseable {
+
+        /** When the timing started, from {@link System#nanoTime()}. */
+        private final long start;
+
+        /**
+         * Constructor.
+         *
+         * @param start when the timing started
+         */
+        private Context(final long start) {
+            this.start = start;
+        }
+
+        @Override
+        public void close() {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * A snapshot of a timer, in milliseconds.
+     */
+    @JsonPropertyOrder(value = { "count", "total_ms", "mean_ms", "max_ms", "p50_ms", "p90_ms", "p99_ms" })
+    public static final class Snapshot {
+
+        /** The number of durations recorded. */
+        @JsonProperty("count")
+        private final long count;
+
+        /** The total of the durations. */
+        @JsonProperty("total_ms")
+        private final double totalMs;
+
+        /** The mean duration. */
+        @JsonProperty("mean_ms")
+        private final double meanMs;
+
+        /** The longest duration. */
+        @JsonProperty("max_ms")
+        private final double maxMs;
+
+        /** The median duration. */
+        @JsonProperty("p50_ms")
+        private final double p50Ms;
+
+        /** The 90th percentile duration. */
+        @JsonProperty("p90_ms")
+        private final double p90Ms;
+
+        /** The 99th percentile duration. */
+        @JsonProperty("p99_ms")
+        private final double p99Ms;
+
+        /**
+         * Constructor.
+         *
+         * @param count the count
+         * @param totalNanos the total in nanoseconds
+         * @param maxNanos the maximum in nanoseconds
+         * @param p50Ms the median in milliseconds
+         * @param p90Ms the 90th percentile in milliseconds
+         * @param p99Ms the 99th percentile in milliseconds
+         */
+        private Snapshot(final long count, final long totalNanos, final long maxNanos, final double p50Ms,
+                final double p90Ms, final double p99Ms) {
+            this.count = count;
+            this.totalMs = totalNanos / NANOS_IN_MS;
+            this.meanMs = count == 0 ? 0 : totalMs / count;
+            this.maxMs = maxNanos / NANOS_IN_MS;
+            this.p50Ms = p50Ms;
+            this.p90Ms = p90Ms;
+            this.p99Ms = p99Ms;
+        }
+
+        /**
+         * @return the count
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the total in milliseconds
+         */
+        public double getTotalMs() {
+            return totalMs;
+        }
+
+        /**
+         * @return the mean in milliseconds
+         */
+        public double getMeanMs() {
+            return meanMs;
+        }
+
+        /**
+         * @return the maximum in milliseconds
+         */
+        public double getMaxMs() {
+            return maxMs;
+        }
+
+        /**
+         * @return the median in milliseconds
+         */
+        public double getP50Ms() {
+            return p50Ms;
+        }
+
+        /**
+         * @return the 90th percentile in milliseconds
+         */
+        public double getP90Ms() {
+            return p90Ms;
+        }
+
+        /**
+         * @return the 99th percentile in milliseconds
+         */
+        public double getP99Ms() {
+            return p99Ms;
+        }
+    }
+
+}
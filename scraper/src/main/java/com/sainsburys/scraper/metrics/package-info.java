@@ -0,0 +1,4 @@
+/**
+ * Metrics package for timing and counting the phases of a scrape.
+ */
+package com.sainsburys.scraper.metrics;
@@ -0,0 +1,210 @@
+package com.sainsburys.scraper.server;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.sainsburys.scraper.exception.ParsingFailureException;
+import com.sainsburys.scraper.history.PriceHistoryWriter;
+import com.sainsburys.scraper.json.model.ScraperModel;
+import com.sainsburys.scraper.metrics.ScraperMetrics;
+import com.sainsburys.scraper.metrics.Timer;
+import com.sainsburys.scraper.service.api.ScraperService;
+
+/**
+ * Server mode endpoints. A scrape runs on the bounded request pool and the
+ * container thread is released while it does. Each scrape is recorded in the
+ * price history as a run of its own.
+ */
+@RestController
+@Profile(ScraperServerApplication.SERVER_PROFILE)
+public class ScrapeEndpoint {
+
+    /** The error JSON name. */
+    private static final String ERROR = "error";
+
+    /** The seconds a refused caller is asked to wait before retrying. */
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    /** The logger. */
+    private static Logger LOGGER = LoggerFactory.getLogger(ScrapeEndpoint.class);
+
+    /** The scraper service. */
+    @Autowired
+    private ScraperService scraperService;
+
+    /** The bean validator. */
+    @Autowired
+    private Validator validator;
+
+    /** The metrics registry. */
+    @Autowired
+    private ScraperMetrics metrics;
+
+    /** The price history the products are recorded in. */
+    @Autowired
+    private PriceHistoryWriter priceHistory;
+
+    /** The bounded pool scrape requests run on. */
+    @Autowired
+    private ThreadPoolExecutor scrapeRequestExecutor;
+
+    /**
+     * Scrape the given URL.
+     *
+     * @param url the listing URL
+     * @return the future scraper model, or the error
+     */
+    public CompletableFuture<ResponseEntity<?>> scrape(final String url) {
+        return scrape(url, false);
+    }
+
+    /**
+     * Scrape the given URL, keeping the products scraped when others fail if
+     * partial results are asked for.
+     *
+     * @param url the listing URL
+     * @param partial whether a failed product is listed in the model rather than failing the scrape
+     * @return the future scraper model, or the error
+     */
+    @GetMapping(path = "/scrape", produces = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<?>> scrape(@RequestParam("url") final String url,
+            @RequestParam(name = "partial", defaultValue = "false") final boolean partial) {
+        LOGGER.debug("Entered scrape with [url = {}]", url);
+        final URI uri;
+        try {
+            uri = UriComponentsBuilder.fromHttpUrl(url).build().toUri();
+        } catch (final IllegalArgumentException | IllegalStateException e) {
+            return CompletableFuture.completedFuture(error(HttpStatus.BAD_REQUEST, "Not a valid URL: " + url));
+        }
+        final Timer.Context request = metrics.timer(ScraperMetrics.SERVER_REQUEST).time();
+        try {
+            return CompletableFuture.supplyAsync(() -> scrapeModel(uri, partial), scrapeRequestExecutor)
+                    .handle((model, throwable) -> {
+                        request.close();
+                        return throwable == null ? ResponseEntity.ok(model) : error(uri, throwable);
+                    });
+        } catch (final RejectedExecutionException e) {
+            metrics.increment(ScraperMetrics.SERVER_REJECTED);
+            LOGGER.warn("Refused to scrape {}, {} scrapes are already queued", uri,
+                    scrapeRequestExecutor.getQueue().size());
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                    .body(errorBody("Too many scrapes in progress, try again later")));
+        }
+    }
+
+    /**
+     * @return a snapshot of every metric
+     */
+    @GetMapping(path = "/metrics", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ScraperMetrics.Snapshot metrics() {
+        return metrics.snapshot();
+    }
+
+    /**
+     * Scrape, validate and record the model, on a request thread.
+     *
+     * @param uri the listing URI
+     * @param partial whether a failed product is listed in the model rather than failing the scrape
+     * @return the scraper model
+     */
+    private ScraperModel scrapeModel(final URI uri, final boolean partial) {
+        try {
+            final ScraperModel scraperModel = partial ? scraperService.getPartialScraperModelFromUri(uri)
+                    : scraperService.getScraperModelFromUri(uri);
+            final Errors errors = new BeanPropertyBindingResult(scraperModel, "scraperModel");
+            try (final Timer.Context validate = metrics.timer(ScraperMetrics.VALIDATE).time()) {
+                validator.validate(scraperModel, errors);
+            }
+            if (errors.hasErrors()) {
+                LOGGER.error("The model for {} has validation errors {}", uri, errors);
+            }
+            recordHistory(uri, scraperModel);
+            return scraperModel;
+        } catch (final IOException | ParsingFailureException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Record the prices of a scrape in the price history, logging any
+     * failure rather than failing the request.
+     *
+     * @param uri the listing URI
+     * @param scraperModel the scraper model
+     */
+    private void recordHistory(final URI uri, final ScraperModel scraperModel) {
+        try {
+            priceHistory.append(scraperModel);
+        } catch (final IOException e) {
+            LOGGER.error("Unable to record the prices from {} in the price history", uri, e);
+        }
+    }
+
+    /**
+     * Map a failed scrape to an error response. The site could not be
+     * reached or did not hold the expected products, so both are a bad
+     * gateway.
+     *
+     * @param uri the listing URI
+     * @param throwable the failure
+     * @return the error response
+     */
+    private static ResponseEntity<?> error(final URI uri, final Throwable throwable) {
+        final Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause() : throwable;
+        if (cause instanceof IOException) {
+            LOGGER.error("Error connecting to URI {}", uri, cause);
+            return error(HttpStatus.BAD_GATEWAY, "Error connecting to " + uri + ": " + cause.getMessage());
+        } else if (cause instanceof ParsingFailureException) {
+            LOGGER.error("Unable to parse an element for {}", uri, cause);
+            return error(HttpStatus.BAD_GATEWAY, cause.getMessage());
+        }
+        LOGGER.error("Scraping {} failed", uri, cause);
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, "Scraping " + uri + " failed");
+    }
+
+    /**
+     * Create an error response.
+     *
+     * @param status the status
+     * @param message the message
+     * @return the error response
+     */
+    private static ResponseEntity<?> error(final HttpStatus status, final String message) {
+        return ResponseEntity.status(status).body(errorBody(message));
+    }
+
+    /**
+     * Create an error body.
+     *
+     * @param message the message
+     * @return the error body
+     */
+    private static Map<String, String> errorBody(final String message) {
+        return Collections.singletonMap(ERROR, message);
+    }
+
+}
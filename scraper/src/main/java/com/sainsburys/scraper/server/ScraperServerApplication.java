@@ -0,0 +1,75 @@
+package com.sainsburys.scraper.server;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.sainsburys.scraper.ScraperApplication;
+import com.sainsburys.scraper.config.ScraperProperties;
+
+/**
+ * Server mode application.
+ * <p>
+ * Serves {@code GET /scrape?url=} from a long-lived process, so each scrape
+ * runs on a warm JVM rather than paying for startup. At most
+ * {@code scraper.server.max-concurrent} scrapes run at once with
+ * {@code scraper.server.queue-size} more waiting, and any request beyond
+ * that is refused at once with a 503. Only active in the {@code server}
+ * profile, so the console application never starts a web server.
+ */
+@Configuration
+@Profile(ScraperServerApplication.SERVER_PROFILE)
+@EnableAutoConfiguration
+@ComponentScan(basePackageClasses = ScraperApplication.class, excludeFilters = @ComponentScan.Filter(
+        type = FilterType.ASSIGNABLE_TYPE, classes = ScraperApplication.class))
+public class ScraperServerApplication {
+
+    /** The profile server mode runs in. */
+    public static final String SERVER_PROFILE = "server";
+
+    /** The name prefix for the request threads. */
+    private static final String REQUEST_THREAD_PREFIX = "scraper-request-";
+
+    /**
+     * Starts the server.
+     *
+     * @param args command line args, such as {@code --server.port=8080}
+     */
+    public static void main(final String[] args) {
+        new SpringApplicationBuilder(ScraperServerApplication.class).profiles(SERVER_PROFILE).run(args);
+    }
+
+    /**
+     * Configures the bounded pool scrape requests run on. A full queue
+     * rejects the request rather than holding it.
+     *
+     * @param properties the scraper properties
+     * @return the request pool
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor scrapeRequestExecutor(final ScraperProperties properties) {
+        final ScraperProperties.Server settings = properties.getServer();
+        if (settings.getMaxConcurrent() < 1) {
+            throw new IllegalStateException(
+                    "scraper.server.max-concurrent must be at least 1 but was " + settings.getMaxConcurrent());
+        }
+        final BlockingQueue<Runnable> queue = settings.getQueueSize() > 0
+                ? new ArrayBlockingQueue<Runnable>(settings.getQueueSize()) : new SynchronousQueue<Runnable>();
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(REQUEST_THREAD_PREFIX);
+        threadFactory.setDaemon(true);
+        return new ThreadPoolExecutor(settings.getMaxConcurrent(), settings.getMaxConcurrent(), 0,
+                TimeUnit.MILLISECONDS, queue, threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+}
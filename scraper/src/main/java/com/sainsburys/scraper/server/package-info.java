@@ -0,0 +1,4 @@
+/**
+ * Server package for scraping over HTTP from a long-lived process.
+ */
+package com.sainsburys.scraper.server;
@@ -0,0 +1,304 @@
+package com.sainsburys.scraper.service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Collector;
+import org.jsoup.select.Evaluator;
+
+import com.sainsburys.scraper.exception.ParsingFailureException;
+import com.sainsburys.scraper.json.model.ScraperModel;
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+import com.sainsburys.scraper.metrics.ScraperMetrics;
+import com.sainsburys.scraper.service.api.CrawlOptions;
+import com.sainsburys.scraper.service.util.UriUtil;
+
+/**
+ * A single crawl from a seed listing page. Every listing and product page is
+ * a task on the worker pool, and the links a listing page holds are queued
+ * as soon as it is parsed rather than a depth at a time, so the crawl is
+ * bounded by the pool rather than the depth of the listings. Pages are
+ * visited once each by canonical URI, and only pages on the seed's host are
+ * followed.
+ * <p>
+ * The products keep a deterministic order: the products of a listing page
+ * in listing order, then those of each listing page it links to in link
+ * order. The first failure fails the crawl and stops any page not yet
+ * started, unless the crawl keeps partial results, when a failed page past
+ * the seed is listed in the model's failures and the crawl goes on.
+ */
+final class Crawl {
+
+    /** The width of each position in an order key. */
+    private static final String POSITION_FORMAT = "%06d";
+
+    /** The order key step to a product of a listing page. */
+    private static final String PRODUCT_STEP = "/0";
+
+    /** The order key step to a listing page linked from a listing page. */
+    private static final String LISTING_STEP = "/1";
+
+    /** The seed listing URI. */
+    private final URI seed;
+
+    /** The crawl bounds. */
+    private final CrawlOptions options;
+
+    /** The product link evaluator. */
+    private final Evaluator productEvaluator;
+
+    /** The worker pool the pages are fetched and parsed on. */
+    private final Executor executor;
+
+    /** Fetches and parses a listing page. */
+    private final ScrapeFunction<Document> listingFetcher;
+
+    /** Scrapes a product page. */
+    private final ScrapeFunction<ScraperResultModel> productScraper;
+
+    /** Gives the canonical form of a URI. */
+    private final UnaryOperator<String> canonical;
+
+    /** The metrics the crawl is counted in. */
+    private final ScraperMetrics metrics;
+
+    /** The canonical URIs of the listing pages queued. */
+    private final Set<String> listings = ConcurrentHashMap.newKeySet();
+
+    /** The canonical URIs of the product pages queued. */
+    private final Set<String> products = ConcurrentHashMap.newKeySet();
+
+    /** The listing pages that may still be queued. */
+    private final AtomicInteger pageBudget;
+
+    /** The tasks queued or running. */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /** Whether a task has failed. */
+    private final AtomicBoolean failed = new AtomicBoolean();
+
+    /** The products scraped, by order key. */
+    private final Map<String, ScraperResultModel> results = new ConcurrentSkipListMap<String, ScraperResultModel>();
+
+    /** The pages that failed in a partial results crawl, by order key. */
+    private final Map<String, ScraperResultModel> failures = new ConcurrentSkipListMap<String, ScraperResultModel>();
+
+    /** The crawled model. */
+    private final CompletableFuture<ScraperModel> model = new CompletableFuture<ScraperModel>();
+
+    /**
+     * Constructor.
+     *
+     * @param seed the seed listing URI
+     * @param options the crawl bounds
+     * @param productEvaluator the product link evaluator
+     * @param executor the worker pool the pages are fetched and parsed on
+     * @param listingFetcher fetches and parses a listing page
+     * @param productScraper scrapes a product page
+     * @param canonical gives the canonical form of a URI
+     * @param metrics the metrics the crawl is counted in
+     */
+    Crawl(final URI seed, final CrawlOptions options, final Evaluator productEvaluator, final Executor executor,
+            final ScrapeFunction<Document> listingFetcher, final ScrapeFunction<ScraperResultModel> productScraper,
+            final UnaryOperator<String> canonical, final ScraperMetrics metrics) {
+        this.seed = seed;
+        this.options = options;
+        this.productEvaluator = productEvaluator;
+        this.executor = executor;
+        this.listingFetcher = listingFetcher;
+        this.productScraper = productScraper;
+        this.canonical = canonical;
+        this.metrics = metrics;
+        this.pageBudget = new AtomicInteger(options.getMaxPages() - 1);
+    }
+
+    /**
+     * Start the crawl from the seed.
+     *
+     * @return the future model of every product found
+     */
+    CompletableFuture<ScraperModel> start() {
+        final String seedUri = seed.toString();
+        listings.add(canonical.apply(seedUri));
+        submit(() -> crawlListing(seedUri, "", 0));
+        return model;
+    }
+
+    /**
+     * Fetch a listing page, queueing its products and the listing pages it
+     * links to.
+     *
+     * @param uri the listing URI
+     * @param orderKey the order key of the page
+     * @param depth the links followed from the seed to the page
+     * @throws IOException if there was an issue connection to the uri
+     * @throws ParsingFailureException if there was an issue parsing
+     */
+    private void crawlListing(final String uri, final String orderKey, final int depth)
+            throws IOException, ParsingFailureException {
+        final Document document = listingFetcher.apply(uri);
+        metrics.increment(ScraperMetrics.CRAWL_LISTINGS);
+        int position = 0;
+        for (final Element link : Collector.collect(productEvaluator, document)) {
+            final String productUri = UriUtil.hrefOf(link);
+            if (products.add(canonical.apply(productUri))) {
+                final String productKey = orderKey + PRODUCT_STEP + String.format(POSITION_FORMAT, position++);
+                submit(() -> isolated(productUri, productKey,
+                        () -> results.put(productKey, productScraper.apply(productUri))));
+            }
+        }
+        if (depth >= options.getMaxDepth()) {
+            return;
+        }
+        position = 0;
+        for (final Element link : document.select(options.getListingLinkSelector())) {
+            final String listingUri = UriUtil.hrefOf(link);
+            if (!isOnSeedHost(listingUri) || !listings.add(canonical.apply(listingUri))) {
+                continue;
+            }
+            if (pageBudget.getAndDecrement() <= 0) {
+                metrics.increment(ScraperMetrics.CRAWL_LIMITED);
+                continue;
+            }
+            final String listingKey = orderKey + LISTING_STEP + String.format(POSITION_FORMAT, position++);
+            submit(() -> isolated(listingUri, listingKey, () -> crawlListing(listingUri, listingKey, depth + 1)));
+        }
+    }
+
+    /**
+     * Run the task for a page, listing the page in the failures rather than
+     * failing the crawl if it fails in a partial results crawl.
+     *
+     * @param uri the page URI
+     * @param orderKey the order key of the page
+     * @param task the task
+     * @throws IOException if there was an issue connection to the uri
+     * @throws ParsingFailureException if there was an issue parsing
+     */
+    private void isolated(final String uri, final String orderKey, final CrawlTask task)
+            throws IOException, ParsingFailureException {
+        try {
+            task.run();
+        } catch (final IOException | ParsingFailureException e) {
+            if (!options.isPartialResults()) {
+                throw e;
+            }
+            failures.put(orderKey, ScraperServiceProvider.failed(uri, e));
+        }
+    }
+
+    /**
+     * Queue a task on the worker pool. The crawl completes when the last
+     * task does, as any task it queues is counted before it finishes.
+     *
+     * @param task the task
+     */
+    private void submit(final CrawlTask task) {
+        pending.incrementAndGet();
+        CompletableFuture.runAsync(() -> {
+            if (failed.get()) {
+                throw new CancellationException("Crawl of " + seed + " abandoned");
+            }
+            try {
+                task.run();
+            } catch (final IOException | ParsingFailureException e) {
+                throw new CompletionException(e);
+            }
+        }, executor).whenComplete((ignored, throwable) -> {
+            if (throwable != null && failed.compareAndSet(false, true)) {
+                model.completeExceptionally(throwable instanceof CompletionException && throwable.getCause() != null
+                        ? throwable.getCause() : throwable);
+            }
+            if (pending.decrementAndGet() == 0 && !failed.get()) {
+                complete();
+            }
+        });
+    }
+
+    /**
+     * Complete the model with the products in order, and in a partial results
+     * crawl the pages that failed.
+     */
+    private void complete() {
+        final ScraperModel.Builder scraperModel = ScraperModel.builder();
+        if (options.isPartialResults()) {
+            scraperModel.results(results.values().stream().map(ScraperServiceProvider::succeeded)
+                    .collect(Collectors.toList()));
+            scraperModel.failures(new ArrayList<ScraperResultModel>(failures.values()));
+        } else {
+            scraperModel.results(new ArrayList<ScraperResultModel>(results.values()));
+        }
+        scraperModel.total(results.values().stream().map(ScraperResultModel::getUnitPrice)
+                .reduce(new BigDecimal(0), BigDecimal::add));
+        model.complete(scraperModel.build());
+    }
+
+    /**
+     * Check whether a URI is on the seed's host.
+     *
+     * @param uri the URI
+     * @return true if it is an HTTP URI on the seed's host
+     */
+    private boolean isOnSeedHost(final String uri) {
+        try {
+            final URI parsed = new URI(uri);
+            return parsed.getScheme() != null && parsed.getScheme().toLowerCase(Locale.ROOT).startsWith("http")
+                    && seed.getHost() != null && seed.getHost().equalsIgnoreCase(parsed.getHost());
+        } catch (final URISyntaxException e) {
+            return false;
+        }
+    }
+
+    /**
+     * A function of a page URI that may fail.
+     *
+     * @param <T> the result type
+     */
+    @FunctionalInterface
+    interface ScrapeFunction<T> {
+
+        /**
+         * Apply the function.
+         *
+         * @param uri the page URI
+         * @return the result
+         * @throws IOException if there was an issue connection to the uri
+         * @throws ParsingFailureException if there was an issue parsing
+         */
+        T apply(String uri) throws IOException, ParsingFailureException;
+    }
+
+    /**
+     * A crawl task that may fail.
+     */
+    @FunctionalInterface
+    private interface CrawlTask {
+
+        /**
+         * Run the task.
+         *
+         * @throws IOException if there was an issue connection to the uri
+         * @throws ParsingFailureException if there was an issue parsing
+         */
+        void run() throws IOException, ParsingFailureException;
+    }
+
+}
@@ -0,0 +1,24 @@
+package com.sainsburys.scraper.service;
+
+import java.io.IOException;
+
+import com.sainsburys.scraper.exception.ParsingFailureException;
+
+/**
+ * A unit of scrape work that may fail with the service's checked exceptions.
+ *
+ * @param <T> the result type
+ */
+@FunctionalInterface
+interface ScrapeStep<T> {
+
+    /**
+     * Run the step.
+     *
+     * @return the result
+     * @throws IOException if there was an issue connection to the uri
+     * @throws ParsingFailureException if there was an issue parsing
+     */
+    T call() throws IOException, ParsingFailureException;
+
+}
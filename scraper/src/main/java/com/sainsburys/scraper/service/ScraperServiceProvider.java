@@ -1,27 +1,60 @@
 package com.sainsburys.scraper.service;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.math.BigDecimal;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
-import org.jsoup.Jsoup;
+import org.jsoup.HttpStatusException;
 import org.jsoup.nodes.Document;
+import org.jsoup.select.Collector;
+import org.jsoup.select.Evaluator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
 
 import com.sainsburys.scraper.exception.ParsingFailureException;
 import com.sainsburys.scraper.json.model.ScraperModel;
 import com.sainsburys.scraper.json.model.ScraperResultModel;
+import com.sainsburys.scraper.metrics.ScraperMetrics;
+import com.sainsburys.scraper.metrics.Timer;
+import com.sainsburys.scraper.service.api.CrawlOptions;
+import com.sainsburys.scraper.service.api.ProductListener;
 import com.sainsburys.scraper.service.api.ScraperService;
-import com.sainsburys.scraper.service.util.ElementSelectorUtil;
+import com.sainsburys.scraper.service.cache.FingerprintStore;
+import com.sainsburys.scraper.service.cache.ProductCache;
+import com.sainsburys.scraper.service.extract.ProductExtractor;
+import com.sainsburys.scraper.service.fetch.FetchedPage;
+import com.sainsburys.scraper.service.fetch.PageFetcher;
+import com.sainsburys.scraper.service.util.CompiledSelector;
+import com.sainsburys.scraper.service.util.UriUtil;
+import com.sainsburys.scraper.validation.ScraperModelValidator;
 
 /**
- * Scraper service provider implementation.
+ * Scraper service provider implementation. The listing and product pages are
+ * fetched and parsed on the shared worker pool, the results keep the order
+ * the products were listed in. Concurrent scrapes of the same listing or
+ * product page share a single fetch and parse.
  */
 @Service
 public class ScraperServiceProvider implements ScraperService {
@@ -29,55 +62,537 @@ public class ScraperServiceProvider implements ScraperService {
     /** The product CSS selector. */
     private static final String PRODUCT_SELECTOR = "div.productInfo a";
 
-    /** The product href selector. */
-    private static final String HREF_ATTRIBUTE_SELECTOR = "href";
+    /** The compiled product CSS selector. */
+    private static final Evaluator PRODUCT_EVALUATOR = CompiledSelector.compile(PRODUCT_SELECTOR);
+
+    /** The HTTP scheme. */
+    private static final String HTTP = "http";
+
+    /** The HTTPS scheme. */
+    private static final String HTTPS = "https";
+
+    /** The default HTTP port. */
+    private static final int HTTP_PORT = 80;
+
+    /** The default HTTPS port. */
+    private static final int HTTPS_PORT = 443;
+
+    /** The host timed when a URI has none. */
+    private static final String UNKNOWN_HOST = "unknown";
 
     /** The logger. */
     private static Logger LOGGER = LoggerFactory.getLogger(ScraperServiceProvider.class);
 
+    /** The worker pool the pages are fetched and parsed on. */
+    private final ExecutorService scraperExecutor;
+
+    /** The page fetcher. */
+    private final PageFetcher pageFetcher;
+
+    /** The extracted product cache. */
+    private final ProductCache productCache;
+
+    /** The product extractor. */
+    private final ProductExtractor productExtractor;
+
+    /** The fingerprints of the product pages from the last run. */
+    private final FingerprintStore fingerprintStore;
+
+    /** The validator each product is checked with as it is extracted. */
+    private final Validator validator;
+
+    /** The metrics each phase is timed and counted in. */
+    private final ScraperMetrics metrics;
+
+    /** The listing scrapes in flight, by canonical URI. */
+    private final SingleFlight<String, List<String>> listingFlights;
+
+    /** The product scrapes in flight, by canonical URI. */
+    private final SingleFlight<String, ScraperResultModel> productFlights;
+
+    /**
+     * Constructor, extracting every product page.
+     *
+     * @param scraperExecutor the worker pool to fetch and parse pages on
+     * @param pageFetcher the page fetcher
+     * @param productCache the extracted product cache
+     * @param productExtractor the product extractor
+     * @param metrics the metrics each phase is timed and counted in
+     */
+    public ScraperServiceProvider(final ExecutorService scraperExecutor, final PageFetcher pageFetcher,
+            final ProductCache productCache, final ProductExtractor productExtractor,
+            final ScraperMetrics metrics) {
+        this(scraperExecutor, pageFetcher, productCache, productExtractor, new FingerprintStore(), metrics);
+    }
+
+    /**
+     * Constructor, validating each product with a {@link ScraperModelValidator}.
+     *
+     * @param scraperExecutor the worker pool to fetch and parse pages on
+     * @param pageFetcher the page fetcher
+     * @param productCache the extracted product cache
+     * @param productExtractor the product extractor
+     * @param fingerprintStore the fingerprints of the product pages from the last run
+     * @param metrics the metrics each phase is timed and counted in
+     */
+    public ScraperServiceProvider(final ExecutorService scraperExecutor, final PageFetcher pageFetcher,
+            final ProductCache productCache, final ProductExtractor productExtractor,
+            final FingerprintStore fingerprintStore, final ScraperMetrics metrics) {
+        this(scraperExecutor, pageFetcher, productCache, productExtractor, fingerprintStore,
+                new ScraperModelValidator(), metrics);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param scraperExecutor the worker pool to fetch and parse pages on
+     * @param pageFetcher the page fetcher
+     * @param productCache the extracted product cache
+     * @param productExtractor the product extractor
+     * @param fingerprintStore the fingerprints of the product pages from the last run
+     * @param validator the validator each product is checked with as it is extracted
+     * @param metrics the metrics each phase is timed and counted in
+     */
+    @Autowired
+    public ScraperServiceProvider(final ExecutorService scraperExecutor, final PageFetcher pageFetcher,
+            final ProductCache productCache, final ProductExtractor productExtractor,
+            final FingerprintStore fingerprintStore, final Validator validator, final ScraperMetrics metrics) {
+        this.scraperExecutor = scraperExecutor;
+        this.pageFetcher = pageFetcher;
+        this.productCache = productCache;
+        this.productExtractor = productExtractor;
+        this.fingerprintStore = fingerprintStore;
+        this.validator = validator;
+        this.metrics = metrics;
+        this.listingFlights = new SingleFlight<String, List<String>>(metrics, ScraperMetrics.COALESCED_LISTING);
+        this.productFlights = new SingleFlight<String, ScraperResultModel>(metrics, ScraperMetrics.COALESCED_PRODUCT);
+    }
+
     @Override
     public ScraperModel getScraperModelFromUri(final URI uri) throws IOException, ParsingFailureException {
-        LOGGER.debug("Entered getJsonFromUri with [uri = {}]", uri);
-        final Document document = Jsoup.connect(uri.toString()).get();
-        final Set<String> selectedUris = document.select(PRODUCT_SELECTOR).stream()
-                .map(element -> element.attr(HREF_ATTRIBUTE_SELECTOR)).collect(Collectors.toSet());
+        return await(getScraperModelFromUriAsync(uri));
+    }
+
+    @Override
+    public CompletableFuture<ScraperModel> getScraperModelFromUriAsync(final URI uri) {
+        return getScraperModelFromUriAsync(uri, ProductListener.NONE);
+    }
+
+    @Override
+    public CompletableFuture<ScraperModel> getScraperModelFromUriAsync(final URI uri,
+            final ProductListener listener) {
+        LOGGER.debug("Entered getScraperModelFromUriAsync with [uri = {}]", uri);
+        return scrapeModel(uri, listener, false);
+    }
+
+    @Override
+    public ScraperModel getPartialScraperModelFromUri(final URI uri) throws IOException, ParsingFailureException {
+        return await(getPartialScraperModelFromUriAsync(uri));
+    }
+
+    @Override
+    public CompletableFuture<ScraperModel> getPartialScraperModelFromUriAsync(final URI uri) {
+        LOGGER.debug("Entered getPartialScraperModelFromUriAsync with [uri = {}]", uri);
+        return scrapeModel(uri, ProductListener.NONE, true);
+    }
+
+    @Override
+    public BigDecimal scrapeProductsFromUri(final URI uri, final ProductListener listener)
+            throws IOException, ParsingFailureException {
+        return await(scrapeProductsFromUriAsync(uri, listener));
+    }
+
+    @Override
+    public CompletableFuture<BigDecimal> scrapeProductsFromUriAsync(final URI uri, final ProductListener listener) {
+        LOGGER.debug("Entered scrapeProductsFromUriAsync with [uri = {}]", uri);
+        return supplyAsync(() -> selectProductUris(uri))
+                .thenCompose(selectedUris -> parseAllUri(selectedUris, listener, false));
+    }
+
+    @Override
+    public ScraperModel crawlFromUri(final URI seed, final CrawlOptions options)
+            throws IOException, ParsingFailureException {
+        return await(crawlFromUriAsync(seed, options));
+    }
+
+    @Override
+    public CompletableFuture<ScraperModel> crawlFromUriAsync(final URI seed, final CrawlOptions options) {
+        LOGGER.debug("Entered crawlFromUriAsync with [seed = {}]", seed);
+        return new Crawl(seed, options, PRODUCT_EVALUATOR, scraperExecutor, this::fetchListing, this::parseUri,
+                ScraperServiceProvider::canonical, metrics).start();
+    }
+
+    /**
+     * Scrape the listing page into a model, the products in listing order.
+     *
+     * @param uri the listing URI
+     * @param listener the listener to notify per product
+     * @param partialResults whether a failed product is listed in the model rather than failing the scrape
+     * @return the future scraper model
+     */
+    private CompletableFuture<ScraperModel> scrapeModel(final URI uri, final ProductListener listener,
+            final boolean partialResults) {
+        return supplyAsync(() -> selectProductUris(uri)).thenCompose(selectedUris -> {
+            // Collect each result or failure into its listing position
+            final ScraperResultModel[] results = new ScraperResultModel[selectedUris.size()];
+            final ScraperResultModel[] failures = new ScraperResultModel[selectedUris.size()];
+            return parseAllUri(selectedUris, new ProductListener() {
+
+                @Override
+                public void onProduct(final int index, final String productUri, final ScraperResultModel result) {
+                    results[index] = partialResults ? succeeded(result) : result;
+                    listener.onProduct(index, productUri, results[index]);
+                }
 
-        // Create the model
-        final ScraperModel scraperModel = new ScraperModel();
-        final List<ScraperResultModel> scraperResultModels = new ArrayList<ScraperResultModel>(selectedUris.size());
-        scraperModel.setResults(scraperResultModels);
-        scraperModel.setTotal(parseAllUri(selectedUris, scraperResultModels));
+                @Override
+                public void onFailure(final int index, final String productUri, final Throwable cause) {
+                    failures[index] = failed(productUri, cause);
+                    listener.onFailure(index, productUri, cause);
+                }
+            }, partialResults).thenApply(total -> {
+                // Create the model
+                return ScraperModel.builder().results(partialResults ? present(results) : Arrays.asList(results))
+                        .total(total).failures(partialResults ? present(failures) : null).build();
+            });
+        });
+    }
+
+    /**
+     * Select the product links from the listing page, sharing the fetch with
+     * any concurrent scrape of the same listing.
+     *
+     * @param uri the listing URI
+     * @return the distinct product URIs in listing order
+     * @throws IOException if there was an issue connection to the uri
+     * @throws ParsingFailureException if there was an issue parsing
+     */
+    private List<String> selectProductUris(final URI uri) throws IOException, ParsingFailureException {
+        // Callers each get their own copy, as the list is theirs to change
+        return new ArrayList<String>(listingFlights.execute(canonical(uri.toString()), () -> fetchProductUris(uri)));
+    }
 
-        return scraperModel;
+    /**
+     * Fetch the listing page and select the product links from it, resolved
+     * as a crawl resolves them, keeping the listing order so the results are
+     * deterministic.
+     *
+     * @param uri the listing URI
+     * @return the distinct product URIs in listing order
+     * @throws IOException if there was an issue connection to the uri
+     */
+    private List<String> fetchProductUris(final URI uri) throws IOException {
+        final Document document = fetchListing(uri.toString());
+        return new ArrayList<String>(Collector.collect(PRODUCT_EVALUATOR, document).stream()
+                .map(UriUtil::hrefOf)
+                .collect(Collectors.toCollection(LinkedHashSet::new)));
+    }
+
+    /**
+     * Fetch and parse a listing page.
+     *
+     * @param uri the listing URI
+     * @return the parsed listing
+     * @throws IOException if there was an issue connection to the uri
+     */
+    private Document fetchListing(final String uri) throws IOException {
+        final FetchedPage page = fetch(uri, ScraperMetrics.FETCH_LISTING);
+        try (final Timer.Context parse = metrics.timer(ScraperMetrics.PARSE_LISTING).time()) {
+            return page.parse();
+        }
     }
 
     /**
-     * Parse all the URIs and create the model, counting the total price as we
-     * go.
+     * Parse all the URIs concurrently, handing each result to the listener as
+     * it completes and counting the total price. Nothing is retained here, so
+     * memory does not grow with the number of products. Unless isolating
+     * failures, the first failure completes the total exceptionally and stops
+     * any product not yet started. When isolating them, each failure is handed
+     * to the listener instead and left out of the total.
      *
      * @param selectedUris the selected URIs from the page
-     * @param scraperResultModels the model list to populate
-     * @return the total price
+     * @param listener the listener to hand each result to
+     * @param isolateFailures whether a failed product is handed to the listener rather than failing the total
+     * @return the future total price
+     */
+    private CompletableFuture<BigDecimal> parseAllUri(final List<String> selectedUris,
+            final ProductListener listener, final boolean isolateFailures) {
+        final CompletableFuture<BigDecimal> totalFuture = new CompletableFuture<BigDecimal>();
+        final AtomicBoolean failed = new AtomicBoolean();
+        final AtomicInteger remaining = new AtomicInteger(selectedUris.size());
+        // BigDecimal addition is exact, so completion order does not change the sum
+        final AtomicReference<BigDecimal> total = new AtomicReference<BigDecimal>(new BigDecimal(0));
+        if (selectedUris.isEmpty()) {
+            totalFuture.complete(total.get());
+        }
+        for (int i = 0; i < selectedUris.size(); i++) {
+            final int index = i;
+            final String selectedUri = selectedUris.get(i);
+            supplyAsync(() -> {
+                if (failed.get()) {
+                    throw new CancellationException("Scrape abandoned before parsing " + selectedUri);
+                }
+                final ScraperResultModel scraperResultModel = parseUri(selectedUri);
+                listener.onProduct(index, selectedUri, scraperResultModel);
+                return scraperResultModel;
+            }).whenComplete((result, throwable) -> {
+                if (throwable != null && !isolateFailures) {
+                    if (failed.compareAndSet(false, true)) {
+                        totalFuture.completeExceptionally(unwrap(throwable));
+                    }
+                    return;
+                }
+                if (throwable != null) {
+                    LOGGER.warn("Unable to scrape product {}, leaving it out", selectedUri, unwrap(throwable));
+                    listener.onFailure(index, selectedUri, unwrap(throwable));
+                } else {
+                    total.accumulateAndGet(result.getUnitPrice(), BigDecimal::add);
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    LOGGER.debug("Product cache after scrape [{}]", productCache.getStats());
+                    totalFuture.complete(total.get());
+                }
+            });
+        }
+        return totalFuture;
+    }
+
+    /**
+     * Get a single product, unless it is still in the product cache, sharing
+     * the fetch and parse with any concurrent scrape of the same product.
+     * Both are keyed by the canonical URI, so spellings of the same page
+     * share an entry.
+     *
+     * @param selectedUri the selected URI
+     * @return the populated results model
+     * @throws IOException if there was an issue connection to the uri
+     * @throws ParsingFailureException if there was an issue parsing
+     */
+    private ScraperResultModel parseUri(final String selectedUri) throws IOException, ParsingFailureException {
+        final String key = canonical(selectedUri);
+        final ScraperResultModel cached = productCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return productFlights.execute(key, () -> fetchAndExtract(selectedUri, key));
+    }
+
+    /**
+     * Fetch and parse a single product page into the product cache. A page
+     * unchanged since the last run is not parsed again, the product stored
+     * from it is reused.
+     *
+     * @param selectedUri the selected URI
+     * @param key the product cache key
+     * @return the populated results model
+     * @throws IOException if there was an issue connection to the uri
+     * @throws ParsingFailureException if there was an issue parsing
+     */
+    private ScraperResultModel fetchAndExtract(final String selectedUri, final String key)
+            throws IOException, ParsingFailureException {
+        final FetchedPage page = fetch(selectedUri, ScraperMetrics.FETCH_PRODUCT);
+        final String fingerprint = fingerprintStore.isEnabled() ? FingerprintStore.fingerprint(page.getBody()) : null;
+        ScraperResultModel scraperResultModel = fingerprint == null ? null
+                : fingerprintStore.get(selectedUri, fingerprint);
+        if (scraperResultModel != null) {
+            metrics.increment(ScraperMetrics.FINGERPRINT_UNCHANGED);
+        } else {
+            try {
+                scraperResultModel = productExtractor.extract(selectedUri, page);
+            } catch (final ParsingFailureException e) {
+                metrics.increment(ScraperMetrics.PARSE_FAILURES);
+                throw e;
+            }
+            validate(selectedUri, scraperResultModel);
+            if (fingerprint != null) {
+                metrics.increment(ScraperMetrics.FINGERPRINT_CHANGED);
+                fingerprintStore.put(selectedUri, fingerprint, scraperResultModel);
+            }
+        }
+        productCache.put(key, scraperResultModel);
+        return scraperResultModel;
+    }
+
+    /**
+     * Validate a product as soon as it is extracted, logging any errors. The
+     * product is kept either way, so the scrape is not lost.
+     *
+     * @param selectedUri the product page URI
+     * @param scraperResultModel the product
+     */
+    private void validate(final String selectedUri, final ScraperResultModel scraperResultModel) {
+        final Errors errors = new BeanPropertyBindingResult(scraperResultModel, "scraperResultModel");
+        try (final Timer.Context validate = metrics.timer(ScraperMetrics.VALIDATE).time()) {
+            validator.validate(scraperResultModel, errors);
+        }
+        if (errors.hasErrors()) {
+            LOGGER.error("The product from {} has validation errors {}, {}printed information may be incomplete "
+                    + "or incorrect", selectedUri, errors, System.lineSeparator());
+        }
+    }
+
+    /**
+     * Fetch a page, timing it by phase and by host and counting the bytes
+     * fetched or the failure.
+     *
+     * @param uri the page URI
+     * @param timerName the timer for the phase
+     * @return the fetched page
+     * @throws IOException if there was an issue connection to the uri
+     */
+    private FetchedPage fetch(final String uri, final String timerName) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            final FetchedPage page = pageFetcher.fetch(uri);
+            metrics.increment(ScraperMetrics.BYTES_FETCHED, page.getByteCount());
+            return page;
+        } catch (final IOException e) {
+            metrics.increment(ScraperMetrics.FETCH_FAILURES);
+            throw e;
+        } finally {
+            final long elapsed = System.nanoTime() - start;
+            metrics.timer(timerName).record(elapsed);
+            metrics.timer(ScraperMetrics.FETCH_HOST + UriUtil.hostOf(uri, UNKNOWN_HOST)).record(elapsed);
+        }
+    }
+
+    /**
+     * Mark a product scraped in a partial results scrape as a success.
+     *
+     * @param result the scraped product
+     * @return the product marked as a success
+     */
+    static ScraperResultModel succeeded(final ScraperResultModel result) {
+        return result.toBuilder().status(ScraperResultModel.Status.SUCCESS).build();
+    }
+
+    /**
+     * Describe a page that failed in a partial results scrape.
+     *
+     * @param uri the page URI
+     * @param cause the reason the page failed
+     * @return the failure, with the page URL and reason
+     */
+    static ScraperResultModel failed(final String uri, final Throwable cause) {
+        final String error;
+        if (cause instanceof HttpStatusException) {
+            error = "HTTP status " + ((HttpStatusException) cause).getStatusCode();
+        } else {
+            error = cause.getMessage() == null ? cause.getClass().getSimpleName()
+                    : cause.getClass().getSimpleName() + ": " + cause.getMessage();
+        }
+        return ScraperResultModel.builder().status(ScraperResultModel.Status.ERROR).url(uri).error(error).build();
+    }
+
+    /**
+     * @param slots the products by listing position, null where there is none
+     * @return the products present, in listing order
+     */
+    private static List<ScraperResultModel> present(final ScraperResultModel[] slots) {
+        return Arrays.stream(slots).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * Get the canonical form of a URI, so that spellings of the same page
+     * share one scrape. The scheme and host are lower cased, a default port
+     * and the fragment are dropped and the path is normalised.
+     *
+     * @param uri the URI
+     * @return the canonical URI, or the URI as given if it does not parse
+     */
+    static String canonical(final String uri) {
+        try {
+            final URI parsed = new URI(uri).normalize();
+            if (!parsed.isAbsolute() || parsed.isOpaque() || parsed.getHost() == null) {
+                return uri;
+            }
+            final String scheme = parsed.getScheme().toLowerCase(Locale.ROOT);
+            final int port = parsed.getPort() == defaultPort(scheme) ? -1 : parsed.getPort();
+            final String path = parsed.getRawPath().isEmpty() ? "/" : parsed.getRawPath();
+            final StringBuilder canonical = new StringBuilder(uri.length()).append(scheme).append("://")
+                    .append(parsed.getHost().toLowerCase(Locale.ROOT));
+            if (port != -1) {
+                canonical.append(':').append(port);
+            }
+            canonical.append(path);
+            if (parsed.getRawQuery() != null) {
+                canonical.append('?').append(parsed.getRawQuery());
+            }
+            return canonical.toString();
+        } catch (final URISyntaxException e) {
+            return uri;
+        }
+    }
+
+    /**
+     * Get the default port of a scheme.
+     *
+     * @param scheme the lower case scheme
+     * @return the default port, or -1 if it has none
+     */
+    private static int defaultPort(final String scheme) {
+        if (HTTP.equals(scheme)) {
+            return HTTP_PORT;
+        } else if (HTTPS.equals(scheme)) {
+            return HTTPS_PORT;
+        }
+        return -1;
+    }
+
+    /**
+     * Run a scrape step on the worker pool, carrying its checked exceptions
+     * through the future.
+     *
+     * @param step the step to run
+     * @param <T> the result type
+     * @return the future result
+     */
+    private <T> CompletableFuture<T> supplyAsync(final ScrapeStep<T> step) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return step.call();
+            } catch (final IOException | ParsingFailureException e) {
+                throw new CompletionException(e);
+            }
+        }, scraperExecutor);
+    }
+
+    /**
+     * Wait for a future, rethrowing the failure it completed with.
+     *
+     * @param future the pending result
+     * @param <T> the result type
+     * @return the result
      * @throws IOException if there was an issue connection to the uri
      * @throws ParsingFailureException if there was an issue parsing
      */
-    private static BigDecimal parseAllUri(final Set<String> selectedUris,
-            final List<ScraperResultModel> scraperResultModels) throws IOException, ParsingFailureException {
-        BigDecimal total = new BigDecimal(0);
-        for (final String selectedUri : selectedUris) {
-            final Document productPage = Jsoup.connect(selectedUri).get();
-
-            // Create the results model
-            final ScraperResultModel scraperResultModel = new ScraperResultModel();
-            ElementSelectorUtil.setTitleFromElements(selectedUri, productPage, scraperResultModel);
-            ElementSelectorUtil.setSizeFromElements(productPage, scraperResultModel);
-            ElementSelectorUtil.setPriceFromElements(selectedUri, productPage, scraperResultModel);
-            ElementSelectorUtil.setDescriptionFromElements(selectedUri, productPage, scraperResultModel);
-
-            total = total.add(scraperResultModel.getUnitPrice());
-            scraperResultModels.add(scraperResultModel);
+    private static <T> T await(final CompletableFuture<T> future) throws IOException, ParsingFailureException {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the scrape to complete");
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof ParsingFailureException) {
+                throw (ParsingFailureException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
         }
-        return total;
+    }
+
+    /**
+     * Strip the {@link CompletionException} wrapper a dependent stage adds.
+     *
+     * @param throwable the throwable a stage completed with
+     * @return the underlying cause
+     */
+    private static Throwable unwrap(final Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause()
+                : throwable;
     }
 
 }
@@ -0,0 +1,101 @@
+package com.sainsburys.scraper.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import com.sainsburys.scraper.exception.ParsingFailureException;
+import com.sainsburys.scraper.metrics.ScraperMetrics;
+
+/**
+ * Coalesces concurrent calls for the same key into one. The first caller for
+ * a key runs the step on its own thread, and any caller arriving while it is
+ * in flight waits for it and gets the same result or failure. Nothing is kept
+ * once the step completes, so a later call runs the step again.
+ *
+ * @param <K> the key type
+ * @param <V> the result type
+ */
+class SingleFlight<K, V> {
+
+    /** The steps in flight by key. */
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<K, CompletableFuture<V>>();
+
+    /** The metrics the coalesced calls are counted in. */
+    private final ScraperMetrics metrics;
+
+    /** The counter for the coalesced calls. */
+    private final String counterName;
+
+    /**
+     * Constructor.
+     *
+     * @param metrics the metrics the coalesced calls are counted in
+     * @param counterName the counter for the coalesced calls
+     */
+    SingleFlight(final ScraperMetrics metrics, final String counterName) {
+        this.metrics = metrics;
+        this.counterName = counterName;
+    }
+
+    /**
+     * Run the step for a key, or wait for the one already in flight.
+     *
+     * @param key the key
+     * @param step the step to run
+     * @return the result
+     * @throws IOException if there was an issue connection to the uri
+     * @throws ParsingFailureException if there was an issue parsing
+     */
+    public V execute(final K key, final ScrapeStep<V> step) throws IOException, ParsingFailureException {
+        final CompletableFuture<V> flight = new CompletableFuture<V>();
+        final CompletableFuture<V> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            metrics.increment(counterName);
+            return await(leader);
+        }
+        try {
+            final V result = step.call();
+            inFlight.remove(key, flight);
+            flight.complete(result);
+            return result;
+        } catch (final IOException | ParsingFailureException | RuntimeException | Error e) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Wait for the leader, rethrowing the failure it completed with.
+     *
+     * @param leader the leader's pending result
+     * @return the result
+     * @throws IOException if there was an issue connection to the uri
+     * @throws ParsingFailureException if there was an issue parsing
+     */
+    private V await(final CompletableFuture<V> leader) throws IOException, ParsingFailureException {
+        try {
+            return leader.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a scrape of the same page");
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof ParsingFailureException) {
+                throw (ParsingFailureException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+}
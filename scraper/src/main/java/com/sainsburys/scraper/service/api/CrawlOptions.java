@@ -0,0 +1,76 @@
+package com.sainsburys.scraper.service.api;
+
+/**
+ * The bounds of a crawl, the links it follows between listing pages and
+ * whether it keeps going past a failed page.
+ */
+public final class CrawlOptions {
+
+    /** The links followed to more listing pages, such as the next page or a sub-category. */
+    private final String listingLinkSelector;
+
+    /** The most links followed from the seed to reach a listing page. */
+    private final int maxDepth;
+
+    /** The most listing pages fetched, counting the seed. */
+    private final int maxPages;
+
+    /** Whether a failed page is listed in the model rather than failing the crawl. */
+    private final boolean partialResults;
+
+    /**
+     * Constructor, failing the crawl on the first failed page.
+     *
+     * @param listingLinkSelector the CSS selector of the links followed to more listing pages
+     * @param maxDepth the most links followed from the seed to reach a listing page
+     * @param maxPages the most listing pages fetched, counting the seed
+     */
+    public CrawlOptions(final String listingLinkSelector, final int maxDepth, final int maxPages) {
+        this(listingLinkSelector, maxDepth, maxPages, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param listingLinkSelector the CSS selector of the links followed to more listing pages
+     * @param maxDepth the most links followed from the seed to reach a listing page
+     * @param maxPages the most listing pages fetched, counting the seed
+     * @param partialResults whether a failed page is listed in the model rather than failing the crawl
+     */
+    public CrawlOptions(final String listingLinkSelector, final int maxDepth, final int maxPages,
+            final boolean partialResults) {
+        this.listingLinkSelector = listingLinkSelector;
+        this.maxDepth = maxDepth;
+        this.maxPages = maxPages;
+        this.partialResults = partialResults;
+    }
+
+    /**
+     * @return the CSS selector of the links followed to more listing pages
+     */
+    public String getListingLinkSelector() {
+        return listingLinkSelector;
+    }
+
+    /**
+     * @return the most links followed from the seed to reach a listing page
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return the most listing pages fetched, counting the seed
+     */
+    public int getMaxPages() {
+        return maxPages;
+    }
+
+    /**
+     * @return whether a failed page is listed in the model rather than failing the crawl
+     */
+    public boolean isPartialResults() {
+        return partialResults;
+    }
+
+}
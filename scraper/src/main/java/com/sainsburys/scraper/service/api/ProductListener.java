@@ -0,0 +1,39 @@
+package com.sainsburys.scraper.service.api;
+
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+
+/**
+ * Callback notified as each product page has been fetched and parsed.
+ * <p>
+ * Called on the worker thread that produced the result, in completion order
+ * rather than listing order, so implementations must be thread safe and
+ * should not block.
+ */
+@FunctionalInterface
+public interface ProductListener {
+
+    /** A listener that ignores every product. */
+    ProductListener NONE = (index, productUri, result) -> {
+    };
+
+    /**
+     * Called when a product has been parsed.
+     *
+     * @param index the position of the product on the listing page
+     * @param productUri the URI of the product page
+     * @param result the parsed product
+     */
+    void onProduct(int index, String productUri, ScraperResultModel result);
+
+    /**
+     * Called when a product failed in a partial results scrape, where the
+     * failure does not fail the scrape. Ignored by default.
+     *
+     * @param index the position of the product on the listing page
+     * @param productUri the URI of the product page
+     * @param cause the reason the product failed
+     */
+    default void onFailure(final int index, final String productUri, final Throwable cause) {
+    }
+
+}
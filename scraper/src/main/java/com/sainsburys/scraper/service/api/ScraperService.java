@@ -1,7 +1,9 @@
 package com.sainsburys.scraper.service.api;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.net.URI;
+import java.util.concurrent.CompletableFuture;
 
 import com.sainsburys.scraper.exception.ParsingFailureException;
 import com.sainsburys.scraper.json.model.ScraperModel;
@@ -21,4 +23,94 @@ public interface ScraperService {
      */
     ScraperModel getScraperModelFromUri(URI uri) throws IOException, ParsingFailureException;
 
+    /**
+     * Gets the scraper model from a given URI without blocking the caller.
+     * The returned future completes exceptionally with an
+     * {@link IOException} or {@link ParsingFailureException} where the
+     * blocking variant would throw one.
+     *
+     * @param uri the uri to use
+     * @return the future scraper model
+     */
+    CompletableFuture<ScraperModel> getScraperModelFromUriAsync(URI uri);
+
+    /**
+     * Gets the scraper model from a given URI without blocking the caller,
+     * notifying the listener as each product is parsed.
+     *
+     * @param uri the uri to use
+     * @param listener the listener to notify per product
+     * @return the future scraper model
+     */
+    CompletableFuture<ScraperModel> getScraperModelFromUriAsync(URI uri, ProductListener listener);
+
+    /**
+     * Gets the scraper model from a given URI, keeping every product that
+     * could be scraped. A product page that cannot be fetched or parsed is
+     * listed in the model's failures with the reason rather than failing the
+     * scrape, and the total covers only the products scraped. Each product
+     * carries its status.
+     *
+     * @param uri the uri to use
+     * @return a scraper model of the products scraped and those that failed
+     * @throws IOException if there was an issue connection to the listing uri
+     * @throws ParsingFailureException if there was an issue parsing the listing
+     */
+    ScraperModel getPartialScraperModelFromUri(URI uri) throws IOException, ParsingFailureException;
+
+    /**
+     * Gets the partial results scraper model from a given URI without
+     * blocking the caller, as {@link #getPartialScraperModelFromUri(URI)}.
+     *
+     * @param uri the uri to use
+     * @return the future scraper model
+     */
+    CompletableFuture<ScraperModel> getPartialScraperModelFromUriAsync(URI uri);
+
+    /**
+     * Scrapes every product from a given URI, handing each to the listener as
+     * it is parsed without retaining them, so memory does not grow with the
+     * number of products.
+     *
+     * @param uri the uri to use
+     * @param listener the listener to hand each product to
+     * @return the total price of the products
+     * @throws IOException if there was an issue connection to the uri
+     * @throws ParsingFailureException if there was an issue parsing
+     */
+    BigDecimal scrapeProductsFromUri(URI uri, ProductListener listener) throws IOException, ParsingFailureException;
+
+    /**
+     * Scrapes every product from a given URI without blocking the caller,
+     * handing each to the listener as it is parsed without retaining them.
+     *
+     * @param uri the uri to use
+     * @param listener the listener to hand each product to
+     * @return the future total price of the products
+     */
+    CompletableFuture<BigDecimal> scrapeProductsFromUriAsync(URI uri, ProductListener listener);
+
+    /**
+     * Crawls from a seed listing page, following the links to further
+     * listing pages such as the next page or a sub-category within the
+     * bounds given, and gets the model of every product found.
+     *
+     * @param seed the seed listing uri
+     * @param options the crawl bounds
+     * @return a completed scraper model
+     * @throws IOException if there was an issue connection to a uri
+     * @throws ParsingFailureException if there was an issue parsing
+     */
+    ScraperModel crawlFromUri(URI seed, CrawlOptions options) throws IOException, ParsingFailureException;
+
+    /**
+     * Crawls from a seed listing page without blocking the caller, see
+     * {@link #crawlFromUri(URI, CrawlOptions)}.
+     *
+     * @param seed the seed listing uri
+     * @param options the crawl bounds
+     * @return the future scraper model
+     */
+    CompletableFuture<ScraperModel> crawlFromUriAsync(URI seed, CrawlOptions options);
+
 }
@@ -0,0 +1,302 @@
+package com.sainsburys.scraper.service.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.util.DigestUtils;
+
+import com.sainsburys.scraper.service.fetch.FetchedPage;
+
+/**
+ * On-disk store of page bodies and their cache validators, bounded by the
+ * total size of the bodies. The least recently used page is evicted first,
+ * the use order surviving restarts through the page file's modified time.
+ * <p>
+ * Each page is kept as one {@code <key>.page} file holding the length of its
+ * metadata, the metadata as properties holding the URI, charset and
+ * validators, then the body as received. The file is written to a temporary
+ * name then moved into place, so a reader or a restart never sees a partial
+ * entry, nor a body paired with the validators of another response.
+ */
+public class DiskResponseCache {
+
+    /** The page file suffix. */
+    private static final String PAGE_SUFFIX = ".page";
+
+    /** The suffixes of the separate body and metadata files of earlier versions. */
+    private static final List<String> OLD_SUFFIXES = Arrays.asList(".body", ".meta");
+
+    /** The bytes holding the length of the metadata. */
+    private static final int META_LENGTH_BYTES = Integer.BYTES;
+
+    /** The suffix for a file being written. */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** The URI metadata key. */
+    private static final String URI_KEY = "uri";
+
+    /** The charset metadata key. */
+    private static final String CHARSET_KEY = "charset";
+
+    /** The ETag metadata key. */
+    private static final String ETAG_KEY = "etag";
+
+    /** The Last-Modified metadata key. */
+    private static final String LAST_MODIFIED_KEY = "lastModified";
+
+    /** The status of a cached page. */
+    private static final int SC_OK = 200;
+
+    /** The cache directory. */
+    private final Path directory;
+
+    /** The maximum total size of the cached bodies in bytes. */
+    private final long maxBytes;
+
+    /** The body size of each cached page by key, least recently used first. */
+    private final Map<String, Long> entries = new LinkedHashMap<String, Long>(16, 0.75f, true);
+
+    /** The total size of the cached bodies in bytes. */
+    private long totalBytes;
+
+    /**
+     * Constructor, indexing any pages already in the directory.
+     *
+     * @param directory the cache directory, created if missing
+     * @param maxBytes the maximum total size of the cached bodies in bytes
+     * @throws IOException if the directory cannot be created or read
+     */
+    public DiskResponseCache(final Path directory, final long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        load();
+    }
+
+    /**
+     * Get the cached page for a URI, marking it as recently used.
+     *
+     * @param uri the page URI
+     * @return the cached page, or null if not cached
+     * @throws IOException if the entry cannot be read
+     */
+    public FetchedPage get(final String uri) throws IOException {
+        final String key = keyFor(uri);
+        synchronized (this) {
+            // A lookup rather than containsKey so the use order is updated
+            if (entries.get(key) == null) {
+                return null;
+            }
+        }
+        try {
+            final Path pageFile = directory.resolve(key + PAGE_SUFFIX);
+            final byte[] entry = Files.readAllBytes(pageFile);
+            final int metaLength = new DataInputStream(new ByteArrayInputStream(entry)).readInt();
+            final Properties meta = new Properties();
+            meta.load(new ByteArrayInputStream(entry, META_LENGTH_BYTES, metaLength));
+            if (!uri.equals(meta.getProperty(URI_KEY))) {
+                return null;
+            }
+            final byte[] body = Arrays.copyOfRange(entry, META_LENGTH_BYTES + metaLength, entry.length);
+            Files.setLastModifiedTime(pageFile, FileTime.fromMillis(System.currentTimeMillis()));
+            return new FetchedPage(uri, SC_OK, body, meta.getProperty(CHARSET_KEY), meta.getProperty(ETAG_KEY),
+                    meta.getProperty(LAST_MODIFIED_KEY));
+        } catch (final NoSuchFileException e) {
+            // Evicted by another thread since the index was checked
+            return null;
+        }
+    }
+
+    /**
+     * Store a page, evicting the least recently used pages to stay within the
+     * size bound. A page larger than the bound is not stored.
+     *
+     * @param page the page to store
+     * @throws IOException if the entry cannot be written
+     */
+    public void put(final FetchedPage page) throws IOException {
+        final long size = page.getBody().length;
+        if (size > maxBytes) {
+            return;
+        }
+        final String key = keyFor(page.getUri());
+        final Properties meta = new Properties();
+        meta.setProperty(URI_KEY, page.getUri());
+        setIfPresent(meta, CHARSET_KEY, page.getCharset());
+        setIfPresent(meta, ETAG_KEY, page.getETag());
+        setIfPresent(meta, LAST_MODIFIED_KEY, page.getLastModified());
+        final ByteArrayOutputStream metaBytes = new ByteArrayOutputStream();
+        meta.store(metaBytes, null);
+
+        final Path pageTemp = Files.createTempFile(directory, key, TEMP_SUFFIX);
+        try {
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(pageTemp))) {
+                out.writeInt(metaBytes.size());
+                metaBytes.writeTo(out);
+                out.write(page.getBody());
+            }
+            Files.move(pageTemp, directory.resolve(key + PAGE_SUFFIX), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(pageTemp);
+        }
+
+        synchronized (this) {
+            final Long previous = entries.put(key, size);
+            totalBytes += size - (previous == null ? 0 : previous);
+            evict();
+        }
+    }
+
+    /**
+     * Remove the cached page for a URI.
+     *
+     * @param uri the page URI
+     * @throws IOException if the entry cannot be deleted
+     */
+    public synchronized void remove(final String uri) throws IOException {
+        final String key = keyFor(uri);
+        final Long size = entries.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+            delete(key);
+        }
+    }
+
+    /**
+     * @return the number of cached pages
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the total size of the cached bodies in bytes
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Index the pages already in the directory, oldest use first.
+     *
+     * @throws IOException if the directory cannot be read
+     */
+    private synchronized void load() throws IOException {
+        final List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.sorted(Comparator.comparing(DiskResponseCache::lastModified))
+                    .collect(Collectors.toList());
+        }
+        for (final Path file : files) {
+            final String fileName = file.getFileName().toString();
+            if (fileName.endsWith(PAGE_SUFFIX)) {
+                final String key = fileName.substring(0, fileName.length() - PAGE_SUFFIX.length());
+                final long size = bodySize(file);
+                entries.put(key, size);
+                totalBytes += size;
+            } else if (fileName.endsWith(TEMP_SUFFIX) || OLD_SUFFIXES.stream().anyMatch(fileName::endsWith)) {
+                // Left behind by a run that stopped mid-write, or by an earlier version
+                Files.deleteIfExists(file);
+            }
+        }
+        evict();
+    }
+
+    /**
+     * Evict the least recently used pages until within the size bound. Must
+     * hold the lock.
+     *
+     * @throws IOException if an entry cannot be deleted
+     */
+    private void evict() throws IOException {
+        final Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            final Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.getValue();
+            delete(eldest.getKey());
+        }
+    }
+
+    /**
+     * Get the size of the body in a page file, reading only the length of
+     * its metadata.
+     *
+     * @param pageFile the page file
+     * @return the body size in bytes
+     * @throws IOException if it cannot be read
+     */
+    private static long bodySize(final Path pageFile) throws IOException {
+        try (InputStream in = Files.newInputStream(pageFile)) {
+            return Files.size(pageFile) - META_LENGTH_BYTES - new DataInputStream(in).readInt();
+        }
+    }
+
+    /**
+     * Delete the file for an entry.
+     *
+     * @param key the entry key
+     * @throws IOException if it cannot be deleted
+     */
+    private void delete(final String key) throws IOException {
+        Files.deleteIfExists(directory.resolve(key + PAGE_SUFFIX));
+    }
+
+    /**
+     * Set a metadata value when present.
+     *
+     * @param meta the metadata
+     * @param key the key
+     * @param value the value, or null
+     */
+    private static void setIfPresent(final Properties meta, final String key, final String value) {
+        if (value != null) {
+            meta.setProperty(key, value);
+        }
+    }
+
+    /**
+     * Get a file's modified time, used as its last use.
+     *
+     * @param file the file
+     * @return the modified time
+     */
+    private static FileTime lastModified(final Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (final IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * Derive the file name key for a URI.
+     *
+     * @param uri the page URI
+     * @return the key
+     */
+    private static String keyFor(final String uri) {
+        return DigestUtils.md5DigestAsHex(uri.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
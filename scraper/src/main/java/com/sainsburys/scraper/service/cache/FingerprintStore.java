@@ -0,0 +1,212 @@
+package com.sainsburys.scraper.service.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.util.DigestUtils;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+
+/**
+ * Persistent store of a fingerprint of each product page and the product
+ * extracted from it, so a scheduled re-scrape only extracts the pages that
+ * changed since the last run. The fingerprint is a digest of the whole
+ * response body, as the size reported is measured from it.
+ * <p>
+ * The store is one JSON file, read when created and written back by
+ * {@link #save()} to a temporary name then moved into place. The products
+ * are tagged with the settings they were extracted under, and a store
+ * written under other settings is ignored. The results model is immutable, so
+ * products are shared rather than copied.
+ */
+public class FingerprintStore {
+
+    /** The suffix for the file being written. */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** The mapper the store is read and written with. */
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** The store file, or null when disabled. */
+    private final Path file;
+
+    /** The settings the products are extracted under. */
+    private final String variant;
+
+    /** The stored products by URI. */
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+    /** Whether a product changed since the store was read or last saved. */
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    /**
+     * Constructor for a disabled store, which never holds a product.
+     */
+    public FingerprintStore() {
+        this.file = null;
+        this.variant = null;
+    }
+
+    /**
+     * Constructor, reading any products already stored in the file.
+     *
+     * @param file the store file, created on first save
+     * @param variant the settings the products are extracted under
+     * @throws IOException if the file cannot be read
+     */
+    public FingerprintStore(final Path file, final String variant) throws IOException {
+        this.file = file;
+        this.variant = variant;
+        load();
+    }
+
+    /**
+     * Fingerprint a page body.
+     *
+     * @param body the response body
+     * @return the fingerprint
+     */
+    public static String fingerprint(final byte[] body) {
+        return DigestUtils.md5DigestAsHex(body);
+    }
+
+    /**
+     * Get the stored product for a URI, if its page is unchanged.
+     *
+     * @param uri the product URI
+     * @param fingerprint the fingerprint of the page as fetched now
+     * @return the stored product, or null if not stored or changed
+     */
+    public ScraperResultModel get(final String uri, final String fingerprint) {
+        final Entry entry = entries.get(uri);
+        if (entry == null || !entry.fingerprint.equals(fingerprint)) {
+            return null;
+        }
+        return entry.result;
+    }
+
+    /**
+     * Store the product extracted from a page.
+     *
+     * @param uri the product URI
+     * @param fingerprint the fingerprint of the page
+     * @param result the extracted product
+     */
+    public void put(final String uri, final String fingerprint, final ScraperResultModel result) {
+        if (!isEnabled()) {
+            return;
+        }
+        entries.put(uri, new Entry(fingerprint, result));
+        dirty.set(true);
+    }
+
+    /**
+     * Write the store back to its file, if a product changed.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public void save() throws IOException {
+        if (!isEnabled() || !dirty.getAndSet(false)) {
+            return;
+        }
+        final Contents contents = new Contents();
+        contents.variant = variant;
+        contents.products = new TreeMap<String, Entry>(entries);
+        final Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        final Path temp = Files.createTempFile(directory, file.getFileName().toString(), TEMP_SUFFIX);
+        try {
+            MAPPER.writeValue(temp.toFile(), contents);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (final IOException e) {
+            dirty.set(true);
+            throw e;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @return the number of stored products
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return true if products are stored
+     */
+    public boolean isEnabled() {
+        return file != null;
+    }
+
+    /**
+     * Read the products stored under the same settings.
+     *
+     * @throws IOException if the file cannot be read
+     */
+    private void load() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        final Contents contents = MAPPER.readValue(file.toFile(), Contents.class);
+        if (variant.equals(contents.variant) && contents.products != null) {
+            entries.putAll(contents.products);
+        }
+    }
+
+    /**
+     * The store file contents.
+     */
+    private static final class Contents {
+
+        /** The settings the products were extracted under. */
+        @JsonProperty("variant")
+        private String variant;
+
+        /** The stored products by URI. */
+        @JsonProperty("products")
+        private Map<String, Entry> products;
+    }
+
+    /**
+     * A stored product and the fingerprint of the page it came from.
+     */
+    private static final class Entry {
+
+        /** The fingerprint of the page. */
+        @JsonProperty("fingerprint")
+        private String fingerprint;
+
+        /** The extracted product. */
+        @JsonProperty("result")
+        private ScraperResultModel result;
+
+        /**
+         * Constructor for reading.
+         */
+        private Entry() {
+        }
+
+        /**
+         * Constructor.
+         *
+         * @param fingerprint the fingerprint of the page
+         * @param result the extracted product
+         */
+        private Entry(final String fingerprint, final ScraperResultModel result) {
+            this.fingerprint = fingerprint;
+            this.result = result;
+        }
+    }
+
+}
@@ -0,0 +1,238 @@
+package com.sainsburys.scraper.service.cache;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+
+/**
+ * In-memory cache of extracted products keyed by product URI, so a warm
+ * re-scrape skips fetching and parsing the page. Entries expire after a fixed
+ * time to live, and the least recently used entry is evicted once the cache
+ * is full.
+ * <p>
+ * The results model is immutable, so products are shared rather than copied.
+ */
+public class ProductCache {
+
+    /** The time to live in milliseconds, zero or less disables the cache. */
+    private final long ttlMillis;
+
+    /** The maximum number of entries. */
+    private final int maxEntries;
+
+    /** The clock entries are timed against. */
+    private final Clock clock;
+
+    /** The entries, least recently used first. */
+    private final Map<String, Entry> entries;
+
+    /** The number of lookups served from the cache. */
+    private final AtomicLong hits = new AtomicLong();
+
+    /** The number of lookups not in the cache or expired. */
+    private final AtomicLong misses = new AtomicLong();
+
+    /** The number of entries evicted to make room. */
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param ttl the time an entry is served for
+     * @param maxEntries the maximum number of entries
+     */
+    public ProductCache(final Duration ttl, final int maxEntries) {
+        this(ttl, maxEntries, Clock.systemUTC());
+    }
+
+    /**
+     * Constructor with a clock, for testing.
+     *
+     * @param ttl the time an entry is served for
+     * @param maxEntries the maximum number of entries
+     * @param clock the clock entries are timed against
+     */
+    public ProductCache(final Duration ttl, final int maxEntries, final Clock clock) {
+        this.ttlMillis = ttl.toMillis();
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+            /** Default serial UID. */
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                if (size() > ProductCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get the cached product for a URI.
+     *
+     * @param uri the product URI
+     * @return the cached product, or null if not cached or expired
+     */
+    public ScraperResultModel get(final String uri) {
+        if (!isEnabled()) {
+            return null;
+        }
+        final Entry entry;
+        synchronized (entries) {
+            entry = entries.get(uri);
+            if (entry != null && entry.expiresAt <= clock.millis()) {
+                entries.remove(uri);
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.result;
+    }
+
+    /**
+     * Cache a product.
+     *
+     * @param uri the product URI
+     * @param result the extracted product
+     */
+    public void put(final String uri, final ScraperResultModel result) {
+        if (!isEnabled()) {
+            return;
+        }
+        final Entry entry = new Entry(result, clock.millis() + ttlMillis);
+        synchronized (entries) {
+            entries.put(uri, entry);
+        }
+    }
+
+    /**
+     * Remove every entry, the statistics are kept.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * @return a snapshot of the cache statistics
+     */
+    public Stats getStats() {
+        final int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new Stats(hits.get(), misses.get(), evictions.get(), size);
+    }
+
+    /**
+     * @return true if products are cached
+     */
+    private boolean isEnabled() {
+        return ttlMillis > 0 && maxEntries > 0;
+    }
+
+    /**
+     * A cached product and when it expires.
+     */
+    private static final class Entry {
+
+        /** The cached product. */
+        private final ScraperResultModel result;
+
+        /** The expiry time in epoch milliseconds. */
+        private final long expiresAt;
+
+        /**
+         * Constructor.
+         *
+         * @param result the cached product
+         * @param expiresAt the expiry time in epoch milliseconds
+         */
+        private Entry(final ScraperResultModel result, final long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * A snapshot of the cache statistics.
+     */
+    public static final class Stats {
+
+        /** The number of lookups served from the cache. */
+        private final long hits;
+
+        /** The number of lookups not in the cache or expired. */
+        private final long misses;
+
+        /** The number of entries evicted to make room. */
+        private final long evictions;
+
+        /** The number of entries. */
+        private final int size;
+
+        /**
+         * Constructor.
+         *
+         * @param hits the hits
+         * @param misses the misses
+         * @param evictions the evictions
+         * @param size the size
+         */
+        public Stats(final long hits, final long misses, final long evictions, final int size) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.size = size;
+        }
+
+        /**
+         * @return the hits
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * @return the misses
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * @return the evictions
+         */
+        public long getEvictions() {
+            return evictions;
+        }
+
+        /**
+         * @return the size
+         */
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public String toString() {
+            return "hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", size=" + size;
+        }
+    }
+
+}
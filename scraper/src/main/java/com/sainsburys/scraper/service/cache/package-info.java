@@ -0,0 +1,4 @@
+/**
+ * Caching package.
+ */
+package com.sainsburys.scraper.service.cache;
\ No newline at end of file
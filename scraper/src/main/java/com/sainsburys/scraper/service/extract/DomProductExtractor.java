@@ -0,0 +1,66 @@
+package com.sainsburys.scraper.service.extract;
+
+import java.io.IOException;
+
+import org.jsoup.nodes.Document;
+
+import com.sainsburys.scraper.exception.ParsingFailureException;
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+import com.sainsburys.scraper.metrics.ScraperMetrics;
+import com.sainsburys.scraper.metrics.Timer;
+import com.sainsburys.scraper.service.fetch.FetchedPage;
+import com.sainsburys.scraper.service.fetch.PageSize;
+import com.sainsburys.scraper.service.util.ElementSelectorUtil;
+
+/**
+ * Product extractor parsing the page into a full Jsoup {@link Document} and
+ * selecting the fields from it.
+ */
+public class DomProductExtractor implements ProductExtractor {
+
+    /** How the page size is measured. */
+    private final PageSize pageSize;
+
+    /** The metrics each phase is timed in. */
+    private final ScraperMetrics metrics;
+
+    /**
+     * Constructor, timing into metrics of its own.
+     *
+     * @param pageSize how the page size is measured
+     */
+    public DomProductExtractor(final PageSize pageSize) {
+        this(pageSize, new ScraperMetrics());
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param pageSize how the page size is measured
+     * @param metrics the metrics each phase is timed in
+     */
+    public DomProductExtractor(final PageSize pageSize, final ScraperMetrics metrics) {
+        this.pageSize = pageSize;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public ScraperResultModel extract(final String selectedUri, final FetchedPage page)
+            throws IOException, ParsingFailureException {
+        final Document productPage;
+        try (final Timer.Context parse = metrics.timer(ScraperMetrics.PARSE_PRODUCT).time()) {
+            productPage = page.parse();
+        }
+
+        // Create the results model
+        final ScraperResultModel.Builder scraperResultModel = ScraperResultModel.builder();
+        try (final Timer.Context extract = metrics.timer(ScraperMetrics.EXTRACT_FIELDS).time()) {
+            ElementSelectorUtil.setFieldsFromDocument(selectedUri, productPage, scraperResultModel);
+        }
+        try (final Timer.Context extract = metrics.timer(ScraperMetrics.EXTRACT_SIZE).time()) {
+            ElementSelectorUtil.setSizeFromPage(page, pageSize, scraperResultModel);
+        }
+        return scraperResultModel.build();
+    }
+
+}
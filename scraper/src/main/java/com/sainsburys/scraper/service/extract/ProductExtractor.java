@@ -0,0 +1,26 @@
+package com.sainsburys.scraper.service.extract;
+
+import java.io.IOException;
+
+import com.sainsburys.scraper.exception.ParsingFailureException;
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+import com.sainsburys.scraper.service.fetch.FetchedPage;
+
+/**
+ * Extracts the product fields from a fetched product page. Implementations
+ * are shared by every worker so must be thread safe.
+ */
+public interface ProductExtractor {
+
+    /**
+     * Extract the product from a page.
+     *
+     * @param selectedUri the selected URI
+     * @param page the fetched product page
+     * @return the populated results model
+     * @throws IOException if the page could not be read
+     * @throws ParsingFailureException if a field could not be found
+     */
+    ScraperResultModel extract(String selectedUri, FetchedPage page) throws IOException, ParsingFailureException;
+
+}
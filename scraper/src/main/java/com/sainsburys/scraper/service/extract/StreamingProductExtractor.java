@@ -0,0 +1,771 @@
+package com.sainsburys.scraper.service.extract;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.jsoup.helper.StringUtil;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.Tag;
+
+import com.sainsburys.scraper.exception.ParsingFailureException;
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+import com.sainsburys.scraper.metrics.ScraperMetrics;
+import com.sainsburys.scraper.metrics.Timer;
+import com.sainsburys.scraper.service.fetch.FetchedPage;
+import com.sainsburys.scraper.service.fetch.PageSize;
+import com.sainsburys.scraper.service.util.CompiledSelector;
+import com.sainsburys.scraper.service.util.ElementSelectorUtil;
+
+/**
+ * Product extractor tokenizing the page as a stream of tags and text, keeping
+ * only the stack of open elements and the text of the title, price and
+ * description. No tree is built, and text outside those fields is discarded
+ * as it is read.
+ * <p>
+ * The open element stack follows the implied end tags the HTML parser applies
+ * to well formed pages, and text is normalised as {@link
+ * org.jsoup.nodes.Element#text()} does, so the fields match the
+ * {@link DomProductExtractor}.
+ */
+public class StreamingProductExtractor implements ProductExtractor {
+
+    /** The read buffer size in chars. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** The tags whose start closes an open paragraph. */
+    private static final Set<String> CLOSES_P = new HashSet<String>(Arrays.asList("address", "article", "aside",
+            "blockquote", "center", "details", "dialog", "dir", "div", "dl", "fieldset", "figcaption", "figure",
+            "footer", "header", "hgroup", "main", "menu", "nav", "ol", "p", "section", "summary", "ul", "h1", "h2",
+            "h3", "h4", "h5", "h6", "pre", "listing", "form", "plaintext", "table", "hr", "xmp"));
+
+    /** The headings, which close an open heading. */
+    private static final Set<String> HEADINGS = new HashSet<String>(
+            Arrays.asList("h1", "h2", "h3", "h4", "h5", "h6"));
+
+    /** The tags bounding the scope an implied end tag is looked for in. */
+    private static final Set<String> SCOPE_BOUNDARIES = new HashSet<String>(
+            Arrays.asList("html", "table", "td", "th", "caption", "marquee", "object", "applet", "template"));
+
+    /** The tags holding raw text rather than markup. */
+    private static final Set<String> RAW_TEXT = new HashSet<String>(
+            Arrays.asList("script", "style", "xmp", "iframe", "noembed", "noframes", "title", "textarea"));
+
+    /** How the page size is measured. */
+    private final PageSize pageSize;
+
+    /** The metrics each phase is timed in. */
+    private final ScraperMetrics metrics;
+
+    /** The title selector. */
+    private final CompiledSelector titleSelector = CompiledSelector.compile(ElementSelectorUtil.TITLE_SELECTOR);
+
+    /** The price selector. */
+    private final CompiledSelector priceSelector = CompiledSelector.compile(ElementSelectorUtil.PRICE_SELECTOR);
+
+    /** The description header selector. */
+    private final CompiledSelector descriptionSelector = CompiledSelector
+            .compile(ElementSelectorUtil.DESCRIPTION_SELECTOR);
+
+    /**
+     * Constructor, timing into metrics of its own.
+     *
+     * @param pageSize how the page size is measured
+     */
+    public StreamingProductExtractor(final PageSize pageSize) {
+        this(pageSize, new ScraperMetrics());
+    }
+
+    /**
+     * Constructor. There is no separate parse, so the whole scan is timed as
+     * selecting the fields.
+     *
+     * @param pageSize how the page size is measured
+     * @param metrics the metrics each phase is timed in
+     */
+    public StreamingProductExtractor(final PageSize pageSize, final ScraperMetrics metrics) {
+        this.pageSize = pageSize;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public ScraperResultModel extract(final String selectedUri, final FetchedPage page)
+            throws IOException, ParsingFailureException {
+        final Scan scan = new Scan();
+        try (final Timer.Context extract = metrics.timer(ScraperMetrics.EXTRACT_FIELDS).time();
+                final Reader reader = new InputStreamReader(new ByteArrayInputStream(page.getBody()),
+                        page.resolveCharset())) {
+            scan.run(reader);
+        }
+
+        // Create the results model
+        final ScraperResultModel.Builder scraperResultModel = ScraperResultModel.builder();
+        if (scan.titleCount != 1) {
+            throw new ParsingFailureException(
+                    MessageFormat.format("Expected 1 title on page {0} but found {1}", selectedUri, scan.titleCount));
+        }
+        scraperResultModel.title(scan.title);
+        try (final Timer.Context extract = metrics.timer(ScraperMetrics.EXTRACT_SIZE).time()) {
+            ElementSelectorUtil.setSizeFromPage(page, pageSize, scraperResultModel);
+        }
+        if (scan.priceCount != 1) {
+            throw new ParsingFailureException(
+                    MessageFormat.format("Expected 1 price on page {0} but found {1}", selectedUri, scan.priceCount));
+        }
+        ElementSelectorUtil.setPriceFromText(selectedUri, scan.price, scraperResultModel);
+        if (scan.descriptionCount != 1) {
+            throw new ParsingFailureException(MessageFormat.format("Expected 1 description on page {0} but found {1}",
+                    selectedUri, scan.descriptionCount));
+        }
+        scraperResultModel.description(scan.description.toString());
+        return scraperResultModel.build();
+    }
+
+    /**
+     * Match a selector against the open element stack, as {@link
+     * CompiledSelector} matches an element and its ancestors.
+     *
+     * @param selector the selector
+     * @param stack the open elements, the one to match last
+     * @return true if the last element matches
+     */
+    private static boolean matches(final CompiledSelector selector, final List<OpenElement> stack) {
+        final List<CompiledSelector.Step> steps = selector.getSteps();
+        int step = steps.size() - 1;
+        if (!matches(steps.get(step), stack.get(stack.size() - 1))) {
+            return false;
+        }
+        step--;
+        for (int i = stack.size() - 2; i >= 0 && step >= 0; i--) {
+            if (matches(steps.get(step), stack.get(i))) {
+                step--;
+            }
+        }
+        return step < 0;
+    }
+
+    /**
+     * @param step the selector step
+     * @param element the open element
+     * @return true if the element matches the step
+     */
+    private static boolean matches(final CompiledSelector.Step step, final OpenElement element) {
+        if (step.getTag() != null && !step.getTag().equals(element.name)) {
+            return false;
+        }
+        for (final String className : step.getClasses()) {
+            if (!element.hasClass(className)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The state of a single page scan.
+     */
+    private final class Scan {
+
+        /** The open elements, the current one last. */
+        private final List<OpenElement> stack = new ArrayList<OpenElement>();
+
+        /** The text being captured, innermost last. */
+        private final List<Capture> captures = new ArrayList<Capture>();
+
+        /** The text read since the last tag, only kept while capturing. */
+        private final StringBuilder text = new StringBuilder();
+
+        /** The description paragraphs. */
+        private final StringBuilder description = new StringBuilder();
+
+        /** The number of titles. */
+        private int titleCount;
+
+        /** The first title text. */
+        private String title;
+
+        /** The number of prices. */
+        private int priceCount;
+
+        /** The first price text. */
+        private String price;
+
+        /** The number of description headers. */
+        private int descriptionCount;
+
+        /** The parent of the description header whose next sibling is wanted. */
+        private OpenElement descriptionParent;
+
+        /** The element holding the description, while open. */
+        private OpenElement descriptionRoot;
+
+        /** The input. */
+        private Reader reader;
+
+        /** The read buffer. */
+        private final char[] buffer = new char[BUFFER_SIZE];
+
+        /** The next position to read in the buffer. */
+        private int position;
+
+        /** The end of the chars in the buffer. */
+        private int limit;
+
+        /**
+         * Scan the page.
+         *
+         * @param input the decoded page
+         * @throws IOException if the page could not be read
+         */
+        private void run(final Reader input) throws IOException {
+            this.reader = input;
+            int c;
+            while ((c = read()) != -1) {
+                if (c != '<') {
+                    appendText(c);
+                    continue;
+                }
+                final int next = peek();
+                if (next == '!') {
+                    read();
+                    skipComment();
+                } else if (next == '?') {
+                    skipTo('>');
+                } else if (next == '/') {
+                    read();
+                    if (isLetter(peek())) {
+                        flushText();
+                        endTag(readTagName());
+                        skipTo('>');
+                    } else {
+                        skipTo('>');
+                    }
+                } else if (isLetter(next)) {
+                    flushText();
+                    startTag();
+                } else {
+                    appendText(c);
+                }
+            }
+            flushText();
+            while (!stack.isEmpty()) {
+                pop();
+            }
+        }
+
+        /**
+         * Read a start tag and its attributes, after the {@code <}.
+         *
+         * @throws IOException if the page could not be read
+         */
+        private void startTag() throws IOException {
+            final String name = readTagName();
+            String classes = null;
+            boolean selfClosing = false;
+            int c;
+            while ((c = read()) != -1 && c != '>') {
+                if (c == '/') {
+                    selfClosing = peek() == '>';
+                } else if (!StringUtil.isWhitespace(c)) {
+                    final StringBuilder attribute = new StringBuilder();
+                    attribute.append((char) c);
+                    while ((c = peek()) != -1 && c != '=' && c != '>' && c != '/' && !StringUtil.isWhitespace(c)) {
+                        attribute.append((char) read());
+                    }
+                    skipWhitespace();
+                    String value = "";
+                    if (peek() == '=') {
+                        read();
+                        skipWhitespace();
+                        value = readAttributeValue();
+                    }
+                    if (classes == null && "class".equalsIgnoreCase(attribute.toString())) {
+                        classes = value.indexOf('&') < 0 ? value : Parser.unescapeEntities(value, true);
+                    }
+                }
+            }
+            startElement(name, classes, selfClosing);
+            if (RAW_TEXT.contains(name) && !stack.isEmpty() && stack.get(stack.size() - 1).name.equals(name)) {
+                rawText(name);
+            }
+        }
+
+        /**
+         * Open an element, closing any elements its start implies the end of.
+         *
+         * @param name the tag name
+         * @param classes the class attribute, may be null
+         * @param selfClosing whether the tag was written self closing
+         */
+        private void startElement(final String name, final String classes, final boolean selfClosing) {
+            if (CLOSES_P.contains(name)) {
+                closeInScope("p", SCOPE_BOUNDARIES);
+            }
+            if (HEADINGS.contains(name) && !stack.isEmpty() && HEADINGS.contains(current().name)) {
+                pop();
+            }
+            if ("li".equals(name)) {
+                closeInScope("li", listScope("ul", "ol"));
+            } else if ("dd".equals(name) || "dt".equals(name)) {
+                closeInScope("dd", listScope("dl"));
+                closeInScope("dt", listScope("dl"));
+            }
+
+            final Tag tag = Tag.valueOf(name);
+            final OpenElement element = new OpenElement(name, tag, classes == null ? new String[0]
+                    : classes.trim().split("\\s+"));
+            for (final Capture capture : captures) {
+                capture.elementStarted(tag);
+            }
+            if (descriptionParent != null && !stack.isEmpty() && current() == descriptionParent) {
+                // The element following the description header holds the description
+                descriptionParent = null;
+                descriptionRoot = element;
+            }
+
+            final boolean isVoid = tag.isEmpty() || selfClosing && !tag.isKnownTag();
+            stack.add(element);
+            if (matches(titleSelector, stack) && titleCount++ == 0) {
+                captures.add(new Capture(element, value -> title = value));
+            }
+            if (matches(priceSelector, stack) && priceCount++ == 0) {
+                captures.add(new Capture(element, value -> price = value));
+            }
+            if (matches(descriptionSelector, stack)) {
+                captures.add(new Capture(element, value -> {
+                    // Completed once the header has closed, so its parent is current
+                    if (ElementSelectorUtil.DESCRIPTION.equals(value) && descriptionCount++ == 0) {
+                        descriptionParent = stack.isEmpty() ? null : current();
+                    }
+                }));
+            }
+            if (descriptionRoot != null && ElementSelectorUtil.P_SELECTOR.equals(name)) {
+                captures.add(new Capture(element, description::append));
+            }
+            if (isVoid) {
+                pop();
+            }
+        }
+
+        /**
+         * Close the most recently opened element with the tag name, if it is
+         * open within the scope.
+         *
+         * @param name the tag name
+         */
+        private void endTag(final String name) {
+            if ("br".equals(name)) {
+                startElement(name, null, false);
+                return;
+            }
+            if ("body".equals(name) || "html".equals(name)) {
+                return;
+            }
+            if ("p".equals(name) && !inScope(name, SCOPE_BOUNDARIES)) {
+                // A stray end tag implies an empty paragraph
+                startElement(name, null, false);
+            }
+            closeInScope(name, SCOPE_BOUNDARIES);
+        }
+
+        /**
+         * Close the most recently opened element with the tag name and every
+         * element opened after it, if it is open within the scope.
+         *
+         * @param name the tag name
+         * @param boundaries the tags bounding the scope
+         */
+        private void closeInScope(final String name, final Set<String> boundaries) {
+            if (inScope(name, boundaries)) {
+                OpenElement popped;
+                do {
+                    popped = pop();
+                } while (!popped.name.equals(name));
+            }
+        }
+
+        /**
+         * @param name the tag name
+         * @param boundaries the tags bounding the scope
+         * @return true if an element with the tag name is open within the scope
+         */
+        private boolean inScope(final String name, final Set<String> boundaries) {
+            for (int i = stack.size() - 1; i >= 0; i--) {
+                final String open = stack.get(i).name;
+                if (open.equals(name)) {
+                    return true;
+                }
+                if (boundaries.contains(open)) {
+                    return false;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @param lists the list tags
+         * @return the scope boundaries for a list item
+         */
+        private Set<String> listScope(final String... lists) {
+            final Set<String> boundaries = new HashSet<String>(SCOPE_BOUNDARIES);
+            boundaries.addAll(Arrays.asList(lists));
+            return boundaries;
+        }
+
+        /**
+         * Close the current element, completing any capture it started.
+         *
+         * @return the closed element
+         */
+        private OpenElement pop() {
+            final OpenElement element = stack.remove(stack.size() - 1);
+            for (int i = captures.size() - 1; i >= 0; i--) {
+                if (captures.get(i).element == element) {
+                    captures.remove(i).complete();
+                }
+            }
+            if (element == descriptionParent) {
+                descriptionParent = null;
+            }
+            if (element == descriptionRoot) {
+                descriptionRoot = null;
+            }
+            return element;
+        }
+
+        /**
+         * @return the current element
+         */
+        private OpenElement current() {
+            return stack.get(stack.size() - 1);
+        }
+
+        /**
+         * Keep a text char if any text is being captured.
+         *
+         * @param c the char
+         */
+        private void appendText(final int c) {
+            if (!captures.isEmpty()) {
+                text.append((char) c);
+            }
+        }
+
+        /**
+         * Hand the text read since the last tag to every capture.
+         */
+        private void flushText() {
+            if (text.length() == 0) {
+                return;
+            }
+            final String decoded = text.indexOf("&") < 0 ? text.toString()
+                    : Parser.unescapeEntities(text.toString(), false);
+            text.setLength(0);
+            final boolean preserveWhitespace = preservesWhitespace(stack.size() - 1)
+                    || preservesWhitespace(stack.size() - 2);
+            for (final Capture capture : captures) {
+                capture.append(decoded, preserveWhitespace);
+            }
+        }
+
+        /**
+         * @param index the index in the stack
+         * @return true if the element at the index keeps its whitespace
+         */
+        private boolean preservesWhitespace(final int index) {
+            return index >= 0 && stack.get(index).tag.preserveWhitespace();
+        }
+
+        /**
+         * Read the content of a raw text element up to its end tag. Only
+         * titles and text areas hold text, scripts and styles hold data.
+         *
+         * @param name the tag name
+         * @throws IOException if the page could not be read
+         */
+        private void rawText(final String name) throws IOException {
+            final boolean isText = "title".equals(name) || "textarea".equals(name);
+            int c;
+            while ((c = read()) != -1) {
+                if (c == '<' && peek() == '/' && matchesEndTag(name)) {
+                    flushText();
+                    skipTo('>');
+                    pop();
+                    return;
+                }
+                if (isText) {
+                    appendText(c);
+                }
+            }
+        }
+
+        /**
+         * Match the rest of an end tag, after the {@code <}, consuming the
+         * matched chars.
+         *
+         * @param name the tag name
+         * @return true if the end tag is for the name
+         * @throws IOException if the page could not be read
+         */
+        private boolean matchesEndTag(final String name) throws IOException {
+            read();
+            for (int i = 0; i < name.length(); i++) {
+                if (Character.toLowerCase(peek()) != name.charAt(i)) {
+                    return false;
+                }
+                read();
+            }
+            final int c = peek();
+            return c == '>' || c == '/' || c == -1 || StringUtil.isWhitespace(c);
+        }
+
+        /**
+         * Skip a comment, doctype or other markup declaration, after the
+         * {@code <!}.
+         *
+         * @throws IOException if the page could not be read
+         */
+        private void skipComment() throws IOException {
+            if (peek() != '-') {
+                skipTo('>');
+                return;
+            }
+            read();
+            if (peek() != '-') {
+                skipTo('>');
+                return;
+            }
+            read();
+            int dashes = 0;
+            int c;
+            while ((c = read()) != -1) {
+                if (c == '>' && dashes >= 2) {
+                    return;
+                }
+                dashes = c == '-' ? dashes + 1 : 0;
+            }
+        }
+
+        /**
+         * @return the lower case tag name
+         * @throws IOException if the page could not be read
+         */
+        private String readTagName() throws IOException {
+            final StringBuilder name = new StringBuilder();
+            int c;
+            while ((c = peek()) != -1 && c != '>' && c != '/' && !StringUtil.isWhitespace(c)) {
+                name.append((char) read());
+            }
+            return name.toString().toLowerCase(Locale.ENGLISH);
+        }
+
+        /**
+         * @return the quoted or unquoted attribute value
+         * @throws IOException if the page could not be read
+         */
+        private String readAttributeValue() throws IOException {
+            final StringBuilder value = new StringBuilder();
+            int c = peek();
+            if (c == '"' || c == '\'') {
+                final int quote = read();
+                while ((c = read()) != -1 && c != quote) {
+                    value.append((char) c);
+                }
+            } else {
+                while ((c = peek()) != -1 && c != '>' && !StringUtil.isWhitespace(c)) {
+                    value.append((char) read());
+                }
+            }
+            return value.toString();
+        }
+
+        /**
+         * Skip whitespace.
+         *
+         * @throws IOException if the page could not be read
+         */
+        private void skipWhitespace() throws IOException {
+            while (StringUtil.isWhitespace(peek())) {
+                read();
+            }
+        }
+
+        /**
+         * Skip past the next occurrence of a char.
+         *
+         * @param end the char
+         * @throws IOException if the page could not be read
+         */
+        private void skipTo(final int end) throws IOException {
+            int c;
+            while ((c = read()) != -1 && c != end) {
+                // Skip
+            }
+        }
+
+        /**
+         * @param c the char
+         * @return true if an ASCII letter
+         */
+        private boolean isLetter(final int c) {
+            return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+        }
+
+        /**
+         * @return the next char without consuming it, or -1 at the end
+         * @throws IOException if the page could not be read
+         */
+        private int peek() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position];
+        }
+
+        /**
+         * @return the next char, or -1 at the end
+         * @throws IOException if the page could not be read
+         */
+        private int read() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position++];
+        }
+
+        /**
+         * Refill the buffer.
+         *
+         * @return false at the end of the page
+         * @throws IOException if the page could not be read
+         */
+        private boolean fill() throws IOException {
+            final int read = reader.read(buffer);
+            if (read <= 0) {
+                return false;
+            }
+            position = 0;
+            limit = read;
+            return true;
+        }
+    }
+
+    /**
+     * The text of an element being captured, normalised as
+     * {@link org.jsoup.nodes.Element#text()} does.
+     */
+    private static final class Capture {
+
+        /** The element captured. */
+        private final OpenElement element;
+
+        /** Called with the trimmed text once the element closes. */
+        private final Consumer<String> onComplete;
+
+        /** The text so far. */
+        private final StringBuilder text = new StringBuilder();
+
+        /**
+         * Constructor.
+         *
+         * @param element the element captured
+         * @param onComplete called with the trimmed text once the element
+         * closes
+         */
+        private Capture(final OpenElement element, final Consumer<String> onComplete) {
+            this.element = element;
+            this.onComplete = onComplete;
+        }
+
+        /**
+         * Separate the text of a block element or line break from what came
+         * before.
+         *
+         * @param tag the tag of the element started
+         */
+        private void elementStarted(final Tag tag) {
+            if (text.length() > 0 && (tag.isBlock() || "br".equals(tag.getName())) && !lastCharIsWhitespace()) {
+                text.append(' ');
+            }
+        }
+
+        /**
+         * Append text.
+         *
+         * @param value the decoded text
+         * @param preserveWhitespace whether to keep the whitespace as is
+         */
+        private void append(final String value, final boolean preserveWhitespace) {
+            if (preserveWhitespace) {
+                text.append(value);
+            } else {
+                StringUtil.appendNormalisedWhitespace(text, value, lastCharIsWhitespace());
+            }
+        }
+
+        /**
+         * @return true if the text so far ends in a space
+         */
+        private boolean lastCharIsWhitespace() {
+            return text.length() > 0 && text.charAt(text.length() - 1) == ' ';
+        }
+
+        /**
+         * Hand over the captured text.
+         */
+        private void complete() {
+            onComplete.accept(text.toString().trim());
+        }
+    }
+
+    /**
+     * An open element.
+     */
+    private static final class OpenElement {
+
+        /** The lower case tag name. */
+        private final String name;
+
+        /** The tag. */
+        private final Tag tag;
+
+        /** The class names. */
+        private final String[] classes;
+
+        /**
+         * Constructor.
+         *
+         * @param name the lower case tag name
+         * @param tag the tag
+         * @param classes the class names
+         */
+        private OpenElement(final String name, final Tag tag, final String[] classes) {
+            this.name = name;
+            this.tag = tag;
+            this.classes = classes;
+        }
+
+        /**
+         * @param className the class name
+         * @return true if the element has the class
+         */
+        private boolean hasClass(final String className) {
+            for (final String candidate : classes) {
+                if (candidate.equalsIgnoreCase(className)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Product extraction package.
+ */
+package com.sainsburys.scraper.service.extract;
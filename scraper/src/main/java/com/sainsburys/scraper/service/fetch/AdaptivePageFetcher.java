@@ -0,0 +1,196 @@
+package com.sainsburys.scraper.service.fetch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+import org.jsoup.HttpStatusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sainsburys.scraper.config.ScraperProperties;
+import com.sainsburys.scraper.metrics.ScraperMetrics;
+import com.sainsburys.scraper.service.util.UriUtil;
+
+/**
+ * Page fetcher limiting the pages fetched at once from each host, the limit
+ * found by {@link AimdLimiter}. A 429 or 503, a gateway error, or a timeout
+ * cuts the host's limit, as does a rising latency; healthy responses raise it
+ * again up to the configured maximum, or the most pages that can be fetched
+ * at once if fewer, as a limit never reached would take cuts to take effect.
+ * <p>
+ * The current limit and pages per second of each host are published as the
+ * {@link ScraperMetrics#FETCH_LIMIT} and {@link ScraperMetrics#FETCH_THROUGHPUT}
+ * gauges.
+ */
+public class AdaptivePageFetcher implements PageFetcher, Closeable {
+
+    /** The logger. */
+    private static Logger LOGGER = LoggerFactory.getLogger(AdaptivePageFetcher.class);
+
+    /** Too Many Requests. */
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    /** Bad Gateway. */
+    private static final int BAD_GATEWAY = 502;
+
+    /** Service Unavailable. */
+    private static final int SERVICE_UNAVAILABLE = 503;
+
+    /** Gateway Timeout. */
+    private static final int GATEWAY_TIMEOUT = 504;
+
+    /** The fetcher to go to the network with. */
+    private final PageFetcher delegate;
+
+    /** The adaptive concurrency settings. */
+    private final ScraperProperties.Fetch.Adaptive settings;
+
+    /** The most requests allowed in flight to a host. */
+    private final int maxLimit;
+
+    /** The metrics registry. */
+    private final ScraperMetrics metrics;
+
+    /** The source of nanosecond times. */
+    private final LongSupplier ticker;
+
+    /** The limiters by host. */
+    private final ConcurrentMap<String, AimdLimiter> limiters = new ConcurrentHashMap<String, AimdLimiter>();
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the fetcher to go to the network with
+     * @param settings the adaptive concurrency settings
+     * @param maxInFlight the most pages that can be fetched at once from a host
+     * @param metrics the metrics registry
+     */
+    public AdaptivePageFetcher(final PageFetcher delegate, final ScraperProperties.Fetch.Adaptive settings,
+            final int maxInFlight, final ScraperMetrics metrics) {
+        this(delegate, settings, maxInFlight, metrics, System::nanoTime);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the fetcher to go to the network with
+     * @param settings the adaptive concurrency settings
+     * @param maxInFlight the most pages that can be fetched at once from a host
+     * @param metrics the metrics registry
+     * @param ticker the source of nanosecond times
+     */
+    AdaptivePageFetcher(final PageFetcher delegate, final ScraperProperties.Fetch.Adaptive settings,
+            final int maxInFlight, final ScraperMetrics metrics, final LongSupplier ticker) {
+        this.delegate = delegate;
+        this.settings = settings;
+        this.maxLimit = Math.max(settings.getMinLimit(), Math.min(settings.getMaxLimit(), maxInFlight));
+        if (maxLimit < settings.getMaxLimit()) {
+            LOGGER.info("scraper.fetch.adaptive.max-limit of {} capped at {}, the most pages fetched at once",
+                    settings.getMaxLimit(), maxLimit);
+        }
+        this.metrics = metrics;
+        this.ticker = ticker;
+    }
+
+    @Override
+    public FetchedPage fetch(final String uri) throws IOException {
+        return fetch(uri, null, null);
+    }
+
+    @Override
+    public FetchedPage fetch(final String uri, final String eTag, final String lastModified) throws IOException {
+        final AimdLimiter limiter = limiterFor(uri);
+        final long start;
+        try {
+            start = limiter.acquire();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting to fetch " + uri);
+        }
+        AimdLimiter.Outcome outcome = AimdLimiter.Outcome.NEUTRAL;
+        try {
+            final FetchedPage page = eTag == null && lastModified == null ? delegate.fetch(uri)
+                    : delegate.fetch(uri, eTag, lastModified);
+            outcome = AimdLimiter.Outcome.SUCCESS;
+            return page;
+        } catch (final IOException e) {
+            outcome = outcomeOf(e);
+            throw e;
+        } finally {
+            limiter.release(start, outcome);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+
+    /**
+     * @param host the host
+     * @return the pages allowed to be fetched at once from the host, or zero if none fetched yet
+     */
+    int getLimit(final String host) {
+        final AimdLimiter limiter = limiters.get(host);
+        return limiter == null ? 0 : limiter.getLimit();
+    }
+
+    /**
+     * Get the limiter for the host of a page, creating it and its gauges on first use.
+     *
+     * @param uri the page URI
+     * @return the limiter
+     */
+    private AimdLimiter limiterFor(final String uri) {
+        final String host = UriUtil.hostOf(uri, uri);
+        final AimdLimiter limiter = limiters.get(host);
+        if (limiter != null) {
+            return limiter;
+        }
+        return limiters.computeIfAbsent(host, key -> {
+            final AimdLimiter created = new AimdLimiter(Math.min(settings.getInitialLimit(), maxLimit),
+                    settings.getMinLimit(), maxLimit, settings.getBackoffRatio(), settings.getLatencyTolerance(),
+                    ticker);
+            metrics.gauge(ScraperMetrics.FETCH_LIMIT + key, created::getLimit);
+            metrics.gauge(ScraperMetrics.FETCH_THROUGHPUT + key, created::getThroughput);
+            return created;
+        });
+    }
+
+    /**
+     * Classify a failed fetch.
+     *
+     * @param e the failure
+     * @return overload if the host asked to slow down or did not answer in time, otherwise neutral
+     */
+    private AimdLimiter.Outcome outcomeOf(final IOException e) {
+        if (e instanceof HttpStatusException) {
+            final HttpStatusException statusException = (HttpStatusException) e;
+            switch (statusException.getStatusCode()) {
+            case TOO_MANY_REQUESTS:
+            case SERVICE_UNAVAILABLE:
+                metrics.increment(ScraperMetrics.FETCH_THROTTLED);
+                LOGGER.debug("Throttled by {}", statusException.getUrl());
+                return AimdLimiter.Outcome.OVERLOAD;
+            case BAD_GATEWAY:
+            case GATEWAY_TIMEOUT:
+                return AimdLimiter.Outcome.OVERLOAD;
+            default:
+                return AimdLimiter.Outcome.NEUTRAL;
+            }
+        }
+        if (e instanceof SocketTimeoutException || e instanceof ConnectException) {
+            return AimdLimiter.Outcome.OVERLOAD;
+        }
+        return AimdLimiter.Outcome.NEUTRAL;
+    }
+
+}
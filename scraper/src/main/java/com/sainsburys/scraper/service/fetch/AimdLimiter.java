@@ -0,0 +1,260 @@
+package com.sainsburys.scraper.service.fetch;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Limit on the requests in flight to one host, raised and cut AIMD-style.
+ * <p>
+ * Each healthy response to a request in flight when the limit was last
+ * reached raises the limit by {@code 1 / limit}, so about one more request a
+ * round trip while the limit is what holds requests back, and never while it
+ * is not, so an unused limit does not climb out of reach of a cut. A response
+ * asking the scraper to slow down, or a
+ * smoothed latency past the tolerated multiple of the host's baseline, cuts
+ * the limit by the backoff ratio. Only a request started after the last cut
+ * can cut it again, so a burst of failures from one window counts once.
+ */
+class AimdLimiter {
+
+    /** The weight of the latest response in the smoothed latency. */
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    /** The share of the gap the baseline latency drifts up by each response, so it follows a slowing host. */
+    private static final double BASELINE_DRIFT = 0.01;
+
+    /** The window the throughput is measured over. */
+    private static final long THROUGHPUT_WINDOW = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * How a request ended, as far as the limit is concerned.
+     */
+    enum Outcome {
+
+        /** The host answered normally. */
+        SUCCESS,
+
+        /** The host asked the scraper to slow down, or did not answer in time. */
+        OVERLOAD,
+
+        /** The request failed for a reason that says nothing about the load on the host. */
+        NEUTRAL
+    }
+
+    /** The fewest requests allowed in flight. */
+    private final int minLimit;
+
+    /** The most requests allowed in flight. */
+    private final int maxLimit;
+
+    /** The ratio the limit is cut by. */
+    private final double backoffRatio;
+
+    /** The multiple of the baseline latency taken as overload. */
+    private final double latencyTolerance;
+
+    /** The source of nanosecond times. */
+    private final LongSupplier ticker;
+
+    /** The requests allowed in flight, the whole part being enforced. */
+    private double limit;
+
+    /** The requests in flight. */
+    private int inFlight;
+
+    /** The time of the last cut. */
+    private long lastDecrease;
+
+    /** The time the limit was last reached. */
+    private long lastReached;
+
+    /** The smoothed latency in nanoseconds, zero before the first response. */
+    private double latency;
+
+    /** The lowest smoothed latency seen, drifting up slowly. */
+    private double baseline;
+
+    /** The start of the current throughput window. */
+    private long windowStart;
+
+    /** The responses in the current throughput window. */
+    private long windowCompleted;
+
+    /** The responses per second in the last full window. */
+    private double throughput;
+
+    /** Whether a throughput window has been filled yet. */
+    private boolean windowFilled;
+
+    /**
+     * Constructor.
+     *
+     * @param initialLimit the requests allowed in flight to start with
+     * @param minLimit the fewest requests allowed in flight
+     * @param maxLimit the most requests allowed in flight
+     * @param backoffRatio the ratio the limit is cut by
+     * @param latencyTolerance the multiple of the baseline latency taken as overload
+     * @param ticker the source of nanosecond times
+     */
+    AimdLimiter(final int initialLimit, final int minLimit, final int maxLimit, final double backoffRatio,
+            final double latencyTolerance, final LongSupplier ticker) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max but were "
+                    + minLimit + ", " + initialLimit + ", " + maxLimit);
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("Backoff ratio must be between 0 and 1 but was " + backoffRatio);
+        }
+        if (latencyTolerance <= 1) {
+            throw new IllegalArgumentException("Latency tolerance must be above 1 but was " + latencyTolerance);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.ticker = ticker;
+        this.limit = initialLimit;
+        this.lastDecrease = ticker.getAsLong();
+        this.windowStart = lastDecrease;
+        // Before any request starts, so none is taken as in flight at the limit
+        this.lastReached = lastDecrease - 1;
+    }
+
+    /**
+     * Wait for room under the limit and take it.
+     *
+     * @return the time the request started, to pass back on release
+     * @throws InterruptedException if interrupted while waiting
+     */
+    synchronized long acquire() throws InterruptedException {
+        while (inFlight >= (int) limit) {
+            wait();
+        }
+        inFlight++;
+        final long start = ticker.getAsLong();
+        if (inFlight >= (int) limit) {
+            lastReached = start;
+        }
+        return start;
+    }
+
+    /**
+     * Give back the room taken by a finished request and adjust the limit.
+     *
+     * @param start the time the request started
+     * @param outcome how the request ended
+     */
+    synchronized void release(final long start, final Outcome outcome) {
+        final long now = ticker.getAsLong();
+        inFlight--;
+        countCompleted(now);
+        switch (outcome) {
+        case SUCCESS:
+            if (latencyRising(now - start)) {
+                decrease(start, now);
+            } else {
+                increase(start);
+            }
+            break;
+        case OVERLOAD:
+            decrease(start, now);
+            break;
+        default:
+            break;
+        }
+        notifyAll();
+    }
+
+    /**
+     * @return the requests allowed in flight
+     */
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return the requests in flight
+     */
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return the responses per second over the last full window, so far if none is full yet, or
+     *         zero if idle since
+     */
+    synchronized double getThroughput() {
+        final long elapsed = ticker.getAsLong() - windowStart;
+        if (elapsed >= 2 * THROUGHPUT_WINDOW) {
+            return 0;
+        }
+        if (!windowFilled) {
+            return elapsed == 0 ? 0 : (double) windowCompleted * TimeUnit.SECONDS.toNanos(1) / elapsed;
+        }
+        return throughput;
+    }
+
+    /**
+     * Fold a latency into the smoothed latency and baseline.
+     *
+     * @param latencyNanos the latency of the response
+     * @return true if the smoothed latency is past the tolerated multiple of the baseline
+     */
+    private boolean latencyRising(final long latencyNanos) {
+        if (latency == 0) {
+            latency = latencyNanos;
+            baseline = latencyNanos;
+            return false;
+        }
+        latency += LATENCY_SMOOTHING * (latencyNanos - latency);
+        if (latency < baseline) {
+            baseline = latency;
+        } else {
+            baseline += BASELINE_DRIFT * (latency - baseline);
+        }
+        return latency > baseline * latencyTolerance;
+    }
+
+    /**
+     * Raise the limit, if the request was in flight when it was last reached.
+     *
+     * @param start the time the request started
+     */
+    private void increase(final long start) {
+        if (start - lastReached > 0) {
+            return;
+        }
+        limit = Math.min(maxLimit, limit + 1 / limit);
+    }
+
+    /**
+     * Cut the limit, unless the request started before the last cut.
+     *
+     * @param start the time the request started
+     * @param now the current time
+     */
+    private void decrease(final long start, final long now) {
+        if (start - lastDecrease < 0) {
+            return;
+        }
+        limit = Math.max(minLimit, limit * backoffRatio);
+        lastDecrease = now;
+    }
+
+    /**
+     * Count a response towards the throughput, rolling the window when it is full.
+     *
+     * @param now the current time
+     */
+    private void countCompleted(final long now) {
+        final long elapsed = now - windowStart;
+        if (elapsed >= THROUGHPUT_WINDOW) {
+            throughput = (double) windowCompleted * TimeUnit.SECONDS.toNanos(1) / elapsed;
+            windowFilled = true;
+            windowStart = now;
+            windowCompleted = 0;
+        }
+        windowCompleted++;
+    }
+
+}
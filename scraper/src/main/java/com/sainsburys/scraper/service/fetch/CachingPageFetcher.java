@@ -0,0 +1,104 @@
+package com.sainsburys.scraper.service.fetch;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sainsburys.scraper.service.cache.DiskResponseCache;
+
+/**
+ * Page fetcher revalidating pages held in a {@link DiskResponseCache}. A
+ * cached page is requested with {@code If-None-Match} and
+ * {@code If-Modified-Since}, and its stored body reused when the server
+ * answers not modified. Only pages with a validator are cached.
+ * <p>
+ * A failure reading or writing the cache is logged and the page fetched as if
+ * it were not cached.
+ */
+public class CachingPageFetcher implements PageFetcher, Closeable {
+
+    /** The logger. */
+    private static Logger LOGGER = LoggerFactory.getLogger(CachingPageFetcher.class);
+
+    /** The fetcher to go to the network with. */
+    private final PageFetcher delegate;
+
+    /** The response cache. */
+    private final DiskResponseCache cache;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the fetcher to go to the network with
+     * @param cache the response cache
+     */
+    public CachingPageFetcher(final PageFetcher delegate, final DiskResponseCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public FetchedPage fetch(final String uri) throws IOException {
+        final FetchedPage cached = getCached(uri);
+        if (cached == null) {
+            return store(delegate.fetch(uri));
+        }
+        final FetchedPage page = delegate.fetch(uri, cached.getETag(), cached.getLastModified());
+        if (page.isNotModified()) {
+            LOGGER.debug("Reusing cached body for unmodified page {}", uri);
+            return cached;
+        }
+        return store(page);
+    }
+
+    @Override
+    public FetchedPage fetch(final String uri, final String eTag, final String lastModified) throws IOException {
+        // The caller is revalidating its own copy, so bypass the cache
+        return delegate.fetch(uri, eTag, lastModified);
+    }
+
+    /**
+     * Get a page from the cache.
+     *
+     * @param uri the page URI
+     * @return the cached page, or null if not cached or unreadable
+     */
+    private FetchedPage getCached(final String uri) {
+        try {
+            return cache.get(uri);
+        } catch (final IOException e) {
+            LOGGER.warn("Unable to read cached page {}", uri, e);
+            return null;
+        }
+    }
+
+    /**
+     * Store a freshly fetched page if it can be revalidated later, otherwise
+     * drop any stale copy.
+     *
+     * @param page the fetched page
+     * @return the page
+     */
+    private FetchedPage store(final FetchedPage page) {
+        try {
+            if (page.hasValidators()) {
+                cache.put(page);
+            } else {
+                cache.remove(page.getUri());
+            }
+        } catch (final IOException e) {
+            LOGGER.warn("Unable to cache page {}", page.getUri(), e);
+        }
+        return page;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+
+}
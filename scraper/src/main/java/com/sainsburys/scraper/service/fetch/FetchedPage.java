@@ -0,0 +1,251 @@
+package com.sainsburys.scraper.service.fetch;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+/**
+ * The raw response for a fetched page.
+ */
+public class FetchedPage {
+
+    /** The HTTP not modified status. */
+    public static final int NOT_MODIFIED = 304;
+
+    /** The bytes searched for a meta charset when the response has none. */
+    private static final int CHARSET_SNIFF_BYTES = 1024;
+
+    /** The chars decoded at a time when counting. */
+    private static final int COUNT_BUFFER_SIZE = 4096;
+
+    /** A meta charset declaration. */
+    private static final Pattern META_CHARSET = Pattern
+            .compile("<meta[^>]+charset\\s*=\\s*[\"']?([A-Za-z0-9_.:-]+)", Pattern.CASE_INSENSITIVE);
+
+    /** The page URI, used as the base URI when parsing. */
+    private final String uri;
+
+    /** The HTTP status code. */
+    private final int statusCode;
+
+    /** The response body, as received. */
+    private final byte[] body;
+
+    /** The charset from the content type, or null to detect it. */
+    private final String charset;
+
+    /** The ETag validator, or null if not given. */
+    private final String eTag;
+
+    /** The Last-Modified validator, or null if not given. */
+    private final String lastModified;
+
+    /**
+     * Constructor for a page without cache validators.
+     *
+     * @param uri the page URI
+     * @param statusCode the HTTP status code
+     * @param body the response body
+     * @param charset the charset from the content type, or null if not given
+     */
+    public FetchedPage(final String uri, final int statusCode, final byte[] body, final String charset) {
+        this(uri, statusCode, body, charset, null, null);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param uri the page URI
+     * @param statusCode the HTTP status code
+     * @param body the response body
+     * @param charset the charset from the content type, or null if not given
+     * @param eTag the ETag validator, or null if not given
+     * @param lastModified the Last-Modified validator, or null if not given
+     */
+    public FetchedPage(final String uri, final int statusCode, final byte[] body, final String charset,
+            final String eTag, final String lastModified) {
+        this.uri = uri;
+        this.statusCode = statusCode;
+        this.body = body;
+        this.charset = charset;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Parse the body into a document. Without a declared charset it is
+     * detected from the page, as {@code Jsoup.connect} does.
+     *
+     * @return the parsed document
+     * @throws IOException if the body cannot be decoded
+     */
+    public Document parse() throws IOException {
+        return Jsoup.parse(new ByteArrayInputStream(body), charset, uri);
+    }
+
+    /**
+     * The charset to decode the body with, the declared charset if given,
+     * otherwise a meta declaration near the start of the page, otherwise
+     * UTF-8.
+     *
+     * @return the charset
+     */
+    public Charset resolveCharset() {
+        String name = charset;
+        if (name == null) {
+            final String head = new String(body, 0, Math.min(body.length, CHARSET_SNIFF_BYTES),
+                    StandardCharsets.ISO_8859_1);
+            final Matcher matcher = META_CHARSET.matcher(head);
+            if (matcher.find()) {
+                name = matcher.group(1);
+            }
+        }
+        if (name != null) {
+            try {
+                return Charset.forName(name);
+            } catch (final IllegalCharsetNameException | UnsupportedCharsetException e) {
+                // Fall back as the parser does
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    /**
+     * @return the number of bytes in the body as received
+     */
+    public long getByteCount() {
+        return body.length;
+    }
+
+    /**
+     * The number of bytes the decoded page takes in the platform charset, as
+     * {@code String.getBytes()} would give, counted a buffer at a time rather
+     * than by copying the page.
+     *
+     * @return the decoded byte count
+     * @throws CharacterCodingException if the body cannot be decoded
+     */
+    public long getDecodedByteCount() throws CharacterCodingException {
+        final CharsetDecoder decoder = resolveCharset().newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        final CharsetEncoder encoder = Charset.defaultCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        final ByteBuffer in = ByteBuffer.wrap(body);
+        final CharBuffer chars = CharBuffer.allocate(COUNT_BUFFER_SIZE);
+        final ByteBuffer out = ByteBuffer.allocate((int) Math.ceil(COUNT_BUFFER_SIZE * encoder.maxBytesPerChar()));
+        long count = 0;
+        boolean endOfInput = false;
+        while (!endOfInput) {
+            endOfInput = decoder.decode(in, chars, true).isUnderflow();
+            if (endOfInput) {
+                decoder.flush(chars);
+            }
+            chars.flip();
+            count += encode(encoder, chars, out, endOfInput);
+            chars.compact();
+        }
+        return count;
+    }
+
+    /**
+     * Encode the decoded chars, counting the bytes.
+     *
+     * @param encoder the encoder
+     * @param chars the chars to encode
+     * @param out the scratch output buffer
+     * @param endOfInput whether these are the last chars
+     * @return the number of bytes encoded
+     * @throws CharacterCodingException if the chars cannot be encoded
+     */
+    private static long encode(final CharsetEncoder encoder, final CharBuffer chars, final ByteBuffer out,
+            final boolean endOfInput) throws CharacterCodingException {
+        long count = 0;
+        while (true) {
+            out.clear();
+            final CoderResult result = encoder.encode(chars, out, endOfInput);
+            if (result.isError()) {
+                result.throwException();
+            }
+            if (endOfInput && result.isUnderflow()) {
+                encoder.flush(out);
+            }
+            count += out.position();
+            if (result.isUnderflow()) {
+                return count;
+            }
+        }
+    }
+
+    /**
+     * @return the uri
+     */
+    public String getUri() {
+        return uri;
+    }
+
+    /**
+     * @return the statusCode
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * @return the body, not copied so must not be modified
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * @return the charset, or null if not given
+     */
+    public String getCharset() {
+        return charset;
+    }
+
+    /**
+     * @return the ETag, or null if not given
+     */
+    public String getETag() {
+        return eTag;
+    }
+
+    /**
+     * @return the Last-Modified date, or null if not given
+     */
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * @return true if a conditional request found the page unchanged, the
+     * body is then empty
+     */
+    public boolean isNotModified() {
+        return statusCode == NOT_MODIFIED;
+    }
+
+    /**
+     * @return true if the page carries a validator it can be revalidated with
+     */
+    public boolean hasValidators() {
+        return eTag != null || lastModified != null;
+    }
+
+}
@@ -0,0 +1,191 @@
+package com.sainsburys.scraper.service.fetch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import com.sainsburys.scraper.config.ScraperProperties;
+import com.sainsburys.scraper.metrics.ScraperMetrics;
+import com.sainsburys.scraper.metrics.Timer;
+
+/**
+ * Page fetcher sending a duplicate request for a page slower than the
+ * configured percentile of the pages fetched so far, and taking whichever
+ * answers first. A page only fails if both requests fail, with the failure of
+ * the last to answer. The request that loses is left to finish and its
+ * response dropped.
+ * <p>
+ * Until enough pages have been timed, requests are not hedged. The requests
+ * run on a pool of daemon threads owned by the fetcher, shut down on close.
+ */
+public class HedgingPageFetcher implements PageFetcher, Closeable {
+
+    /** The logger. */
+    private static Logger LOGGER = LoggerFactory.getLogger(HedgingPageFetcher.class);
+
+    /** The name prefix for the request threads. */
+    private static final String THREAD_PREFIX = "scraper-hedge-";
+
+    /** The fetcher to send requests with. */
+    private final PageFetcher delegate;
+
+    /** The hedged request settings. */
+    private final ScraperProperties.Fetch.Hedge settings;
+
+    /** The metrics registry. */
+    private final ScraperMetrics metrics;
+
+    /** The timer of each successful request, the hedging delay is read from. */
+    private final Timer attempts;
+
+    /** The pool the requests run on. */
+    private final ExecutorService executor;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the fetcher to send requests with
+     * @param settings the hedged request settings
+     * @param metrics the metrics registry
+     */
+    public HedgingPageFetcher(final PageFetcher delegate, final ScraperProperties.Fetch.Hedge settings,
+            final ScraperMetrics metrics) {
+        this(delegate, settings, metrics, Executors.newCachedThreadPool(daemonThreads()));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the fetcher to send requests with
+     * @param settings the hedged request settings
+     * @param metrics the metrics registry
+     * @param executor the pool the requests run on
+     */
+    HedgingPageFetcher(final PageFetcher delegate, final ScraperProperties.Fetch.Hedge settings,
+            final ScraperMetrics metrics, final ExecutorService executor) {
+        if (settings.getPercentile() < 1 || settings.getPercentile() > 100) {
+            throw new IllegalArgumentException(
+                    "scraper.fetch.hedge.percentile must be from 1 to 100 but was " + settings.getPercentile());
+        }
+        this.delegate = delegate;
+        this.settings = settings;
+        this.metrics = metrics;
+        this.attempts = metrics.timer(ScraperMetrics.FETCH_ATTEMPT);
+        this.executor = executor;
+    }
+
+    @Override
+    public FetchedPage fetch(final String uri) throws IOException {
+        return fetch(uri, null, null);
+    }
+
+    @Override
+    public FetchedPage fetch(final String uri, final String eTag, final String lastModified) throws IOException {
+        if (attempts.getCount() < settings.getMinSamples()) {
+            return timed(uri, eTag, lastModified);
+        }
+        final double delayMillis = Math.max(settings.getMinDelay(), attempts.percentile(settings.getPercentile()));
+        final long delayNanos = (long) (delayMillis * TimeUnit.MILLISECONDS.toNanos(1));
+        final CompletableFuture<FetchedPage> first = new CompletableFuture<FetchedPage>();
+        final AtomicInteger outstanding = new AtomicInteger(1);
+        send(uri, eTag, lastModified, first, outstanding, false);
+        try {
+            try {
+                return first.get(delayNanos, TimeUnit.NANOSECONDS);
+            } catch (final TimeoutException e) {
+                outstanding.incrementAndGet();
+                if (!first.isDone()) {
+                    LOGGER.debug("Hedging {} after {}ms", uri, delayMillis);
+                    metrics.increment(ScraperMetrics.FETCH_HEDGED);
+                    send(uri, eTag, lastModified, first, outstanding, true);
+                }
+                return first.get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for " + uri);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException("Unable to fetch " + uri, e.getCause());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        executor.shutdownNow();
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+
+    /**
+     * Send a request on the pool, completing the page with the first
+     * response, or with the failure of the last request outstanding.
+     *
+     * @param uri the page URI
+     * @param eTag the ETag last seen, or null
+     * @param lastModified the Last-Modified date last seen, or null
+     * @param first the page, completed by the first response
+     * @param outstanding the requests not yet answered
+     * @param hedge whether this is the duplicate request
+     */
+    private void send(final String uri, final String eTag, final String lastModified,
+            final CompletableFuture<FetchedPage> first, final AtomicInteger outstanding, final boolean hedge) {
+        executor.execute(() -> {
+            try {
+                final FetchedPage page = timed(uri, eTag, lastModified);
+                if (first.complete(page) && hedge) {
+                    metrics.increment(ScraperMetrics.FETCH_HEDGE_WON);
+                }
+            } catch (final IOException | RuntimeException e) {
+                if (outstanding.decrementAndGet() == 0) {
+                    first.completeExceptionally(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Fetch a page, timing it if it succeeds.
+     *
+     * @param uri the page URI
+     * @param eTag the ETag last seen, or null
+     * @param lastModified the Last-Modified date last seen, or null
+     * @return the fetched page
+     * @throws IOException if there was an issue connecting to the uri
+     */
+    private FetchedPage timed(final String uri, final String eTag, final String lastModified) throws IOException {
+        final long start = System.nanoTime();
+        final FetchedPage page = eTag == null && lastModified == null ? delegate.fetch(uri)
+                : delegate.fetch(uri, eTag, lastModified);
+        attempts.record(System.nanoTime() - start);
+        return page;
+    }
+
+    /**
+     * @return a factory of named daemon threads, so a request left running never holds the JVM open
+     */
+    private static ThreadFactory daemonThreads() {
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(THREAD_PREFIX);
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.sainsburys.scraper.service.fetch;
+
+import java.io.IOException;
+
+import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
+import org.jsoup.Jsoup;
+
+/**
+ * Page fetcher opening a new {@code Jsoup.connect} per page. Kept for hosts
+ * that misbehave with persistent connections.
+ */
+public class JsoupPageFetcher implements PageFetcher {
+
+    /** The ETag header. */
+    private static final String ETAG = "ETag";
+
+    /** The Last-Modified header. */
+    private static final String LAST_MODIFIED = "Last-Modified";
+
+    /** The If-None-Match header. */
+    private static final String IF_NONE_MATCH = "If-None-Match";
+
+    /** The If-Modified-Since header. */
+    private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+
+    /** The lowest successful status. */
+    private static final int SC_OK = 200;
+
+    /** The lowest redirect status, Jsoup follows redirects itself. */
+    private static final int SC_MULTIPLE_CHOICES = 300;
+
+    /** The read timeout in milliseconds. */
+    private final int readTimeoutMillis;
+
+    /**
+     * Constructor.
+     *
+     * @param readTimeoutMillis the read timeout in milliseconds
+     */
+    public JsoupPageFetcher(final int readTimeoutMillis) {
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
+    @Override
+    public FetchedPage fetch(final String uri) throws IOException {
+        return fetch(uri, null, null);
+    }
+
+    @Override
+    public FetchedPage fetch(final String uri, final String eTag, final String lastModified) throws IOException {
+        final Connection connection = Jsoup.connect(uri).timeout(readTimeoutMillis).ignoreHttpErrors(true);
+        if (eTag != null) {
+            connection.header(IF_NONE_MATCH, eTag);
+        }
+        if (lastModified != null) {
+            connection.header(IF_MODIFIED_SINCE, lastModified);
+        }
+        final Connection.Response response = connection.execute();
+        final int statusCode = response.statusCode();
+        if (statusCode == FetchedPage.NOT_MODIFIED) {
+            return new FetchedPage(uri, statusCode, new byte[0], null, response.header(ETAG),
+                    response.header(LAST_MODIFIED));
+        }
+        if (statusCode < SC_OK || statusCode >= SC_MULTIPLE_CHOICES) {
+            throw new HttpStatusException("HTTP error fetching URL", statusCode, uri);
+        }
+        return new FetchedPage(uri, statusCode, response.bodyAsBytes(), response.charset(), response.header(ETAG),
+                response.header(LAST_MODIFIED));
+    }
+
+}
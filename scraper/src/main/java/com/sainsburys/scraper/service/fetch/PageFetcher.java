@@ -0,0 +1,36 @@
+package com.sainsburys.scraper.service.fetch;
+
+import java.io.IOException;
+
+/**
+ * Fetches the raw content of a page.
+ * <p>
+ * Implementations are shared by every worker thread so must be thread safe.
+ * A response outside the 2xx range is reported as an
+ * {@link org.jsoup.HttpStatusException}, the same as {@code Jsoup.connect}.
+ */
+public interface PageFetcher {
+
+    /**
+     * Fetch the page at the given URI.
+     *
+     * @param uri the page URI
+     * @return the fetched page
+     * @throws IOException if there was an issue connecting to the uri
+     */
+    FetchedPage fetch(String uri) throws IOException;
+
+    /**
+     * Fetch the page at the given URI only if it changed since it was last
+     * fetched with the given validators. An unchanged page is returned with
+     * the {@link FetchedPage#NOT_MODIFIED} status and an empty body.
+     *
+     * @param uri the page URI
+     * @param eTag the ETag last seen, or null
+     * @param lastModified the Last-Modified date last seen, or null
+     * @return the fetched page
+     * @throws IOException if there was an issue connecting to the uri
+     */
+    FetchedPage fetch(String uri, String eTag, String lastModified) throws IOException;
+
+}
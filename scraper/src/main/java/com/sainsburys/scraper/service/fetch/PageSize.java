@@ -0,0 +1,35 @@
+package com.sainsburys.scraper.service.fetch;
+
+import java.io.IOException;
+
+/**
+ * How the size of a fetched page is measured.
+ */
+public enum PageSize {
+
+    /** The bytes of the response body as received. */
+    WIRE {
+        @Override
+        public long measure(final FetchedPage page) {
+            return page.getByteCount();
+        }
+    },
+
+    /** The bytes of the decoded page in the platform charset. */
+    DECODED {
+        @Override
+        public long measure(final FetchedPage page) throws IOException {
+            return page.getDecodedByteCount();
+        }
+    };
+
+    /**
+     * Measure a page.
+     *
+     * @param page the fetched page
+     * @return the size in bytes
+     * @throws IOException if the page cannot be decoded
+     */
+    public abstract long measure(FetchedPage page) throws IOException;
+
+}
@@ -0,0 +1,148 @@
+package com.sainsburys.scraper.service.fetch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.ParseException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.jsoup.HttpStatusException;
+
+import com.sainsburys.scraper.config.ScraperProperties;
+
+/**
+ * Page fetcher backed by a pooled Apache HttpClient. Connections are kept
+ * alive and reused across pages and worker threads, so repeat requests to the
+ * same host skip the TCP and TLS handshakes. A connection is kept no longer
+ * than the server's {@code Keep-Alive} timeout, so a connection the server
+ * has already closed is never reused.
+ */
+public class PooledHttpPageFetcher implements PageFetcher, Closeable {
+
+    /** The shared HTTP client. */
+    private final CloseableHttpClient httpClient;
+
+    /**
+     * Constructor.
+     *
+     * @param settings the fetch settings
+     */
+    public PooledHttpPageFetcher(final ScraperProperties.Fetch settings) {
+        final PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(settings.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(settings.getMaxConnectionsPerHost());
+        connectionManager.setDefaultSocketConfig(SocketConfig.custom().setSoKeepAlive(true).setTcpNoDelay(true)
+                .setSoTimeout(settings.getReadTimeout()).setRcvBufSize(settings.getSocketBufferSize())
+                .setSndBufSize(settings.getSocketBufferSize()).build());
+        connectionManager.setDefaultConnectionConfig(
+                ConnectionConfig.custom().setBufferSize(settings.getSocketBufferSize()).build());
+
+        final RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(settings.getConnectTimeout())
+                .setSocketTimeout(settings.getReadTimeout())
+                .setConnectionRequestTimeout(settings.getConnectionRequestTimeout()).build();
+
+        httpClient = HttpClients.custom().setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy(settings.getIdleTimeout()))
+                .evictIdleConnections(settings.getIdleTimeout(), TimeUnit.MILLISECONDS).evictExpiredConnections()
+                .build();
+    }
+
+    @Override
+    public FetchedPage fetch(final String uri) throws IOException {
+        return fetch(uri, null, null);
+    }
+
+    @Override
+    public FetchedPage fetch(final String uri, final String eTag, final String lastModified) throws IOException {
+        final HttpGet request = new HttpGet(uri);
+        if (eTag != null) {
+            request.setHeader(HttpHeaders.IF_NONE_MATCH, eTag);
+        }
+        if (lastModified != null) {
+            request.setHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+        }
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            final int statusCode = response.getStatusLine().getStatusCode();
+            final HttpEntity entity = response.getEntity();
+            final boolean notModified = statusCode == HttpStatus.SC_NOT_MODIFIED;
+            if (!notModified && (statusCode < HttpStatus.SC_OK || statusCode >= HttpStatus.SC_MULTIPLE_CHOICES)) {
+                // Drain the body so the connection goes back to the pool
+                EntityUtils.consume(entity);
+                throw new HttpStatusException("HTTP error fetching URL", statusCode, uri);
+            }
+            final byte[] body = notModified || entity == null ? new byte[0] : EntityUtils.toByteArray(entity);
+            return new FetchedPage(uri, statusCode, body, getCharset(entity),
+                    getHeader(response, HttpHeaders.ETAG), getHeader(response, HttpHeaders.LAST_MODIFIED));
+        }
+    }
+
+    /**
+     * Keep a connection alive for the time the server's {@code Keep-Alive}
+     * header allows, capped at the idle timeout, or for the idle timeout when
+     * the server gives none.
+     *
+     * @param idleTimeout the time an idle connection is kept alive in milliseconds
+     * @return the keep alive strategy
+     */
+    static ConnectionKeepAliveStrategy keepAliveStrategy(final long idleTimeout) {
+        return (response, context) -> {
+            final long serverTimeout = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response,
+                    context);
+            return serverTimeout > 0 ? Math.min(serverTimeout, idleTimeout) : idleTimeout;
+        };
+    }
+
+    /**
+     * Get the value of a response header.
+     *
+     * @param response the response
+     * @param name the header name
+     * @return the header value, or null if not present
+     */
+    private static String getHeader(final HttpResponse response, final String name) {
+        final Header header = response.getFirstHeader(name);
+        return header == null ? null : header.getValue();
+    }
+
+    /**
+     * Get the charset declared in the content type.
+     *
+     * @param entity the response entity
+     * @return the charset name, or null if none was declared
+     */
+    private static String getCharset(final HttpEntity entity) {
+        try {
+            final ContentType contentType = entity == null ? null : ContentType.get(entity);
+            final Charset charset = contentType == null ? null : contentType.getCharset();
+            return charset == null ? null : charset.name();
+        } catch (final ParseException | UnsupportedCharsetException e) {
+            // Fall back to detecting it from the page
+            return null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        httpClient.close();
+    }
+
+}
@@ -0,0 +1,138 @@
+package com.sainsburys.scraper.service.fetch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongUnaryOperator;
+
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.jsoup.HttpStatusException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sainsburys.scraper.config.ScraperProperties;
+import com.sainsburys.scraper.metrics.ScraperMetrics;
+
+/**
+ * Page fetcher retrying a fetch that failed for a reason that may pass: a
+ * timeout, a refused or dropped connection, a 429 or a 5xx. Retries back off
+ * exponentially with full jitter, waiting a random time up to the backoff, so
+ * the workers retrying a struggling host do not all return at once.
+ */
+public class RetryingPageFetcher implements PageFetcher, Closeable {
+
+    /** The logger. */
+    private static Logger LOGGER = LoggerFactory.getLogger(RetryingPageFetcher.class);
+
+    /** Too Many Requests. */
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    /** The lowest server error status. */
+    private static final int SERVER_ERROR = 500;
+
+    /** The fetcher to retry. */
+    private final PageFetcher delegate;
+
+    /** The retry settings. */
+    private final ScraperProperties.Fetch.Retry settings;
+
+    /** The metrics registry. */
+    private final ScraperMetrics metrics;
+
+    /** Picks the wait in milliseconds, given the backoff. */
+    private final LongUnaryOperator jitter;
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the fetcher to retry
+     * @param settings the retry settings
+     * @param metrics the metrics registry
+     */
+    public RetryingPageFetcher(final PageFetcher delegate, final ScraperProperties.Fetch.Retry settings,
+            final ScraperMetrics metrics) {
+        this(delegate, settings, metrics, backoff -> ThreadLocalRandom.current().nextLong(backoff + 1));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param delegate the fetcher to retry
+     * @param settings the retry settings
+     * @param metrics the metrics registry
+     * @param jitter picks the wait in milliseconds, given the backoff
+     */
+    RetryingPageFetcher(final PageFetcher delegate, final ScraperProperties.Fetch.Retry settings,
+            final ScraperMetrics metrics, final LongUnaryOperator jitter) {
+        this.delegate = delegate;
+        this.settings = settings;
+        this.metrics = metrics;
+        this.jitter = jitter;
+    }
+
+    @Override
+    public FetchedPage fetch(final String uri) throws IOException {
+        return fetch(uri, null, null);
+    }
+
+    @Override
+    public FetchedPage fetch(final String uri, final String eTag, final String lastModified) throws IOException {
+        for (int attempt = 1;; attempt++) {
+            try {
+                return eTag == null && lastModified == null ? delegate.fetch(uri)
+                        : delegate.fetch(uri, eTag, lastModified);
+            } catch (final IOException e) {
+                if (attempt >= settings.getMaxAttempts() || !isTransient(e)) {
+                    throw e;
+                }
+                LOGGER.debug("Retrying {} after attempt {} failed", uri, attempt, e);
+                metrics.increment(ScraperMetrics.FETCH_RETRIES);
+                backOff(uri, attempt);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (delegate instanceof Closeable) {
+            ((Closeable) delegate).close();
+        }
+    }
+
+    /**
+     * Wait before the next attempt, a random time up to the initial backoff
+     * doubled for each attempt so far.
+     *
+     * @param uri the page URI
+     * @param attempt the attempts so far
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    private void backOff(final String uri, final int attempt) throws InterruptedIOException {
+        final long backoff = Math.min(settings.getMaxBackoff(),
+                (long) settings.getInitialBackoff() << Math.min(attempt - 1, Integer.SIZE - 2));
+        try {
+            Thread.sleep(jitter.applyAsLong(backoff));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting to retry " + uri);
+        }
+    }
+
+    /**
+     * @param e the failure
+     * @return true if a later attempt may succeed
+     */
+    static boolean isTransient(final IOException e) {
+        if (e instanceof HttpStatusException) {
+            final int status = ((HttpStatusException) e).getStatusCode();
+            return status == TOO_MANY_REQUESTS || status >= SERVER_ERROR;
+        }
+        return e instanceof SocketTimeoutException || e instanceof ConnectTimeoutException
+                || e instanceof SocketException || e instanceof NoHttpResponseException;
+    }
+
+}
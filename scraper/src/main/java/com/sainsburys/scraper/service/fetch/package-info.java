@@ -0,0 +1,4 @@
+/**
+ * Page fetching package.
+ */
+package com.sainsburys.scraper.service.fetch;
\ No newline at end of file
@@ -0,0 +1,152 @@
+package com.sainsburys.scraper.service.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Evaluator;
+
+/**
+ * A CSS selector of {@code tag.class} steps joined by descendant combinators,
+ * compiled once into Jsoup evaluators. {@code Element.select(String)}
+ * re-parses its query on every call, and the Jsoup query parser is not public.
+ * <p>
+ * The parsed steps are also available to match against elements that are not
+ * in a Jsoup tree, such as the open elements of a streamed page.
+ */
+public final class CompiledSelector extends Evaluator {
+
+    /** The CSS selector. */
+    private final String css;
+
+    /** The steps, outermost first. */
+    private final List<Step> steps;
+
+    /**
+     * Constructor.
+     *
+     * @param css the CSS selector
+     * @param steps the steps, outermost first
+     */
+    private CompiledSelector(final String css, final List<Step> steps) {
+        this.css = css;
+        this.steps = steps;
+    }
+
+    /**
+     * Compile a selector.
+     *
+     * @param css the CSS selector
+     * @return the compiled selector
+     * @throws IllegalArgumentException if the selector uses more than tags,
+     * classes and descendant combinators
+     */
+    public static CompiledSelector compile(final String css) {
+        final String[] tokens = css.trim().split("\\s+");
+        final List<Step> steps = new ArrayList<Step>(tokens.length);
+        for (final String token : tokens) {
+            if (!token.matches("[\\w-]*(\\.[\\w-]+)*") || token.isEmpty()) {
+                throw new IllegalArgumentException("Unsupported selector " + css);
+            }
+            final String[] parts = token.split("\\.");
+            steps.add(new Step(parts[0].isEmpty() ? null : parts[0].toLowerCase(Locale.ENGLISH),
+                    Arrays.asList(Arrays.copyOfRange(parts, 1, parts.length))));
+        }
+        return new CompiledSelector(css, Collections.unmodifiableList(steps));
+    }
+
+    /**
+     * @return the steps, outermost first, the last matching the selected
+     * element and each earlier one a further ancestor
+     */
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    @Override
+    public boolean matches(final Element root, final Element element) {
+        int step = steps.size() - 1;
+        if (!steps.get(step).matches(root, element)) {
+            return false;
+        }
+        // Each earlier step must match a further ancestor, below the root
+        Element ancestor = element.parent();
+        for (step--; step >= 0 && ancestor != null && ancestor != root; ancestor = ancestor.parent()) {
+            if (steps.get(step).matches(root, ancestor)) {
+                step--;
+            }
+        }
+        return step < 0;
+    }
+
+    @Override
+    public String toString() {
+        return css;
+    }
+
+    /**
+     * A {@code tag.class} step of the selector.
+     */
+    public static final class Step {
+
+        /** The lower case tag name, or null for any tag. */
+        private final String tag;
+
+        /** The class names. */
+        private final List<String> classes;
+
+        /** The evaluators, all of which must match. */
+        private final Evaluator[] evaluators;
+
+        /**
+         * Constructor.
+         *
+         * @param tag the lower case tag name, or null for any tag
+         * @param classes the class names
+         */
+        private Step(final String tag, final List<String> classes) {
+            this.tag = tag;
+            this.classes = Collections.unmodifiableList(classes);
+            final List<Evaluator> evaluators = new ArrayList<Evaluator>();
+            if (tag != null) {
+                evaluators.add(new Evaluator.Tag(tag));
+            }
+            for (final String className : classes) {
+                evaluators.add(new Evaluator.Class(className));
+            }
+            this.evaluators = evaluators.toArray(new Evaluator[evaluators.size()]);
+        }
+
+        /**
+         * @return the lower case tag name, or null for any tag
+         */
+        public String getTag() {
+            return tag;
+        }
+
+        /**
+         * @return the class names, matched ignoring case
+         */
+        public List<String> getClasses() {
+            return classes;
+        }
+
+        /**
+         * @param root the root of the search
+         * @param element the element
+         * @return true if the element matches every evaluator of the step
+         */
+        private boolean matches(final Element root, final Element element) {
+            for (final Evaluator evaluator : evaluators) {
+                if (!evaluator.matches(root, element)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
@@ -1,22 +1,31 @@
 package com.sainsburys.scraper.service.util;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.text.MessageFormat;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.select.Collector;
 import org.jsoup.select.Elements;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.NodeTraversor;
+import org.jsoup.select.NodeVisitor;
 
 import com.sainsburys.scraper.exception.ParsingFailureException;
 import com.sainsburys.scraper.json.model.ScraperResultModel;
+import com.sainsburys.scraper.service.fetch.FetchedPage;
+import com.sainsburys.scraper.service.fetch.PageSize;
 
 /**
- * Utility class for selecting elements from the page and parsing.
+ * Utility class for selecting elements from the page and parsing. The
+ * selectors and price regex are compiled once, and every field is selected in
+ * a single traversal of the page.
  */
 public final class ElementSelectorUtil {
 
@@ -30,22 +39,37 @@ public final class ElementSelectorUtil {
     private static final String KB_SUFFIX = "kb";
 
     /** String description as constant. */
-    private static final String DESCRIPTION = "Description";
+    public static final String DESCRIPTION = "Description";
 
     /** Price selector regex. */
     private static final String PRICE_REGEX = "\\d\\.\\d+";
 
     /** The product title selector. */
-    private static final String TITLE_SELECTOR = "div.productSummary div.productTitleDescriptionContainer h1";
+    public static final String TITLE_SELECTOR = "div.productSummary div.productTitleDescriptionContainer h1";
 
     /** The product price selector. */
-    private static final String PRICE_SELECTOR = "div.priceTabContainer div.pricing p.pricePerUnit";
+    public static final String PRICE_SELECTOR = "div.priceTabContainer div.pricing p.pricePerUnit";
 
     /** The product description selector. */
-    private static final String DESCRIPTION_SELECTOR = "h3.productDataItemHeader";
+    public static final String DESCRIPTION_SELECTOR = "h3.productDataItemHeader";
 
     /** P CSS selector, for description use. */
-    private static final String P_SELECTOR = "p";
+    public static final String P_SELECTOR = "p";
+
+    /** The compiled price regex. */
+    private static final Pattern PRICE_PATTERN = Pattern.compile(PRICE_REGEX);
+
+    /** The compiled title selector. */
+    private static final Evaluator TITLE_EVALUATOR = CompiledSelector.compile(TITLE_SELECTOR);
+
+    /** The compiled price selector. */
+    private static final Evaluator PRICE_EVALUATOR = CompiledSelector.compile(PRICE_SELECTOR);
+
+    /** The compiled description selector. */
+    private static final Evaluator DESCRIPTION_EVALUATOR = CompiledSelector.compile(DESCRIPTION_SELECTOR);
+
+    /** The compiled P selector. */
+    private static final Evaluator P_EVALUATOR = CompiledSelector.compile(P_SELECTOR);
 
     /**
      * Private constructor.
@@ -54,63 +78,130 @@ public final class ElementSelectorUtil {
     }
 
     /**
-     * Select the title from the elements and set to the model.
+     * Select the title, price and description from the page in one
+     * traversal and set to the model.
      *
      * @param selectedUri the selected URI
      * @param productPage the product page
-     * @param model the model to set onto
+     * @param model the model builder to set onto
+     * @throws ParsingFailureException if there was not a single title, price
+     * or description on the page
+     */
+    public static void setFieldsFromDocument(final String selectedUri, final Document productPage,
+            final ScraperResultModel.Builder model) throws ParsingFailureException {
+        final Elements titles = new Elements();
+        final Elements prices = new Elements();
+        final Elements descriptions = new Elements();
+        new NodeTraversor(new NodeVisitor() {
+
+            @Override
+            public void head(final Node node, final int depth) {
+                if (node instanceof Element) {
+                    final Element element = (Element) node;
+                    if (TITLE_EVALUATOR.matches(productPage, element)) {
+                        titles.add(element);
+                    }
+                    if (PRICE_EVALUATOR.matches(productPage, element)) {
+                        prices.add(element);
+                    }
+                    if (DESCRIPTION_EVALUATOR.matches(productPage, element) && DESCRIPTION.equals(element.text())) {
+                        descriptions.add(element);
+                    }
+                }
+            }
+
+            @Override
+            public void tail(final Node node, final int depth) {
+                // Everything is selected on the way down
+            }
+        }).traverse(productPage);
+
+        setTitle(selectedUri, titles, model);
+        setPrice(selectedUri, prices, model);
+        setDescription(selectedUri, descriptions, model);
+    }
+
+    /**
+     * Set the title to the model.
+     *
+     * @param selectedUri the selected URI
+     * @param elements the title elements
+     * @param model the model builder to set onto
      * @throws ParsingFailureException if there was not a single title on the
      * page
      */
-    public static void setTitleFromElements(final String selectedUri, final Document productPage,
-            final ScraperResultModel model) throws ParsingFailureException {
-        final Elements elements = productPage.select(TITLE_SELECTOR);
+    private static void setTitle(final String selectedUri, final Elements elements,
+            final ScraperResultModel.Builder model) throws ParsingFailureException {
         if (elements.size() != 1) {
             throw new ParsingFailureException(
                     MessageFormat.format("Expected 1 title on page {0} but found {1}", selectedUri, elements.size()));
         }
-        model.setTitle(elements.get(0).text());
+        model.title(elements.get(0).text());
     }
 
     /**
-     * Calculate the size of the page, convert to kilobytes and set to the
+     * Measure the size of the page, convert to kilobytes and set to the
      * model.
      *
-     * @param productPage the product page
-     * @param model the model to set onto
+     * @param page the fetched product page
+     * @param pageSize how the page size is measured
+     * @param model the model builder to set onto
+     * @throws IOException if the page cannot be decoded
      */
-    public static void setSizeFromElements(final Document productPage, final ScraperResultModel model) {
+    public static void setSizeFromPage(final FetchedPage page, final PageSize pageSize,
+            final ScraperResultModel.Builder model) throws IOException {
         // No assets needed, use the size of the page by itself
-        final String sizeInKb = BigDecimal.valueOf(productPage.toString().getBytes().length)
+        setSizeFromByteCount(pageSize.measure(page), model);
+    }
+
+    /**
+     * Convert a page size in bytes to kilobytes and set to the model.
+     *
+     * @param byteCount the size of the page in bytes
+     * @param model the model builder to set onto
+     */
+    public static void setSizeFromByteCount(final long byteCount, final ScraperResultModel.Builder model) {
+        final String sizeInKb = BigDecimal.valueOf(byteCount)
                 .divide(BigDecimal.valueOf(NUMBER_BYTES_IN_KB), SCALE_KB_DP, RoundingMode.HALF_UP).toString();
         final StringBuilder builder = new StringBuilder(sizeInKb);
         builder.append(KB_SUFFIX);
-        model.setSize(builder.toString());
+        model.size(builder.toString());
     }
 
     /**
-     * Select the price from the page and set to the model.
+     * Set the price to the model.
      *
      * @param selectedUri the selected URI
-     * @param productPage the product page
-     * @param model the model to set onto
+     * @param elements the price elements
+     * @param model the model builder to set onto
      * @throws ParsingFailureException if there was not a single price for this
      * product on the page
      */
-    public static void setPriceFromElements(final String selectedUri, final Document productPage,
-            final ScraperResultModel model) throws ParsingFailureException {
-        final Elements elements = productPage.select(PRICE_SELECTOR);
+    private static void setPrice(final String selectedUri, final Elements elements,
+            final ScraperResultModel.Builder model) throws ParsingFailureException {
         if (elements.size() != 1) {
             throw new ParsingFailureException(
                     MessageFormat.format("Expected 1 price on page {0} but found {1}", selectedUri, elements.size()));
         }
+        setPriceFromText(selectedUri, elements.get(0).text(), model);
+    }
 
+    /**
+     * Match the price in the text of the price element and set to the model.
+     *
+     * @param selectedUri the selected URI
+     * @param priceText the text of the price element
+     * @param model the model builder to set onto
+     * @throws ParsingFailureException if there was more than one price in the
+     * text
+     */
+    public static void setPriceFromText(final String selectedUri, final String priceText,
+            final ScraperResultModel.Builder model) throws ParsingFailureException {
         // Match the price string with a regex and set this to the model
-        final Pattern pattern = Pattern.compile(PRICE_REGEX);
-        final Matcher matcher = pattern.matcher(elements.get(0).text());
+        final Matcher matcher = PRICE_PATTERN.matcher(priceText);
         int count = 0;
         while (matcher.find()) {
-            model.setUnitPrice(new BigDecimal(matcher.group()));
+            model.unitPrice(new BigDecimal(matcher.group()));
             if (++count > 1) {
                 throw new ParsingFailureException(
                         MessageFormat.format("Found more than 1 matching price on page {0}", selectedUri));
@@ -119,26 +210,27 @@ public final class ElementSelectorUtil {
     }
 
     /**
-     * Select the description from the page and set to the model.
+     * Set the description to the model, from the paragraphs following the
+     * description header.
      *
      * @param selectedUri the selected URI
-     * @param productPage the product page
-     * @param model the model to set onto
+     * @param descriptions the description headers
+     * @param model the model builder to set onto
      * @throws ParsingFailureException if there was not a description for this
      * product on the page
      */
-    public static void setDescriptionFromElements(final String selectedUri, final Document productPage,
-            final ScraperResultModel model) throws ParsingFailureException {
-        final Elements elements = productPage.select(DESCRIPTION_SELECTOR);
-        final List<Element> descriptions = elements.stream().filter(element -> DESCRIPTION.equals(element.text()))
-                .collect(Collectors.toList());
+    private static void setDescription(final String selectedUri, final List<Element> descriptions,
+            final ScraperResultModel.Builder model) throws ParsingFailureException {
         if (descriptions.size() != 1) {
             throw new ParsingFailureException(MessageFormat.format("Expected 1 description on page {0} but found {1}",
                     selectedUri, descriptions.size()));
         }
         final StringBuilder builder = new StringBuilder();
-        descriptions.get(0).nextElementSibling().select(P_SELECTOR).forEach(element -> builder.append(element.text()));
-        model.setDescription(builder.toString());
+        final Element content = descriptions.get(0).nextElementSibling();
+        if (content != null) {
+            Collector.collect(P_EVALUATOR, content).forEach(element -> builder.append(element.text()));
+        }
+        model.description(builder.toString());
     }
 
 }
@@ -0,0 +1,50 @@
+package com.sainsburys.scraper.service.util;
+
+import java.net.URI;
+import java.util.Locale;
+
+import org.jsoup.nodes.Element;
+
+/**
+ * Utility class for the URIs of the pages scraped.
+ */
+public final class UriUtil {
+
+    /** The link href attribute. */
+    private static final String HREF_ATTRIBUTE = "href";
+
+    /**
+     * Private constructor.
+     */
+    private UriUtil() {
+    }
+
+    /**
+     * Get the host of a URI, lower cased so each host has one name.
+     *
+     * @param uri the URI
+     * @param fallback the value if the URI has no host or is not a URI
+     * @return the host, or the fallback
+     */
+    public static String hostOf(final String uri, final String fallback) {
+        try {
+            final String host = URI.create(uri).getHost();
+            return host == null ? fallback : host.toLowerCase(Locale.ROOT);
+        } catch (final IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * Get the absolute URI a link points to, resolved against the page it is
+     * on, so a page linked from a scrape and from a crawl has one URI.
+     *
+     * @param link the link
+     * @return the absolute URI, or the href as written if it cannot be resolved
+     */
+    public static String hrefOf(final Element link) {
+        final String absolute = link.absUrl(HREF_ATTRIBUTE);
+        return absolute.isEmpty() ? link.attr(HREF_ATTRIBUTE) : absolute;
+    }
+
+}
@@ -0,0 +1,157 @@
+package com.sainsburys.scraper.validation;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
+
+import com.sainsburys.scraper.json.model.ScraperModel;
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+
+/**
+ * Validator for the {@link ScraperModel} and each {@link ScraperResultModel},
+ * checking the {@code @NotNull} and {@code @NotEmpty} constraints declared on
+ * them without reflection. The checks are built once, each a getter and a
+ * test, so validating a product is a handful of calls rather than a bean
+ * validation pass, and can be done as each product is extracted.
+ * <p>
+ * Errors are rejected with the same codes, arguments and messages as bean
+ * validation, so they are reported just as before. As with bean validation,
+ * validating a model does not validate the products in it.
+ */
+public class ScraperModelValidator implements Validator {
+
+    /** The not null code. */
+    private static final String NOT_NULL = "NotNull";
+
+    /** The not null message. */
+    private static final String NOT_NULL_MESSAGE = "may not be null";
+
+    /** The not empty code. */
+    private static final String NOT_EMPTY = "NotEmpty";
+
+    /** The not empty message. */
+    private static final String NOT_EMPTY_MESSAGE = "may not be empty";
+
+    /** The constraints on the model. */
+    private static final List<Constraint<ScraperModel>> MODEL_CONSTRAINTS = Arrays.asList(
+            notNull("results", ScraperModel::getResults),
+            notEmpty("results", ScraperModel::getResults),
+            notNull("total", ScraperModel::getTotal));
+
+    /** The constraints on a product. */
+    private static final List<Constraint<ScraperResultModel>> RESULT_CONSTRAINTS = Arrays.asList(
+            notNull("title", ScraperResultModel::getTitle),
+            notNull("size", ScraperResultModel::getSize),
+            notNull("unitPrice", ScraperResultModel::getUnitPrice),
+            notNull("description", ScraperResultModel::getDescription));
+
+    @Override
+    public boolean supports(final Class<?> clazz) {
+        return ScraperModel.class.equals(clazz) || ScraperResultModel.class.equals(clazz);
+    }
+
+    @Override
+    public void validate(final Object target, final Errors errors) {
+        if (target instanceof ScraperResultModel) {
+            check(RESULT_CONSTRAINTS, (ScraperResultModel) target, errors);
+        } else if (target instanceof ScraperModel) {
+            check(MODEL_CONSTRAINTS, (ScraperModel) target, errors);
+        } else {
+            throw new IllegalArgumentException("Unsupported type to validate " + target);
+        }
+    }
+
+    /**
+     * Check a target against its constraints, rejecting each field that
+     * breaks one.
+     *
+     * @param constraints the constraints
+     * @param target the target
+     * @param errors the errors to reject the fields in
+     * @param <T> the target type
+     */
+    private static <T> void check(final List<Constraint<T>> constraints, final T target, final Errors errors) {
+        for (final Constraint<T> constraint : constraints) {
+            if (!constraint.test.test(constraint.getter.apply(target))) {
+                final String field = constraint.field;
+                // The field name argument bean validation passes
+                final DefaultMessageSourceResolvable argument = new DefaultMessageSourceResolvable(
+                        new String[] { errors.getObjectName() + Errors.NESTED_PATH_SEPARATOR + field, field }, field);
+                errors.rejectValue(field, constraint.code, new Object[] { argument }, constraint.message);
+            }
+        }
+    }
+
+    /**
+     * Create a not null constraint.
+     *
+     * @param field the field name
+     * @param getter the field getter
+     * @param <T> the target type
+     * @return the constraint
+     */
+    private static <T> Constraint<T> notNull(final String field, final Function<T, ?> getter) {
+        return new Constraint<T>(field, getter, value -> value != null, NOT_NULL, NOT_NULL_MESSAGE);
+    }
+
+    /**
+     * Create a not empty constraint, on a collection.
+     *
+     * @param field the field name
+     * @param getter the field getter
+     * @param <T> the target type
+     * @return the constraint
+     */
+    private static <T> Constraint<T> notEmpty(final String field, final Function<T, ? extends Collection<?>> getter) {
+        return new Constraint<T>(field, getter, value -> value != null && !((Collection<?>) value).isEmpty(),
+                NOT_EMPTY, NOT_EMPTY_MESSAGE);
+    }
+
+    /**
+     * A constraint on one field.
+     *
+     * @param <T> the target type
+     */
+    private static final class Constraint<T> {
+
+        /** The field name. */
+        private final String field;
+
+        /** The field getter. */
+        private final Function<T, ?> getter;
+
+        /** The test the field value must pass. */
+        private final Predicate<Object> test;
+
+        /** The error code. */
+        private final String code;
+
+        /** The default message. */
+        private final String message;
+
+        /**
+         * Constructor.
+         *
+         * @param field the field name
+         * @param getter the field getter
+         * @param test the test the field value must pass
+         * @param code the error code
+         * @param message the default message
+         */
+        private Constraint(final String field, final Function<T, ?> getter, final Predicate<Object> test,
+                final String code, final String message) {
+            this.field = field;
+            this.getter = getter;
+            this.test = test;
+            this.code = code;
+            this.message = message;
+        }
+    }
+
+}
@@ -0,0 +1,4 @@
+/**
+ * Validation package for checking the models against their constraints.
+ */
+package com.sainsburys.scraper.validation;
@@ -1,6 +1,7 @@
 package com.sainsburys.scraper;
 
 import java.io.IOException;
+import java.io.PrintStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 
@@ -12,11 +13,13 @@ import org.mockito.InjectMocks;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import com.sainsburys.scraper.ScraperApplication.ConsoleAsker;
+import com.sainsburys.scraper.config.ScraperProperties;
 import com.sainsburys.scraper.controller.ScraperController;
 
 /**
@@ -34,6 +37,12 @@ public class ScraperApplicationTest {
     /** A parseable URI. */
     private static final String VALID_URI = "http://www.sainsburys.co.uk";
 
+    /** Another parseable URI. */
+    private static final String OTHER_VALID_URI = "http://www.sainsburys.co.uk/other";
+
+    /** The price history run. */
+    private static final long RUN = 1000L;
+
     /** An unparseable URI. */
     private static final String INVALID_URI = "http://www.!.co.uk";
 
@@ -41,6 +50,10 @@ public class ScraperApplicationTest {
     @Mock
     private ScraperController controller;
 
+    /** The scraper properties. */
+    @Spy
+    private ScraperProperties properties = new ScraperProperties();
+
     /** Class under test. */
     @InjectMocks
     private ScraperApplication application;
@@ -158,4 +171,46 @@ public class ScraperApplicationTest {
         Mockito.verifyNoMoreInteractions(controller);
     }
 
+    /**
+     * Test when the same valid URI is passed twice then the controller is
+     * only called once.
+     *
+     * @throws URISyntaxException thrown exception
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testArgsMainDuplicateUri() throws URISyntaxException, IOException {
+        // Act
+        application.scrape(new String[] { VALID_URI, VALID_URI });
+
+        // Verify
+        Mockito.verify(controller).scrapeWithUri(new URI(VALID_URI));
+        Mockito.verifyNoMoreInteractions(controller);
+    }
+
+    /**
+     * Test when several valid args are passed through the main method then
+     * each is scraped to its own buffered stream, as part of one price
+     * history run.
+     *
+     * @throws URISyntaxException thrown exception
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testArgsMainSeveralValidUriInParallel() throws URISyntaxException, IOException {
+        // Set up
+        Mockito.when(controller.newRun()).thenReturn(RUN);
+
+        // Act
+        application.scrape(new String[] { VALID_URI, OTHER_VALID_URI, INVALID_URI });
+
+        // Verify
+        Mockito.verify(controller).newRun();
+        Mockito.verify(controller).scrapeWithUri(Matchers.eq(new URI(VALID_URI)), Matchers.any(PrintStream.class),
+                Matchers.eq(RUN));
+        Mockito.verify(controller).scrapeWithUri(Matchers.eq(new URI(OTHER_VALID_URI)),
+                Matchers.any(PrintStream.class), Matchers.eq(RUN));
+        Mockito.verifyNoMoreInteractions(controller);
+    }
+
 }
@@ -0,0 +1,184 @@
+package com.sainsburys.scraper;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.sainsburys.scraper.config.ScraperProperties;
+import com.sainsburys.scraper.json.stream.OutputFormat;
+import com.sainsburys.scraper.service.fetch.PageSize;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Test class for {@link ScraperLauncher}.
+ */
+public class ScraperLauncherTest {
+
+    /** A setting overridden by a system property. */
+    private static final String OUTPUT_FORMAT = "scraper.output.format";
+
+    /** A nested setting overridden by a system property, in relaxed form. */
+    private static final String PAGE_SIZE = "SCRAPER_EXTRACT_PAGE_SIZE";
+
+    /** The listing page path. */
+    private static final String LISTING_PATH = "/list.html";
+
+    /** The listing page, formatted with the site URL and linking to the products. */
+    private static final String LISTING = "<html><body><ul class=\"productLister\">"
+            + "<li><div class=\"productInfo\"><h3><a href=\"%1$s/1.html\">Apricots</a></h3></div></li>"
+            + "<li><div class=\"productInfo\"><h3><a href=\"%1$s/2.html\">Kiwi</a></h3></div></li>"
+            + "</ul></body></html>";
+
+    /** A product page, formatted with the title and price. */
+    private static final String PRODUCT = "<html><body><div class=\"productSummary\">"
+            + "<div class=\"productTitleDescriptionContainer\"><h1>%s</h1></div>"
+            + "<div class=\"priceTabContainer\"><div class=\"pricing\"><p class=\"pricePerUnit\">"
+            + "&pound;%s/unit</p></div></div></div>"
+            + "<h3 class=\"productDataItemHeader\">Description</h3><div class=\"productText\"><p>%1$s</p></div>"
+            + "</body></html>";
+
+    /** The embedded product site, when started. */
+    private HttpServer server;
+
+    /**
+     * Test tear down.
+     */
+    @After
+    public void tearDown() {
+        System.clearProperty(OUTPUT_FORMAT);
+        System.clearProperty(PAGE_SIZE);
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Test the settings are bound from application.properties.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testBindsApplicationProperties() throws IOException {
+        // Act
+        final ScraperProperties properties = ScraperLauncher.bindProperties(ScraperLauncher.environment());
+
+        // Assert
+        assertThat(properties.getWorkers(), equalTo(8));
+        assertThat(properties.getFetch().getMaxConnectionsPerHost(), equalTo(16));
+        assertThat(properties.getOutput().getFormat(), equalTo(OutputFormat.JSON));
+    }
+
+    /**
+     * Test system properties override application.properties, with relaxed
+     * names and enum values.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testSystemPropertiesOverride() throws IOException {
+        // Set up
+        System.setProperty(OUTPUT_FORMAT, "ndjson");
+        System.setProperty(PAGE_SIZE, "decoded");
+
+        // Act
+        final ScraperProperties properties = ScraperLauncher.bindProperties(ScraperLauncher.environment());
+
+        // Assert
+        assertThat(properties.getOutput().getFormat(), equalTo(OutputFormat.NDJSON));
+        assertThat(properties.getExtract().getPageSize(), equalTo(PageSize.DECODED));
+    }
+
+    /**
+     * Test the application wired by the launcher prints exactly the same
+     * output as the one started by Spring, scraping the same listing.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testSameOutputAsSpring() throws IOException {
+        // Set up
+        final String listing = startSite();
+        final String springOutput;
+        try (final ConfigurableApplicationContext context = SpringApplication.run(ScraperApplication.class)) {
+            springOutput = scrapeToString(context.getBean(ScraperApplication.class), listing);
+        }
+
+        // Act
+        final String launcherOutput;
+        try (final ScraperLauncher launcher = new ScraperLauncher(
+                ScraperLauncher.bindProperties(ScraperLauncher.environment()))) {
+            launcherOutput = scrapeToString(launcher.getApplication(), listing);
+        }
+
+        // Assert
+        assertThat(springOutput, containsString("\"title\" : \"Kiwi\""));
+        assertThat(launcherOutput, equalTo(springOutput));
+    }
+
+    /**
+     * Start the embedded product site, serving a listing of two products.
+     *
+     * @return the listing URL
+     * @throws IOException thrown exception
+     */
+    private String startSite() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        final String site = "http://localhost:" + server.getAddress().getPort();
+        serve(LISTING_PATH, String.format(LISTING, site));
+        serve("/1.html", String.format(PRODUCT, "Apricots", "3.50"));
+        serve("/2.html", String.format(PRODUCT, "Kiwi", "1.80"));
+        server.start();
+        return site + LISTING_PATH;
+    }
+
+    /**
+     * Serve a page from the embedded site.
+     *
+     * @param path the page path
+     * @param html the page
+     */
+    private void serve(final String path, final String html) {
+        final byte[] body = html.getBytes(StandardCharsets.UTF_8);
+        server.createContext(path, exchange -> {
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+    }
+
+    /**
+     * Scrape a URL, capturing what is printed to the console.
+     *
+     * @param application the application
+     * @param url the URL
+     * @return the console output
+     * @throws IOException thrown exception
+     */
+    private static String scrapeToString(final ScraperApplication application, final String url)
+            throws IOException {
+        final PrintStream console = System.out;
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out, true, StandardCharsets.UTF_8.name()));
+        try {
+            application.scrape(new String[] { url });
+        } finally {
+            System.setOut(console);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}
@@ -1,8 +1,17 @@
 package com.sainsburys.scraper.controller;
 
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -10,7 +19,9 @@ import org.mockito.InjectMocks;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.powermock.reflect.Whitebox;
 import org.springframework.validation.BeanPropertyBindingResult;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.Errors;
@@ -19,8 +30,13 @@ import org.springframework.validation.Validator;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sainsburys.scraper.config.ScraperProperties;
 import com.sainsburys.scraper.exception.ParsingFailureException;
+import com.sainsburys.scraper.history.PriceHistoryWriter;
 import com.sainsburys.scraper.json.model.ScraperModel;
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+import com.sainsburys.scraper.metrics.ScraperMetrics;
+import com.sainsburys.scraper.service.api.ProductListener;
 import com.sainsburys.scraper.service.api.ScraperService;
 
 /**
@@ -44,6 +60,18 @@ public class ScraperControllerTest {
     @Mock
     private Validator validator;
 
+    /** The scraper settings. */
+    @Spy
+    private ScraperProperties properties;
+
+    /** The metrics registry. */
+    @Spy
+    private ScraperMetrics metrics;
+
+    /** The price history, disabled. */
+    @Spy
+    private PriceHistoryWriter priceHistory;
+
     /** Class under test. */
     @InjectMocks
     private ScraperController controller;
@@ -58,7 +86,7 @@ public class ScraperControllerTest {
     @Test
     public void testScrapeAllValid() throws IOException, ParsingFailureException, URISyntaxException {
         // Set up
-        final ScraperModel scraperModel = new ScraperModel();
+        final ScraperModel scraperModel = ScraperModel.builder().build();
         final URI uri = new URI(URI);
         Mockito.when(scraperService.getScraperModelFromUri(uri)).thenReturn(scraperModel);
 
@@ -82,7 +110,7 @@ public class ScraperControllerTest {
     @Test
     public void testScrapeInvalidModelStillPrints() throws IOException, ParsingFailureException, URISyntaxException {
         // Set up
-        final ScraperModel scraperModel = new ScraperModel();
+        final ScraperModel scraperModel = ScraperModel.builder().build();
         final URI uri = new URI(URI);
         Mockito.when(scraperService.getScraperModelFromUri(uri)).thenReturn(scraperModel);
         Mockito.doAnswer(invocation -> {
@@ -135,7 +163,7 @@ public class ScraperControllerTest {
     public void testMapperThrowsJsonExceptionAndIsCaught()
             throws IOException, ParsingFailureException, URISyntaxException {
         // Set up
-        final ScraperModel scraperModel = new ScraperModel();
+        final ScraperModel scraperModel = ScraperModel.builder().build();
         final URI uri = new URI(URI);
         Mockito.when(scraperService.getScraperModelFromUri(uri)).thenReturn(scraperModel);
         Mockito.doThrow(JsonProcessingException.class).when(mapper).writeValueAsString(scraperModel);
@@ -172,4 +200,79 @@ public class ScraperControllerTest {
         Mockito.verify(scraperService).getScraperModelFromUri(uri);
         Mockito.verifyNoMoreInteractions(scraperService, validator, mapper);
     }
+
+    /**
+     * Test that in streaming mode each product is written as it is handed
+     * over, followed by the total. The products are validated by the service
+     * as they are extracted, not again here.
+     *
+     * @throws IOException thrown exception
+     * @throws ParsingFailureException thrown exception
+     * @throws URISyntaxException thrown exception
+     */
+    @Test
+    public void testStreamingWritesEachProduct() throws IOException, ParsingFailureException, URISyntaxException {
+        // Set up
+        final ObjectMapper realMapper = new ObjectMapper();
+        Whitebox.setInternalState(controller, "mapper", realMapper);
+        properties.getOutput().setStreaming(true);
+        final URI uri = new URI(URI);
+        final ScraperResultModel result = ScraperResultModel.builder().title(URI).unitPrice(BigDecimal.ONE).build();
+        Mockito.when(scraperService.scrapeProductsFromUri(Matchers.eq(uri), Matchers.any(ProductListener.class)))
+                .thenAnswer(invocation -> {
+                    ((ProductListener) invocation.getArguments()[1]).onProduct(0, URI, result);
+                    return BigDecimal.ONE;
+                });
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        controller.scrapeWithUri(uri, new PrintStream(out, true));
+
+        // Verify
+        final ScraperModel scraperModel = ScraperModel.builder().results(Collections.singletonList(result))
+                .total(BigDecimal.ONE).build();
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8),
+                equalTo(realMapper.writeValueAsString(scraperModel) + System.lineSeparator()));
+        Mockito.verifyZeroInteractions(validator);
+        Mockito.verify(scraperService, Mockito.never()).getScraperModelFromUri(uri);
+    }
+
+    /**
+     * Test that in streaming mode a scrape failing part way leaves the JSON
+     * incomplete, rather than closed as if every product had been written.
+     *
+     * @throws IOException thrown exception
+     * @throws ParsingFailureException thrown exception
+     * @throws URISyntaxException thrown exception
+     */
+    @Test
+    public void testStreamingFailureLeavesJsonIncomplete()
+            throws IOException, ParsingFailureException, URISyntaxException {
+        // Set up
+        final ObjectMapper realMapper = new ObjectMapper();
+        Whitebox.setInternalState(controller, "mapper", realMapper);
+        properties.getOutput().setStreaming(true);
+        final URI uri = new URI(URI);
+        final ScraperResultModel result = ScraperResultModel.builder().title(URI).unitPrice(BigDecimal.ONE).build();
+        Mockito.when(scraperService.scrapeProductsFromUri(Matchers.eq(uri), Matchers.any(ProductListener.class)))
+                .thenAnswer(invocation -> {
+                    ((ProductListener) invocation.getArguments()[1]).onProduct(0, URI, result);
+                    throw new IOException(URI);
+                });
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        controller.scrapeWithUri(uri, new PrintStream(out, true));
+
+        // Verify
+        final String json = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        assertThat(json, equalTo("{\"results\":[" + realMapper.writeValueAsString(result)));
+        try {
+            realMapper.readTree(json);
+            fail("Expected the incomplete JSON not to parse");
+        } catch (final JsonProcessingException e) {
+            // The document is incomplete
+        }
+    }
+
 }
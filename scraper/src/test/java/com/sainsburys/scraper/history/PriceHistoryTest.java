@@ -0,0 +1,278 @@
+package com.sainsburys.scraper.history;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import com.sainsburys.scraper.json.model.ScraperModel;
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+
+/**
+ * Test class for {@link PriceHistoryWriter} and {@link PriceHistoryReader}.
+ */
+public class PriceHistoryTest {
+
+    /** A product. */
+    private static final String APRICOTS = "Apricots";
+
+    /** Another product. */
+    private static final String KIWI = "Kiwi";
+
+    /** A third product. */
+    private static final String PEARS = "Pears";
+
+    /** The first run timestamp. */
+    private static final long FIRST_RUN = 1000L;
+
+    /** The second run timestamp. */
+    private static final long SECOND_RUN = 2000L;
+
+    /** The folder the log is kept in. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** The clock runs are timestamped with. */
+    private final Clock clock = Mockito.mock(Clock.class);
+
+    /** The log file. */
+    private Path file;
+
+    /**
+     * Test setup.
+     */
+    @Before
+    public void setUp() {
+        file = folder.getRoot().toPath().resolve("prices.log");
+    }
+
+    /**
+     * Test a product's price series is read back across runs, across several
+     * mapped segments.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testSeries() throws IOException {
+        // Set up
+        writeRun(FIRST_RUN, product(APRICOTS, "1.50", "35.43kb"), product(KIWI, "0.50", "10.00kb"));
+        writeRun(SECOND_RUN, product(KIWI, "0.45", "10.00kb"), product(APRICOTS, "1.75", "35.50kb"));
+
+        // Act
+        try (PriceHistoryReader reader = new PriceHistoryReader(file, 3)) {
+            final List<PricePoint> series = reader.series(APRICOTS);
+
+            // Assert
+            assertThat(reader.size(), equalTo(4L));
+            assertThat(reader.getRuns(), contains(FIRST_RUN, SECOND_RUN));
+            assertThat(reader.getProducts(), contains(APRICOTS, KIWI));
+            assertThat(series, hasSize(2));
+            assertThat(series.get(0).getRun(), equalTo(FIRST_RUN));
+            assertThat(series.get(0).getUnitPrice(), equalTo(new BigDecimal("1.50")));
+            assertThat(series.get(0).getSize(), equalTo("35.43kb"));
+            assertThat(series.get(1).getRun(), equalTo(SECOND_RUN));
+            assertThat(series.get(1).getUnitPrice(), equalTo(new BigDecimal("1.75")));
+            assertThat(reader.series(PEARS), hasSize(0));
+        }
+    }
+
+    /**
+     * Test the changes between two runs hold the changed, added and removed
+     * products but not the unchanged ones.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testChanges() throws IOException {
+        // Set up
+        writeRun(FIRST_RUN, product(APRICOTS, "1.50", "35.43kb"), product(KIWI, "0.50", "10.00kb"));
+        writeRun(SECOND_RUN, product(APRICOTS, "1.50", "35.43kb"), product(PEARS, "2.00", "12.00kb"));
+
+        // Act
+        try (PriceHistoryReader reader = new PriceHistoryReader(file)) {
+            final List<PriceChange> changes = reader.changes(FIRST_RUN, SECOND_RUN);
+
+            // Assert
+            assertThat(changes.stream().map(PriceChange::getProduct).collect(Collectors.toList()),
+                    contains(KIWI, PEARS));
+            assertThat(changes.get(0).getBefore().getUnitPrice(), equalTo(new BigDecimal("0.50")));
+            assertThat(changes.get(0).getAfter(), nullValue());
+            assertThat(changes.get(1).getBefore(), nullValue());
+            assertThat(changes.get(1).getAfter().getUnitPrice(), equalTo(new BigDecimal("2.00")));
+        }
+    }
+
+    /**
+     * Test a record left part written is cut off, by the reader and when the
+     * log is next opened to append.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testPartRecordCutOff() throws IOException {
+        // Set up
+        writeRun(FIRST_RUN, product(APRICOTS, "1.50", "35.43kb"));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] { 1, 2, 3 }));
+        }
+        try (PriceHistoryReader reader = new PriceHistoryReader(file)) {
+            assertThat(reader.size(), equalTo(1L));
+        }
+
+        // Act
+        writeRun(SECOND_RUN, product(APRICOTS, "1.60", "35.43kb"));
+
+        // Assert
+        try (PriceHistoryReader reader = new PriceHistoryReader(file)) {
+            assertThat(reader.getRuns(), contains(FIRST_RUN, SECOND_RUN));
+            assertThat(reader.series(APRICOTS).get(1).getUnitPrice(), equalTo(new BigDecimal("1.60")));
+        }
+    }
+
+    /**
+     * Test a run never reuses the timestamp of an earlier run, even when the
+     * clock has gone back.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testRunsAreUnique() throws IOException {
+        // Set up
+        writeRun(SECOND_RUN, product(APRICOTS, "1.50", "35.43kb"));
+        Mockito.when(clock.millis()).thenReturn(FIRST_RUN);
+
+        // Act
+        try (PriceHistoryWriter writer = new PriceHistoryWriter(file, clock)) {
+
+            // Assert
+            assertThat(writer.newBatch().getRun(), equalTo(SECOND_RUN + 1));
+        }
+    }
+
+    /**
+     * Test each batch appended through one writer is recorded as a run of
+     * its own, even when started in the same millisecond, so the scrapes of
+     * one process can be compared.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testEachBatchIsARun() throws IOException {
+        // Set up
+        Mockito.when(clock.millis()).thenReturn(FIRST_RUN);
+        try (PriceHistoryWriter writer = new PriceHistoryWriter(file, clock)) {
+            final PriceHistoryWriter.Batch first = writer.newBatch();
+            first.add(product(APRICOTS, "1.50", "35.43kb"));
+            final PriceHistoryWriter.Batch second = writer.newBatch();
+            second.add(product(APRICOTS, "1.60", "35.43kb"));
+
+            // Act
+            writer.append(first);
+            writer.append(second);
+        }
+
+        // Assert
+        try (PriceHistoryReader reader = new PriceHistoryReader(file)) {
+            assertThat(reader.getRuns(), contains(FIRST_RUN, FIRST_RUN + 1));
+            final List<PriceChange> changes = reader.changes(FIRST_RUN, FIRST_RUN + 1);
+            assertThat(changes, hasSize(1));
+            assertThat(changes.get(0).getAfter().getUnitPrice(), equalTo(new BigDecimal("1.60")));
+        }
+    }
+
+    /**
+     * Test batches of one run, such as the categories of one scrape, are
+     * recorded as a single run, so it can be compared with a later run.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testBatchesOfOneRun() throws IOException {
+        // Set up
+        writeRun(FIRST_RUN, product(APRICOTS, "1.50", "35.43kb"), product(KIWI, "0.50", "10.00kb"));
+        Mockito.when(clock.millis()).thenReturn(SECOND_RUN);
+        try (PriceHistoryWriter writer = new PriceHistoryWriter(file, clock)) {
+            final long run = writer.newRun();
+            final PriceHistoryWriter.Batch fruit = writer.newBatch(run);
+            fruit.add(product(APRICOTS, "1.50", "35.43kb"));
+            final PriceHistoryWriter.Batch moreFruit = writer.newBatch(run);
+            moreFruit.add(product(KIWI, "0.55", "10.00kb"));
+
+            // Act
+            writer.append(fruit);
+            writer.append(moreFruit);
+        }
+
+        // Assert
+        try (PriceHistoryReader reader = new PriceHistoryReader(file)) {
+            assertThat(reader.getRuns(), contains(FIRST_RUN, SECOND_RUN));
+            final List<PriceChange> changes = reader.changes(FIRST_RUN, SECOND_RUN);
+            assertThat(changes, hasSize(1));
+            assertThat(changes.get(0).getProduct(), equalTo(KIWI));
+        }
+    }
+
+    /**
+     * Test a file that is not a price history log is refused.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test(expected = IOException.class)
+    public void testNotALog() throws IOException {
+        // Set up
+        Files.write(file, "not a log".getBytes());
+
+        // Act
+        new PriceHistoryReader(file).close();
+    }
+
+    /**
+     * Write a run to the log.
+     *
+     * @param run the run timestamp
+     * @param results the products
+     * @throws IOException thrown exception
+     */
+    private void writeRun(final long run, final ScraperResultModel... results) throws IOException {
+        Mockito.when(clock.millis()).thenReturn(run);
+        final ScraperModel model = ScraperModel.builder()
+                .results(new ArrayList<ScraperResultModel>(Arrays.asList(results))).build();
+        try (PriceHistoryWriter writer = new PriceHistoryWriter(file, clock)) {
+            writer.append(model);
+        }
+    }
+
+    /**
+     * Create a product.
+     *
+     * @param title the title
+     * @param price the unit price
+     * @param size the size
+     * @return the product
+     */
+    private static ScraperResultModel product(final String title, final String price, final String size) {
+        return ScraperResultModel.builder().title(title).unitPrice(new BigDecimal(price))
+                .size(size).build();
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.sainsburys.scraper.json.model;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Test class for {@link ScraperModel} and {@link ScraperResultModel}.
+ */
+public class ScraperModelTest {
+
+    /** The JSON mapper. */
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Test products with the same fields are equal and collapse in a set.
+     */
+    @Test
+    public void testEqualProductsDedup() {
+        // Set up
+        final Set<ScraperResultModel> products = new HashSet<ScraperResultModel>();
+
+        // Act
+        products.add(product("First", "1.50"));
+        products.add(product("First", "1.50"));
+        products.add(product("Second", "1.50"));
+
+        // Assert
+        assertThat(product("First", "1.50"), equalTo(product("First", "1.50")));
+        assertThat(product("First", "1.50").hashCode(), equalTo(product("First", "1.50").hashCode()));
+        assertThat(product("First", "1.50"), not(equalTo(product("First", "1.5"))));
+        assertThat(products.size(), equalTo(2));
+    }
+
+    /**
+     * Test a product copied to a builder and changed leaves the original as
+     * it was.
+     */
+    @Test
+    public void testToBuilder() {
+        // Set up
+        final ScraperResultModel product = product("First", "1.50");
+
+        // Act
+        final ScraperResultModel succeeded = product.toBuilder().status(ScraperResultModel.Status.SUCCESS).build();
+
+        // Assert
+        assertThat(succeeded, not(equalTo(product)));
+        assertThat(succeeded.getTitle(), equalTo(product.getTitle()));
+        assertThat(product.getStatus(), equalTo(null));
+    }
+
+    /**
+     * Test models with equal products are equal, and changing the list built
+     * from does not change the model.
+     */
+    @Test
+    public void testModelEqualAndUnchanged() {
+        // Set up
+        final List<ScraperResultModel> results = new ArrayList<ScraperResultModel>(
+                Arrays.asList(product("First", "1.50")));
+
+        // Act
+        final ScraperModel model = ScraperModel.builder().results(results).total(new BigDecimal("1.50")).build();
+        results.add(product("Second", "2.25"));
+
+        // Assert
+        assertThat(model, equalTo(ScraperModel.builder().results(Arrays.asList(product("First", "1.50")))
+                .total(new BigDecimal("1.50")).build()));
+        assertThat(model.getResults().size(), equalTo(1));
+    }
+
+    /**
+     * Test the model reads back from its JSON as an equal model, failures
+     * included.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testJsonRoundTrip() throws IOException {
+        // Set up
+        final ScraperModel model = ScraperModel.builder()
+                .results(Arrays.asList(product("First", "1.50").toBuilder()
+                        .status(ScraperResultModel.Status.SUCCESS).build()))
+                .total(new BigDecimal("1.50"))
+                .failures(Arrays.asList(ScraperResultModel.builder().status(ScraperResultModel.Status.ERROR)
+                        .url("http://example.com/p2").error("HTTP status 500").build()))
+                .build();
+
+        // Act
+        final String json = mapper.writeValueAsString(model);
+        final ScraperModel read = mapper.readValue(json, ScraperModel.class);
+
+        // Assert
+        assertThat(json, equalTo("{\"results\":[{\"title\":\"First\",\"size\":\"1kb\",\"unit_price\":1.50,"
+                + "\"description\":\"desc\",\"status\":\"success\"}],\"total\":1.50,\"failures\":[{\"title\":null,"
+                + "\"size\":null,\"unit_price\":null,\"description\":null,\"status\":\"error\","
+                + "\"url\":\"http://example.com/p2\",\"error\":\"HTTP status 500\"}]}"));
+        assertThat(read, equalTo(model));
+    }
+
+    /**
+     * Test a product missing a field is still written with the field, as
+     * null, and without a status, URL or error outside partial results.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testNullFieldWritten() throws IOException {
+        // Set up
+        final ScraperResultModel product = ScraperResultModel.builder().title("First").size("1kb")
+                .unitPrice(new BigDecimal("1.50")).build();
+
+        // Act
+        final String json = mapper.writeValueAsString(product);
+
+        // Assert
+        assertThat(json, equalTo("{\"title\":\"First\",\"size\":\"1kb\",\"unit_price\":1.50,"
+                + "\"description\":null}"));
+    }
+
+    /**
+     * Create a product.
+     *
+     * @param title the title
+     * @param price the unit price
+     * @return the product
+     */
+    private static ScraperResultModel product(final String title, final String price) {
+        return ScraperResultModel.builder().title(title).size("1kb").unitPrice(new BigDecimal(price))
+                .description("desc").build();
+    }
+
+}
@@ -0,0 +1,174 @@
+package com.sainsburys.scraper.json.stream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.sainsburys.scraper.json.model.ScraperModel;
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+
+/**
+ * Test class for {@link OutputFormat} and the writers it opens.
+ */
+public class OutputFormatTest {
+
+    /** The JSON mapper, configured as the application does. */
+    private ObjectMapper mapper;
+
+    /** The stream written to. */
+    private ByteArrayOutputStream out;
+
+    /** The model written. */
+    private ScraperModel model;
+
+    /**
+     * Test setup.
+     */
+    @Before
+    public void setUp() {
+        mapper = new ObjectMapper();
+        mapper.configure(SerializationFeature.INDENT_OUTPUT, true);
+        out = new ByteArrayOutputStream();
+        model = ScraperModel.builder()
+                .results(Arrays.asList(product("First", "1.50"), product("Second, \"quoted\"", "2.25")))
+                .total(new BigDecimal("3.75")).build();
+    }
+
+    /**
+     * Test compact JSON is the model without whitespace.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testCompact() throws IOException {
+        // Act
+        write(OutputFormat.COMPACT);
+
+        // Assert
+        assertThat(text(), equalTo(new ObjectMapper().writeValueAsString(model) + System.lineSeparator()));
+    }
+
+    /**
+     * Test NDJSON is a line per product then a line with the total.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testNdjson() throws IOException {
+        // Act
+        write(OutputFormat.NDJSON);
+
+        // Assert
+        final String[] lines = text().split("\n");
+        assertThat(lines.length, equalTo(3));
+        assertThat(new ObjectMapper().readValue(lines[1], ScraperResultModel.class),
+                equalTo(model.getResults().get(1)));
+        assertThat(lines[2], equalTo("{\"total\":3.75}"));
+    }
+
+    /**
+     * Test CSV is a header row then a row per product, quoted where needed.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testCsv() throws IOException {
+        // Act
+        write(OutputFormat.CSV);
+
+        // Assert
+        final String[] lines = text().split("\n");
+        assertThat(lines.length, equalTo(3));
+        assertThat(lines[0], equalTo("title,size,unit_price,description,status,url,error"));
+        assertThat(lines[2], equalTo("\"Second, \"\"quoted\"\"\",1kb,2.25,desc,,,"));
+    }
+
+    /**
+     * Test streamed CSV matches CSV written from the whole model.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testCsvStreamedMatchesWholeModel() throws IOException {
+        // Set up
+        write(OutputFormat.CSV);
+        final String whole = text();
+        out.reset();
+
+        // Act
+        try (final ScraperOutputWriter writer = OutputFormat.CSV.open(mapper, out)) {
+            final OrderedResultWriter resultWriter = new OrderedResultWriter(writer);
+            resultWriter.onProduct(1, "2.html", model.getResults().get(1));
+            resultWriter.onProduct(0, "1.html", model.getResults().get(0));
+            writer.writeTotal(model.getTotal());
+        }
+
+        // Assert
+        assertThat(text(), equalTo(whole));
+    }
+
+    /**
+     * Test Smile and CBOR read back as the model written.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testBinaryRoundTrip() throws IOException {
+        // Act
+        write(OutputFormat.SMILE);
+        final ScraperModel smile = new ObjectMapper(new SmileFactory()).readValue(out.toByteArray(),
+                ScraperModel.class);
+        out.reset();
+        write(OutputFormat.CBOR);
+        final ScraperModel cbor = new ObjectMapper(new CBORFactory()).readValue(out.toByteArray(),
+                ScraperModel.class);
+
+        // Assert
+        assertThat(smile, equalTo(model));
+        assertThat(cbor, equalTo(model));
+    }
+
+    /**
+     * Write the model in a format.
+     *
+     * @param format the format
+     * @throws IOException thrown exception
+     */
+    private void write(final OutputFormat format) throws IOException {
+        try (final ScraperOutputWriter writer = format.open(mapper, out)) {
+            writer.writeModel(model);
+        }
+    }
+
+    /**
+     * @return the text written
+     */
+    private String text() {
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Create a product.
+     *
+     * @param title the title
+     * @param price the unit price
+     * @return the product
+     */
+    private static ScraperResultModel product(final String title, final String price) {
+        return ScraperResultModel.builder().title(title).size("1kb")
+                .unitPrice(new BigDecimal(price)).description("desc").build();
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.sainsburys.scraper.json.stream;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sainsburys.scraper.json.model.ScraperModel;
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+
+/**
+ * Test class for {@link ScraperModelStreamWriter} and
+ * {@link OrderedResultWriter}.
+ */
+public class ScraperModelStreamWriterTest {
+
+    /** The JSON mapper, configured as the application does. */
+    private ObjectMapper mapper;
+
+    /** The stream written to. */
+    private ByteArrayOutputStream out;
+
+    /**
+     * Test setup.
+     */
+    @Before
+    public void setUp() {
+        mapper = new ObjectMapper();
+        mapper.configure(SerializationFeature.INDENT_OUTPUT, true);
+        out = new ByteArrayOutputStream();
+    }
+
+    /**
+     * Test the streamed document matches the document written in one go.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testStreamedMatchesWholeModel() throws IOException {
+        // Set up
+        final ScraperResultModel first = product("First", "1.50");
+        final ScraperResultModel second = product("Second", "2.25");
+
+        // Act
+        try (final ScraperModelStreamWriter writer = new ScraperModelStreamWriter(mapper, out)) {
+            writer.writeResult(first);
+            writer.writeResult(second);
+            writer.writeTotal(new BigDecimal("3.75"));
+        }
+
+        // Assert
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8),
+                equalTo(expected(new BigDecimal("3.75"), first, second)));
+    }
+
+    /**
+     * Test an empty listing still writes a complete document.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testNoResults() throws IOException {
+        // Act
+        try (final ScraperModelStreamWriter writer = new ScraperModelStreamWriter(mapper, out)) {
+            writer.writeTotal(BigDecimal.ZERO);
+        }
+
+        // Assert
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8), equalTo(expected(BigDecimal.ZERO)));
+    }
+
+    /**
+     * Test results completing out of order are written in listing order.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testOrderedWriterRestoresListingOrder() throws IOException {
+        // Set up
+        final ScraperResultModel first = product("First", "1");
+        final ScraperResultModel second = product("Second", "2");
+        final ScraperResultModel third = product("Third", "3");
+
+        // Act
+        try (final ScraperModelStreamWriter writer = new ScraperModelStreamWriter(mapper, out)) {
+            final OrderedResultWriter resultWriter = new OrderedResultWriter(writer);
+            resultWriter.onProduct(2, "3.html", third);
+            resultWriter.onProduct(0, "1.html", first);
+            resultWriter.onProduct(1, "2.html", second);
+            writer.writeTotal(new BigDecimal("6"));
+        }
+
+        // Assert
+        assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8),
+                equalTo(expected(new BigDecimal("6"), first, second, third)));
+    }
+
+    /**
+     * The document the mapper writes for the whole model.
+     *
+     * @param total the total
+     * @param results the results
+     * @return the expected document
+     * @throws IOException thrown exception
+     */
+    private String expected(final BigDecimal total, final ScraperResultModel... results) throws IOException {
+        final ScraperModel scraperModel = ScraperModel.builder()
+                .results(new ArrayList<ScraperResultModel>(Arrays.asList(results))).total(total).build();
+        return mapper.writeValueAsString(scraperModel) + System.lineSeparator();
+    }
+
+    /**
+     * Create a product.
+     *
+     * @param title the title
+     * @param price the unit price
+     * @return the product
+     */
+    private static ScraperResultModel product(final String title, final String price) {
+        return ScraperResultModel.builder().title(title).size("1kb")
+                .unitPrice(new BigDecimal(price)).description(title + " description").build();
+    }
+
+}
@@ -0,0 +1,93 @@
+package com.sainsburys.scraper.metrics;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Test class for {@link Timer} and {@link ScraperMetrics}.
+ */
+public class TimerTest {
+
+    /** The allowed error of a millisecond value. */
+    private static final double ERROR = 0.0001;
+
+    /**
+     * Test every duration falls in a bucket that holds it, and within a
+     * quarter of the bucket's upper bound.
+     */
+    @Test
+    public void testBucketsHoldTheirDurations() {
+        for (long micros = 0; micros < 1 << 20; micros += 1 + micros / 7) {
+            // Act
+            final int bucket = Timer.bucketOf(micros);
+
+            // Assert
+            assertThat(Timer.upperBoundOf(bucket), greaterThanOrEqualTo(micros));
+            assertThat(Timer.upperBoundOf(bucket), lessThanOrEqualTo(micros + micros / 4));
+            if (bucket > 0) {
+                assertThat(Timer.upperBoundOf(bucket - 1), lessThanOrEqualTo(micros - 1));
+            }
+        }
+        assertThat(Timer.bucketOf(Long.MAX_VALUE) < 4 * (Long.SIZE - 2), equalTo(true));
+    }
+
+    /**
+     * Test the snapshot of a timer.
+     */
+    @Test
+    public void testSnapshot() {
+        // Set up
+        final Timer timer = new Timer();
+        for (int millis = 1; millis <= 100; millis++) {
+            timer.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        // Act
+        final Timer.Snapshot snapshot = timer.snapshot();
+
+        // Assert
+        assertThat(snapshot.getCount(), equalTo(100L));
+        assertThat(snapshot.getTotalMs(), closeTo(5050, ERROR));
+        assertThat(snapshot.getMeanMs(), closeTo(50.5, ERROR));
+        assertThat(snapshot.getMaxMs(), closeTo(100, ERROR));
+        assertThat(snapshot.getP50Ms(), greaterThanOrEqualTo(50.0));
+        assertThat(snapshot.getP50Ms(), lessThanOrEqualTo(50 * 1.25));
+        assertThat(snapshot.getP99Ms(), greaterThanOrEqualTo(99.0));
+        assertThat(snapshot.getP99Ms(), lessThanOrEqualTo(100.0));
+    }
+
+    /**
+     * Test the registry is dumped as JSON, timers and counters by name.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testMetricsAsJson() throws Exception {
+        // Set up
+        final ScraperMetrics metrics = new ScraperMetrics();
+        try (final Timer.Context context = metrics.timer(ScraperMetrics.VALIDATE).time()) {
+            metrics.increment(ScraperMetrics.BYTES_FETCHED, 10);
+        }
+        metrics.increment(ScraperMetrics.BYTES_FETCHED, 5);
+        final ObjectMapper mapper = new ObjectMapper();
+
+        // Act
+        final JsonNode json = mapper.readTree(mapper.writeValueAsString(metrics.snapshot()));
+
+        // Assert
+        assertThat(json.path("timers").path(ScraperMetrics.VALIDATE).path("count").asLong(), equalTo(1L));
+        assertThat(json.path("timers").path(ScraperMetrics.VALIDATE).has("p99_ms"), equalTo(true));
+        assertThat(json.path("counters").path(ScraperMetrics.BYTES_FETCHED).asLong(), equalTo(15L));
+    }
+
+}
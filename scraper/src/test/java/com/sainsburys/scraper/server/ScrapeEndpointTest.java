@@ -0,0 +1,185 @@
+package com.sainsburys.scraper.server;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Matchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.powermock.reflect.Whitebox;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.Validator;
+
+import com.sainsburys.scraper.history.PriceHistoryWriter;
+import com.sainsburys.scraper.json.model.ScraperModel;
+import com.sainsburys.scraper.metrics.ScraperMetrics;
+import com.sainsburys.scraper.service.api.ScraperService;
+
+/**
+ * Test class for {@link ScrapeEndpoint}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ScrapeEndpointTest {
+
+    /** The listing URL. */
+    private static final String URL = "http://localhost/list.html";
+
+    /** The scraper service. */
+    @Mock
+    private ScraperService scraperService;
+
+    /** The bean validator. */
+    @Mock
+    private Validator validator;
+
+    /** The metrics registry. */
+    @Spy
+    private ScraperMetrics metrics;
+
+    /** The price history. */
+    @Mock
+    private PriceHistoryWriter priceHistory;
+
+    /** The request pool, one scrape at a time and one waiting. */
+    private final ThreadPoolExecutor scrapeRequestExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(1));
+
+    /** Class under test. */
+    @InjectMocks
+    private ScrapeEndpoint endpoint;
+
+    /**
+     * Set up the request pool.
+     */
+    @Before
+    public void setUp() {
+        Whitebox.setInternalState(endpoint, "scrapeRequestExecutor", scrapeRequestExecutor);
+    }
+
+    /**
+     * Stop the request pool.
+     */
+    @After
+    public void tearDown() {
+        scrapeRequestExecutor.shutdownNow();
+    }
+
+    /**
+     * Test a scrape returns the model.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testScrape() throws Exception {
+        // Set up
+        final ScraperModel model = ScraperModel.builder().build();
+        Mockito.when(scraperService.getScraperModelFromUri(new URI(URL))).thenReturn(model);
+
+        // Act
+        final ResponseEntity<?> response = endpoint.scrape(URL).get();
+
+        // Assert
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+        assertThat(response.getBody(), sameInstance((Object) model));
+        assertThat(metrics.snapshot().getTimers().get(ScraperMetrics.SERVER_REQUEST).getCount(), equalTo(1L));
+        Mockito.verify(priceHistory).append(model);
+    }
+
+    /**
+     * Test a scrape is still returned when the price history cannot be
+     * written.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testScrapeWhenPriceHistoryFails() throws Exception {
+        // Set up
+        final ScraperModel model = ScraperModel.builder().build();
+        Mockito.when(scraperService.getScraperModelFromUri(new URI(URL))).thenReturn(model);
+        Mockito.doThrow(new IOException("Disk full")).when(priceHistory).append(model);
+
+        // Act
+        final ResponseEntity<?> response = endpoint.scrape(URL).get();
+
+        // Assert
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.OK));
+        assertThat(response.getBody(), sameInstance((Object) model));
+    }
+
+    /**
+     * Test an unreachable site is a bad gateway.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testScrapeUnreachable() throws Exception {
+        // Set up
+        Mockito.when(scraperService.getScraperModelFromUri(Matchers.any(URI.class)))
+                .thenThrow(new IOException("Connection refused"));
+
+        // Act
+        final ResponseEntity<?> response = endpoint.scrape(URL).get();
+
+        // Assert
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.BAD_GATEWAY));
+    }
+
+    /**
+     * Test a malformed URL is a bad request and never scraped.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testScrapeInvalidUrl() throws Exception {
+        // Act
+        final ResponseEntity<?> response = endpoint.scrape("not a url").get();
+
+        // Assert
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.BAD_REQUEST));
+        Mockito.verifyZeroInteractions(scraperService);
+    }
+
+    /**
+     * Test a request is refused at once when the pool and its queue are full.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testScrapeShedsLoad() throws Exception {
+        // Set up
+        final CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(scraperService.getScraperModelFromUri(Matchers.any(URI.class))).thenAnswer(invocation -> {
+            release.await();
+            return ScraperModel.builder().build();
+        });
+        endpoint.scrape(URL);
+        endpoint.scrape(URL);
+
+        // Act
+        final ResponseEntity<?> response = endpoint.scrape(URL).get();
+
+        // Assert
+        assertThat(response.getStatusCode(), equalTo(HttpStatus.SERVICE_UNAVAILABLE));
+        assertThat(response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER), equalTo("1"));
+        assertThat(metrics.snapshot().getCounters().get(ScraperMetrics.SERVER_REJECTED), equalTo(1L));
+        release.countDown();
+    }
+
+}
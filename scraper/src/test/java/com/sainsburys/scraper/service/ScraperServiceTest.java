@@ -1,53 +1,72 @@
 package com.sainsburys.scraper.service;
 
+import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.equalTo;
-import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.Assert.assertThat;
 
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.net.SocketTimeoutException;
 import java.net.URI;
-
-import org.jsoup.Connection;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.jsoup.HttpStatusException;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
-import org.junit.runner.RunWith;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Matchers;
 import org.mockito.Mockito;
-import org.powermock.api.mockito.PowerMockito;
-import org.powermock.core.classloader.annotations.PrepareForTest;
-import org.powermock.modules.junit4.PowerMockRunner;
+import org.springframework.validation.Errors;
+import org.springframework.validation.Validator;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sainsburys.scraper.exception.ParsingFailureException;
 import com.sainsburys.scraper.json.model.ScraperModel;
 import com.sainsburys.scraper.json.model.ScraperResultModel;
+import com.sainsburys.scraper.metrics.ScraperMetrics;
+import com.sainsburys.scraper.service.api.CrawlOptions;
 import com.sainsburys.scraper.service.api.ScraperService;
+import com.sainsburys.scraper.service.cache.FingerprintStore;
+import com.sainsburys.scraper.service.cache.ProductCache;
+import com.sainsburys.scraper.service.extract.DomProductExtractor;
+import com.sainsburys.scraper.service.extract.ProductExtractor;
+import com.sainsburys.scraper.service.fetch.FetchedPage;
+import com.sainsburys.scraper.service.fetch.PageFetcher;
+import com.sainsburys.scraper.service.fetch.PageSize;
 import com.sainsburys.scraper.service.util.ElementSelectorUtil;
 
 /**
- * Scraper service test. Note EclEmma code coverage isn't compatible with
- * PowerMock, see {@link https://github.com/jayway/powermock/issues/422}.
+ * Scraper service test. The pages are real markup served by a mocked
+ * {@link PageFetcher}, so the selectors are exercised as they run against the
+ * site.
  */
-@RunWith(PowerMockRunner.class)
-@PrepareForTest({ Jsoup.class, ElementSelectorUtil.class })
 public class ScraperServiceTest {
 
     /** A default Price. */
     private static final String PRICE = "1.00";
 
-    /** A default price (as {@link BigDecimal}). */
-    private static final BigDecimal BIGDECIMAL_PRICE = BigDecimal.valueOf(1);
-
-    /** A default size. */
-    private static final String SIZE = "10kb";
+    /** A default price as the page shows it. */
+    private static final String PRICE_TEXT = "\u00a31.00/unit";
 
     /** A default description. */
     private static final String DESCRIPTION = "Description";
@@ -67,9 +86,55 @@ public class ScraperServiceTest {
     /** A new URL. */
     private static final String NEW_URL_3 = "newUrl3";
 
+    /** The crawl seed URL. */
+    private static final String CRAWL_SEED = "http://localhost/list.html";
+
+    /** The second page of the crawl seed. */
+    private static final String CRAWL_PAGE_2 = "http://localhost/list.html?page=2";
+
+    /** A sub-category of the crawl seed. */
+    private static final String CRAWL_CATEGORY = "http://localhost/category.html";
+
+    /** A listing on another site. */
+    private static final String OFF_SITE = "http://elsewhere/list.html";
+
+    /** A product found by a crawl. */
+    private static final String CRAWL_PRODUCT_1 = "http://localhost/1.html";
+
+    /** A product found by a crawl. */
+    private static final String CRAWL_PRODUCT_2 = "http://localhost/2.html";
+
+    /** A product found by a crawl. */
+    private static final String CRAWL_PRODUCT_3 = "http://localhost/3.html";
+
+    /** The selector of the links a crawl follows. */
+    private static final String CRAWL_SELECTOR = "ul.pages li.next a, ul.categories li a";
+
+    /** Another listing URL. */
+    private static final String OTHER_URL = "otherUrl";
+
+    /** The number of workers to test with. */
+    private static final int WORKERS = 4;
+
+    /** The OK status. */
+    private static final int SC_OK = 200;
+
+    /** The worker pool. */
+    private ExecutorService executor;
+
+    /** The page fetcher. */
+    private PageFetcher pageFetcher;
+
+    /** The metrics registry. */
+    private ScraperMetrics metrics;
+
     /** Class under test. */
     private ScraperService service;
 
+    /** The folder the fingerprints are kept in. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     /** Expected exception. */
     @Rule
     public ExpectedException thrown = ExpectedException.none();
@@ -79,9 +144,19 @@ public class ScraperServiceTest {
      */
     @Before
     public void setUp() {
-        service = new ScraperServiceProvider();
-        PowerMockito.mockStatic(Jsoup.class);
-        PowerMockito.spy(ElementSelectorUtil.class);
+        executor = Executors.newFixedThreadPool(WORKERS);
+        pageFetcher = Mockito.mock(PageFetcher.class);
+        metrics = new ScraperMetrics();
+        service = new ScraperServiceProvider(executor, pageFetcher, new ProductCache(Duration.ZERO, 0),
+                new DomProductExtractor(PageSize.WIRE, metrics), metrics);
+    }
+
+    /**
+     * Test tear down.
+     */
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
     }
 
     /**
@@ -92,14 +167,8 @@ public class ScraperServiceTest {
     @Test
     public void testReturnModel() throws Exception {
         // Set up
-        initialiseLink(DEFAULT_URL, new String[] { NEW_URL_1 }, false);
-
-        defaultTitle(TITLE);
-        defaultDescription(DESCRIPTION);
-        defaultPrice(BIGDECIMAL_PRICE);
-        defaultSize(SIZE);
-
-        initialiseLink(NEW_URL_1, new String[] {}, true);
+        initialiseListing(DEFAULT_URL, NEW_URL_1);
+        initialiseProduct(NEW_URL_1, TITLE, PRICE_TEXT, DESCRIPTION);
 
         // Act
         final ScraperModel model = service.getScraperModelFromUri(new URI(DEFAULT_URL));
@@ -111,7 +180,6 @@ public class ScraperServiceTest {
         assertThat(resultModel.getTitle(), equalTo(TITLE));
         assertThat(resultModel.getDescription(), equalTo(DESCRIPTION));
         assertThat(resultModel.getUnitPrice().toString(), equalTo(PRICE));
-        assertThat(resultModel.getSize(), equalTo(SIZE));
     }
 
     /**
@@ -122,40 +190,505 @@ public class ScraperServiceTest {
     @Test
     public void testReturnModelWithPricesAdded() throws Exception {
         // Set up
-        initialiseLink(DEFAULT_URL, new String[] { NEW_URL_1, NEW_URL_2, NEW_URL_3 }, false);
+        initialiseListing(DEFAULT_URL, NEW_URL_1, NEW_URL_2, NEW_URL_3);
+        initialiseProduct(NEW_URL_1, TITLE, "abc\u00a31.50bca", DESCRIPTION);
+        initialiseProduct(NEW_URL_2, TITLE, "0.30", DESCRIPTION);
+        initialiseProduct(NEW_URL_3, TITLE, "\u00a3\u00a3\u00a3abc\u00a32.20!", DESCRIPTION);
 
-        defaultTitle(TITLE);
-        defaultDescription(DESCRIPTION);
-        defaultSize(SIZE);
+        // Act
+        final ScraperModel model = service.getScraperModelFromUri(new URI(DEFAULT_URL));
+
+        // Assert
+        assertThat(model.getResults(), hasSize(3));
+        assertThat(model.getTotal().toString(), equalTo("4.00"));
+    }
 
-        initialiseLink(NEW_URL_1, new String[] { "abc1.50bca" }, true);
-        initialiseLink(NEW_URL_2, new String[] { "0.30" }, true);
-        initialiseLink(NEW_URL_3, new String[] { "abc2.20!" }, true);
+    /**
+     * Test that the results keep the order the products were listed in, even
+     * though they are fetched concurrently.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testReturnModelKeepsListingOrder() throws Exception {
+        // Set up
+        initialiseListing(DEFAULT_URL, NEW_URL_1, NEW_URL_2, NEW_URL_3);
+        initialiseProduct(NEW_URL_1, NEW_URL_1, PRICE_TEXT, DESCRIPTION);
+        initialiseProduct(NEW_URL_2, NEW_URL_2, PRICE_TEXT, DESCRIPTION);
+        initialiseProduct(NEW_URL_3, NEW_URL_3, PRICE_TEXT, DESCRIPTION);
 
         // Act
         final ScraperModel model = service.getScraperModelFromUri(new URI(DEFAULT_URL));
 
         // Assert
         assertThat(model.getResults(), hasSize(3));
-        assertThat(model.getTotal().toString(), equalTo("4.00"));
+        assertThat(model.getResults().get(0).getTitle(), equalTo(NEW_URL_1));
+        assertThat(model.getResults().get(1).getTitle(), equalTo(NEW_URL_2));
+        assertThat(model.getResults().get(2).getTitle(), equalTo(NEW_URL_3));
+        assertThat(model.getTotal().toString(), equalTo("3.00"));
     }
 
     /**
-     * Test that title can be parsed from the document tree.
+     * Test the asynchronous variant notifies the listener once per product
+     * with its listing position, and completes with the same model.
      *
      * @throws Exception thrown exception
      */
     @Test
-    public void testReturnModelWithTitle() throws Exception {
+    public void testAsyncNotifiesListenerPerProduct() throws Exception {
+        // Set up
+        initialiseListing(DEFAULT_URL, NEW_URL_1, NEW_URL_2);
+        initialiseProduct(NEW_URL_1, NEW_URL_1, PRICE_TEXT, DESCRIPTION);
+        initialiseProduct(NEW_URL_2, NEW_URL_2, PRICE_TEXT, DESCRIPTION);
+        final Map<Integer, String> notified = new ConcurrentHashMap<Integer, String>();
+
+        // Act
+        final ScraperModel model = service
+                .getScraperModelFromUriAsync(new URI(DEFAULT_URL),
+                        (index, productUri, result) -> notified.put(index, result.getTitle()))
+                .get();
+
+        // Assert
+        assertThat(model.getResults(), hasSize(2));
+        assertThat(model.getTotal().toString(), equalTo("2.00"));
+        assertThat(notified.size(), equalTo(2));
+        assertThat(notified.get(0), equalTo(NEW_URL_1));
+        assertThat(notified.get(1), equalTo(NEW_URL_2));
+    }
+
+    /**
+     * Test scraping without a model hands every product to the listener and
+     * returns only the total.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testScrapeProductsReturnsTotal() throws Exception {
+        // Set up
+        initialiseListing(DEFAULT_URL, NEW_URL_1, NEW_URL_2, NEW_URL_3);
+        initialiseProduct(NEW_URL_1, NEW_URL_1, PRICE_TEXT, DESCRIPTION);
+        initialiseProduct(NEW_URL_2, NEW_URL_2, PRICE_TEXT, DESCRIPTION);
+        initialiseProduct(NEW_URL_3, NEW_URL_3, PRICE_TEXT, DESCRIPTION);
+        final Map<Integer, String> notified = new ConcurrentHashMap<Integer, String>();
+
+        // Act
+        final BigDecimal total = service.scrapeProductsFromUri(new URI(DEFAULT_URL),
+                (index, productUri, result) -> notified.put(index, productUri));
+
+        // Assert
+        assertThat(total.toString(), equalTo("3.00"));
+        assertThat(notified.size(), equalTo(3));
+        assertThat(notified.get(2), equalTo(NEW_URL_3));
+    }
+
+    /**
+     * Test the asynchronous variant completes exceptionally with the parsing
+     * failure rather than throwing to the caller.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testAsyncCompletesExceptionally() throws Exception {
+        // Set up
+        initialiseListing(DEFAULT_URL, NEW_URL_1);
+        initialiseProduct(NEW_URL_1, null, PRICE_TEXT, DESCRIPTION);
+
+        thrown.expect(ExecutionException.class);
+        thrown.expectCause(instanceOf(ParsingFailureException.class));
+
+        // Act
+        service.getScraperModelFromUriAsync(new URI(DEFAULT_URL)).get();
+    }
+
+    /**
+     * Test a partial results scrape keeps the products scraped, lists the
+     * failed pages with their reason and totals only the successes.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testPartialResultsIsolateFailures() throws Exception {
         // Set up
-        initialiseLink(DEFAULT_URL, new String[] { NEW_URL_1 }, false);
+        initialiseListing(DEFAULT_URL, NEW_URL_1, NEW_URL_2, NEW_URL_3);
+        initialiseProduct(NEW_URL_1, NEW_URL_1, PRICE_TEXT, DESCRIPTION);
+        Mockito.when(pageFetcher.fetch(NEW_URL_2)).thenThrow(new HttpStatusException("Not Found", 404, NEW_URL_2));
+        initialiseProduct(NEW_URL_3, null, PRICE_TEXT, DESCRIPTION);
 
-        defaultPrice(BIGDECIMAL_PRICE);
-        defaultDescription(DESCRIPTION);
-        defaultSize(SIZE);
+        // Act
+        final ScraperModel model = service.getPartialScraperModelFromUri(new URI(DEFAULT_URL));
+
+        // Assert
+        assertThat(model.getResults(), hasSize(1));
+        assertThat(model.getResults().get(0).getTitle(), equalTo(NEW_URL_1));
+        assertThat(model.getResults().get(0).getStatus(), equalTo(ScraperResultModel.Status.SUCCESS));
+        assertThat(model.getTotal().toString(), equalTo(PRICE));
+        assertThat(model.getFailures(), hasSize(2));
+        assertThat(model.getFailures().get(0).getUrl(), equalTo(NEW_URL_2));
+        assertThat(model.getFailures().get(0).getError(), equalTo("HTTP status 404"));
+        assertThat(model.getFailures().get(1).getUrl(), equalTo(NEW_URL_3));
+        assertThat(model.getFailures().get(1).getStatus(), equalTo(ScraperResultModel.Status.ERROR));
+        assertThat(model.getFailures().get(1).getError(), containsString(ParsingFailureException.class.getSimpleName()));
+    }
 
+    /**
+     * Test a partial results crawl lists a failed listing page and goes on.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testPartialResultsCrawl() throws Exception {
+        // Set up
+        initialiseCrawlListing(CRAWL_SEED, Arrays.asList(CRAWL_PAGE_2), Arrays.asList(CRAWL_CATEGORY), CRAWL_PRODUCT_1);
+        initialiseCrawlListing(CRAWL_PAGE_2, Collections.<String> emptyList(), Collections.<String> emptyList(),
+                CRAWL_PRODUCT_2);
+        Mockito.when(pageFetcher.fetch(CRAWL_CATEGORY)).thenThrow(new SocketTimeoutException("Read timed out"));
+        initialiseProduct(CRAWL_PRODUCT_1, "1", PRICE_TEXT, DESCRIPTION);
+        initialiseProduct(CRAWL_PRODUCT_2, "2", PRICE_TEXT, DESCRIPTION);
+
+        // Act
+        final ScraperModel model = service.crawlFromUri(new URI(CRAWL_SEED),
+                new CrawlOptions(CRAWL_SELECTOR, 5, 100, true));
+
+        // Assert
+        assertThat(model.getResults().stream().map(ScraperResultModel::getTitle).collect(Collectors.toList()),
+                contains("1", "2"));
+        assertThat(model.getTotal().toString(), equalTo("2.00"));
+        assertThat(model.getFailures(), hasSize(1));
+        assertThat(model.getFailures().get(0).getUrl(), equalTo(CRAWL_CATEGORY));
+        assertThat(model.getFailures().get(0).getError(), equalTo("SocketTimeoutException: Read timed out"));
+    }
+
+    /**
+     * Test the statuses and failures are only written for partial results.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testPartialResultsJsonOnlyWhenAsked() throws Exception {
+        // Set up
+        initialiseListing(DEFAULT_URL, NEW_URL_1);
+        initialiseProduct(NEW_URL_1, TITLE, PRICE_TEXT, DESCRIPTION);
+        final ObjectMapper mapper = new ObjectMapper();
+
+        // Act
+        final String full = mapper.writeValueAsString(service.getScraperModelFromUri(new URI(DEFAULT_URL)));
+        final String partial = mapper.writeValueAsString(service.getPartialScraperModelFromUri(new URI(DEFAULT_URL)));
+
+        // Assert
+        assertThat(full, not(containsString("\"status\"")));
+        assertThat(full, not(containsString("\"failures\"")));
+        assertThat(partial, containsString("\"status\":\"success\""));
+        assertThat(partial, containsString("\"failures\":[]"));
+    }
+
+    /**
+     * Test that a warm re-scrape serves products from the product cache
+     * without fetching them again.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testWarmScrapeUsesProductCache() throws Exception {
+        // Set up
+        final ProductCache productCache = new ProductCache(Duration.ofMinutes(1), 10);
+        service = new ScraperServiceProvider(executor, pageFetcher, productCache,
+                new DomProductExtractor(PageSize.WIRE, metrics), metrics);
+        initialiseListing(DEFAULT_URL, NEW_URL_1);
+        initialiseProduct(NEW_URL_1, TITLE, PRICE_TEXT, DESCRIPTION);
+
+        // Act
+        service.getScraperModelFromUri(new URI(DEFAULT_URL));
+        final ScraperModel model = service.getScraperModelFromUri(new URI(DEFAULT_URL));
+
+        // Assert
+        assertThat(model.getResults(), hasSize(1));
+        assertThat(model.getResults().get(0).getTitle(), equalTo(TITLE));
+        assertThat(model.getTotal().toString(), equalTo(PRICE));
+        Mockito.verify(pageFetcher, Mockito.times(2)).fetch(DEFAULT_URL);
+        Mockito.verify(pageFetcher).fetch(NEW_URL_1);
+        assertThat(productCache.getStats().getHits(), equalTo(1L));
+        assertThat(productCache.getStats().getMisses(), equalTo(1L));
+    }
+
+    /**
+     * Test that a relative product link is resolved against the listing, as
+     * a crawl resolves it, so both fetch and key the product by one URI.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testRelativeProductLinkResolved() throws Exception {
+        // Set up
+        initialiseListing(CRAWL_SEED, "1.html");
+        initialiseProduct(CRAWL_PRODUCT_1, TITLE, PRICE_TEXT, DESCRIPTION);
+
+        // Act
+        final ScraperModel model = service.getScraperModelFromUri(new URI(CRAWL_SEED));
+
+        // Assert
+        assertThat(model.getResults(), hasSize(1));
+        Mockito.verify(pageFetcher).fetch(CRAWL_PRODUCT_1);
+    }
+
+    /**
+     * Test that a product linked under another spelling of its URI is served
+     * from the product cache.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testProductCacheKeyedByCanonicalUri() throws Exception {
+        // Set up
+        final ProductCache productCache = new ProductCache(Duration.ofMinutes(1), 10);
+        service = new ScraperServiceProvider(executor, pageFetcher, productCache,
+                new DomProductExtractor(PageSize.WIRE, metrics), metrics);
+        initialiseListing(CRAWL_SEED, CRAWL_PRODUCT_1);
+        initialiseListing(CRAWL_CATEGORY, "HTTP://LOCALHOST:80/1.html#reviews");
+        initialiseProduct(CRAWL_PRODUCT_1, TITLE, PRICE_TEXT, DESCRIPTION);
+
+        // Act
+        service.getScraperModelFromUri(new URI(CRAWL_SEED));
+        final ScraperModel model = service.getScraperModelFromUri(new URI(CRAWL_CATEGORY));
+
+        // Assert
+        assertThat(model.getResults(), hasSize(1));
+        assertThat(model.getResults().get(0).getTitle(), equalTo(TITLE));
+        Mockito.verify(pageFetcher).fetch(CRAWL_PRODUCT_1);
+        assertThat(productCache.getStats().getHits(), equalTo(1L));
+    }
+
+    /**
+     * Test that concurrent scrapes of overlapping listings fetch a product
+     * they share once, and both get it.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testConcurrentScrapesShareProduct() throws Exception {
+        // Set up
+        initialiseListing(DEFAULT_URL, NEW_URL_1, NEW_URL_2);
+        initialiseListing(OTHER_URL, NEW_URL_2, NEW_URL_3);
+        initialiseProduct(NEW_URL_1, TITLE, PRICE_TEXT, DESCRIPTION);
+        initialiseProduct(NEW_URL_3, TITLE, PRICE_TEXT, DESCRIPTION);
+        final FetchedPage shared = new FetchedPage(NEW_URL_2, SC_OK,
+                initialiseProduct(NEW_URL_2, TITLE, PRICE_TEXT, DESCRIPTION), "UTF-8");
+        // Hold the shared product until the other scrape is waiting on it
+        Mockito.when(pageFetcher.fetch(NEW_URL_2)).thenAnswer(invocation -> {
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (metrics.snapshot().getCounters().get(ScraperMetrics.COALESCED_PRODUCT) == null
+                    && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            return shared;
+        });
+
+        // Act
+        final CompletableFuture<ScraperModel> first = service.getScraperModelFromUriAsync(new URI(DEFAULT_URL));
+        final CompletableFuture<ScraperModel> second = service.getScraperModelFromUriAsync(new URI(OTHER_URL));
+
+        // Assert
+        assertThat(first.get().getResults().get(1), sameInstance(second.get().getResults().get(0)));
+        Mockito.verify(pageFetcher).fetch(NEW_URL_2);
+        assertThat(metrics.snapshot().getCounters().get(ScraperMetrics.COALESCED_PRODUCT), equalTo(1L));
+    }
+
+    /**
+     * Test spellings of the same page share a canonical URI.
+     */
+    @Test
+    public void testCanonicalUri() {
+        assertThat(ScraperServiceProvider.canonical("HTTP://Example.COM:80/a/./b/../c?x=1#top"),
+                equalTo("http://example.com/a/c?x=1"));
+        assertThat(ScraperServiceProvider.canonical("https://example.com"), equalTo("https://example.com/"));
+        assertThat(ScraperServiceProvider.canonical("https://example.com:8443/a"),
+                equalTo("https://example.com:8443/a"));
+        assertThat(ScraperServiceProvider.canonical(DEFAULT_URL), equalTo(DEFAULT_URL));
+    }
+
+    /**
+     * Test a product page unchanged since the last run is not extracted
+     * again, and a changed one is.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testUnchangedProductSkipped() throws Exception {
+        // Set up
+        final FingerprintStore fingerprintStore = new FingerprintStore(
+                folder.getRoot().toPath().resolve("fingerprints.json"), PageSize.WIRE.name());
+        final ProductExtractor extractor = Mockito.spy(new DomProductExtractor(PageSize.WIRE, metrics));
+        service = new ScraperServiceProvider(executor, pageFetcher, new ProductCache(Duration.ZERO, 0), extractor,
+                fingerprintStore, metrics);
+        initialiseListing(DEFAULT_URL, NEW_URL_1, NEW_URL_2);
+        initialiseProduct(NEW_URL_1, TITLE, PRICE_TEXT, DESCRIPTION);
+        initialiseProduct(NEW_URL_2, TITLE, PRICE_TEXT, DESCRIPTION);
+        service.getScraperModelFromUri(new URI(DEFAULT_URL));
+        initialiseProduct(NEW_URL_2, TITLE, "\u00a32.00/unit", DESCRIPTION);
+
+        // Act
+        final ScraperModel model = service.getScraperModelFromUri(new URI(DEFAULT_URL));
+
+        // Assert
+        assertThat(model.getResults().get(0).getTitle(), equalTo(TITLE));
+        assertThat(model.getTotal().toString(), equalTo("3.00"));
+        Mockito.verify(extractor).extract(Matchers.eq(NEW_URL_1), Matchers.any(FetchedPage.class));
+        Mockito.verify(extractor, Mockito.times(2)).extract(Matchers.eq(NEW_URL_2), Matchers.any(FetchedPage.class));
+        assertThat(metrics.snapshot().getCounters().get(ScraperMetrics.FINGERPRINT_UNCHANGED), equalTo(1L));
+        assertThat(metrics.snapshot().getCounters().get(ScraperMetrics.FINGERPRINT_CHANGED), equalTo(3L));
+    }
+
+    /**
+     * Test a crawl follows the next page and sub-category links, visiting
+     * each page once, and keeps the products in listing then link order.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testCrawlFollowsListingLinks() throws Exception {
+        // Set up
+        initialiseCrawlListing(CRAWL_SEED, Arrays.asList(CRAWL_PAGE_2), Arrays.asList(CRAWL_CATEGORY), CRAWL_PRODUCT_1);
+        initialiseCrawlListing(CRAWL_PAGE_2, Arrays.asList(CRAWL_SEED), Arrays.asList(CRAWL_CATEGORY, OFF_SITE),
+                CRAWL_PRODUCT_2, CRAWL_PRODUCT_1);
+        initialiseCrawlListing(CRAWL_CATEGORY, Collections.<String> emptyList(), Collections.<String> emptyList(),
+                CRAWL_PRODUCT_3);
+        initialiseProduct(CRAWL_PRODUCT_1, "1", PRICE_TEXT, DESCRIPTION);
+        initialiseProduct(CRAWL_PRODUCT_2, "2", PRICE_TEXT, DESCRIPTION);
+        initialiseProduct(CRAWL_PRODUCT_3, "3", PRICE_TEXT, DESCRIPTION);
+
+        // Act
+        final ScraperModel model = service.crawlFromUri(new URI(CRAWL_SEED), new CrawlOptions(CRAWL_SELECTOR, 5,
+                100));
+
+        // Assert
+        assertThat(model.getResults().stream().map(ScraperResultModel::getTitle).collect(Collectors.toList()),
+                contains("1", "3", "2"));
+        assertThat(model.getTotal().toString(), equalTo("3.00"));
+        Mockito.verify(pageFetcher).fetch(CRAWL_SEED);
+        Mockito.verify(pageFetcher).fetch(CRAWL_PAGE_2);
+        Mockito.verify(pageFetcher).fetch(CRAWL_CATEGORY);
+        Mockito.verify(pageFetcher).fetch(CRAWL_PRODUCT_1);
+        Mockito.verify(pageFetcher, Mockito.never()).fetch(OFF_SITE);
+    }
+
+    /**
+     * Test a crawl stops at its depth and page limits.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testCrawlLimits() throws Exception {
+        // Set up
+        initialiseCrawlListing(CRAWL_SEED, Arrays.asList(CRAWL_PAGE_2), Arrays.asList(CRAWL_CATEGORY), CRAWL_PRODUCT_1);
+        initialiseCrawlListing(CRAWL_PAGE_2, Collections.<String> emptyList(), Collections.<String> emptyList(),
+                CRAWL_PRODUCT_2);
+        initialiseCrawlListing(CRAWL_CATEGORY, Collections.<String> emptyList(), Collections.<String> emptyList(),
+                CRAWL_PRODUCT_3);
+        initialiseProduct(CRAWL_PRODUCT_1, "1", PRICE_TEXT, DESCRIPTION);
+        initialiseProduct(CRAWL_PRODUCT_2, "2", PRICE_TEXT, DESCRIPTION);
+        initialiseProduct(CRAWL_PRODUCT_3, "3", PRICE_TEXT, DESCRIPTION);
+
+        // Act
+        final ScraperModel depthLimited = service.crawlFromUri(new URI(CRAWL_SEED),
+                new CrawlOptions(CRAWL_SELECTOR, 0, 100));
+        final ScraperModel pageLimited = service.crawlFromUri(new URI(CRAWL_SEED),
+                new CrawlOptions(CRAWL_SELECTOR, 5, 2));
+
+        // Assert
+        assertThat(depthLimited.getResults(), hasSize(1));
+        assertThat(pageLimited.getResults().stream().map(ScraperResultModel::getTitle).collect(Collectors.toList()),
+                contains("1", "3"));
+        assertThat(metrics.snapshot().getCounters().get(ScraperMetrics.CRAWL_LIMITED), equalTo(1L));
+        Mockito.verify(pageFetcher, Mockito.never()).fetch(CRAWL_PAGE_2);
+    }
+
+    /**
+     * Test every phase of a scrape is timed, and the bytes fetched counted.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testMetricsTimeEachPhase() throws Exception {
+        // Set up
+        final byte[] listing = initialiseListing(DEFAULT_URL, NEW_URL_1, NEW_URL_2);
+        final byte[] product1 = initialiseProduct(NEW_URL_1, TITLE, PRICE_TEXT, DESCRIPTION);
+        final byte[] product2 = initialiseProduct(NEW_URL_2, TITLE, PRICE_TEXT, DESCRIPTION);
+
+        // Act
+        service.getScraperModelFromUri(new URI(DEFAULT_URL));
+
+        // Assert
+        final ScraperMetrics.Snapshot snapshot = metrics.snapshot();
+        assertThat(snapshot.getTimers().get(ScraperMetrics.FETCH_LISTING).getCount(), equalTo(1L));
+        assertThat(snapshot.getTimers().get(ScraperMetrics.PARSE_LISTING).getCount(), equalTo(1L));
+        assertThat(snapshot.getTimers().get(ScraperMetrics.FETCH_PRODUCT).getCount(), equalTo(2L));
+        assertThat(snapshot.getTimers().get(ScraperMetrics.PARSE_PRODUCT).getCount(), equalTo(2L));
+        assertThat(snapshot.getTimers().get(ScraperMetrics.EXTRACT_FIELDS).getCount(), equalTo(2L));
+        assertThat(snapshot.getTimers().get(ScraperMetrics.EXTRACT_SIZE).getCount(), equalTo(2L));
+        assertThat(snapshot.getTimers().get(ScraperMetrics.FETCH_HOST + "unknown").getCount(), equalTo(3L));
+        assertThat(snapshot.getCounters().get(ScraperMetrics.BYTES_FETCHED),
+                equalTo((long) (listing.length + product1.length + product2.length)));
+    }
+
+    /**
+     * Test each product is validated once, as it is extracted, and not again
+     * when it comes from the product cache.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testProductsValidatedAsExtracted() throws Exception {
+        // Set up
+        final Validator validator = Mockito.mock(Validator.class);
+        service = new ScraperServiceProvider(executor, pageFetcher, new ProductCache(Duration.ofMinutes(1), 10),
+                new DomProductExtractor(PageSize.WIRE, metrics), new FingerprintStore(), validator, metrics);
+        initialiseListing(DEFAULT_URL, NEW_URL_1, NEW_URL_2);
+        initialiseProduct(NEW_URL_1, TITLE, PRICE_TEXT, DESCRIPTION);
+        initialiseProduct(NEW_URL_2, TITLE, PRICE_TEXT, DESCRIPTION);
+
+        // Act
+        service.getScraperModelFromUri(new URI(DEFAULT_URL));
+        service.getScraperModelFromUri(new URI(DEFAULT_URL));
+
+        // Assert
+        Mockito.verify(validator, Mockito.times(2)).validate(Matchers.any(ScraperResultModel.class),
+                Matchers.any(Errors.class));
+        Mockito.verifyNoMoreInteractions(validator);
+        assertThat(metrics.snapshot().getTimers().get(ScraperMetrics.VALIDATE).getCount(), equalTo(2L));
+    }
+
+    /**
+     * Test a product page that cannot be parsed is counted.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testMetricsCountParseFailures() throws Exception {
+        // Set up
+        initialiseListing(DEFAULT_URL, NEW_URL_1);
+        initialiseProduct(NEW_URL_1, null, PRICE_TEXT, DESCRIPTION);
+
+        // Act
+        try {
+            service.getScraperModelFromUri(new URI(DEFAULT_URL));
+        } catch (final ParsingFailureException e) {
+            // Expected
+        }
+
+        // Assert
+        assertThat(metrics.snapshot().getCounters().get(ScraperMetrics.PARSE_FAILURES), equalTo(1L));
+    }
+
+    /**
+     * Test that title can be parsed from the document tree.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testReturnModelWithTitle() throws Exception {
+        // Set up
+        initialiseListing(DEFAULT_URL, NEW_URL_1);
         final String newTitle = "New Title";
-        initialiseLink(NEW_URL_1, new String[] { newTitle }, true);
+        initialiseProduct(NEW_URL_1, newTitle, PRICE_TEXT, DESCRIPTION);
 
         // Act
         final ScraperModel model = service.getScraperModelFromUri(new URI(DEFAULT_URL));
@@ -167,20 +700,17 @@ public class ScraperServiceTest {
     }
 
     /**
-     * Test that size can be parsed from the document tree.
+     * Test that size is measured from the page as received.
      *
      * @throws Exception thrown exception
      */
     @Test
     public void testReturnModelWithSize() throws Exception {
         // Set up
-        initialiseLink(DEFAULT_URL, new String[] { NEW_URL_1 }, false);
-
-        defaultPrice(BIGDECIMAL_PRICE);
-        defaultDescription(DESCRIPTION);
-        defaultTitle(TITLE);
-
-        initialiseLink(NEW_URL_1, new String[] {}, true);
+        initialiseListing(DEFAULT_URL, NEW_URL_1);
+        final byte[] page = initialiseProduct(NEW_URL_1, TITLE, PRICE_TEXT, DESCRIPTION);
+        final ScraperResultModel.Builder expected = ScraperResultModel.builder();
+        ElementSelectorUtil.setSizeFromByteCount(page.length, expected);
 
         // Act
         final ScraperModel model = service.getScraperModelFromUri(new URI(DEFAULT_URL));
@@ -188,8 +718,7 @@ public class ScraperServiceTest {
         // Assert
         assertThat(model.getResults(), hasSize(1));
         final ScraperResultModel resultModel = model.getResults().get(0);
-        assertThat(resultModel.getSize(), endsWith("kb"));
-
+        assertThat(resultModel.getSize(), equalTo(expected.build().getSize()));
     }
 
     /**
@@ -200,15 +729,9 @@ public class ScraperServiceTest {
     @Test
     public void testReturnModelWithDescription() throws Exception {
         // Set up
-        initialiseLink(DEFAULT_URL, new String[] { NEW_URL_1 }, false);
-
-        defaultPrice(BIGDECIMAL_PRICE);
-        defaultSize(SIZE);
-        defaultTitle(TITLE);
-
+        initialiseListing(DEFAULT_URL, NEW_URL_1);
         final String fullDescription = "Textual description";
-        final Elements elements = initialiseLink(NEW_URL_1, new String[] { DESCRIPTION }, true);
-        mockInnerDescription(fullDescription, elements);
+        initialiseProduct(NEW_URL_1, TITLE, PRICE_TEXT, fullDescription);
 
         // Act
         final ScraperModel model = service.getScraperModelFromUri(new URI(DEFAULT_URL));
@@ -217,7 +740,6 @@ public class ScraperServiceTest {
         assertThat(model.getResults(), hasSize(1));
         final ScraperResultModel resultModel = model.getResults().get(0);
         assertThat(resultModel.getDescription(), equalTo(fullDescription));
-
     }
 
     /**
@@ -229,13 +751,8 @@ public class ScraperServiceTest {
     @Test
     public void testExceptionWithTitle() throws Exception {
         // Set up
-        initialiseLink(DEFAULT_URL, new String[] { NEW_URL_1 }, false);
-
-        defaultDescription(DESCRIPTION);
-        defaultSize(SIZE);
-        defaultPrice(BIGDECIMAL_PRICE);
-
-        initialiseLink(NEW_URL_1, new String[] {}, true);
+        initialiseListing(DEFAULT_URL, NEW_URL_1);
+        initialiseProduct(NEW_URL_1, null, PRICE_TEXT, DESCRIPTION);
 
         thrown.expect(ParsingFailureException.class);
         thrown.expectMessage(NEW_URL_1);
@@ -253,13 +770,8 @@ public class ScraperServiceTest {
     @Test
     public void testExceptionWithPrice() throws Exception {
         // Set up
-        initialiseLink(DEFAULT_URL, new String[] { NEW_URL_1 }, false);
-
-        defaultDescription(DESCRIPTION);
-        defaultSize(SIZE);
-        defaultTitle(TITLE);
-
-        initialiseLink(NEW_URL_1, new String[] {}, true);
+        initialiseListing(DEFAULT_URL, NEW_URL_1);
+        initialiseProduct(NEW_URL_1, TITLE, null, DESCRIPTION);
 
         thrown.expect(ParsingFailureException.class);
         thrown.expectMessage(NEW_URL_1);
@@ -269,24 +781,20 @@ public class ScraperServiceTest {
     }
 
     /**
-     * Test the ability to parse and add prices.
+     * Test that price parsing will throw an exception when the price element
+     * holds more than one price.
      *
      * @throws Exception thrown exception
      */
     @Test
     public void testExceptionWithPriceWithTooManyMatches() throws Exception {
         // Set up
-        initialiseLink(DEFAULT_URL, new String[] { NEW_URL_1 }, false);
-
-        defaultTitle(TITLE);
-        defaultDescription(DESCRIPTION);
-        defaultSize(SIZE);
+        initialiseListing(DEFAULT_URL, NEW_URL_1);
+        initialiseProduct(NEW_URL_1, TITLE, "abc\u00a31.50bca1.2", DESCRIPTION);
 
         thrown.expect(ParsingFailureException.class);
         thrown.expectMessage(NEW_URL_1);
 
-        initialiseLink(NEW_URL_1, new String[] { "abc1.50bca1.2" }, true);
-
         // Act
         service.getScraperModelFromUri(new URI(DEFAULT_URL));
     }
@@ -300,13 +808,8 @@ public class ScraperServiceTest {
     @Test
     public void testExceptionWithDescription() throws Exception {
         // Set up
-        initialiseLink(DEFAULT_URL, new String[] { NEW_URL_1 }, false);
-
-        defaultPrice(BIGDECIMAL_PRICE);
-        defaultSize(SIZE);
-        defaultTitle(TITLE);
-
-        initialiseLink(NEW_URL_1, new String[] {}, true);
+        initialiseListing(DEFAULT_URL, NEW_URL_1);
+        initialiseProduct(NEW_URL_1, TITLE, PRICE_TEXT, null);
 
         thrown.expect(ParsingFailureException.class);
         thrown.expectMessage(NEW_URL_1);
@@ -316,112 +819,90 @@ public class ScraperServiceTest {
     }
 
     /**
-     * Adds the inner description to the child elements.
+     * Serves a listing page linking to the products.
      *
-     * @param fullDescription the description to add
-     * @param elements the elements
-     */
-    private void mockInnerDescription(final String fullDescription, final Elements elements) {
-        final Element mockedElement = elements.get(0);
-        final Elements siblingElements = new Elements();
-        final Element siblingElement = Mockito.mock(Element.class);
-        final Element descriptionElement = Mockito.mock(Element.class);
-        siblingElements.add(descriptionElement);
-        Mockito.when(mockedElement.nextElementSibling()).thenReturn(siblingElement);
-        Mockito.when(siblingElement.select(Matchers.anyString())).thenReturn(siblingElements);
-        Mockito.when(descriptionElement.text()).thenReturn(fullDescription);
-    }
-
-    /**
-     * Initialses an outer URL, and sets the elements underneath with
-     * appropriate values.
-     *
-     * @param outerUrl the outer URL
-     * @param elementReturns the values to set to the inner elements
-     * @param forText if we care about an elements text over the attr
-     * @return the mocked elements
+     * @param listingUrl the listing URL
+     * @param productUrls the product URLs
+     * @return the page body
      * @throws IOException thrown exception
      */
-    private Elements initialiseLink(final String outerUrl, final String[] elementReturns, final boolean forText)
-            throws IOException {
-        final Connection mockConnection = Mockito.mock(Connection.class);
-        final Document mockDocument = Mockito.mock(Document.class);
-        final Elements elements = new Elements();
-        Mockito.when(Jsoup.connect(outerUrl)).thenReturn(mockConnection);
-        Mockito.when(mockConnection.get()).thenReturn(mockDocument);
-        Mockito.when(mockDocument.select(Matchers.anyString())).thenReturn(elements);
-
-        for (int i = 0; i < elementReturns.length; i++) {
-            final Element mockElement = Mockito.mock(Element.class);
-            elements.add(mockElement);
-            if (forText) {
-                Mockito.when(mockElement.text()).thenReturn(elementReturns[i]);
-            } else {
-                Mockito.when(mockElement.attr(Matchers.anyString())).thenReturn(elementReturns[i]);
-            }
+    private byte[] initialiseListing(final String listingUrl, final String... productUrls) throws IOException {
+        final StringBuilder html = new StringBuilder("<html><body><ul class=\"productLister\">");
+        for (final String productUrl : productUrls) {
+            html.append("<li><div class=\"productInfo\"><h3><a href=\"").append(productUrl).append("\">")
+                    .append(productUrl).append("</a></h3></div></li>");
         }
-
-        return elements;
+        html.append("</ul></body></html>");
+        return serve(listingUrl, html.toString());
     }
 
     /**
-     * Sets a default size.
+     * Serves a listing page linking to the products, the next pages and the
+     * sub-categories.
      *
-     * @param size the size
-     * @throws Exception thrown exception
+     * @param listingUrl the listing URL
+     * @param nextUrls the next page URLs
+     * @param categoryUrls the sub-category URLs
+     * @param productUrls the product URLs
+     * @throws IOException thrown exception
      */
-    private void defaultSize(final String size) throws Exception {
-        PowerMockito.doAnswer(invocation -> {
-            final ScraperResultModel result = (ScraperResultModel) invocation.getArguments()[1];
-            result.setSize(size);
-            return result;
-        }).when(ElementSelectorUtil.class, "setSizeFromElements", Matchers.any(Document.class),
-                Matchers.any(ScraperResultModel.class));
+    private void initialiseCrawlListing(final String listingUrl, final List<String> nextUrls,
+            final List<String> categoryUrls, final String... productUrls) throws IOException {
+        final StringBuilder html = new StringBuilder("<html><body><ul class=\"categories\">");
+        categoryUrls.forEach(url -> html.append("<li><a href=\"").append(url).append("\">Category</a></li>"));
+        html.append("</ul><ul class=\"productLister\">");
+        for (final String productUrl : productUrls) {
+            html.append("<li><div class=\"productInfo\"><h3><a href=\"").append(productUrl).append("\">")
+                    .append(productUrl).append("</a></h3></div></li>");
+        }
+        html.append("</ul><ul class=\"pages\">");
+        nextUrls.forEach(url -> html.append("<li class=\"next\"><a href=\"").append(url).append("\">Next</a></li>"));
+        html.append("</ul></body></html>");
+        serve(listingUrl, html.toString());
     }
 
     /**
-     * Sets a default description.
+     * Serves a product page, leaving out any field given as null.
      *
+     * @param productUrl the product URL
+     * @param title the title
+     * @param price the price text
      * @param description the description
-     * @throws Exception thrown exception
-     */
-    private void defaultDescription(final String description) throws Exception {
-        PowerMockito.doAnswer(invocation -> {
-            final ScraperResultModel result = (ScraperResultModel) invocation.getArguments()[2];
-            result.setDescription(description);
-            return result;
-        }).when(ElementSelectorUtil.class, "setDescriptionFromElements", Matchers.any(String.class),
-                Matchers.any(Document.class), Matchers.any(ScraperResultModel.class));
-    }
-
-    /**
-     * Sets a default price.
-     *
-     * @param price the price
-     * @throws Exception thrown exception
+     * @return the page body
+     * @throws IOException thrown exception
      */
-    private void defaultPrice(final BigDecimal price) throws Exception {
-        PowerMockito.doAnswer(invocation -> {
-            final ScraperResultModel result = (ScraperResultModel) invocation.getArguments()[2];
-            result.setUnitPrice(price.setScale(2, RoundingMode.HALF_UP));
-            return result;
-        }).when(ElementSelectorUtil.class, "setPriceFromElements", Matchers.any(String.class),
-                Matchers.any(Document.class), Matchers.any(ScraperResultModel.class));
+    private byte[] initialiseProduct(final String productUrl, final String title, final String price,
+            final String description) throws IOException {
+        final StringBuilder html = new StringBuilder("<html><body><div class=\"productSummary\">");
+        if (title != null) {
+            html.append("<div class=\"productTitleDescriptionContainer\"><h1>").append(title).append("</h1></div>");
+        }
+        if (price != null) {
+            html.append("<div class=\"priceTabContainer\"><div class=\"pricing\"><p class=\"pricePerUnit\">")
+                    .append(price).append("</p></div></div>");
+        }
+        html.append("</div>");
+        if (description != null) {
+            html.append("<h3 class=\"productDataItemHeader\">Description</h3><div class=\"productText\"><p>")
+                    .append(description).append("</p></div>");
+        }
+        html.append("<h3 class=\"productDataItemHeader\">Nutrition</h3><div class=\"productText\"><p>")
+                .append("Lots</p></div></body></html>");
+        return serve(productUrl, html.toString());
     }
 
     /**
-     * Sets a default title.
+     * Serves a page from the page fetcher.
      *
-     * @param title the title
-     * @throws Exception thrown exception
+     * @param url the URL
+     * @param html the page
+     * @return the page body
+     * @throws IOException thrown exception
      */
-    private void defaultTitle(final String title) throws Exception {
-        PowerMockito.doAnswer(invocation -> {
-            final ScraperResultModel result = (ScraperResultModel) invocation.getArguments()[2];
-            result.setTitle(title);
-            return result;
-        }).when(ElementSelectorUtil.class, "setTitleFromElements", Matchers.any(String.class),
-                Matchers.any(Document.class), Matchers.any(ScraperResultModel.class));
+    private byte[] serve(final String url, final String html) throws IOException {
+        final byte[] body = html.getBytes(StandardCharsets.UTF_8);
+        Mockito.when(pageFetcher.fetch(url)).thenReturn(new FetchedPage(url, SC_OK, body, "UTF-8"));
+        return body;
     }
 
 }
@@ -0,0 +1,154 @@
+package com.sainsburys.scraper.service;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.sainsburys.scraper.metrics.ScraperMetrics;
+
+/**
+ * Test class for {@link SingleFlight}.
+ */
+public class SingleFlightTest {
+
+    /** The key. */
+    private static final String KEY = "key";
+
+    /** The counter for the coalesced calls. */
+    private static final String COALESCED = "coalesced";
+
+    /** The metrics registry. */
+    private final ScraperMetrics metrics = new ScraperMetrics();
+
+    /** The pool the waiting caller runs on. */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /** Released once the leader is running. */
+    private final CountDownLatch leading = new CountDownLatch(1);
+
+    /** Expected exception. */
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /** Class under test. */
+    private final SingleFlight<String, Object> flights = new SingleFlight<String, Object>(metrics, COALESCED);
+
+    /**
+     * Test tear down.
+     */
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Test a caller arriving while a step is in flight gets its result
+     * without running the step again.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testConcurrentCallersShareResult() throws Exception {
+        // Set up
+        final Object result = new Object();
+        final AtomicInteger calls = new AtomicInteger();
+        final Future<Object> waiter = startWaiter(calls);
+
+        // Act
+        final Object led = flights.execute(KEY, () -> {
+            calls.incrementAndGet();
+            awaitWaiter();
+            return result;
+        });
+
+        // Assert
+        assertThat(led, sameInstance(result));
+        assertThat(waiter.get(5, TimeUnit.SECONDS), sameInstance(result));
+        assertThat(calls.get(), equalTo(1));
+        assertThat(metrics.snapshot().getCounters().get(COALESCED), equalTo(1L));
+    }
+
+    /**
+     * Test a caller arriving while a step is in flight gets its failure.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testConcurrentCallersShareFailure() throws Exception {
+        // Set up
+        final IOException failure = new IOException("Connection refused");
+        final Future<Object> waiter = startWaiter(new AtomicInteger());
+
+        // Act
+        try {
+            flights.execute(KEY, () -> {
+                awaitWaiter();
+                throw failure;
+            });
+        } catch (final IOException e) {
+            // Expected
+        }
+
+        // Assert
+        thrown.expect(ExecutionException.class);
+        thrown.expectCause(sameInstance(failure));
+        waiter.get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Test nothing is kept once a step completes.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testCompletedStepRunsAgain() throws Exception {
+        // Set up
+        final AtomicInteger calls = new AtomicInteger();
+
+        // Act
+        flights.execute(KEY, () -> calls.incrementAndGet());
+        flights.execute(KEY, () -> calls.incrementAndGet());
+
+        // Assert
+        assertThat(calls.get(), equalTo(2));
+    }
+
+    /**
+     * Start a caller that joins the flight once the leader is running.
+     *
+     * @param calls the count of steps the waiter runs
+     * @return the waiter's result
+     */
+    private Future<Object> startWaiter(final AtomicInteger calls) {
+        return executor.submit(() -> {
+            leading.await();
+            return flights.execute(KEY, () -> calls.incrementAndGet());
+        });
+    }
+
+    /**
+     * Let the waiter join, and wait until it has.
+     */
+    private void awaitWaiter() {
+        leading.countDown();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (metrics.snapshot().getCounters().get(COALESCED) == null && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+    }
+
+}
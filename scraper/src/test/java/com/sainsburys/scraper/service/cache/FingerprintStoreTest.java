@@ -0,0 +1,146 @@
+package com.sainsburys.scraper.service.cache;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+
+/**
+ * Test class for {@link FingerprintStore}.
+ */
+public class FingerprintStoreTest {
+
+    /** A product URI. */
+    private static final String URI = "http://localhost/1.html";
+
+    /** A title. */
+    private static final String TITLE = "Title";
+
+    /** The settings the products are extracted under. */
+    private static final String VARIANT = "WIRE";
+
+    /** A page body. */
+    private static final byte[] PAGE = "<html>1</html>".getBytes(StandardCharsets.UTF_8);
+
+    /** The page body after a change. */
+    private static final byte[] CHANGED_PAGE = "<html>2</html>".getBytes(StandardCharsets.UTF_8);
+
+    /** The folder the store is kept in. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** The store file. */
+    private Path file;
+
+    /**
+     * Test setup.
+     */
+    @Before
+    public void setUp() {
+        file = folder.getRoot().toPath().resolve("fingerprints.json");
+    }
+
+    /**
+     * Test a product stored in one run is reused by the next while its page
+     * is unchanged.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testUnchangedPageReusedAcrossRuns() throws IOException {
+        // Set up
+        final FingerprintStore lastRun = new FingerprintStore(file, VARIANT);
+        lastRun.put(URI, FingerprintStore.fingerprint(PAGE), product(TITLE));
+        lastRun.save();
+
+        // Act
+        final ScraperResultModel stored = new FingerprintStore(file, VARIANT).get(URI,
+                FingerprintStore.fingerprint(PAGE));
+
+        // Assert
+        assertThat(stored.getTitle(), equalTo(TITLE));
+        assertThat(stored.getUnitPrice(), equalTo(BigDecimal.ONE));
+    }
+
+    /**
+     * Test a changed page is not served from the store.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testChangedPageNotReused() throws IOException {
+        // Set up
+        final FingerprintStore store = new FingerprintStore(file, VARIANT);
+        store.put(URI, FingerprintStore.fingerprint(PAGE), product(TITLE));
+
+        // Act
+        final ScraperResultModel stored = store.get(URI, FingerprintStore.fingerprint(CHANGED_PAGE));
+
+        // Assert
+        assertThat(FingerprintStore.fingerprint(CHANGED_PAGE), not(equalTo(FingerprintStore.fingerprint(PAGE))));
+        assertThat(stored, nullValue());
+    }
+
+    /**
+     * Test products stored under other settings are ignored.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testOtherVariantIgnored() throws IOException {
+        // Set up
+        final FingerprintStore lastRun = new FingerprintStore(file, VARIANT);
+        lastRun.put(URI, FingerprintStore.fingerprint(PAGE), product(TITLE));
+        lastRun.save();
+
+        // Act
+        final FingerprintStore store = new FingerprintStore(file, "DECODED");
+
+        // Assert
+        assertThat(store.size(), equalTo(0));
+    }
+
+    /**
+     * Test a disabled store holds nothing and writes nothing.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testDisabledStore() throws IOException {
+        // Set up
+        final FingerprintStore store = new FingerprintStore();
+
+        // Act
+        store.put(URI, FingerprintStore.fingerprint(PAGE), product(TITLE));
+        store.save();
+
+        // Assert
+        assertThat(store.get(URI, FingerprintStore.fingerprint(PAGE)), nullValue());
+        assertThat(Files.exists(file), equalTo(false));
+    }
+
+    /**
+     * Create a product.
+     *
+     * @param title the title
+     * @return the product
+     */
+    private static ScraperResultModel product(final String title) {
+        return ScraperResultModel.builder().title(title).size("1kb")
+                .unitPrice(BigDecimal.ONE).description("Description").build();
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.sainsburys.scraper.service.cache;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+
+/**
+ * Test class for {@link ProductCache}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ProductCacheTest {
+
+    /** A product URI. */
+    private static final String URI_1 = "http://localhost/1.html";
+
+    /** Another product URI. */
+    private static final String URI_2 = "http://localhost/2.html";
+
+    /** A third product URI. */
+    private static final String URI_3 = "http://localhost/3.html";
+
+    /** A title. */
+    private static final String TITLE = "Title";
+
+    /** The time to live. */
+    private static final Duration TTL = Duration.ofSeconds(10);
+
+    /** The clock. */
+    @Mock
+    private Clock clock;
+
+    /** Class under test. */
+    private ProductCache cache;
+
+    /**
+     * Test setup.
+     */
+    @Before
+    public void setUp() {
+        Mockito.when(clock.millis()).thenReturn(0L);
+        cache = new ProductCache(TTL, 2, clock);
+    }
+
+    /**
+     * Test a cached product is handed back as it is, being immutable, and
+     * counted as a hit.
+     */
+    @Test
+    public void testGetReturnsCopy() {
+        // Set up
+        final ScraperResultModel result = product(TITLE);
+        cache.put(URI_1, result);
+
+        // Act
+        final ScraperResultModel cached = cache.get(URI_1);
+
+        // Assert
+        assertThat(cached.getTitle(), equalTo(TITLE));
+        assertThat(cached.getUnitPrice(), equalTo(BigDecimal.ONE));
+        assertThat(cached, sameInstance(result));
+        assertThat(cache.getStats().getHits(), equalTo(1L));
+        assertThat(cache.getStats().getMisses(), equalTo(0L));
+    }
+
+    /**
+     * Test an entry is no longer served once its time to live has passed.
+     */
+    @Test
+    public void testExpiredEntryIsMiss() {
+        // Set up
+        cache.put(URI_1, product(TITLE));
+        Mockito.when(clock.millis()).thenReturn(TTL.toMillis());
+
+        // Act
+        final ScraperResultModel cached = cache.get(URI_1);
+
+        // Assert
+        assertThat(cached, nullValue());
+        assertThat(cache.getStats().getMisses(), equalTo(1L));
+        assertThat(cache.getStats().getSize(), equalTo(0));
+    }
+
+    /**
+     * Test the least recently used entry is evicted once full.
+     */
+    @Test
+    public void testLeastRecentlyUsedEvicted() {
+        // Set up
+        cache.put(URI_1, product(URI_1));
+        cache.put(URI_2, product(URI_2));
+        cache.get(URI_1);
+
+        // Act
+        cache.put(URI_3, product(URI_3));
+
+        // Assert
+        assertThat(cache.get(URI_2), nullValue());
+        assertThat(cache.get(URI_1).getTitle(), equalTo(URI_1));
+        assertThat(cache.get(URI_3).getTitle(), equalTo(URI_3));
+        assertThat(cache.getStats().getEvictions(), equalTo(1L));
+    }
+
+    /**
+     * Test a zero time to live disables the cache.
+     */
+    @Test
+    public void testZeroTtlDisablesCache() {
+        // Set up
+        cache = new ProductCache(Duration.ZERO, 2, clock);
+
+        // Act
+        cache.put(URI_1, product(TITLE));
+
+        // Assert
+        assertThat(cache.get(URI_1), nullValue());
+        assertThat(cache.getStats().getSize(), equalTo(0));
+    }
+
+    /**
+     * Create a product.
+     *
+     * @param title the title
+     * @return the product
+     */
+    private static ScraperResultModel product(final String title) {
+        return ScraperResultModel.builder().title(title).size("1kb")
+                .unitPrice(BigDecimal.ONE).description(title).build();
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.sainsburys.scraper.service.extract;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.sainsburys.scraper.exception.ParsingFailureException;
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+import com.sainsburys.scraper.service.fetch.FetchedPage;
+import com.sainsburys.scraper.service.fetch.PageSize;
+import com.sainsburys.scraper.service.util.ElementSelectorUtil;
+
+/**
+ * Test class for {@link StreamingProductExtractor}, checked against the
+ * {@link DomProductExtractor}.
+ */
+public class StreamingProductExtractorTest {
+
+    /** The page URI. */
+    private static final String URI = "http://localhost/product.html";
+
+    /** The OK status. */
+    private static final int SC_OK = 200;
+
+    /** A product page as the site serves it. */
+    private static final String PRODUCT_PAGE = "<!DOCTYPE html><html><head><title>Product</title>"
+            + "<script>var s = '<div class=\"productSummary\">';</script></head><body>"
+            + "<div class=\"productSummary\"><div class=\"productTitleDescriptionContainer\">"
+            + "<h1>Sainsbury's Apricot &amp; Ripe\n   Ready <!-- x --> 320g</h1></div>"
+            + "<div class=\"priceTabContainer\"><div class=\"pricing\">"
+            + "<p class=\"pricePerUnit\">&pound;3.50<abbr title=\"per\">/</abbr><abbr title=\"unit\">"
+            + "<span class=\"pricePerUnitUnit\">unit</span></abbr></p>"
+            + "<p class=\"pricePerMeasure\">&pound;1.09/kg</p></div></div></div>"
+            + "<div class=\"section productDescription\"><htmlcontent><h3 class=\"productDataItemHeader\">"
+            + "Description</h3><div class=\"productText\"><p>Apricots<br>ripe &amp; ready</p>\n<p>\n</p>"
+            + "<p>Sweet <b>and</b> juicy</p></div></htmlcontent>"
+            + "<h3 class=\"productDataItemHeader\">Nutrition</h3><div class=\"productText\"><p>Lots</p></div>"
+            + "</div></body></html>";
+
+    /** Expected exception rule. */
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /** The extractor the results must match. */
+    private final DomProductExtractor domExtractor = new DomProductExtractor(PageSize.WIRE);
+
+    /** Class under test. */
+    private final StreamingProductExtractor extractor = new StreamingProductExtractor(PageSize.WIRE);
+
+    /**
+     * Test a product page gives the same fields as the DOM extractor, and the
+     * size of the response body.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testMatchesDomExtractor() throws Exception {
+        // Set up
+        final FetchedPage page = page(PRODUCT_PAGE);
+
+        // Act
+        final ScraperResultModel result = extractor.extract(URI, page);
+
+        // Assert
+        assertSameFields(result, domExtractor.extract(URI, page));
+        assertThat(result.getTitle(), equalTo("Sainsbury's Apricot & Ripe Ready 320g"));
+        assertThat(result.getDescription(), equalTo("Apricots ripe & readySweet and juicy"));
+        final ScraperResultModel.Builder wireSize = ScraperResultModel.builder();
+        ElementSelectorUtil.setSizeFromByteCount(page.getBody().length, wireSize);
+        assertThat(result.getSize(), equalTo(wireSize.build().getSize()));
+    }
+
+    /**
+     * Test paragraphs closed implicitly by the next block, and unquoted or
+     * mixed case attributes, match the DOM extractor.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testImpliedEndTagsMatchDomExtractor() throws Exception {
+        // Set up
+        final FetchedPage page = page("<html><body><DIV class='productSummary other'>"
+                + "<div class=productTitleDescriptionContainer><H1>  Title  </h1></div>"
+                + "<div class=\"priceTabContainer\"><div class=\"pricing\"><p class=\"pricePerUnit\">1.25"
+                + "<div>after</div></div></div></div>"
+                + "<h3 class=\"productDataItemHeader\">Description</h3><p>First<p>Second<div>Third</div>"
+                + "</body></html>");
+
+        // Act
+        final ScraperResultModel result = extractor.extract(URI, page);
+
+        // Assert
+        assertSameFields(result, domExtractor.extract(URI, page));
+        assertThat(result.getDescription(), equalTo("First"));
+    }
+
+    /**
+     * Test a page with two titles fails as the DOM extractor does.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testTwoTitlesFails() throws Exception {
+        // Set up
+        final FetchedPage page = page("<div class=\"productSummary\"><div class=\"productTitleDescriptionContainer\">"
+                + "<h1>One</h1><h1>Two</h1></div></div>");
+
+        thrown.expect(ParsingFailureException.class);
+        thrown.expectMessage("Expected 1 title on page " + URI + " but found 2");
+
+        // Act
+        extractor.extract(URI, page);
+    }
+
+    /**
+     * Test a page without a description fails.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testMissingDescriptionFails() throws Exception {
+        // Set up
+        final FetchedPage page = page("<div class=\"productSummary\"><div class=\"productTitleDescriptionContainer\">"
+                + "<h1>One</h1></div><div class=\"priceTabContainer\"><div class=\"pricing\">"
+                + "<p class=\"pricePerUnit\">1.00</p></div></div></div>");
+
+        thrown.expect(ParsingFailureException.class);
+        thrown.expectMessage("Expected 1 description on page " + URI + " but found 0");
+
+        // Act
+        extractor.extract(URI, page);
+    }
+
+    /**
+     * Assert the extracted fields other than size are the same.
+     *
+     * @param actual the streamed result
+     * @param expected the DOM result
+     */
+    private static void assertSameFields(final ScraperResultModel actual, final ScraperResultModel expected) {
+        assertThat(actual.getTitle(), equalTo(expected.getTitle()));
+        assertThat(actual.getUnitPrice(), equalTo(expected.getUnitPrice()));
+        assertThat(actual.getDescription(), equalTo(expected.getDescription()));
+    }
+
+    /**
+     * Create a fetched page.
+     *
+     * @param html the page
+     * @return the page
+     * @throws IOException thrown exception
+     */
+    private static FetchedPage page(final String html) throws IOException {
+        return new FetchedPage(URI, SC_OK, html.getBytes(StandardCharsets.UTF_8), "UTF-8", null, null);
+    }
+
+}
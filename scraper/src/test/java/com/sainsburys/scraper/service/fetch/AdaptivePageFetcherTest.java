@@ -0,0 +1,273 @@
+package com.sainsburys.scraper.service.fetch;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jsoup.HttpStatusException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.sainsburys.scraper.config.ScraperProperties;
+import com.sainsburys.scraper.metrics.ScraperMetrics;
+
+/**
+ * Test class for {@link AdaptivePageFetcher} and the {@link AimdLimiter}
+ * under it.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class AdaptivePageFetcherTest {
+
+    /** The host of the pages. */
+    private static final String HOST = "localhost";
+
+    /** A page URI. */
+    private static final String URI = "http://" + HOST + "/1.html";
+
+    /** The limit each host starts with. */
+    private static final int INITIAL_LIMIT = 4;
+
+    /** The most pages fetched at once from a host. */
+    private static final int MAX_IN_FLIGHT = 8;
+
+    /** A healthy latency. */
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /** A latency well past the tolerated multiple of {@link #FAST}. */
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /** The network fetcher. */
+    @Mock
+    private PageFetcher delegate;
+
+    /** The metrics registry. */
+    private ScraperMetrics metrics;
+
+    /** The fake clock, moved on by each fetch. */
+    private AtomicLong ticker;
+
+    /** The latency of the next fetch. */
+    private long latency;
+
+    /** Class under test. */
+    private AdaptivePageFetcher fetcher;
+
+    /**
+     * Test setup.
+     *
+     * @throws IOException thrown exception
+     */
+    @Before
+    public void setUp() throws IOException {
+        metrics = new ScraperMetrics();
+        ticker = new AtomicLong();
+        latency = FAST;
+        fetcher = new AdaptivePageFetcher(delegate, new ScraperProperties.Fetch.Adaptive(), MAX_IN_FLIGHT, metrics,
+                ticker::get);
+        Mockito.when(delegate.fetch(URI)).thenAnswer(invocation -> {
+            ticker.addAndGet(latency);
+            return new FetchedPage(URI, 200, new byte[0], null);
+        });
+    }
+
+    /**
+     * Test healthy responses leave the limit alone while it is never reached,
+     * the limit published as a gauge.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testHealthyResponsesBelowLimitLeaveLimit() throws IOException {
+        // Act
+        for (int i = 0; i < 20; i++) {
+            fetcher.fetch(URI);
+        }
+
+        // Assert
+        assertThat(fetcher.getLimit(HOST), equalTo(INITIAL_LIMIT));
+        assertThat(metrics.snapshot().getGauges().get(ScraperMetrics.FETCH_LIMIT + HOST),
+                equalTo((double) INITIAL_LIMIT));
+    }
+
+    /**
+     * Test healthy responses to requests in flight at the limit raise it, up
+     * to the most pages that can be fetched at once.
+     *
+     * @throws InterruptedException thrown exception
+     */
+    @Test
+    public void testHealthyResponsesAtLimitRaiseLimit() throws InterruptedException {
+        // Set up
+        final AimdLimiter limiter = new AimdLimiter(INITIAL_LIMIT, 1, MAX_IN_FLIGHT, 0.5, 2.0, ticker::get);
+
+        // Act
+        for (int round = 0; round < 4 * MAX_IN_FLIGHT; round++) {
+            final long[] starts = new long[limiter.getLimit()];
+            for (int i = 0; i < starts.length; i++) {
+                starts[i] = limiter.acquire();
+            }
+            ticker.addAndGet(FAST);
+            for (final long start : starts) {
+                limiter.release(start, AimdLimiter.Outcome.SUCCESS);
+            }
+        }
+
+        // Assert
+        assertThat(limiter.getLimit(), equalTo(MAX_IN_FLIGHT));
+    }
+
+    /**
+     * Test the configured maximum is capped at the most pages that can be
+     * fetched at once, so a single cut takes effect.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testMaxLimitCappedAtMaxInFlight() throws IOException {
+        // Set up
+        final ScraperProperties.Fetch.Adaptive settings = new ScraperProperties.Fetch.Adaptive();
+        settings.setInitialLimit(MAX_IN_FLIGHT * 2);
+        fetcher = new AdaptivePageFetcher(delegate, settings, MAX_IN_FLIGHT, metrics, ticker::get);
+        Mockito.when(delegate.fetch(URI)).thenThrow(new HttpStatusException("Service Unavailable", 503, URI));
+
+        // Act
+        fetchIgnoringFailure();
+
+        // Assert
+        assertThat(fetcher.getLimit(HOST), equalTo(MAX_IN_FLIGHT / 2));
+    }
+
+    /**
+     * Test a 429 halves the limit and is counted as throttling.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testTooManyRequestsCutsLimit() throws IOException {
+        // Set up
+        Mockito.when(delegate.fetch(URI)).thenThrow(new HttpStatusException("Too Many Requests", 429, URI));
+
+        // Act
+        fetchIgnoringFailure();
+
+        // Assert
+        assertThat(fetcher.getLimit(HOST), equalTo(INITIAL_LIMIT / 2));
+        assertThat(metrics.snapshot().getCounters().get(ScraperMetrics.FETCH_THROTTLED), equalTo(1L));
+    }
+
+    /**
+     * Test a 404 says nothing about the load on the host so leaves the limit alone.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testNotFoundLeavesLimit() throws IOException {
+        // Set up
+        Mockito.when(delegate.fetch(URI)).thenThrow(new HttpStatusException("Not Found", 404, URI));
+
+        // Act
+        fetchIgnoringFailure();
+
+        // Assert
+        assertThat(fetcher.getLimit(HOST), equalTo(INITIAL_LIMIT));
+    }
+
+    /**
+     * Test a rising latency cuts the limit.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testRisingLatencyCutsLimit() throws IOException {
+        // Set up
+        for (int i = 0; i < 20; i++) {
+            fetcher.fetch(URI);
+        }
+        final int healthyLimit = fetcher.getLimit(HOST);
+
+        // Act
+        latency = SLOW;
+        for (int i = 0; i < 5; i++) {
+            fetcher.fetch(URI);
+        }
+
+        // Assert
+        assertThat(fetcher.getLimit(HOST), lessThan(healthyLimit));
+    }
+
+    /**
+     * Test overload reported by requests started before the last cut only
+     * cuts the limit once.
+     *
+     * @throws InterruptedException thrown exception
+     */
+    @Test
+    public void testOneCutPerWindow() throws InterruptedException {
+        // Set up
+        final AimdLimiter limiter = new AimdLimiter(INITIAL_LIMIT, 1, INITIAL_LIMIT, 0.5, 2.0, ticker::get);
+        final long first = limiter.acquire();
+        final long second = limiter.acquire();
+        ticker.addAndGet(FAST);
+
+        // Act
+        limiter.release(first, AimdLimiter.Outcome.OVERLOAD);
+        limiter.release(second, AimdLimiter.Outcome.OVERLOAD);
+
+        // Assert
+        assertThat(limiter.getLimit(), equalTo(INITIAL_LIMIT / 2));
+        assertThat(limiter.getInFlight(), equalTo(0));
+    }
+
+    /**
+     * Test a request waits while the host is at its limit.
+     *
+     * @throws InterruptedException thrown exception
+     */
+    @Test
+    public void testAcquireWaitsAtLimit() throws InterruptedException {
+        // Set up
+        final AimdLimiter limiter = new AimdLimiter(1, 1, 1, 0.5, 2.0, ticker::get);
+        final long start = limiter.acquire();
+        final Thread waiter = new Thread(() -> {
+            try {
+                limiter.release(limiter.acquire(), AimdLimiter.Outcome.SUCCESS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // Act
+        waiter.start();
+        waiter.join(100);
+        final boolean waited = waiter.isAlive();
+        limiter.release(start, AimdLimiter.Outcome.SUCCESS);
+        waiter.join(TimeUnit.SECONDS.toMillis(5));
+
+        // Assert
+        assertThat(waited, equalTo(true));
+        assertThat(waiter.isAlive(), equalTo(false));
+        assertThat(limiter.getInFlight(), equalTo(0));
+    }
+
+    /**
+     * Fetch {@link #URI}, expecting it to fail.
+     */
+    private void fetchIgnoringFailure() {
+        try {
+            fetcher.fetch(URI);
+            fail("Expected the fetch to fail");
+        } catch (final IOException e) {
+            // Expected
+        }
+    }
+
+}
@@ -0,0 +1,206 @@
+package com.sainsburys.scraper.service.fetch;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.sainsburys.scraper.service.cache.DiskResponseCache;
+
+/**
+ * Test class for {@link CachingPageFetcher} and the
+ * {@link DiskResponseCache} under it.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class CachingPageFetcherTest {
+
+    /** A page URI. */
+    private static final String URI_1 = "http://localhost/1.html";
+
+    /** Another page URI. */
+    private static final String URI_2 = "http://localhost/2.html";
+
+    /** A page body. */
+    private static final String BODY = "<html>cached</html>";
+
+    /** An ETag. */
+    private static final String ETAG = "\"v1\"";
+
+    /** A Last-Modified date. */
+    private static final String LAST_MODIFIED = "Mon, 17 Oct 2016 10:00:00 GMT";
+
+    /** The OK status. */
+    private static final int SC_OK = 200;
+
+    /** A cache bound that fits one {@link #BODY}. */
+    private static final long ONE_PAGE = BODY.length() + 1;
+
+    /** The cache directory. */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /** The network fetcher. */
+    @Mock
+    private PageFetcher delegate;
+
+    /** The response cache. */
+    private DiskResponseCache cache;
+
+    /** Class under test. */
+    private CachingPageFetcher fetcher;
+
+    /**
+     * Test setup.
+     *
+     * @throws IOException thrown exception
+     */
+    @Before
+    public void setUp() throws IOException {
+        cache = new DiskResponseCache(folder.getRoot().toPath(), Long.MAX_VALUE);
+        fetcher = new CachingPageFetcher(delegate, cache);
+    }
+
+    /**
+     * Test the second fetch revalidates with the stored validators and reuses
+     * the stored body when the page is not modified.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testNotModifiedReusesCachedBody() throws IOException {
+        // Set up
+        Mockito.when(delegate.fetch(URI_1)).thenReturn(page(URI_1, ETAG, LAST_MODIFIED));
+        Mockito.when(delegate.fetch(URI_1, ETAG, LAST_MODIFIED)).thenReturn(
+                new FetchedPage(URI_1, FetchedPage.NOT_MODIFIED, new byte[0], null, ETAG, LAST_MODIFIED));
+
+        // Act
+        fetcher.fetch(URI_1);
+        final FetchedPage page = fetcher.fetch(URI_1);
+
+        // Assert
+        assertThat(new String(page.getBody(), StandardCharsets.UTF_8), equalTo(BODY));
+        assertThat(page.getStatusCode(), equalTo(SC_OK));
+        Mockito.verify(delegate).fetch(URI_1);
+        Mockito.verify(delegate).fetch(URI_1, ETAG, LAST_MODIFIED);
+        Mockito.verifyNoMoreInteractions(delegate);
+    }
+
+    /**
+     * Test a changed page replaces the stored copy.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testModifiedReplacesCachedBody() throws IOException {
+        // Set up
+        final FetchedPage changed = page(URI_1, "\"v2\"", null);
+        Mockito.when(delegate.fetch(URI_1)).thenReturn(page(URI_1, ETAG, null));
+        Mockito.when(delegate.fetch(URI_1, ETAG, null)).thenReturn(changed);
+
+        // Act
+        fetcher.fetch(URI_1);
+        final FetchedPage page = fetcher.fetch(URI_1);
+
+        // Assert
+        assertThat(page, sameInstance(changed));
+        assertThat(cache.get(URI_1).getETag(), equalTo("\"v2\""));
+    }
+
+    /**
+     * Test a page without validators is not cached.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testPageWithoutValidatorsNotCached() throws IOException {
+        // Set up
+        Mockito.when(delegate.fetch(URI_1)).thenReturn(page(URI_1, null, null));
+
+        // Act
+        fetcher.fetch(URI_1);
+
+        // Assert
+        assertThat(cache.get(URI_1), nullValue());
+        assertThat(cache.size(), equalTo(0));
+    }
+
+    /**
+     * Test the least recently used page is evicted once the bound is
+     * exceeded, and the cache index survives a restart.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testLeastRecentlyUsedEvicted() throws IOException {
+        // Set up
+        cache = new DiskResponseCache(folder.getRoot().toPath(), ONE_PAGE);
+
+        // Act
+        cache.put(page(URI_1, ETAG, null));
+        cache.put(page(URI_2, ETAG, null));
+
+        // Assert
+        assertThat(cache.get(URI_1), nullValue());
+        assertThat(cache.get(URI_2).getETag(), equalTo(ETAG));
+        final DiskResponseCache reloaded = new DiskResponseCache(folder.getRoot().toPath(), ONE_PAGE);
+        assertThat(reloaded.size(), equalTo(1));
+        assertThat(reloaded.getTotalBytes(), equalTo((long) BODY.length()));
+    }
+
+    /**
+     * Test each page is kept in a single file, so its body and validators
+     * are replaced together and read back together after a restart, and the
+     * separate files of earlier versions are cleared.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testPageKeptInOneFile() throws IOException {
+        // Set up
+        final Path oldBody = Files.write(folder.getRoot().toPath().resolve("old.body"), new byte[1]);
+        cache.put(page(URI_1, ETAG, LAST_MODIFIED));
+
+        // Act
+        cache.put(page(URI_1, "\"v2\"", null));
+        final DiskResponseCache reloaded = new DiskResponseCache(folder.getRoot().toPath(), Long.MAX_VALUE);
+
+        // Assert
+        final FetchedPage page = reloaded.get(URI_1);
+        assertThat(new String(page.getBody(), StandardCharsets.UTF_8), equalTo(BODY));
+        assertThat(page.getETag(), equalTo("\"v2\""));
+        assertThat(page.getLastModified(), nullValue());
+        assertThat(reloaded.getTotalBytes(), equalTo((long) BODY.length()));
+        assertThat(Files.exists(oldBody), equalTo(false));
+        try (Stream<Path> files = Files.list(folder.getRoot().toPath())) {
+            assertThat(files.count(), equalTo(1L));
+        }
+    }
+
+    /**
+     * Create a fetched page.
+     *
+     * @param uri the URI
+     * @param eTag the ETag
+     * @param lastModified the Last-Modified date
+     * @return the page
+     */
+    private static FetchedPage page(final String uri, final String eTag, final String lastModified) {
+        return new FetchedPage(uri, SC_OK, BODY.getBytes(StandardCharsets.UTF_8), "UTF-8", eTag, lastModified);
+    }
+
+}
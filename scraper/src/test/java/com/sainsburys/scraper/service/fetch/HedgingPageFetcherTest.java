@@ -0,0 +1,174 @@
+package com.sainsburys.scraper.service.fetch;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.jsoup.HttpStatusException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.sainsburys.scraper.config.ScraperProperties;
+import com.sainsburys.scraper.metrics.ScraperMetrics;
+
+/**
+ * Test class for {@link HedgingPageFetcher}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class HedgingPageFetcherTest {
+
+    /** A page URI. */
+    private static final String URI = "http://localhost/1.html";
+
+    /** The pages timed before requests are hedged. */
+    private static final int MIN_SAMPLES = 2;
+
+    /** The network fetcher. */
+    @Mock
+    private PageFetcher delegate;
+
+    /** The metrics registry. */
+    private ScraperMetrics metrics;
+
+    /** The pool the requests run on. */
+    private ExecutorService executor;
+
+    /** Holds the slow request until the test is done with it. */
+    private CountDownLatch release;
+
+    /** Class under test. */
+    private HedgingPageFetcher fetcher;
+
+    /**
+     * Test setup.
+     */
+    @Before
+    public void setUp() {
+        metrics = new ScraperMetrics();
+        executor = Executors.newCachedThreadPool();
+        release = new CountDownLatch(1);
+        final ScraperProperties.Fetch.Hedge settings = new ScraperProperties.Fetch.Hedge();
+        settings.setEnabled(true);
+        settings.setMinDelay(10);
+        settings.setMinSamples(MIN_SAMPLES);
+        fetcher = new HedgingPageFetcher(delegate, settings, metrics, executor);
+    }
+
+    /**
+     * Test tear down.
+     *
+     * @throws IOException thrown exception
+     */
+    @After
+    public void tearDown() throws IOException {
+        release.countDown();
+        fetcher.close();
+    }
+
+    /**
+     * Test a request is not hedged until enough pages have been timed.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testNotHedgedBeforeMinSamples() throws IOException {
+        // Set up
+        Mockito.when(delegate.fetch(URI)).thenReturn(page());
+
+        // Act
+        for (int i = 0; i < MIN_SAMPLES; i++) {
+            fetcher.fetch(URI);
+        }
+
+        // Assert
+        Mockito.verify(delegate, Mockito.times(MIN_SAMPLES)).fetch(URI);
+        assertThat(metrics.snapshot().getCounters().get(ScraperMetrics.FETCH_HEDGED), nullValue());
+    }
+
+    /**
+     * Test a slow request is duplicated and the duplicate's response used.
+     *
+     * @throws IOException thrown exception
+     * @throws InterruptedException thrown exception
+     */
+    @Test
+    public void testSlowRequestHedged() throws IOException, InterruptedException {
+        // Set up
+        final FetchedPage fast = page();
+        warmUp();
+        Mockito.when(delegate.fetch(URI)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return page();
+        }).thenReturn(fast);
+
+        // Act
+        final FetchedPage fetched = fetcher.fetch(URI);
+        release.countDown();
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertThat(fetched, sameInstance(fast));
+        assertThat(metrics.snapshot().getCounters().get(ScraperMetrics.FETCH_HEDGED), equalTo(1L));
+        assertThat(metrics.snapshot().getCounters().get(ScraperMetrics.FETCH_HEDGE_WON), equalTo(1L));
+    }
+
+    /**
+     * Test a page only fails when both the request and its duplicate fail,
+     * with the failure of the last to answer.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testFailsWhenBothFail() throws IOException {
+        // Set up
+        warmUp();
+        Mockito.when(delegate.fetch(URI)).thenAnswer(invocation -> {
+            release.await(200, TimeUnit.MILLISECONDS);
+            throw new HttpStatusException("Bad Gateway", 502, URI);
+        }).thenThrow(new HttpStatusException("Service Unavailable", 503, URI));
+
+        // Act
+        try {
+            fetcher.fetch(URI);
+            fail("Expected the fetch to fail");
+        } catch (final HttpStatusException e) {
+            // Assert
+            assertThat(e.getStatusCode(), equalTo(502));
+        }
+        Mockito.verify(delegate, Mockito.times(MIN_SAMPLES + 2)).fetch(URI);
+    }
+
+    /**
+     * Time enough fast pages for requests to be hedged.
+     *
+     * @throws IOException thrown exception
+     */
+    private void warmUp() throws IOException {
+        Mockito.when(delegate.fetch(URI)).thenReturn(page());
+        for (int i = 0; i < MIN_SAMPLES; i++) {
+            fetcher.fetch(URI);
+        }
+    }
+
+    /**
+     * @return a fetched page
+     */
+    private static FetchedPage page() {
+        return new FetchedPage(URI, 200, new byte[0], null);
+    }
+
+}
@@ -0,0 +1,80 @@
+package com.sainsburys.scraper.service.fetch;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Test class for {@link PageSize}.
+ */
+public class PageSizeTest {
+
+    /** The OK status. */
+    private static final int SC_OK = 200;
+
+    /** A page with non-ASCII text. */
+    private static final String PAGE = "<html><body><p>\u00a31.50 caf\u00e9</p></body></html>";
+
+    /**
+     * Test the wire size is the body as received.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testWireIsBodyLength() throws IOException {
+        // Set up
+        final byte[] body = PAGE.getBytes(StandardCharsets.ISO_8859_1);
+
+        // Act
+        final long size = PageSize.WIRE.measure(new FetchedPage("uri", SC_OK, body, "ISO-8859-1"));
+
+        // Assert
+        assertThat(size, equalTo((long) body.length));
+    }
+
+    /**
+     * Test the decoded size is the page decoded with its charset and encoded
+     * in the platform charset.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testDecodedIsPlatformEncodedLength() throws IOException {
+        // Set up
+        final byte[] body = PAGE.getBytes(StandardCharsets.ISO_8859_1);
+
+        // Act
+        final long size = PageSize.DECODED.measure(new FetchedPage("uri", SC_OK, body, "ISO-8859-1"));
+
+        // Assert
+        assertThat(size, equalTo((long) PAGE.getBytes().length));
+    }
+
+    /**
+     * Test a page larger than the counting buffer is counted in full, using
+     * the charset declared in the page when the response has none.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testDecodedLargePageWithMetaCharset() throws IOException {
+        // Set up
+        final StringBuilder page = new StringBuilder("<html><head><meta charset=\"ISO-8859-1\"></head><body>");
+        for (int i = 0; i < 2000; i++) {
+            page.append("<p>\u00e9t\u00e9</p>");
+        }
+        page.append("</body></html>");
+        final byte[] body = page.toString().getBytes(StandardCharsets.ISO_8859_1);
+
+        // Act
+        final long size = PageSize.DECODED.measure(new FetchedPage("uri", SC_OK, body, null));
+
+        // Assert
+        assertThat(size, equalTo((long) page.toString().getBytes().length));
+    }
+
+}
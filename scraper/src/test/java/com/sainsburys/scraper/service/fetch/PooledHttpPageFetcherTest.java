@@ -0,0 +1,179 @@
+package com.sainsburys.scraper.service.fetch;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jsoup.HttpStatusException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.sainsburys.scraper.config.ScraperProperties;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Test class for {@link PooledHttpPageFetcher}, against an embedded HTTP
+ * server.
+ */
+public class PooledHttpPageFetcherTest {
+
+    /** The page body. */
+    private static final String BODY = "<html><body><h1>Title</h1></body></html>";
+
+    /** The page path. */
+    private static final String PAGE_PATH = "/page.html";
+
+    /** The path of a page whose server keeps the connection alive for a second. */
+    private static final String SHORT_KEEP_ALIVE_PATH = "/short-keep-alive.html";
+
+    /** The milliseconds to wait for a one second keep alive to pass. */
+    private static final long KEEP_ALIVE_PASSED = 1200;
+
+    /** A missing page path. */
+    private static final String MISSING_PATH = "/missing.html";
+
+    /** The HTTP not found status. */
+    private static final int NOT_FOUND = 404;
+
+    /** The embedded server. */
+    private HttpServer server;
+
+    /** The remote ports the server has seen, one per connection. */
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    /** Class under test. */
+    private PooledHttpPageFetcher fetcher;
+
+    /** Expected exception. */
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /**
+     * Test setup.
+     *
+     * @throws IOException thrown exception
+     */
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        final HttpHandler page = exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            final byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/html; charset=UTF-8");
+            if (SHORT_KEEP_ALIVE_PATH.equals(exchange.getRequestURI().getPath())) {
+                exchange.getResponseHeaders().add("Keep-Alive", "timeout=1");
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        };
+        server.createContext(PAGE_PATH, page);
+        server.createContext(SHORT_KEEP_ALIVE_PATH, page);
+        server.createContext(MISSING_PATH, exchange -> {
+            exchange.sendResponseHeaders(NOT_FOUND, -1);
+            exchange.close();
+        });
+        server.start();
+        fetcher = new PooledHttpPageFetcher(new ScraperProperties.Fetch());
+    }
+
+    /**
+     * Test tear down.
+     *
+     * @throws IOException thrown exception
+     */
+    @After
+    public void tearDown() throws IOException {
+        fetcher.close();
+        server.stop(0);
+    }
+
+    /**
+     * Test the body and declared charset are returned as received.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testFetchReturnsBodyAndCharset() throws IOException {
+        // Act
+        final FetchedPage page = fetcher.fetch(url(PAGE_PATH));
+
+        // Assert
+        assertThat(page.getStatusCode(), equalTo(200));
+        assertThat(page.getCharset(), equalTo("UTF-8"));
+        assertThat(new String(page.getBody(), StandardCharsets.UTF_8), equalTo(BODY));
+        assertThat(page.parse().select("h1").text(), equalTo("Title"));
+    }
+
+    /**
+     * Test that sequential fetches to the same host reuse one connection.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testFetchReusesConnection() throws IOException {
+        // Act
+        fetcher.fetch(url(PAGE_PATH));
+        fetcher.fetch(url(PAGE_PATH));
+        fetcher.fetch(url(PAGE_PATH));
+
+        // Assert
+        assertThat(clientPorts.size(), equalTo(1));
+    }
+
+    /**
+     * Test that a connection is not reused once the server's keep alive
+     * timeout has passed, though the idle timeout has not.
+     *
+     * @throws Exception thrown exception
+     */
+    @Test
+    public void testFetchHonoursServerKeepAlive() throws Exception {
+        // Set up
+        fetcher.fetch(url(SHORT_KEEP_ALIVE_PATH));
+        Thread.sleep(KEEP_ALIVE_PASSED);
+
+        // Act
+        fetcher.fetch(url(SHORT_KEEP_ALIVE_PATH));
+
+        // Assert
+        assertThat(clientPorts.size(), equalTo(2));
+    }
+
+    /**
+     * Test that an error status is reported as a {@link HttpStatusException}.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testFetchErrorStatusThrows() throws IOException {
+        // Set up
+        thrown.expect(HttpStatusException.class);
+        thrown.expectMessage("HTTP error fetching URL");
+
+        // Act
+        fetcher.fetch(url(MISSING_PATH));
+    }
+
+    /**
+     * Build the URL for a path on the embedded server.
+     *
+     * @param path the path
+     * @return the URL
+     */
+    private String url(final String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+
+}
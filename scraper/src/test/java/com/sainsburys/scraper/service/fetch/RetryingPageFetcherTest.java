@@ -0,0 +1,133 @@
+package com.sainsburys.scraper.service.fetch;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jsoup.HttpStatusException;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.runners.MockitoJUnitRunner;
+
+import com.sainsburys.scraper.config.ScraperProperties;
+import com.sainsburys.scraper.metrics.ScraperMetrics;
+
+/**
+ * Test class for {@link RetryingPageFetcher}.
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class RetryingPageFetcherTest {
+
+    /** A page URI. */
+    private static final String URI = "http://localhost/1.html";
+
+    /** The network fetcher. */
+    @Mock
+    private PageFetcher delegate;
+
+    /** The metrics registry. */
+    private ScraperMetrics metrics;
+
+    /** The backoffs waited for, in milliseconds. */
+    private List<Long> backoffs;
+
+    /** Class under test. */
+    private RetryingPageFetcher fetcher;
+
+    /**
+     * Test setup.
+     */
+    @Before
+    public void setUp() {
+        metrics = new ScraperMetrics();
+        backoffs = new ArrayList<Long>();
+        final ScraperProperties.Fetch.Retry settings = new ScraperProperties.Fetch.Retry();
+        settings.setMaxAttempts(4);
+        settings.setInitialBackoff(1);
+        settings.setMaxBackoff(3);
+        fetcher = new RetryingPageFetcher(delegate, settings, metrics, backoff -> {
+            backoffs.add(backoff);
+            return 0;
+        });
+    }
+
+    /**
+     * Test a timed out fetch is retried until it succeeds.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testTimeoutRetried() throws IOException {
+        // Set up
+        final FetchedPage page = new FetchedPage(URI, 200, new byte[0], null);
+        Mockito.when(delegate.fetch(URI)).thenThrow(new SocketTimeoutException("Read timed out"))
+                .thenThrow(new HttpStatusException("Service Unavailable", 503, URI)).thenReturn(page);
+
+        // Act
+        final FetchedPage fetched = fetcher.fetch(URI);
+
+        // Assert
+        assertThat(fetched, sameInstance(page));
+        assertThat(backoffs, equalTo(Arrays.asList(1L, 2L)));
+        assertThat(metrics.snapshot().getCounters().get(ScraperMetrics.FETCH_RETRIES), equalTo(2L));
+    }
+
+    /**
+     * Test the last failure is thrown once the attempts run out, the backoff
+     * doubling up to the maximum.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testGivesUpAfterMaxAttempts() throws IOException {
+        // Set up
+        final SocketTimeoutException last = new SocketTimeoutException("Read timed out");
+        Mockito.when(delegate.fetch(URI)).thenThrow(new SocketTimeoutException("Read timed out"))
+                .thenThrow(new SocketTimeoutException("Read timed out"))
+                .thenThrow(new SocketTimeoutException("Read timed out")).thenThrow(last);
+
+        // Act
+        try {
+            fetcher.fetch(URI);
+            fail("Expected the fetch to fail");
+        } catch (final IOException e) {
+            // Assert
+            assertThat(e, sameInstance((IOException) last));
+        }
+        assertThat(backoffs, equalTo(Arrays.asList(1L, 2L, 3L)));
+        Mockito.verify(delegate, Mockito.times(4)).fetch(URI);
+    }
+
+    /**
+     * Test a 404 is not retried.
+     *
+     * @throws IOException thrown exception
+     */
+    @Test
+    public void testNotFoundNotRetried() throws IOException {
+        // Set up
+        Mockito.when(delegate.fetch(URI)).thenThrow(new HttpStatusException("Not Found", 404, URI));
+
+        // Act
+        try {
+            fetcher.fetch(URI);
+            fail("Expected the fetch to fail");
+        } catch (final HttpStatusException e) {
+            // Assert
+            assertThat(e.getStatusCode(), equalTo(404));
+        }
+        Mockito.verify(delegate).fetch(URI);
+        assertThat(backoffs.isEmpty(), equalTo(true));
+    }
+
+}
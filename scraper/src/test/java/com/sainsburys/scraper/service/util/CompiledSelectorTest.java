@@ -0,0 +1,73 @@
+package com.sainsburys.scraper.service.util;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.select.Collector;
+import org.jsoup.select.Elements;
+import org.junit.Test;
+
+/**
+ * Test class for {@link CompiledSelector}.
+ */
+public class CompiledSelectorTest {
+
+    /** A page with nested and misleading elements. */
+    private static final String PAGE = "<div class=\"a b\"><span><p class=\"c\">1</p></span>"
+            + "<div class=\"x\"><p class=\"c\">2</p><p>3</p></div></div>"
+            + "<div class=\"b\"><p class=\"c\">4</p></div><p class=\"c\">5</p>";
+
+    /**
+     * Test the compiled selectors select the same elements as Jsoup.
+     */
+    @Test
+    public void testMatchesJsoupSelect() {
+        // Set up
+        final Document document = Jsoup.parse(PAGE);
+
+        for (final String css : new String[] { "p", "p.c", "div.a p.c", "div.b p", "div.a div.x p", ".b .c",
+                "div.a.b span p" }) {
+            // Act
+            final Elements compiled = Collector.collect(CompiledSelector.compile(css), document);
+
+            // Assert
+            assertThat(css, compiled, equalTo(document.select(css)));
+        }
+    }
+
+    /**
+     * Test the parsed steps hold the lower case tag and the classes of each
+     * step, outermost first.
+     */
+    @Test
+    public void testSteps() {
+        // Act
+        final List<CompiledSelector.Step> steps = CompiledSelector.compile(" DIV.a.b  .c ").getSteps();
+
+        // Assert
+        assertThat(steps, hasSize(2));
+        assertThat(steps.get(0).getTag(), equalTo("div"));
+        assertThat(steps.get(0).getClasses(), contains("a", "b"));
+        assertThat(steps.get(1).getTag(), nullValue());
+        assertThat(steps.get(1).getClasses(), contains("c"));
+        assertThat(CompiledSelector.compile("p").getSteps().get(0).getClasses(), empty());
+    }
+
+    /**
+     * Test selectors beyond tags, classes and descendants are refused.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testChildCombinatorUnsupported() {
+        // Act
+        CompiledSelector.compile("div > p");
+    }
+
+}
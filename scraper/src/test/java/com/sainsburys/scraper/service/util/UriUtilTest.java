@@ -0,0 +1,75 @@
+package com.sainsburys.scraper.service.util;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.Locale;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.Test;
+
+/**
+ * Test class for {@link UriUtil}.
+ */
+public class UriUtilTest {
+
+    /** The fallback host. */
+    private static final String FALLBACK = "unknown";
+
+    /**
+     * Test the host is lower cased the same in every locale.
+     */
+    @Test
+    public void testHostLowerCasedInAnyLocale() {
+        // Set up
+        final Locale locale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            // Act
+            final String host = UriUtil.hostOf("http://WWW.SAINSBURYS.CO.UK/shop/1.html", FALLBACK);
+
+            // Assert
+            assertThat(host, equalTo("www.sainsburys.co.uk"));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    /**
+     * Test the fallback is given for a URI with no host, or no URI at all.
+     */
+    @Test
+    public void testFallbackWithoutHost() {
+        // Act
+        final String relative = UriUtil.hostOf("1.html", FALLBACK);
+        final String invalid = UriUtil.hostOf("http://bad uri", FALLBACK);
+
+        // Assert
+        assertThat(relative, equalTo(FALLBACK));
+        assertThat(invalid, equalTo(FALLBACK));
+    }
+
+    /**
+     * Test a link is resolved against the page it is on, and kept as written
+     * when the page has no base to resolve it against.
+     */
+    @Test
+    public void testHrefResolved() {
+        // Set up
+        final String html = "<a href=\"1.html\">1</a><a href=\"http://elsewhere/2.html\">2</a>";
+        final Document page = Jsoup.parse(html, "http://localhost/shop/list.html");
+        final Document unresolvable = Jsoup.parse(html, "");
+
+        // Act
+        final String relative = UriUtil.hrefOf(page.select("a").get(0));
+        final String absolute = UriUtil.hrefOf(page.select("a").get(1));
+        final String asWritten = UriUtil.hrefOf(unresolvable.select("a").get(0));
+
+        // Assert
+        assertThat(relative, equalTo("http://localhost/shop/1.html"));
+        assertThat(absolute, equalTo("http://elsewhere/2.html"));
+        assertThat(asWritten, equalTo("1.html"));
+    }
+
+}
@@ -0,0 +1,154 @@
+package com.sainsburys.scraper.validation;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.Errors;
+import org.springframework.validation.FieldError;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import com.sainsburys.scraper.json.model.ScraperModel;
+import com.sainsburys.scraper.json.model.ScraperResultModel;
+
+/**
+ * Test class for {@link ScraperModelValidator}.
+ */
+public class ScraperModelValidatorTest {
+
+    /** Class under test. */
+    private final ScraperModelValidator validator = new ScraperModelValidator();
+
+    /**
+     * Test a complete product has no errors.
+     */
+    @Test
+    public void testValidProduct() {
+        // Set up
+        final ScraperResultModel result = product();
+
+        // Act
+        final Errors errors = validate(result, "scraperResultModel");
+
+        // Assert
+        assertThat(errors.hasErrors(), equalTo(false));
+    }
+
+    /**
+     * Test each missing field of a product is rejected as not null.
+     */
+    @Test
+    public void testProductMissingFields() {
+        // Set up
+        final ScraperResultModel result = ScraperResultModel.builder().title("Title").build();
+
+        // Act
+        final Errors errors = validate(result, "scraperResultModel");
+
+        // Assert
+        assertThat(errors.getFieldErrorCount(), equalTo(3));
+        final FieldError error = errors.getFieldError("unitPrice");
+        assertThat(error.getCode(), equalTo("NotNull"));
+        assertThat(error.getDefaultMessage(), equalTo("may not be null"));
+        assertThat(error.getRejectedValue(), nullValue());
+        assertThat(errors.getFieldError("title"), nullValue());
+    }
+
+    /**
+     * Test a model without results or a total is rejected, without the
+     * products being validated.
+     */
+    @Test
+    public void testModelConstraints() {
+        // Set up
+        final ScraperModel model = ScraperModel.builder().results(Collections.singletonList(ScraperResultModel.builder().build()))
+                .build();
+
+        // Act
+        final Errors errors = validate(model, "scraperModel");
+
+        // Assert
+        assertThat(errors.getFieldErrorCount(), equalTo(1));
+        assertThat(errors.getFieldError().getField(), equalTo("total"));
+    }
+
+    /**
+     * Test a model with empty results is rejected as not empty.
+     */
+    @Test
+    public void testModelEmptyResults() {
+        // Set up
+        final ScraperModel model = ScraperModel.builder().results(Collections.emptyList()).total(BigDecimal.ZERO)
+                .build();
+
+        // Act
+        final Errors errors = validate(model, "scraperModel");
+
+        // Assert
+        assertThat(errors.getFieldError("results").getCode(), equalTo("NotEmpty"));
+        assertThat(errors.getFieldError("results").getDefaultMessage(), equalTo("may not be empty"));
+    }
+
+    /**
+     * Test the errors match those of bean validation, so they are reported
+     * the same.
+     */
+    @Test
+    public void testMatchesBeanValidation() {
+        // Set up
+        final LocalValidatorFactoryBean beanValidator = new LocalValidatorFactoryBean();
+        beanValidator.afterPropertiesSet();
+
+        // Act / Assert
+        assertMatches(beanValidator, ScraperModel.builder().build(), "scraperModel");
+        assertMatches(beanValidator, ScraperResultModel.builder().build(), "scraperResultModel");
+    }
+
+    /**
+     * Assert the errors for a target match those of bean validation.
+     *
+     * @param beanValidator the bean validator
+     * @param target the target
+     * @param name the name of the target
+     */
+    private void assertMatches(final LocalValidatorFactoryBean beanValidator, final Object target,
+            final String name) {
+        final Errors errors = validate(target, name);
+        final Errors expected = new BeanPropertyBindingResult(target, name);
+        beanValidator.validate(target, expected);
+        assertThat(errors.getFieldErrorCount(), equalTo(expected.getFieldErrorCount()));
+        for (final FieldError error : expected.getFieldErrors()) {
+            assertThat(errors.getFieldErrors().stream().map(FieldError::toString).collect(Collectors.toList()),
+                    hasItem(error.toString()));
+        }
+    }
+
+    /**
+     * Validate a target.
+     *
+     * @param target the target
+     * @param name the name of the target
+     * @return the errors
+     */
+    private Errors validate(final Object target, final String name) {
+        final Errors errors = new BeanPropertyBindingResult(target, name);
+        validator.validate(target, errors);
+        return errors;
+    }
+
+    /**
+     * @return a complete product
+     */
+    private static ScraperResultModel product() {
+        return ScraperResultModel.builder().title("Title").size("1kb")
+                .unitPrice(BigDecimal.ONE).description("Description").build();
+    }
+
+}